@@ -0,0 +1,99 @@
+package com.example.dosebuddy;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.example.dosebuddy.database.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark comparing single autocommit history inserts
+ * with the batched inserts used by HistoryWriteQueue.
+ * Uses a file-backed database so every commit pays its real fsync cost.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryInsertBenchmarkTest {
+
+    private static final String TAG = "HistoryInsertBenchmark";
+    private static final String DATABASE_NAME = "history_insert_benchmark";
+    private static final int ROW_COUNT = 500;
+    private static final int BATCH_SIZE = 100;
+
+    private Context context;
+    private AppDatabase database;
+    private MedicationHistoryDao historyDao;
+    private int userId;
+    private int medicationId;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME).build();
+        historyDao = database.medicationHistoryDao();
+
+        userId = (int) database.userDao().insertUser(
+                new User("benchmark", "benchmark@example.com", "Benchmark User", "hash"));
+        medicationId = (int) database.medicationDao().insertMedication(
+                new Medication(userId, "Aspirin", "100mg", MedicationFrequency.ONCE_DAILY, 1,
+                        System.currentTimeMillis()));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void batchedInsertsOutperformSingleInserts() {
+        long singleStart = System.nanoTime();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            historyDao.insertHistory(createHistory(i));
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        long batchedStart = System.nanoTime();
+        for (int i = 0; i < ROW_COUNT; i += BATCH_SIZE) {
+            List<MedicationHistory> batch = new ArrayList<>(BATCH_SIZE);
+            for (int j = i; j < i + BATCH_SIZE; j++) {
+                batch.add(createHistory(ROW_COUNT + j));
+            }
+            historyDao.insertHistories(batch);
+        }
+        long batchedNanos = System.nanoTime() - batchedStart;
+
+        double singleRate = ROW_COUNT / (singleNanos / 1e9);
+        double batchedRate = ROW_COUNT / (batchedNanos / 1e9);
+        Log.i(TAG, String.format("single: %.0f inserts/s, batched (%d/tx): %.0f inserts/s",
+                singleRate, BATCH_SIZE, batchedRate));
+
+        assertEquals(ROW_COUNT * 2, historyDao.getTotalDosesTaken(medicationId));
+        assertTrue("Batched inserts should be faster than single inserts",
+                batchedRate > singleRate);
+    }
+
+    private MedicationHistory createHistory(int index) {
+        long takenAt = System.currentTimeMillis() - index * 60_000L;
+        return new MedicationHistory(userId, medicationId, "Aspirin", "100mg",
+                takenAt, MedicationHistory.TakenMethod.MANUAL);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.dosebuddy.debug;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+
+import com.example.dosebuddy.R;
+import com.example.dosebuddy.metrics.QueryMetrics;
+import com.example.dosebuddy.metrics.ReminderLatency;
+import com.example.dosebuddy.startup.AppStartup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Debug-only screen showing DAO latency, rows and threads, the slow-query log
+ * and reminder lateness percentiles
+ * Opened from the main menu in debug builds.
+ */
+public class QueryMetricsActivity extends AppCompatActivity {
+
+    private TextView tvReport;
+    private EditText etSlowQueryThreshold;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_metrics);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle(R.string.query_metrics);
+        }
+
+        tvReport = findViewById(R.id.tv_report);
+        etSlowQueryThreshold = findViewById(R.id.et_slow_query_threshold);
+        Button btnSaveThreshold = findViewById(R.id.btn_save_threshold);
+        Button btnRefresh = findViewById(R.id.btn_refresh);
+        Button btnReset = findViewById(R.id.btn_reset);
+        Button btnWriteDump = findViewById(R.id.btn_write_dump);
+
+        QueryMetrics metrics = QueryMetrics.getInstance();
+        etSlowQueryThreshold.setText(String.valueOf(metrics.getSlowQueryThresholdMs()));
+
+        btnSaveThreshold.setOnClickListener(v -> saveThreshold());
+        btnRefresh.setOnClickListener(v -> refresh());
+        btnReset.setOnClickListener(v -> {
+            metrics.reset();
+            refresh();
+        });
+        btnWriteDump.setOnClickListener(v -> writeDumpFile());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executorService.shutdown();
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    private void saveThreshold() {
+        try {
+            long thresholdMs = Long.parseLong(etSlowQueryThreshold.getText().toString().trim());
+            QueryMetrics.getInstance().setSlowQueryThresholdMs(this, thresholdMs);
+            refresh();
+        } catch (NumberFormatException e) {
+            etSlowQueryThreshold.setError(getString(R.string.slow_query_threshold_hint));
+        }
+    }
+
+    private void refresh() {
+        StringWriter report = new StringWriter();
+        try {
+            QueryMetrics.getInstance().dump(report);
+            report.write("\n");
+            ReminderLatency.dump(this, report);
+            report.write("\n");
+            AppStartup.dump(report);
+        } catch (IOException e) {
+            // StringWriter does not throw
+        }
+        tvReport.setText(report.toString());
+    }
+
+    private void writeDumpFile() {
+        executorService.execute(() -> {
+            try {
+                File file = QueryMetrics.getInstance().writeDumpFile(this);
+                runOnUiThread(() -> Toast.makeText(this,
+                        getString(R.string.metrics_dump_written, file.getAbsolutePath()),
+                        Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                runOnUiThread(() -> Toast.makeText(this, R.string.metrics_dump_failed,
+                        Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+}
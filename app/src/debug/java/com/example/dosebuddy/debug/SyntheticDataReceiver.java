@@ -0,0 +1,30 @@
+package com.example.dosebuddy.debug;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Debug-only trigger for the synthetic data generator
+ *
+ * adb shell am broadcast -n com.example.dosebuddy/.debug.SyntheticDataReceiver \
+ *     --ei users 50 --ei medications 8 --ei days 730 --el seed 42
+ *
+ * Generation runs in SyntheticDataWorker; follow it with adb logcat -s SyntheticDataGenerator.
+ */
+public class SyntheticDataReceiver extends BroadcastReceiver {
+
+    public static final String EXTRA_USERS = "users";
+    public static final String EXTRA_MEDICATIONS = "medications";
+    public static final String EXTRA_DAYS = "days";
+    public static final String EXTRA_SEED = "seed";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        SyntheticDataWorker.enqueue(context,
+                intent.getIntExtra(EXTRA_USERS, 10),
+                intent.getIntExtra(EXTRA_MEDICATIONS, 5),
+                intent.getIntExtra(EXTRA_DAYS, 365),
+                intent.getLongExtra(EXTRA_SEED, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.dosebuddy.debug;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.utils.SyntheticDataGenerator;
+
+/**
+ * Debug-only worker that fills the shared database with synthetic data
+ * Runs as work rather than in the receiver because large runs take minutes.
+ */
+public class SyntheticDataWorker extends Worker {
+
+    private static final String TAG = "SyntheticDataGenerator";
+    private static final String WORK_NAME = "synthetic_data";
+
+    private static final String USERS_KEY = "users";
+    private static final String MEDICATIONS_KEY = "medications";
+    private static final String DAYS_KEY = "days";
+    private static final String SEED_KEY = "seed";
+
+    public SyntheticDataWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Queue a generation run after any that is still going
+     */
+    public static void enqueue(Context context, int users, int medications, int days, long seed) {
+        Data inputData = new Data.Builder()
+                .putInt(USERS_KEY, users)
+                .putInt(MEDICATIONS_KEY, medications)
+                .putInt(DAYS_KEY, days)
+                .putLong(SEED_KEY, seed)
+                .build();
+
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(SyntheticDataWorker.class)
+                .setInputData(inputData)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        int users = input.getInt(USERS_KEY, 0);
+        int medications = input.getInt(MEDICATIONS_KEY, 0);
+        int days = input.getInt(DAYS_KEY, 0);
+        long seed = input.getLong(SEED_KEY, 0);
+        Log.i(TAG, "Generating " + users + " users x " + medications + " medications x "
+                + days + " days, seed " + seed);
+
+        long startTime = System.nanoTime();
+        try {
+            SyntheticDataGenerator.Result result = new SyntheticDataGenerator(
+                    AppDatabase.getInstance(getApplicationContext()), seed)
+                    .generate(users, medications, days, System.currentTimeMillis());
+            Log.i(TAG, "Done in " + (System.nanoTime() - startTime) / 1_000_000 + " ms: " + result);
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Generation failed", e);
+            return Result.failure();
+        }
+    }
+}
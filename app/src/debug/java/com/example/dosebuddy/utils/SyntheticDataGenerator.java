@@ -0,0 +1,349 @@
+package com.example.dosebuddy.utils;
+
+import android.util.Log;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DoseInstance;
+import com.example.dosebuddy.database.DoseInstanceDao;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.example.dosebuddy.database.MedicationScheduleDao;
+import com.example.dosebuddy.database.User;
+import com.example.dosebuddy.database.UserDao;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator of realistic users, medications and dose history
+ * for load tests, soak tests and demos
+ *
+ * Everything is drawn from one Random, so the same seed, volumes and "now"
+ * produce the same rows (password salts aside). History and the expected-dose
+ * ledger are written through the DAO batch inserts in large transactions,
+ * which keeps millions of rows to a few minutes on a device.
+ * All generated users sign in with SYNTHETIC_PASSWORD, so the class is only
+ * in the debug source set; debug unit tests can still use it.
+ * Must be called off the main thread.
+ */
+public class SyntheticDataGenerator {
+
+    private static final String TAG = "SyntheticDataGenerator";
+
+    public static final String SYNTHETIC_PASSWORD = "password";
+    static final String USERNAME_PREFIX = "synthetic_";
+
+    // Rows per transaction; large enough that commit cost is negligible
+    static final int BATCH_SIZE = 5000;
+
+    // Share of scheduled doses that are missed or taken late; the rest are on time
+    static final double MISSED_RATE = 0.10;
+    static final double LATE_RATE = 0.15;
+    static final double NOTE_RATE = 0.03;
+    // Chance an as-needed medication is taken on a given day
+    static final double AS_NEEDED_DAILY_RATE = 0.3;
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long LATE_MIN_MS = DoseLedger.ON_TIME_WINDOW_MS + MINUTE_MS;
+    private static final long LATE_MAX_MS = 4 * 60 * MINUTE_MS;
+
+    // Frequency mix, roughly what a medication list looks like in practice
+    private static final MedicationFrequency[] FREQUENCIES = {
+            MedicationFrequency.ONCE_DAILY, MedicationFrequency.TWICE_DAILY,
+            MedicationFrequency.THREE_TIMES_DAILY, MedicationFrequency.FOUR_TIMES_DAILY,
+            MedicationFrequency.EVERY_OTHER_DAY, MedicationFrequency.WEEKLY,
+            MedicationFrequency.AS_NEEDED
+    };
+    private static final int[] FREQUENCY_WEIGHTS = {35, 25, 10, 5, 8, 7, 10};
+
+    private static final String[] MEDICATION_NAMES = {
+            "Lisinopril", "Metformin", "Atorvastatin", "Levothyroxine", "Amlodipine",
+            "Omeprazole", "Sertraline", "Losartan", "Albuterol", "Gabapentin",
+            "Ibuprofen", "Vitamin D", "Aspirin", "Prednisone", "Amoxicillin"
+    };
+    private static final String[] DOSAGES = {"5mg", "10mg", "20mg", "50mg", "100mg", "250mg", "500mg", "1 tablet", "2 puffs"};
+    private static final String[] MEDICATION_NOTES = {
+            "Take with food", "Take on an empty stomach", "Avoid grapefruit", "Refill monthly"
+    };
+    private static final String[] DOSE_NOTES = {
+            "Felt dizzy afterwards", "Took with breakfast", "Slight headache", "Taken at work"
+    };
+
+    private final AppDatabase database;
+    private final UserDao userDao;
+    private final MedicationDao medicationDao;
+    private final MedicationHistoryDao historyDao;
+    private final DoseInstanceDao doseInstanceDao;
+    private final MedicationScheduleDao scheduleDao;
+    private final long seed;
+    private final Random random;
+
+    // Pending batch; instanceHistory[i] is the index in histories that resolved instances[i], or -1
+    private final List<MedicationHistory> histories = new ArrayList<>();
+    private final List<DoseInstance> instances = new ArrayList<>();
+    private final List<Integer> instanceHistory = new ArrayList<>();
+
+    private final List<Integer> medicationIds = new ArrayList<>();
+    private Result result;
+
+    /**
+     * Counts of generated rows
+     */
+    public static class Result {
+        public int users;
+        public int medications;
+        public long historyRecords;
+        public long missedDoses;
+
+        @Override
+        public String toString() {
+            return users + " users, " + medications + " medications, "
+                    + historyRecords + " history records, " + missedDoses + " missed doses";
+        }
+    }
+
+    /**
+     * @param database Database to write to
+     * @param seed Random seed; also part of the generated usernames
+     */
+    public SyntheticDataGenerator(AppDatabase database, long seed) {
+        this.database = database;
+        this.userDao = database.userDao();
+        this.medicationDao = database.medicationDao();
+        this.historyDao = database.medicationHistoryDao();
+        this.doseInstanceDao = database.doseInstanceDao();
+        this.scheduleDao = database.medicationScheduleDao();
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generate users with medications and history up to now
+     * Expect about medicationsPerUser x historyDays x 1.5 history records per user.
+     * @param users Number of users
+     * @param medicationsPerUser Medications per user
+     * @param historyDays Days of history before now
+     * @param now End of the generated history
+     * @return Counts of generated rows
+     * @throws IllegalStateException if this seed was already generated into the database
+     */
+    public Result generate(int users, int medicationsPerUser, int historyDays, long now) {
+        if (userDao.getUserByUsername(username(0)) != null) {
+            throw new IllegalStateException("Seed " + seed + " was already generated; use another seed");
+        }
+
+        result = new Result();
+        medicationIds.clear();
+        // Users share one hash at the minimum work factor; hashing per user would dominate small runs
+        String passwordHash = PasswordUtils.createPasswordHash(SYNTHETIC_PASSWORD, PasswordUtils.MIN_ITERATIONS);
+        long windowStart = DateTimeUtils.getStartOfDay(now) - historyDays * 24L * 60 * MINUTE_MS;
+
+        for (int u = 0; u < users; u++) {
+            User user = new User(username(u), username(u) + "@example.com",
+                    "Synthetic User " + (u + 1), passwordHash);
+            user.setCreatedAt(windowStart);
+            int userId = (int) userDao.insertUser(user);
+            result.users++;
+
+            for (int m = 0; m < medicationsPerUser; m++) {
+                generateMedication(userId, windowStart, now);
+            }
+        }
+        flush();
+
+        // Counters are derived from the history, so they are filled in once it is all written
+        long dayStart = DateTimeUtils.getStartOfDay(now);
+        long dayEnd = DateTimeUtils.getEndOfDay(now);
+        database.runInTransaction(() -> {
+            for (int medicationId : medicationIds) {
+                medicationDao.refreshDoseCounters(medicationId, dayStart, dayEnd);
+            }
+        });
+
+        Log.i(TAG, "Seed " + seed + ": generated " + result);
+        return result;
+    }
+
+    private String username(int index) {
+        return USERNAME_PREFIX + seed + "_" + index;
+    }
+
+    private void generateMedication(int userId, long windowStart, long now) {
+        MedicationFrequency frequency = pickFrequency();
+        String name = MEDICATION_NAMES[random.nextInt(MEDICATION_NAMES.length)];
+        String dosage = DOSAGES[random.nextInt(DOSAGES.length)];
+
+        // Most medications cover nearly the whole window; some were stopped part way
+        long span = Math.max(now - windowStart, 1);
+        long startDate = DateTimeUtils.getStartOfDay(windowStart + (long) (random.nextDouble() * 0.2 * span));
+        Long endDate = null;
+        if (random.nextDouble() < 0.15) {
+            endDate = DateTimeUtils.getEndOfDay(startDate + (long) (random.nextDouble() * (now - startDate)));
+        }
+
+        Medication medication = new Medication(userId, name, dosage, frequency,
+                frequency.getDefaultTimesPerDay(), startDate);
+        medication.setEndDate(endDate);
+        medication.setActive(endDate == null);
+        medication.setCreatedAt(startDate);
+        medication.setUpdatedAt(startDate);
+        if (random.nextDouble() < 0.3) {
+            medication.setNotes(MEDICATION_NOTES[random.nextInt(MEDICATION_NOTES.length)]);
+        }
+        int medicationId = (int) medicationDao.insertMedication(medication);
+        medication.setId(medicationId);
+        result.medications++;
+
+        List<Integer> minutes = ScheduleUtils.getDefaultDoseMinutes(frequency, medication.getTimesPerDay());
+        scheduleDao.replaceSlots(medicationId, userId, minutes);
+
+        long lastDay = endDate != null ? Math.min(endDate, now) : now;
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(startDate);
+        while (day.getTimeInMillis() <= lastDay) {
+            long dayStart = day.getTimeInMillis();
+            if (frequency == MedicationFrequency.AS_NEEDED) {
+                generateAsNeededDay(medication, dayStart, now);
+            } else if (ScheduleUtils.isDoseDay(frequency, startDate, dayStart)) {
+                for (int minute : minutes) {
+                    generateDose(medication, ScheduleUtils.atMinuteOfDay(dayStart, minute), now);
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        medicationIds.add(medicationId);
+    }
+
+    private MedicationFrequency pickFrequency() {
+        int total = 0;
+        for (int weight : FREQUENCY_WEIGHTS) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < FREQUENCIES.length; i++) {
+            pick -= FREQUENCY_WEIGHTS[i];
+            if (pick < 0) {
+                return FREQUENCIES[i];
+            }
+        }
+        return MedicationFrequency.ONCE_DAILY;
+    }
+
+    private void generateDose(Medication medication, long scheduledTime, long now) {
+        double outcome = random.nextDouble();
+        if (outcome < MISSED_RATE) {
+            long resolvedAt = scheduledTime + DoseLedger.MISSED_GRACE_MS;
+            if (resolvedAt > now) {
+                return; // Would still be pending; the ledger fills those in
+            }
+            DoseInstance instance = new DoseInstance(medication.getUserId(), medication.getId(), scheduledTime);
+            instance.setStatusEnum(DoseInstance.Status.MISSED);
+            instance.setResolvedAt(resolvedAt);
+            instance.setCreatedAt(scheduledTime);
+            addInstance(instance, -1);
+            result.missedDoses++;
+            return;
+        }
+
+        long takenAt;
+        if (outcome < MISSED_RATE + LATE_RATE) {
+            takenAt = scheduledTime + LATE_MIN_MS + (long) (random.nextDouble() * (LATE_MAX_MS - LATE_MIN_MS));
+        } else {
+            // On time: centred on the slot, a few minutes either way
+            long offset = (long) (random.nextGaussian() * 10 * MINUTE_MS);
+            takenAt = scheduledTime + Math.max(-DoseLedger.ON_TIME_WINDOW_MS,
+                    Math.min(DoseLedger.ON_TIME_WINDOW_MS, offset));
+        }
+        if (takenAt > now) {
+            return;
+        }
+
+        MedicationHistory history = createHistory(medication, scheduledTime, takenAt, pickTakenMethod());
+        DoseInstance instance = new DoseInstance(medication.getUserId(), medication.getId(), scheduledTime);
+        instance.setStatusEnum(DoseLedger.classify(scheduledTime, takenAt));
+        instance.setResolvedAt(takenAt);
+        instance.setCreatedAt(scheduledTime);
+        histories.add(history);
+        addInstance(instance, histories.size() - 1);
+    }
+
+    private void generateAsNeededDay(Medication medication, long dayStart, long now) {
+        if (random.nextDouble() >= AS_NEEDED_DAILY_RATE) {
+            return;
+        }
+        int doses = 1 + random.nextInt(2);
+        for (int i = 0; i < doses; i++) {
+            // Waking hours, 7:00 to 22:00
+            long takenAt = dayStart + (7 * 60 + random.nextInt(15 * 60)) * MINUTE_MS;
+            if (takenAt <= now) {
+                histories.add(createHistory(medication, null, takenAt, MedicationHistory.TakenMethod.MANUAL));
+                flushIfFull();
+            }
+        }
+    }
+
+    private MedicationHistory.TakenMethod pickTakenMethod() {
+        double pick = random.nextDouble();
+        if (pick < 0.6) {
+            return MedicationHistory.TakenMethod.REMINDER;
+        } else if (pick < 0.85) {
+            return MedicationHistory.TakenMethod.NOTIFICATION;
+        }
+        return MedicationHistory.TakenMethod.MANUAL;
+    }
+
+    private MedicationHistory createHistory(Medication medication, Long scheduledTime, long takenAt,
+                                            MedicationHistory.TakenMethod method) {
+        MedicationHistory history = new MedicationHistory(medication.getUserId(), medication.getId(),
+                medication.getName(), medication.getDosage(), scheduledTime, takenAt, method);
+        history.setCreatedAt(takenAt);
+        if (random.nextDouble() < NOTE_RATE) {
+            history.setNotes(DOSE_NOTES[random.nextInt(DOSE_NOTES.length)]);
+        }
+        result.historyRecords++;
+        return history;
+    }
+
+    private void addInstance(DoseInstance instance, int historyIndex) {
+        instances.add(instance);
+        instanceHistory.add(historyIndex);
+        flushIfFull();
+    }
+
+    private void flushIfFull() {
+        if (histories.size() >= BATCH_SIZE || instances.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the buffered history and its ledger rows in one transaction
+     * Ledger rows need the history IDs, so history goes first.
+     */
+    private void flush() {
+        if (histories.isEmpty() && instances.isEmpty()) {
+            return;
+        }
+        database.runInTransaction(() -> {
+            List<Long> ids = histories.isEmpty() ? new ArrayList<>() : historyDao.insertHistories(histories);
+            for (int i = 0; i < instances.size(); i++) {
+                int historyIndex = instanceHistory.get(i);
+                if (historyIndex >= 0) {
+                    instances.get(i).setHistoryId(ids.get(historyIndex).intValue());
+                }
+            }
+            if (!instances.isEmpty()) {
+                doseInstanceDao.insertInstances(instances);
+            }
+        });
+        histories.clear();
+        instances.clear();
+        instanceHistory.clear();
+    }
+}
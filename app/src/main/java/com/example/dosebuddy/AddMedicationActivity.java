@@ -3,7 +3,6 @@ package com.example.dosebuddy;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -21,7 +20,10 @@ import com.example.dosebuddy.database.Medication;
 import com.example.dosebuddy.database.MedicationDao;
 import com.example.dosebuddy.database.MedicationFrequency;
 import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.DoseLedger;
 import com.example.dosebuddy.utils.ReminderScheduler;
+import com.example.dosebuddy.utils.SessionManager;
+import com.example.dosebuddy.utils.ScheduleUtils;
 import com.example.dosebuddy.utils.ValidationUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -101,7 +103,7 @@ public class AddMedicationActivity extends AppCompatActivity {
      * Initialize database components
      */
     private void initializeDatabase() {
-        database = AppDatabase.getInstance(this);
+        database = AppDatabase.getSessionInstance(this);
         medicationDao = database.medicationDao();
         executorService = Executors.newSingleThreadExecutor();
     }
@@ -115,7 +117,7 @@ public class AddMedicationActivity extends AppCompatActivity {
         selectedEndDate = null;
         selectedFrequency = MedicationFrequency.ONCE_DAILY;
         
-        // Get current user ID from SharedPreferences (you'll need to implement this)
+        // Get current user ID from the session
         currentUserId = getCurrentUserId();
     }
     
@@ -214,19 +216,15 @@ public class AddMedicationActivity extends AppCompatActivity {
     }
     
     /**
-     * Get current user ID from SharedPreferences
+     * Get current user ID from the session
      */
     private int getCurrentUserId() {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        boolean isLoggedIn = prefs.getBoolean("is_logged_in", false);
-
-        if (!isLoggedIn) {
+        int userId = SessionManager.getInstance(this).getCurrentUserId();
+        if (userId == SessionManager.NO_USER) {
             // No user logged in, redirect to login
             redirectToLogin();
-            return -1;
         }
-
-        return prefs.getInt("current_user_id", -1);
+        return userId;
     }
 
     /**
@@ -396,30 +394,32 @@ public class AddMedicationActivity extends AppCompatActivity {
         medication.setEndDate(selectedEndDate);
         medication.setNotes(notes.isEmpty() ? null : notes);
 
-        // Convert selected times to JSON string
-        if (!selectedTimes.isEmpty()) {
-            StringBuilder timesJson = new StringBuilder("[");
-            for (int i = 0; i < selectedTimes.size(); i++) {
-                if (i > 0) timesJson.append(",");
-                timesJson.append(selectedTimes.get(i));
-            }
-            timesJson.append("]");
-            medication.setSpecificTimes(timesJson.toString());
-        }
+        // Dose times are stored as minutes of day in medication_schedule; frequency
+        // defaults are stored when no times were picked, so the rows are complete
+        List<Integer> doseMinutes = ScheduleUtils.resolveDoseMinutes(
+                ScheduleUtils.toMinutesOfDay(selectedTimes), selectedFrequency, timesPerDay);
 
         // Save to database in background thread
         executorService.execute(() -> {
             try {
-                long medicationId = medicationDao.insertMedication(medication);
+                // Medication and its schedule rows are written together
+                long medicationId = database.runInTransaction(() -> {
+                    long id = medicationDao.insertMedication(medication);
+                    if (id > 0) {
+                        database.medicationScheduleDao().replaceSlots((int) id, currentUserId, doseMinutes);
+                    }
+                    return id;
+                });
+                if (medicationId > 0) {
+                    medication.setId((int) medicationId);
+                    DoseLedger.regenerate(this, medication, doseMinutes);
+                }
 
                 runOnUiThread(() -> {
                     showLoading(false);
                     if (medicationId > 0) {
-                        // Set the ID for the medication object
-                        medication.setId((int) medicationId);
-
                         // Schedule reminders for the new medication
-                        ReminderScheduler.scheduleMedicationReminders(this, medication);
+                        ReminderScheduler.scheduleMedicationReminders(this, medication, doseMinutes);
 
                         Toast.makeText(this, getString(R.string.medication_saved_successfully),
                                 Toast.LENGTH_SHORT).show();
@@ -0,0 +1,73 @@
+package com.example.dosebuddy;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+import androidx.work.WorkManager;
+
+import com.example.dosebuddy.api.SharedHttpClient;
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.startup.AppStartup;
+import com.example.dosebuddy.utils.NotificationChannels;
+import com.example.dosebuddy.utils.SessionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Application class for DoseBuddy
+ * Starts background initialization as soon as the process starts, whether for an
+ * activity, a worker or a receiver. Nothing here blocks the main thread.
+ *
+ * WorkManager is initialized on demand through Configuration.Provider instead of its
+ * startup content provider (removed in the manifest), so that happens in the
+ * background too.
+ */
+public class DoseBuddyApplication extends Application implements Configuration.Provider {
+
+    @Override
+    public void onCreate() {
+        long start = SystemClock.elapsedRealtime();
+        super.onCreate();
+        AppStartup.start(this, getInitializers());
+        AppStartup.record("Application.onCreate", start);
+    }
+
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder().build();
+    }
+
+    /**
+     * Startup work, each item listing the items it needs done first
+     */
+    static List<AppStartup.Initializer> getInitializers() {
+        List<String> none = Collections.emptyList();
+        return Arrays.asList(
+                // Reads the signed-in user from preferences
+                new AppStartup.Initializer("session", none, SessionManager::getInstance),
+                // Opens WorkManager's own database
+                new AppStartup.Initializer("work_manager", none, WorkManager::getInstance),
+                // Opening may enqueue the schema backfill, and picks the user's file from the session
+                new AppStartup.Initializer("database", Arrays.asList("session", "work_manager"),
+                        DoseBuddyApplication::openDatabases),
+                new AppStartup.Initializer("notification_channels", none, NotificationChannels::ensureCreated),
+                // Loads the platform TLS setup
+                new AppStartup.Initializer("http", none, context -> SharedHttpClient.getInstance())
+        );
+    }
+
+    /**
+     * Open the shared database and the signed-in user's, running any migrations now
+     * The shared one holds accounts, so the login screen needs it even with database-per-user.
+     */
+    private static void openDatabases(Context context) {
+        AppDatabase.getInstance(context).getOpenHelper().getWritableDatabase();
+        AppDatabase.getSessionInstance(context).getOpenHelper().getWritableDatabase();
+    }
+}
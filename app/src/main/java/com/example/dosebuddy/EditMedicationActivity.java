@@ -3,7 +3,6 @@ package com.example.dosebuddy;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -16,12 +15,14 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.Medication;
-import com.example.dosebuddy.database.MedicationDao;
 import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.repository.MedicationRepository;
 import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.DoseLedger;
 import com.example.dosebuddy.utils.ReminderScheduler;
+import com.example.dosebuddy.utils.SessionManager;
+import com.example.dosebuddy.utils.ScheduleUtils;
 import com.example.dosebuddy.utils.ValidationUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -51,11 +52,12 @@ public class EditMedicationActivity extends AppCompatActivity {
     private ProgressBar progressBar;
     
     // Data
-    private AppDatabase database;
-    private MedicationDao medicationDao;
+    private MedicationRepository medicationRepository;
     private ExecutorService executorService;
     private int medicationId;
     private Medication currentMedication;
+    private Medication originalMedication; // As loaded, for diffing reminder slots
+    private List<Integer> originalDoseMinutes; // Stored dose times as loaded
     
     // Date and time tracking
     private long selectedStartDate;
@@ -118,8 +120,7 @@ public class EditMedicationActivity extends AppCompatActivity {
      * Initialize database components
      */
     private void initializeDatabase() {
-        database = AppDatabase.getInstance(this);
-        medicationDao = database.medicationDao();
+        medicationRepository = MedicationRepository.getInstance(this);
         executorService = Executors.newSingleThreadExecutor();
     }
     
@@ -172,7 +173,12 @@ public class EditMedicationActivity extends AppCompatActivity {
         showLoading(true);
         
         executorService.execute(() -> {
-            currentMedication = medicationDao.getMedicationById(medicationId);
+            // Copy the cached snapshot since the form edits it in place
+            Medication medication = medicationRepository.getMedicationById(medicationId);
+            currentMedication = medication != null ? medication.copy() : null;
+            originalMedication = medication != null ? medication.copy() : null;
+            originalDoseMinutes = medication != null
+                    ? medicationRepository.getDoseMinutes(medicationId) : new ArrayList<>();
             
             runOnUiThread(() -> {
                 showLoading(false);
@@ -219,8 +225,8 @@ public class EditMedicationActivity extends AppCompatActivity {
         updateStartDateButton();
         updateEndDateButton();
         
-        // Parse and set specific times
-        parseSpecificTimes();
+        // Set specific times
+        loadSpecificTimes();
         updateTimesDisplay();
     }
     
@@ -238,27 +244,14 @@ public class EditMedicationActivity extends AppCompatActivity {
     }
     
     /**
-     * Parse specific times from JSON string
+     * Turn stored dose times (minutes of day) into today's timestamps for the time list
      */
-    private void parseSpecificTimes() {
+    private void loadSpecificTimes() {
         selectedTimes.clear();
 
-        String specificTimesJson = currentMedication.getSpecificTimes();
-        if (specificTimesJson != null && !specificTimesJson.isEmpty()) {
-            try {
-                // Simple JSON parsing for array of timestamps
-                String timesStr = specificTimesJson.replace("[", "").replace("]", "");
-                if (!timesStr.trim().isEmpty()) {
-                    String[] timeStrings = timesStr.split(",");
-                    for (String timeStr : timeStrings) {
-                        long timestamp = Long.parseLong(timeStr.trim());
-                        selectedTimes.add(timestamp);
-                    }
-                }
-            } catch (Exception e) {
-                // If parsing fails, ignore and use empty times
-                selectedTimes.clear();
-            }
+        long today = System.currentTimeMillis();
+        for (int minute : originalDoseMinutes) {
+            selectedTimes.add(ScheduleUtils.atMinuteOfDay(today, minute));
         }
     }
 
@@ -432,29 +425,24 @@ public class EditMedicationActivity extends AppCompatActivity {
         currentMedication.setNotes(notes.isEmpty() ? null : notes);
         currentMedication.touch(); // Update timestamp
 
-        // Convert selected times to JSON string
-        if (!selectedTimes.isEmpty()) {
-            StringBuilder timesJson = new StringBuilder("[");
-            for (int i = 0; i < selectedTimes.size(); i++) {
-                if (i > 0) timesJson.append(",");
-                timesJson.append(selectedTimes.get(i));
-            }
-            timesJson.append("]");
-            currentMedication.setSpecificTimes(timesJson.toString());
-        } else {
-            currentMedication.setSpecificTimes(null);
-        }
+        // Dose times live in medication_schedule
+        List<Integer> doseMinutes = ScheduleUtils.resolveDoseMinutes(
+                ScheduleUtils.toMinutesOfDay(selectedTimes), selectedFrequency, timesPerDay);
 
         // Update in database in background thread
         executorService.execute(() -> {
             try {
-                int rowsUpdated = medicationDao.updateMedication(currentMedication);
+                int rowsUpdated = medicationRepository.updateMedication(currentMedication, doseMinutes);
+                if (rowsUpdated > 0) {
+                    DoseLedger.regenerate(this, currentMedication, doseMinutes);
+                }
 
                 runOnUiThread(() -> {
                     showLoading(false);
                     if (rowsUpdated > 0) {
-                        // Reschedule reminders for the updated medication
-                        ReminderScheduler.rescheduleMedicationReminders(this, currentMedication);
+                        // Reschedule only the reminder slots whose time changed
+                        ReminderScheduler.updateMedicationReminders(this, originalMedication,
+                                originalDoseMinutes, currentMedication, doseMinutes);
 
                         Toast.makeText(this, getString(R.string.medication_updated_successfully),
                                 Toast.LENGTH_SHORT).show();
@@ -550,19 +538,15 @@ public class EditMedicationActivity extends AppCompatActivity {
     }
 
     /**
-     * Get current user ID from SharedPreferences
+     * Get current user ID from the session
      */
     private int getCurrentUserId() {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        boolean isLoggedIn = prefs.getBoolean("is_logged_in", false);
-
-        if (!isLoggedIn) {
+        int userId = SessionManager.getInstance(this).getCurrentUserId();
+        if (userId == SessionManager.NO_USER) {
             // No user logged in, redirect to login
             redirectToLogin();
-            return -1;
         }
-
-        return prefs.getInt("current_user_id", -1);
+        return userId;
     }
 
     /**
@@ -1,8 +1,8 @@
 package com.example.dosebuddy;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -13,7 +13,10 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.User;
 import com.example.dosebuddy.database.UserDao;
+import com.example.dosebuddy.database.UserDatabaseMigrator;
 import com.example.dosebuddy.utils.PasswordUtils;
+import com.example.dosebuddy.utils.PasswordWorkFactor;
+import com.example.dosebuddy.utils.SessionManager;
 import com.example.dosebuddy.utils.ValidationUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -27,6 +30,8 @@ import java.util.concurrent.Executors;
  * Handles user authentication
  */
 public class LoginActivity extends AppCompatActivity {
+
+    private static final String TAG = "LoginActivity";
     
     // UI Components
     private TextInputLayout tilUsername, tilPassword;
@@ -109,8 +114,12 @@ public class LoginActivity extends AppCompatActivity {
                 User user = userDao.getUserByUsername(username);
                 
                 if (user != null && PasswordUtils.verifyPassword(password, user.getPasswordHash())) {
-                    // Login successful - save user session
-                    saveUserSession(user.getId());
+                    // Login successful - upgrade the stored hash while the password is known
+                    rehashIfNeeded(user, password);
+
+                    // Give the user their own database if enabled, then save session
+                    UserDatabaseMigrator.moveIfEnabled(this, user.getId());
+                    SessionManager.getInstance(this).login(user);
 
                     runOnUiThread(() -> {
                         showLoading(false);
@@ -189,22 +198,27 @@ public class LoginActivity extends AppCompatActivity {
     }
     
     /**
-     * Check if user is already logged in
+     * Replace an old-format or weaker password hash after a successful sign-in
+     * A failure keeps the old hash, which still verifies.
      */
-    private boolean isUserLoggedIn() {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        return prefs.getBoolean("is_logged_in", false);
+    private void rehashIfNeeded(User user, String password) {
+        int iterations = PasswordWorkFactor.getIterations(this);
+        if (!PasswordUtils.needsRehash(user.getPasswordHash(), iterations)) {
+            return;
+        }
+        try {
+            user.setPasswordHash(PasswordUtils.createPasswordHash(password, iterations));
+            userDao.updateUser(user);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not upgrade password hash for user " + user.getId(), e);
+        }
     }
 
     /**
-     * Save user session to SharedPreferences
+     * Check if user is already logged in
      */
-    private void saveUserSession(int userId) {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putInt("current_user_id", userId);
-        editor.putBoolean("is_logged_in", true);
-        editor.apply();
+    private boolean isUserLoggedIn() {
+        return SessionManager.getInstance(this).isLoggedIn();
     }
 
     /**
@@ -1,7 +1,6 @@
 package com.example.dosebuddy;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -26,11 +25,17 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.dosebuddy.adapter.MedicationAdapter;
 import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.Medication;
-import com.example.dosebuddy.database.MedicationDao;
 import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.StorageProfile;
+import com.example.dosebuddy.database.TodayMedicationStatus;
+import com.example.dosebuddy.repository.MedicationRepository;
 import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.DoseLedger;
 import com.example.dosebuddy.utils.MedicationHistoryManager;
 import com.example.dosebuddy.utils.ReminderScheduler;
+import com.example.dosebuddy.utils.SessionManager;
+import com.example.dosebuddy.workers.HistoryRetentionWorker;
+import com.example.dosebuddy.workers.MissedDoseWorker;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
@@ -57,8 +62,7 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
 
     // Data and Database
     private MedicationAdapter medicationAdapter;
-    private AppDatabase database;
-    private MedicationDao medicationDao;
+    private MedicationRepository medicationRepository;
     private ExecutorService executorService;
     private int currentUserId;
 
@@ -75,6 +79,10 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
         setupClickListeners();
         setupSearch();
 
+        // Periodic missed-dose detection and history retention (keep existing schedules)
+        MissedDoseWorker.schedule(this);
+        HistoryRetentionWorker.schedule(this);
+
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
@@ -118,8 +126,7 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
      * Initialize database components
      */
     private void initializeDatabase() {
-        database = AppDatabase.getInstance(this);
-        medicationDao = database.medicationDao();
+        medicationRepository = MedicationRepository.getInstance(this);
         executorService = Executors.newSingleThreadExecutor();
         currentUserId = getCurrentUserId();
     }
@@ -171,11 +178,14 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
      */
     private void loadMedications() {
         executorService.execute(() -> {
-            List<Medication> medications = medicationDao.getActiveMedicationsForUser(currentUserId);
+            // Keep the expected-dose ledger a week ahead
+            DoseLedger.ensureWindow(this, currentUserId);
+            // One query for every medication with today's taken/expected counts and next slot
+            List<TodayMedicationStatus> statuses = medicationRepository.getTodayStatus(currentUserId);
 
             runOnUiThread(() -> {
-                medicationAdapter.setMedications(medications);
-                updateUI(medications);
+                medicationAdapter.setTodayStatuses(statuses);
+                updateUI(statuses.size());
             });
         });
     }
@@ -183,8 +193,8 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
     /**
      * Update UI based on medication list
      */
-    private void updateUI(List<Medication> medications) {
-        if (medications.isEmpty()) {
+    private void updateUI(int medicationCount) {
+        if (medicationCount == 0) {
             rvMedications.setVisibility(View.GONE);
             llEmptyState.setVisibility(View.VISIBLE);
             tvMedicationCount.setText("0 medications");
@@ -192,26 +202,22 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
             rvMedications.setVisibility(View.VISIBLE);
             llEmptyState.setVisibility(View.GONE);
 
-            String countText = medications.size() == 1 ?
-                "1 medication" : medications.size() + " medications";
+            String countText = medicationCount == 1 ?
+                "1 medication" : medicationCount + " medications";
             tvMedicationCount.setText(countText);
         }
     }
 
     /**
-     * Get current user ID from SharedPreferences
+     * Get current user ID from the session
      */
     private int getCurrentUserId() {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        boolean isLoggedIn = prefs.getBoolean("is_logged_in", false);
-
-        if (!isLoggedIn) {
+        int userId = SessionManager.getInstance(this).getCurrentUserId();
+        if (userId == SessionManager.NO_USER) {
             // No user logged in, redirect to login
             redirectToLogin();
-            return -1;
         }
-
-        return prefs.getInt("current_user_id", -1);
+        return userId;
     }
 
     /**
@@ -227,6 +233,9 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_database_per_user).setChecked(AppDatabase.isDatabasePerUser(this));
+        menu.findItem(R.id.action_query_metrics)
+                .setVisible(getQueryMetricsIntent().resolveActivity(getPackageManager()) != null);
         return true;
     }
 
@@ -235,10 +244,70 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
         if (item.getItemId() == R.id.action_logout) {
             showLogoutConfirmation();
             return true;
+        } else if (item.getItemId() == R.id.action_database_per_user) {
+            setDatabasePerUser(!item.isChecked());
+            item.setChecked(!item.isChecked());
+            return true;
+        } else if (item.getItemId() == R.id.action_storage_profile) {
+            showStorageProfileDialog();
+            return true;
+        } else if (item.getItemId() == R.id.action_query_metrics) {
+            startActivity(getQueryMetricsIntent());
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Intent for the query metrics screen, which only debug builds contain
+     */
+    private Intent getQueryMetricsIntent() {
+        return new Intent().setClassName(this, "com.example.dosebuddy.debug.QueryMetricsActivity");
+    }
+
+    /**
+     * Turn database-per-user on or off
+     * Users are moved at sign-in, so the signed-in user's data moves at their next one.
+     */
+    private void setDatabasePerUser(boolean enabled) {
+        AppDatabase.setDatabasePerUser(this, enabled);
+        Toast.makeText(this, enabled ? R.string.database_per_user_enabled : R.string.database_per_user_disabled,
+                Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Show dialog to choose the storage profile
+     * Labels in R.array.storage_profiles follow StorageProfile's declaration order.
+     */
+    private void showStorageProfileDialog() {
+        StorageProfile current = StorageProfile.fromPreferences(this);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.storage_profile)
+                .setSingleChoiceItems(R.array.storage_profiles, current.ordinal(), (dialog, which) -> {
+                    dialog.dismiss();
+                    StorageProfile profile = StorageProfile.values()[which];
+                    if (profile != current) {
+                        setStorageProfile(profile);
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Switch storage profile in the background, then reload with the reopened database
+     */
+    private void setStorageProfile(StorageProfile profile) {
+        executorService.execute(() -> {
+            AppDatabase.setStorageProfile(getApplicationContext(), profile);
+            // The switch dropped the old repository along with its database
+            medicationRepository = MedicationRepository.getInstance(this);
+            runOnUiThread(() ->
+                    Toast.makeText(this, R.string.storage_profile_changed, Toast.LENGTH_SHORT).show());
+            loadMedications();
+        });
+    }
+
     /**
      * Show logout confirmation dialog
      */
@@ -256,10 +325,7 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
      */
     private void logout() {
         // Clear user session
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.clear();
-        editor.apply();
+        SessionManager.getInstance(this).logout();
 
         // Show success message
         Toast.makeText(this, R.string.logout_success, Toast.LENGTH_SHORT).show();
@@ -403,8 +469,11 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
         executorService.execute(() -> {
             try {
                 // Soft delete - set is_active to false
-                int rowsUpdated = medicationDao.softDeleteMedication(
+                int rowsUpdated = medicationRepository.softDeleteMedication(
                         medication.getId(), System.currentTimeMillis());
+                if (rowsUpdated > 0) {
+                    DoseLedger.clearPending(this, medication.getId());
+                }
 
                 runOnUiThread(() -> {
                     if (rowsUpdated > 0) {
@@ -447,13 +516,17 @@ public class MainActivity extends AppCompatActivity implements MedicationAdapter
     private void restoreMedication(Medication medication) {
         executorService.execute(() -> {
             try {
-                int rowsUpdated = medicationDao.reactivateMedication(
+                int rowsUpdated = medicationRepository.reactivateMedication(
                         medication.getId(), System.currentTimeMillis());
+                List<Integer> doseMinutes = medicationRepository.getDoseMinutes(medication.getId());
+                if (rowsUpdated > 0) {
+                    DoseLedger.regenerate(this, medication, doseMinutes);
+                }
 
                 runOnUiThread(() -> {
                     if (rowsUpdated > 0) {
                         // Reschedule reminders for the restored medication
-                        ReminderScheduler.scheduleMedicationReminders(this, medication);
+                        ReminderScheduler.scheduleMedicationReminders(this, medication, doseMinutes);
 
                         Toast.makeText(this, getString(R.string.medication_restored),
                                 Toast.LENGTH_SHORT).show();
@@ -1,15 +1,20 @@
 package com.example.dosebuddy;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -17,13 +22,20 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dosebuddy.adapter.HistoryAdapter;
 import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DoseInstanceDao;
 import com.example.dosebuddy.database.Medication;
 import com.example.dosebuddy.database.MedicationDao;
 import com.example.dosebuddy.database.MedicationHistory;
 import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.example.dosebuddy.utils.HistoryExporter;
+import com.example.dosebuddy.utils.HistoryImporter;
+import com.example.dosebuddy.utils.SessionManager;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -44,12 +56,24 @@ public class MedicationHistoryActivity extends AppCompatActivity {
     private HistoryAdapter historyAdapter;
     private AppDatabase database;
     private MedicationHistoryDao historyDao;
+    private DoseInstanceDao doseInstanceDao;
     private MedicationDao medicationDao;
     private ExecutorService executorService;
     private int currentUserId;
     private List<Medication> userMedications;
     private int selectedMedicationId = -1; // -1 means all medications
     
+    // Import/export document pickers
+    private HistoryExporter.Format pendingExportFormat = HistoryExporter.Format.CSV;
+    private final ActivityResultLauncher<String> exportCsvLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(HistoryExporter.Format.CSV.getMimeType()),
+            this::exportHistory);
+    private final ActivityResultLauncher<String> exportJsonLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(HistoryExporter.Format.JSON.getMimeType()),
+            this::exportHistory);
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importHistory);
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -79,8 +103,9 @@ public class MedicationHistoryActivity extends AppCompatActivity {
      * Initialize database components
      */
     private void initializeDatabase() {
-        database = AppDatabase.getInstance(this);
+        database = AppDatabase.getSessionInstance(this);
         historyDao = database.medicationHistoryDao();
+        doseInstanceDao = database.doseInstanceDao();
         medicationDao = database.medicationDao();
         executorService = Executors.newSingleThreadExecutor();
         currentUserId = getCurrentUserId();
@@ -165,19 +190,23 @@ public class MedicationHistoryActivity extends AppCompatActivity {
     private void loadHistory() {
         executorService.execute(() -> {
             List<MedicationHistory> history;
+            DoseInstanceDao.StatusCounts doseCounts;
+            long now = System.currentTimeMillis();
             
             if (selectedMedicationId == -1) {
                 // Load all history for user
                 history = historyDao.getHistoryForUser(currentUserId);
+                doseCounts = doseInstanceDao.getStatusCountsForUser(currentUserId, 0, now);
             } else {
                 // Load history for specific medication
                 history = historyDao.getHistoryForUserAndMedication(currentUserId, selectedMedicationId);
+                doseCounts = doseInstanceDao.getStatusCountsForMedication(selectedMedicationId, 0, now);
             }
             
             runOnUiThread(() -> {
                 historyAdapter.setHistory(history);
                 updateUI(history);
-                calculateAndShowAdherenceStats(history);
+                calculateAndShowAdherenceStats(history, doseCounts);
             });
         });
     }
@@ -200,11 +229,23 @@ public class MedicationHistoryActivity extends AppCompatActivity {
     
     /**
      * Calculate and show adherence statistics
+     * Uses the expected-dose ledger when it has due doses, so missed doses count against adherence.
      */
-    private void calculateAndShowAdherenceStats(List<MedicationHistory> history) {
+    private void calculateAndShowAdherenceStats(List<MedicationHistory> history,
+                                                DoseInstanceDao.StatusCounts doseCounts) {
         if (history.isEmpty()) {
             return;
         }
+
+        if (doseCounts != null && doseCounts.getDueCount() > 0) {
+            int dueDoses = doseCounts.getDueCount();
+            int takenDoses = doseCounts.taken + doseCounts.late;
+            String statsText = getString(R.string.doses_taken, takenDoses, dueDoses) + "\n" +
+                              getString(R.string.adherence_percentage, takenDoses * 100 / dueDoses) + "\n" +
+                              getString(R.string.doses_missed, doseCounts.missed);
+            tvAdherenceStats.setText(statsText);
+            return;
+        }
         
         int totalDoses = history.size();
         int onTimeDoses = 0;
@@ -227,16 +268,12 @@ public class MedicationHistoryActivity extends AppCompatActivity {
      * Get current user ID
      */
     private int getCurrentUserId() {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        boolean isLoggedIn = prefs.getBoolean("is_logged_in", false);
-
-        if (!isLoggedIn) {
+        int userId = SessionManager.getInstance(this).getCurrentUserId();
+        if (userId == SessionManager.NO_USER) {
             // No user logged in, redirect to login
             redirectToLogin();
-            return -1;
         }
-
-        return prefs.getInt("current_user_id", -1);
+        return userId;
     }
 
     /**
@@ -249,6 +286,118 @@ public class MedicationHistoryActivity extends AppCompatActivity {
         finish();
     }
     
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.history_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int itemId = item.getItemId();
+        if (itemId == R.id.action_export_csv) {
+            pendingExportFormat = HistoryExporter.Format.CSV;
+            exportCsvLauncher.launch(getExportFileName(HistoryExporter.Format.CSV));
+            return true;
+        } else if (itemId == R.id.action_export_json) {
+            pendingExportFormat = HistoryExporter.Format.JSON;
+            exportJsonLauncher.launch(getExportFileName(HistoryExporter.Format.JSON));
+            return true;
+        } else if (itemId == R.id.action_import_history) {
+            importLauncher.launch(new String[]{"text/*", "application/json"});
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Build default export file name, e.g. dosebuddy-history-20250101.csv
+     */
+    private String getExportFileName(HistoryExporter.Format format) {
+        String date = new SimpleDateFormat("yyyyMMdd", Locale.US).format(new Date());
+        return "dosebuddy-history-" + date + "." + format.getExtension();
+    }
+
+    /**
+     * Export history to the document chosen by the user
+     */
+    private void exportHistory(Uri uri) {
+        if (uri == null) {
+            return; // User cancelled
+        }
+        HistoryExporter.Format format = pendingExportFormat;
+
+        executorService.execute(() -> {
+            try {
+                long rows = HistoryExporter.exportHistory(this, currentUserId, uri, format,
+                        this::showTransferProgress);
+                runOnUiThread(() -> {
+                    showTransferProgress(-1, -1);
+                    Toast.makeText(this, getString(R.string.export_complete, rows),
+                            Toast.LENGTH_SHORT).show();
+                });
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    showTransferProgress(-1, -1);
+                    Toast.makeText(this, getString(R.string.export_failed), Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    /**
+     * Import history from the document chosen by the user
+     */
+    private void importHistory(Uri uri) {
+        if (uri == null) {
+            return; // User cancelled
+        }
+        String mimeType = getContentResolver().getType(uri);
+        HistoryExporter.Format format = (mimeType != null && mimeType.contains("json")) ||
+                uri.toString().endsWith(".json")
+                ? HistoryExporter.Format.JSON : HistoryExporter.Format.CSV;
+
+        executorService.execute(() -> {
+            try {
+                HistoryImporter.ImportResult result = HistoryImporter.importHistory(
+                        this, currentUserId, uri, format, this::showTransferProgress);
+                runOnUiThread(() -> {
+                    showTransferProgress(-1, -1);
+                    Toast.makeText(this, getString(R.string.import_complete,
+                            result.imported, result.skipped), Toast.LENGTH_SHORT).show();
+                });
+                loadHistory();
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    showTransferProgress(-1, -1);
+                    Toast.makeText(this, getString(R.string.import_failed), Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    /**
+     * Show import/export progress as the toolbar subtitle
+     * @param rowsProcessed Rows processed so far, or -1 to clear
+     * @param totalRows Total rows, or -1 if unknown
+     */
+    private void showTransferProgress(long rowsProcessed, long totalRows) {
+        runOnUiThread(() -> {
+            if (getSupportActionBar() == null) {
+                return;
+            }
+            if (rowsProcessed < 0) {
+                getSupportActionBar().setSubtitle(null);
+            } else if (totalRows >= 0) {
+                getSupportActionBar().setSubtitle(getString(R.string.transfer_progress,
+                        rowsProcessed, totalRows));
+            } else {
+                getSupportActionBar().setSubtitle(getString(R.string.transfer_progress_unknown,
+                        rowsProcessed));
+            }
+        });
+    }
+    
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
@@ -1,7 +1,6 @@
 package com.example.dosebuddy;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ProgressBar;
@@ -13,7 +12,10 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.User;
 import com.example.dosebuddy.database.UserDao;
+import com.example.dosebuddy.database.UserDatabaseMigrator;
 import com.example.dosebuddy.utils.PasswordUtils;
+import com.example.dosebuddy.utils.PasswordWorkFactor;
+import com.example.dosebuddy.utils.SessionManager;
 import com.example.dosebuddy.utils.ValidationUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -124,20 +126,25 @@ public class RegisterActivity extends AppCompatActivity {
                     return;
                 }
                 
-                // Create password hash
-                String passwordHash = PasswordUtils.createPasswordHash(password);
+                // Create password hash with this device's work factor
+                String passwordHash = PasswordUtils.createPasswordHash(password,
+                        PasswordWorkFactor.getIterations(this));
                 
                 // Create new user
                 User newUser = new User(username, email, fullName, passwordHash);
                 
                 // Insert user into database
                 long userId = userDao.insertUser(newUser);
+                if (userId > 0) {
+                    UserDatabaseMigrator.moveIfEnabled(this, (int) userId);
+                }
                 
                 runOnUiThread(() -> {
                     showLoading(false);
                     if (userId > 0) {
                         // Registration successful - automatically log in the user
-                        saveUserSession((int) userId);
+                        newUser.setId((int) userId);
+                        SessionManager.getInstance(this).login(newUser);
 
                         Toast.makeText(this, getString(R.string.registration_successful),
                                 Toast.LENGTH_SHORT).show();
@@ -231,17 +238,6 @@ public class RegisterActivity extends AppCompatActivity {
         btnRegister.setEnabled(!show);
     }
     
-    /**
-     * Save user session to SharedPreferences
-     */
-    private void saveUserSession(int userId) {
-        SharedPreferences prefs = getSharedPreferences("DoseBuddy", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putInt("current_user_id", userId);
-        editor.putBoolean("is_logged_in", true);
-        editor.apply();
-    }
-
     /**
      * Navigate to main activity after successful registration
      */
@@ -10,7 +10,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dosebuddy.R;
 import com.example.dosebuddy.database.MedicationHistory;
-import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.metrics.Tracer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,8 +44,13 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
     
     @Override
     public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
-        MedicationHistory history = historyList.get(position);
-        holder.bind(history);
+        Tracer.begin("HistoryAdapter.bind");
+        try {
+            MedicationHistory history = historyList.get(position);
+            holder.bind(HistoryItem.from(history));
+        } finally {
+            Tracer.end();
+        }
     }
     
     @Override
@@ -80,25 +85,24 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
         /**
          * Bind history data to views
          */
-        public void bind(MedicationHistory history) {
+        public void bind(HistoryItem item) {
             // Set medication name and dosage
-            tvMedicationName.setText(history.getMedicationName());
-            tvDosage.setText(history.getMedicationDosage());
+            tvMedicationName.setText(item.medicationName);
+            tvDosage.setText(item.dosage);
             
             // Set taken time
-            String takenTimeText = itemView.getContext().getString(R.string.taken_on,
-                    DateTimeUtils.formatDateTime(history.getTakenAt()));
+            String takenTimeText = itemView.getContext().getString(R.string.taken_on, item.takenAt);
             tvTakenTime.setText(takenTimeText);
             
             // Set scheduled time if available
-            if (history.getScheduledTime() != null) {
+            if (item.scheduledFor != null) {
                 String scheduledTimeText = itemView.getContext().getString(R.string.scheduled_for,
-                        DateTimeUtils.formatDateTime(history.getScheduledTime()));
+                        item.scheduledFor);
                 tvScheduledTime.setText(scheduledTimeText);
                 tvScheduledTime.setVisibility(View.VISIBLE);
                 
                 // Show timing badge
-                setupTimingBadge(history);
+                setupTimingBadge(item);
                 tvTimingBadge.setVisibility(View.VISIBLE);
             } else {
                 tvScheduledTime.setVisibility(View.GONE);
@@ -106,12 +110,11 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
             }
             
             // Set taken method
-            String methodText = history.getTakenMethodEnum().getDisplayName();
-            tvTakenMethod.setText(methodText);
+            tvTakenMethod.setText(item.takenMethod);
             
             // Set notes if available
-            if (history.getNotes() != null && !history.getNotes().trim().isEmpty()) {
-                tvNotes.setText(history.getNotes());
+            if (item.notes != null) {
+                tvNotes.setText(item.notes);
                 tvNotes.setVisibility(View.VISIBLE);
             } else {
                 tvNotes.setVisibility(View.GONE);
@@ -121,30 +124,25 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
         /**
          * Setup timing badge (on time, late, early)
          */
-        private void setupTimingBadge(MedicationHistory history) {
-            if (history.getScheduledTime() == null) {
-                tvTimingBadge.setVisibility(View.GONE);
-                return;
-            }
-            
-            long timeDifferenceMinutes = history.getTimeDifferenceMinutes();
-            
-            if (history.isOnTime()) {
-                // On time (within 30 minutes)
-                tvTimingBadge.setText(itemView.getContext().getString(R.string.on_time_badge));
-                tvTimingBadge.setBackgroundResource(R.drawable.badge_on_time);
-            } else if (timeDifferenceMinutes > 0) {
-                // Late
-                String lateText = itemView.getContext().getString(R.string.minutes_late, 
-                        Math.abs(timeDifferenceMinutes));
-                tvTimingBadge.setText(lateText);
-                tvTimingBadge.setBackgroundResource(R.drawable.badge_late);
-            } else {
-                // Early
-                String earlyText = itemView.getContext().getString(R.string.minutes_early, 
-                        Math.abs(timeDifferenceMinutes));
-                tvTimingBadge.setText(earlyText);
-                tvTimingBadge.setBackgroundResource(R.drawable.badge_early);
+        private void setupTimingBadge(HistoryItem item) {
+            switch (item.timing) {
+                case ON_TIME:
+                    tvTimingBadge.setText(itemView.getContext().getString(R.string.on_time_badge));
+                    tvTimingBadge.setBackgroundResource(R.drawable.badge_on_time);
+                    break;
+                case LATE:
+                    tvTimingBadge.setText(itemView.getContext().getString(R.string.minutes_late,
+                            item.minutesOff));
+                    tvTimingBadge.setBackgroundResource(R.drawable.badge_late);
+                    break;
+                case EARLY:
+                    tvTimingBadge.setText(itemView.getContext().getString(R.string.minutes_early,
+                            item.minutesOff));
+                    tvTimingBadge.setBackgroundResource(R.drawable.badge_early);
+                    break;
+                default:
+                    tvTimingBadge.setVisibility(View.GONE);
+                    break;
             }
         }
     }
@@ -0,0 +1,87 @@
+package com.example.dosebuddy.adapter;
+
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Display values for one history row, ready to bind
+ * Holds no views or resources, so the mapping can be unit tested and measured on the JVM.
+ */
+public class HistoryItem {
+
+    /**
+     * Timing badge shown next to a scheduled dose
+     */
+    public enum Timing {
+        NONE,    // Not scheduled; no badge
+        ON_TIME,
+        LATE,
+        EARLY
+    }
+
+    public final String medicationName;
+    public final String dosage;
+    public final String takenAt;
+    public final String scheduledFor; // Null when the dose was not scheduled
+    public final Timing timing;
+    public final long minutesOff; // Minutes late or early, always positive
+    public final String takenMethod;
+    public final String notes; // Null when there are no notes
+
+    HistoryItem(String medicationName, String dosage, String takenAt, String scheduledFor,
+                Timing timing, long minutesOff, String takenMethod, String notes) {
+        this.medicationName = medicationName;
+        this.dosage = dosage;
+        this.takenAt = takenAt;
+        this.scheduledFor = scheduledFor;
+        this.timing = timing;
+        this.minutesOff = minutesOff;
+        this.takenMethod = takenMethod;
+        this.notes = notes;
+    }
+
+    /**
+     * Map a history row to its display values
+     */
+    public static HistoryItem from(MedicationHistory history) {
+        String scheduledFor = null;
+        Timing timing = Timing.NONE;
+        long minutesOff = 0;
+        if (history.getScheduledTime() != null) {
+            scheduledFor = DateTimeUtils.formatDateTime(history.getScheduledTime());
+            long timeDifferenceMinutes = history.getTimeDifferenceMinutes();
+            minutesOff = Math.abs(timeDifferenceMinutes);
+            if (history.isOnTime()) {
+                // On time (within 30 minutes)
+                timing = Timing.ON_TIME;
+            } else if (timeDifferenceMinutes > 0) {
+                timing = Timing.LATE;
+            } else {
+                timing = Timing.EARLY;
+            }
+        }
+
+        String notes = history.getNotes();
+        if (notes != null && notes.trim().isEmpty()) {
+            notes = null;
+        }
+
+        return new HistoryItem(history.getMedicationName(), history.getMedicationDosage(),
+                DateTimeUtils.formatDateTime(history.getTakenAt()), scheduledFor, timing, minutesOff,
+                history.getTakenMethodEnum().getDisplayName(), notes);
+    }
+
+    /**
+     * Map history rows to their display values, keeping the order
+     */
+    public static List<HistoryItem> fromAll(List<MedicationHistory> history) {
+        List<HistoryItem> items = new ArrayList<>(history.size());
+        for (MedicationHistory row : history) {
+            items.add(from(row));
+        }
+        return items;
+    }
+}
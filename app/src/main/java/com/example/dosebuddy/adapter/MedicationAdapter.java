@@ -14,11 +14,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.dosebuddy.R;
 import com.example.dosebuddy.database.Medication;
 import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.TodayMedicationStatus;
+import com.example.dosebuddy.metrics.Tracer;
 import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.ScheduleUtils;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * RecyclerView adapter for displaying medications in a list
@@ -27,6 +32,7 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
     
     private List<Medication> medications;
     private List<Medication> filteredMedications;
+    private Map<Integer, TodayMedicationStatus> todayStatuses; // By medication ID
     private Context context;
     private OnMedicationClickListener listener;
     
@@ -42,6 +48,7 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
         this.context = context;
         this.medications = new ArrayList<>();
         this.filteredMedications = new ArrayList<>();
+        this.todayStatuses = new HashMap<>();
     }
     
     public void setOnMedicationClickListener(OnMedicationClickListener listener) {
@@ -51,6 +58,24 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
     public void setMedications(List<Medication> medications) {
         this.medications = medications;
         this.filteredMedications = new ArrayList<>(medications);
+        this.todayStatuses = new HashMap<>();
+        notifyDataSetChanged();
+    }
+    
+    /**
+     * Show medications together with today's dose status
+     * @param statuses Result of MedicationDao.getTodayStatus
+     */
+    public void setTodayStatuses(List<TodayMedicationStatus> statuses) {
+        List<Medication> medications = new ArrayList<>(statuses.size());
+        Map<Integer, TodayMedicationStatus> byId = new HashMap<>();
+        for (TodayMedicationStatus status : statuses) {
+            medications.add(status.medication);
+            byId.put(status.medication.getId(), status);
+        }
+        this.medications = medications;
+        this.filteredMedications = new ArrayList<>(medications);
+        this.todayStatuses = byId;
         notifyDataSetChanged();
     }
     
@@ -81,8 +106,13 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
     
     @Override
     public void onBindViewHolder(@NonNull MedicationViewHolder holder, int position) {
-        Medication medication = filteredMedications.get(position);
-        holder.bind(medication);
+        Tracer.begin("MedicationAdapter.bind");
+        try {
+            Medication medication = filteredMedications.get(position);
+            holder.bind(medication);
+        } finally {
+            Tracer.end();
+        }
     }
     
     @Override
@@ -217,7 +247,18 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
             MedicationFrequency frequency = medication.getFrequencyEnum();
             
             if (frequency == MedicationFrequency.AS_NEEDED) {
-                return "Take as needed";
+                return appendLastTaken("Take as needed", medication);
+            }
+            
+            // Counters come with the medication row, so no history query per item
+            TodayMedicationStatus status = todayStatuses.get(medication.getId());
+            if (status != null) {
+                return appendLastTaken(getTodayStatusText(status), medication);
+            }
+            
+            int dosesToday = medication.getDosesTakenOn(DateTimeUtils.getCurrentDateTimestamp());
+            if (dosesToday >= medication.getTimesPerDay()) {
+                return appendLastTaken("All doses taken today", medication);
             }
             
             // Simple logic: show next dose as 8:00 AM today
@@ -231,11 +272,49 @@ public class MedicationAdapter extends RecyclerView.Adapter<MedicationAdapter.Me
             }
         }
         
+        private String getTodayStatusText(TodayMedicationStatus status) {
+            if (status.dosesExpected == 0) {
+                return "No doses today";
+            }
+            if (status.isCompleteToday()) {
+                return "All doses taken today";
+            }
+            String progress = status.dosesTaken + " of " + status.dosesExpected + " taken today";
+            if (status.nextSlot == null) {
+                return progress;
+            }
+            long nextDoseTime = ScheduleUtils.atMinuteOfDay(System.currentTimeMillis(), status.nextSlot);
+            return "Today at " + DateTimeUtils.formatTime(nextDoseTime) + " · " + progress;
+        }
+        
+        private String appendLastTaken(String text, Medication medication) {
+            Long lastTakenAt = medication.getLastTakenAt();
+            if (lastTakenAt == null) {
+                return text;
+            }
+            String lastTaken = DateTimeUtils.isToday(lastTakenAt)
+                    ? DateTimeUtils.formatTime(lastTakenAt)
+                    : DateTimeUtils.formatDateTime(lastTakenAt);
+            return text + " · Last taken " + lastTaken;
+        }
+        
         private void updateStatusIndicator(Medication medication) {
             // Set status indicator color based on medication status
-            // Green: On time, Yellow: Due soon, Red: Overdue
-            // For now, default to primary color
-            statusIndicator.setBackgroundColor(0xFF2196F3); // Blue color
+            // Green: All of today's doses taken, otherwise primary color
+            TodayMedicationStatus status = todayStatuses.get(medication.getId());
+            boolean complete;
+            if (status != null) {
+                complete = status.isCompleteToday();
+            } else {
+                complete = medication.getFrequencyEnum() != MedicationFrequency.AS_NEEDED
+                        && medication.getDosesTakenOn(DateTimeUtils.getCurrentDateTimestamp())
+                        >= medication.getTimesPerDay();
+            }
+            if (complete) {
+                statusIndicator.setBackgroundColor(0xFF4CAF50); // Green color
+            } else {
+                statusIndicator.setBackgroundColor(0xFF2196F3); // Blue color
+            }
         }
         
         private void updateMarkTakenButton(Medication medication) {
@@ -2,13 +2,13 @@ package com.example.dosebuddy.api;
 
 import android.util.Log;
 
+import com.example.dosebuddy.metrics.Tracer;
 import com.google.gson.Gson;
 
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -23,17 +23,18 @@ public class DrugInfoService {
     
     private static final String TAG = "DrugInfoService";
     private static final String BASE_URL = "https://api.fda.gov/drug/label.json";
-    private static final int TIMEOUT_SECONDS = 30;
+
+    // Trace sections; a request ends on OkHttp's callback thread
+    private static final String TRACE_REQUEST = "DrugInfoService.request";
+    private static final String TRACE_SUGGESTIONS_REQUEST = "DrugInfoService.suggestionsRequest";
+    private static final String TRACE_PARSE = "DrugInfoService.parse";
     
     private final OkHttpClient httpClient;
     private final Gson gson;
+    private volatile boolean shutdown;
     
     public DrugInfoService() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .build();
+        this.httpClient = SharedHttpClient.getInstance();
         this.gson = new Gson();
     }
     
@@ -78,11 +79,17 @@ public class DrugInfoService {
             Request request = new Request.Builder()
                     .url(url)
                     .addHeader("User-Agent", "DoseBuddy-Android-App")
+                    .tag(DrugInfoService.class, this)
                     .build();
 
-            httpClient.newCall(request).enqueue(new Callback() {
+            int traceCookie = Tracer.beginAsync(TRACE_REQUEST);
+            newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
+                    Tracer.endAsync(TRACE_REQUEST, traceCookie);
+                    if (call.isCanceled()) {
+                        return; // Shut down; nobody is waiting for the result
+                    }
                     Log.e(TAG, "API request failed", e);
 
                     if (tryFallback) {
@@ -95,6 +102,7 @@ public class DrugInfoService {
 
                 @Override
                 public void onResponse(Call call, Response response) throws IOException {
+                    Tracer.endAsync(TRACE_REQUEST, traceCookie);
                     try {
                         if (!response.isSuccessful()) {
                             Log.e(TAG, "API request unsuccessful: " + response.code());
@@ -117,7 +125,7 @@ public class DrugInfoService {
                         Log.d(TAG, "API response received, length: " + responseBody.length());
 
                         // Parse the JSON response
-                        DrugSearchResponse searchResponse = gson.fromJson(responseBody, DrugSearchResponse.class);
+                        DrugSearchResponse searchResponse = parse(responseBody);
 
                         if (searchResponse == null || searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
                             if (tryFallback) {
@@ -230,17 +238,24 @@ public class DrugInfoService {
             Request request = new Request.Builder()
                     .url(url)
                     .addHeader("User-Agent", "DoseBuddy-Android-App")
+                    .tag(DrugInfoService.class, this)
                     .build();
             
-            httpClient.newCall(request).enqueue(new Callback() {
+            int traceCookie = Tracer.beginAsync(TRACE_SUGGESTIONS_REQUEST);
+            newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
+                    Tracer.endAsync(TRACE_SUGGESTIONS_REQUEST, traceCookie);
+                    if (call.isCanceled()) {
+                        return; // Shut down; nobody is waiting for the result
+                    }
                     Log.e(TAG, "Suggestions API request failed", e);
                     callback.onSuccess(new ArrayList<>()); // Return empty list on error
                 }
                 
                 @Override
                 public void onResponse(Call call, Response response) throws IOException {
+                    Tracer.endAsync(TRACE_SUGGESTIONS_REQUEST, traceCookie);
                     try {
                         if (!response.isSuccessful()) {
                             callback.onSuccess(new ArrayList<>()); // Return empty list on error
@@ -248,7 +263,7 @@ public class DrugInfoService {
                         }
                         
                         String responseBody = response.body().string();
-                        DrugSearchResponse searchResponse = gson.fromJson(responseBody, DrugSearchResponse.class);
+                        DrugSearchResponse searchResponse = parse(responseBody);
                         
                         List<DrugInfo> suggestions = new ArrayList<>();
                         if (searchResponse != null && searchResponse.getResults() != null) {
@@ -276,11 +291,40 @@ public class DrugInfoService {
     }
     
     /**
-     * Clean up resources
+     * Parse a search response body
+     */
+    private DrugSearchResponse parse(String responseBody) {
+        Tracer.begin(TRACE_PARSE);
+        try {
+            return gson.fromJson(responseBody, DrugSearchResponse.class);
+        } finally {
+            Tracer.end();
+        }
+    }
+
+    /**
+     * Create a call on the shared client; cancelled up front after shutdown()
+     */
+    private Call newCall(Request request) {
+        Call call = httpClient.newCall(request);
+        if (shutdown) {
+            call.cancel();
+        }
+        return call;
+    }
+
+    /**
+     * Cancel this service's requests
+     * The HTTP client is shared, so it stays up for other callers.
      */
     public void shutdown() {
-        if (httpClient != null) {
-            httpClient.dispatcher().executorService().shutdown();
+        shutdown = true;
+        List<Call> calls = new ArrayList<>(httpClient.dispatcher().queuedCalls());
+        calls.addAll(httpClient.dispatcher().runningCalls());
+        for (Call call : calls) {
+            if (call.request().tag(DrugInfoService.class) == this) {
+                call.cancel();
+            }
         }
     }
 }
@@ -0,0 +1,37 @@
+package com.example.dosebuddy.api;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide OkHttp client
+ * One client means one connection pool and one dispatcher for the whole app. Building
+ * it loads the platform's TLS setup, so app startup builds it in the background before
+ * the first request needs it.
+ */
+public class SharedHttpClient {
+
+    private static final int TIMEOUT_SECONDS = 30;
+
+    private static volatile OkHttpClient INSTANCE;
+
+    /**
+     * Get the shared client (Singleton pattern)
+     * @return OkHttpClient instance
+     */
+    public static OkHttpClient getInstance() {
+        if (INSTANCE == null) {
+            synchronized (SharedHttpClient.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new OkHttpClient.Builder()
+                            .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .build();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+}
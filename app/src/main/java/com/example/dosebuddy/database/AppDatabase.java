@@ -2,44 +2,129 @@ package com.example.dosebuddy.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.dosebuddy.metrics.QueryMetrics;
+import com.example.dosebuddy.metrics.Tracer;
+import com.example.dosebuddy.repository.MedicationRepository;
+import com.example.dosebuddy.utils.HistoryWriteQueue;
+import com.example.dosebuddy.utils.SessionManager;
+import com.example.dosebuddy.workers.SchemaBackfillWorker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Room database class for DoseBuddy application
- * Manages the local SQLite database
+ * Manages the local SQLite database. Schemas are exported to app/schemas; every
+ * version bump needs a step in Migrations.
+ *
+ * The shared file holds every account and, by default, every user's data. With
+ * database-per-user enabled, a user's medications and history are moved into a
+ * file of their own (same schema, with a copy of their users row for the foreign
+ * keys); UserDatabaseMigrator does the move. Account lookups always use the
+ * shared file, data access goes through getInstance(context, userId).
  */
 @Database(
-    entities = {User.class, Medication.class, MedicationHistory.class},
-    version = 3,
-    exportSchema = false
+    entities = {User.class, Medication.class, MedicationHistory.class, DoseInstance.class,
+                MedicationSchedule.class, MedicationHistoryArchive.class},
+    version = 8,
+    exportSchema = true
 )
 public abstract class AppDatabase extends RoomDatabase {
     
-    private static final String DATABASE_NAME = "dosebuddy_database";
+    static final String DATABASE_NAME = "dosebuddy_database";
+    private static final String USER_DATABASE_PREFIX = "dosebuddy_user_";
     private static volatile AppDatabase INSTANCE;
+
+    // Open per-user databases by user ID; guarded by the class lock
+    private static final Map<Integer, AppDatabase> USER_INSTANCES = new HashMap<>();
+
+    private static final String PREF_DATABASE_PER_USER = "database_per_user";
+    private static final String PREF_USER_DATABASE_IDS = "user_database_ids";
+
+    // Unmodifiable copy of PREF_USER_DATABASE_IDS, read on every getInstance(context, userId);
+    // null until first read. Replaced as a whole under the class lock on every write.
+    private static volatile Set<Integer> userDatabaseIds;
     
     /**
      * Get UserDao instance
      * @return UserDao instance
      */
-    public abstract UserDao userDao();
+    public UserDao userDao() {
+        return timed(UserDao.class, this::roomUserDao);
+    }
 
     /**
      * Get MedicationDao instance
      * @return MedicationDao instance
      */
-    public abstract MedicationDao medicationDao();
+    public MedicationDao medicationDao() {
+        return timed(MedicationDao.class, this::roomMedicationDao);
+    }
 
     /**
      * Get MedicationHistoryDao instance
      * @return MedicationHistoryDao instance
      */
-    public abstract MedicationHistoryDao medicationHistoryDao();
+    public MedicationHistoryDao medicationHistoryDao() {
+        return timed(MedicationHistoryDao.class, this::roomMedicationHistoryDao);
+    }
+
+    /**
+     * Get DoseInstanceDao instance
+     * @return DoseInstanceDao instance
+     */
+    public DoseInstanceDao doseInstanceDao() {
+        return timed(DoseInstanceDao.class, this::roomDoseInstanceDao);
+    }
+
+    /**
+     * Get MedicationScheduleDao instance
+     * @return MedicationScheduleDao instance
+     */
+    public MedicationScheduleDao medicationScheduleDao() {
+        return timed(MedicationScheduleDao.class, this::roomMedicationScheduleDao);
+    }
+
+    /**
+     * Get MedicationHistoryArchiveDao instance
+     * @return MedicationHistoryArchiveDao instance
+     */
+    public MedicationHistoryArchiveDao medicationHistoryArchiveDao() {
+        return timed(MedicationHistoryArchiveDao.class, this::roomMedicationHistoryArchiveDao);
+    }
+
+    // Room implements these; the getters above hand out timed wrappers (see QueryMetrics)
+    protected abstract UserDao roomUserDao();
+    protected abstract MedicationDao roomMedicationDao();
+    protected abstract MedicationHistoryDao roomMedicationHistoryDao();
+    protected abstract DoseInstanceDao roomDoseInstanceDao();
+    protected abstract MedicationScheduleDao roomMedicationScheduleDao();
+    protected abstract MedicationHistoryArchiveDao roomMedicationHistoryArchiveDao();
+
+    private final Map<Class<?>, Object> timedDaos = new ConcurrentHashMap<>();
+
+    private <T> T timed(Class<T> daoType, Supplier<T> dao) {
+        return daoType.cast(timedDaos.computeIfAbsent(daoType,
+                type -> QueryMetrics.getInstance().wrap(daoType, dao.get())));
+    }
     
     /**
-     * Get database instance (Singleton pattern)
+     * Get the shared database instance (Singleton pattern)
+     * Holds all accounts, and the data of users without a database of their own.
+     * Opened with the storage profile saved in preferences.
      * @param context Application context
      * @return AppDatabase instance
      */
@@ -47,26 +132,232 @@ public abstract class AppDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                            context.getApplicationContext(),
-                            AppDatabase.class,
-                            DATABASE_NAME
-                    )
-                    .fallbackToDestructiveMigration() // For development - remove in production
-                    .build();
+                    INSTANCE = build(context, DATABASE_NAME);
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * Get the database holding a user's medications and history
+     * @param context Application context
+     * @param userId User ID
+     * @return The user's own database if their data has been moved, otherwise the shared one
+     */
+    public static AppDatabase getInstance(Context context, int userId) {
+        if (!hasUserDatabase(context, userId)) {
+            return getInstance(context);
+        }
+        synchronized (AppDatabase.class) {
+            AppDatabase database = USER_INSTANCES.get(userId);
+            if (database == null) {
+                database = build(context, getUserDatabaseName(userId));
+                USER_INSTANCES.put(userId, database);
+            }
+            return database;
+        }
+    }
+
+    /**
+     * Get the database holding the signed-in user's data
+     * @param context Application context
+     * @return The current user's database, or the shared one when nobody is signed in
+     */
+    public static AppDatabase getSessionInstance(Context context) {
+        int userId = SessionManager.getInstance(context).getCurrentUserId();
+        return userId == SessionManager.NO_USER ? getInstance(context) : getInstance(context, userId);
+    }
+
+    /**
+     * Get every database that may hold user data: the shared one, then each per-user one
+     * Used by device-wide jobs such as rescheduling, missed-dose checks and retention.
+     * @param context Application context
+     * @return Databases, shared first
+     */
+    public static List<AppDatabase> getDataInstances(Context context) {
+        List<AppDatabase> databases = new ArrayList<>();
+        databases.add(getInstance(context));
+        for (int userId : getUserDatabaseIds(context)) {
+            databases.add(getInstance(context, userId));
+        }
+        return databases;
+    }
+
+    /**
+     * Check whether new sign-ins get a database file of their own
+     */
+    public static boolean isDatabasePerUser(Context context) {
+        return context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .getBoolean(PREF_DATABASE_PER_USER, false);
+    }
+
+    /**
+     * Turn database-per-user on or off
+     * Turning it off stops further moves; users already moved keep their own file.
+     */
+    public static void setDatabasePerUser(Context context, boolean enabled) {
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(PREF_DATABASE_PER_USER, enabled)
+                .apply();
+    }
+
+    /**
+     * Check whether a user's data lives in a database of their own
+     */
+    public static boolean hasUserDatabase(Context context, int userId) {
+        return getUserDatabaseIds(context).contains(userId);
+    }
+
+    /**
+     * Get IDs of users whose data lives in a database of their own
+     * @return Unmodifiable set, read from preferences once per process
+     */
+    public static Set<Integer> getUserDatabaseIds(Context context) {
+        Set<Integer> userIds = userDatabaseIds;
+        if (userIds == null) {
+            synchronized (AppDatabase.class) {
+                userIds = userDatabaseIds;
+                if (userIds == null) {
+                    userIds = loadUserDatabaseIds(context);
+                    userDatabaseIds = userIds;
+                }
+            }
+        }
+        return userIds;
+    }
+
+    private static Set<Integer> loadUserDatabaseIds(Context context) {
+        Set<String> stored = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .getStringSet(PREF_USER_DATABASE_IDS, null);
+        Set<Integer> userIds = new HashSet<>();
+        if (stored != null) {
+            for (String value : stored) {
+                userIds.add(Integer.parseInt(value));
+            }
+        }
+        return Collections.unmodifiableSet(userIds);
+    }
+
+    /**
+     * Record whether a user's data lives in a database of their own
+     * Written synchronously: it decides which file every later query goes to.
+     */
+    static void setHasUserDatabase(Context context, int userId, boolean hasDatabase) {
+        synchronized (AppDatabase.class) {
+            Set<Integer> userIds = new HashSet<>(getUserDatabaseIds(context));
+            if (hasDatabase) {
+                userIds.add(userId);
+            } else {
+                userIds.remove(userId);
+            }
+            Set<String> stored = new HashSet<>();
+            for (int id : userIds) {
+                stored.add(String.valueOf(id));
+            }
+            context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                    .edit()
+                    .putStringSet(PREF_USER_DATABASE_IDS, stored)
+                    .commit();
+            userDatabaseIds = Collections.unmodifiableSet(userIds);
+        }
+    }
+
+    /**
+     * Get the file name of a user's own database
+     */
+    public static String getUserDatabaseName(int userId) {
+        return USER_DATABASE_PREFIX + userId + ".db";
+    }
+
+    /**
+     * Open a user's own database file, creating it with the current schema if needed
+     * Not cached; the caller closes it. Used by UserDatabaseMigrator before the move.
+     */
+    static AppDatabase openUserDatabase(Context context, int userId) {
+        return build(context, getUserDatabaseName(userId));
+    }
+
+    /**
+     * Close and delete a user's own database file
+     * Deleting a moved account's data is a file delete; the users row in the
+     * shared file is left to the caller. The app has no account deletion yet;
+     * when it gets one, it must call this for users with their own file.
+     * @param context Application context
+     * @param userId User ID
+     * @return True if a file was deleted
+     */
+    public static boolean deleteUserDatabase(Context context, int userId) {
+        synchronized (AppDatabase.class) {
+            AppDatabase database = USER_INSTANCES.remove(userId);
+            if (database != null) {
+                MedicationRepository.removeInstance(database);
+                database.close();
+            }
+            setHasUserDatabase(context, userId, false);
+            return context.getApplicationContext().deleteDatabase(getUserDatabaseName(userId));
+        }
+    }
+
+    private static AppDatabase build(Context context, String name) {
+        Context appContext = context.getApplicationContext();
+        StorageProfile profile = StorageProfile.fromPreferences(context);
+        QueryMetrics.getInstance().loadSettings(appContext);
+        // Room opens the file lazily, usually on another thread; the span ends in onOpen
+        String openSection = "AppDatabase.open " + name;
+        int openCookie = Tracer.beginAsync(openSection);
+        return profile.applyTo(Room.databaseBuilder(
+                appContext,
+                AppDatabase.class,
+                name
+        ))
+        .addMigrations(Migrations.ALL)
+        // Versions 1 and 2 were development builds with no migration path
+        .fallbackToDestructiveMigrationFrom(1, 2)
+        // Runs on the querying thread so statements are attributed to the DAO call issuing them
+        .setQueryCallback(QueryMetrics.getInstance()::onQuery, Runnable::run)
+        .addCallback(new RoomDatabase.Callback() {
+            @Override
+            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                Tracer.endAsync(openSection, openCookie);
+                if (DeferredBackfill.hasPendingWork(db)) {
+                    SchemaBackfillWorker.enqueue(appContext);
+                }
+            }
+        })
+        .build();
+    }
+
+    /**
+     * Switch storage profile and reopen the database with it
+     * Queued history writes are flushed first. Must not be called from the main
+     * thread, or while other threads are using the database.
+     * @param context Application context
+     * @param profile Profile to use
+     */
+    public static void setStorageProfile(Context context, StorageProfile profile) {
+        StorageProfile.saveToPreferences(context, profile);
+        HistoryWriteQueue.getInstance(context).flushThen(AppDatabase::destroyInstance);
+    }
     
     /**
-     * Close database instance
+     * Close the shared and every per-user database instance
+     * Also drops the medication repositories built on them, and rereads the
+     * per-user database IDs from preferences on next use.
      */
     public static void destroyInstance() {
-        if (INSTANCE != null) {
-            INSTANCE.close();
-            INSTANCE = null;
+        synchronized (AppDatabase.class) {
+            MedicationRepository.clearInstances();
+            userDatabaseIds = null;
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+            for (AppDatabase database : USER_INSTANCES.values()) {
+                database.close();
+            }
+            USER_INSTANCES.clear();
         }
     }
 }
@@ -0,0 +1,56 @@
+package com.example.dosebuddy.database;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import java.util.List;
+
+/**
+ * Data backfills that migrations leave for after the database has opened
+ *
+ * A migration runs in one transaction on whichever thread first touches the
+ * database, so anything that scans history is kept out of it: the migration
+ * marks rows pending and this class fills them in, one short transaction per
+ * chunk. The marker is cleared in the same transaction that writes the value,
+ * so a run stopped at any point resumes where it left off.
+ */
+public class DeferredBackfill {
+
+    static final int CHUNK_SIZE = 50;
+
+    /**
+     * Check whether any backfill is outstanding
+     * Cheap enough to call from RoomDatabase.Callback.onOpen.
+     * @param db Open database
+     * @return True if rows are waiting for a backfill
+     */
+    public static boolean hasPendingWork(SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT EXISTS(SELECT 1 FROM medications WHERE doses_today_date = ?)",
+                new Object[]{Medication.DOSE_COUNTERS_PENDING})) {
+            return cursor.moveToFirst() && cursor.getInt(0) != 0;
+        }
+    }
+
+    /**
+     * Backfill one chunk in a single transaction
+     * @param database Database
+     * @param now Current time, for the doses-today counter
+     * @return Number of rows filled in; 0 when nothing is left
+     */
+    public static int runChunk(AppDatabase database, long now) {
+        MedicationDao medicationDao = database.medicationDao();
+        long dayStart = DateTimeUtils.getStartOfDay(now);
+        long dayEnd = DateTimeUtils.getEndOfDay(now);
+
+        return database.runInTransaction(() -> {
+            List<Integer> medicationIds = medicationDao.getMedicationIdsWithPendingCounters(CHUNK_SIZE);
+            for (int medicationId : medicationIds) {
+                medicationDao.refreshDoseCounters(medicationId, dayStart, dayEnd);
+            }
+            return medicationIds.size();
+        });
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.dosebuddy.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * DoseInstance entity for Room database
+ * One row per expected dose, generated ahead of time from each medication's schedule
+ * and reconciled against medication_history as doses are taken.
+ */
+@Entity(tableName = "dose_instance",
+        foreignKeys = {
+            @ForeignKey(
+                entity = User.class,
+                parentColumns = "id",
+                childColumns = "user_id",
+                onDelete = ForeignKey.CASCADE
+            ),
+            @ForeignKey(
+                entity = Medication.class,
+                parentColumns = "id",
+                childColumns = "medication_id",
+                onDelete = ForeignKey.CASCADE
+            )
+        },
+        indices = {
+            @Index(value = {"medication_id", "scheduled_time"}, unique = true),
+            @Index(value = {"user_id", "scheduled_time", "status"})
+        })
+public class DoseInstance {
+
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+
+    @ColumnInfo(name = "user_id")
+    private int userId;
+
+    @ColumnInfo(name = "medication_id")
+    private int medicationId;
+
+    @ColumnInfo(name = "scheduled_time")
+    private long scheduledTime; // When the dose is due
+
+    @NonNull
+    @ColumnInfo(name = "status")
+    private String status; // Stored as Status name
+
+    @ColumnInfo(name = "history_id")
+    private Integer historyId; // medication_history row that satisfied this dose
+
+    @ColumnInfo(name = "resolved_at")
+    private Long resolvedAt; // When the status left PENDING
+
+    @ColumnInfo(name = "created_at")
+    private long createdAt;
+
+    // Enum for dose status
+    public enum Status {
+        PENDING,
+        TAKEN,
+        LATE,
+        MISSED,
+        SKIPPED;
+
+        public static Status fromString(String value) {
+            if (value == null) return PENDING;
+            try {
+                return Status.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return PENDING;
+            }
+        }
+    }
+
+    // Constructors
+    public DoseInstance() {
+        this.status = Status.PENDING.name();
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    @Ignore
+    public DoseInstance(int userId, int medicationId, long scheduledTime) {
+        this();
+        this.userId = userId;
+        this.medicationId = medicationId;
+        this.scheduledTime = scheduledTime;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getMedicationId() {
+        return medicationId;
+    }
+
+    public void setMedicationId(int medicationId) {
+        this.medicationId = medicationId;
+    }
+
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+
+    public void setScheduledTime(long scheduledTime) {
+        this.scheduledTime = scheduledTime;
+    }
+
+    @NonNull
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(@NonNull String status) {
+        this.status = status;
+    }
+
+    /**
+     * Get status as enum
+     */
+    public Status getStatusEnum() {
+        return Status.fromString(status);
+    }
+
+    /**
+     * Set status from enum
+     */
+    public void setStatusEnum(Status status) {
+        this.status = status.name();
+    }
+
+    public Integer getHistoryId() {
+        return historyId;
+    }
+
+    public void setHistoryId(Integer historyId) {
+        this.historyId = historyId;
+    }
+
+    public Long getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(Long resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DoseInstance{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", medicationId=" + medicationId +
+                ", scheduledTime=" + scheduledTime +
+                ", status='" + status + '\'' +
+                ", historyId=" + historyId +
+                '}';
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data Access Object for DoseInstance entity
+ * Defines database operations for the expected-dose ledger
+ */
+@Dao
+public interface DoseInstanceDao {
+
+    /**
+     * Insert expected doses, ignoring any that already exist for the same medication and time
+     * @param instances Dose instances to insert
+     * @return Row IDs of the inserted instances (-1 for ignored rows)
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertInstances(List<DoseInstance> instances);
+
+    /**
+     * Remove unresolved doses from a time onwards (used when a schedule changes)
+     * @param medicationId Medication ID
+     * @param fromTime Start time (inclusive)
+     * @return Number of rows deleted
+     */
+    @Query("DELETE FROM dose_instance WHERE medication_id = :medicationId AND status = 'PENDING' AND scheduled_time >= :fromTime")
+    int deletePendingFrom(int medicationId, long fromTime);
+
+    /**
+     * Get the latest generated dose time for a user
+     * @param userId User ID
+     * @return Latest scheduled time or null if the ledger is empty
+     */
+    @Query("SELECT MAX(scheduled_time) FROM dose_instance WHERE user_id = :userId")
+    Long getLatestScheduledTime(int userId);
+
+    /**
+     * Find the unresolved dose closest to a taken time
+     * @param medicationId Medication ID
+     * @param takenAt When the dose was taken
+     * @param startTime Start of the matching window (inclusive)
+     * @param endTime End of the matching window (inclusive)
+     * @return Closest pending or missed dose, or null
+     */
+    @Query("SELECT * FROM dose_instance WHERE medication_id = :medicationId " +
+           "AND scheduled_time >= :startTime AND scheduled_time <= :endTime " +
+           "AND status IN ('PENDING', 'MISSED') " +
+           "ORDER BY ABS(scheduled_time - :takenAt) LIMIT 1")
+    DoseInstance findClosestUnresolved(int medicationId, long takenAt, long startTime, long endTime);
+
+    /**
+     * Resolve a dose
+     * @param id Dose instance ID
+     * @param status New status name
+     * @param historyId Matching history record ID, or null
+     * @param resolvedAt When the dose was resolved
+     * @return Number of rows updated
+     */
+    @Query("UPDATE dose_instance SET status = :status, history_id = :historyId, resolved_at = :resolvedAt WHERE id = :id")
+    int resolveInstance(int id, String status, Integer historyId, long resolvedAt);
+
+    /**
+     * Reopen the dose a deleted history record had satisfied
+     * The dose goes back to PENDING, so it is marked missed later if nothing else covers it.
+     * The time range lets the (medication_id, scheduled_time) index find the dose.
+     * @param medicationId Medication of the deleted record
+     * @param fromTime Earliest scheduled time of the linked dose (inclusive)
+     * @param toTime Latest scheduled time of the linked dose (inclusive)
+     * @param historyId Deleted history record ID
+     * @return Number of rows updated
+     */
+    @Query("UPDATE dose_instance SET status = 'PENDING', history_id = NULL, resolved_at = NULL " +
+           "WHERE medication_id = :medicationId AND scheduled_time >= :fromTime AND scheduled_time <= :toTime " +
+           "AND history_id = :historyId")
+    int reopenForHistory(int medicationId, long fromTime, long toTime, int historyId);
+
+    /**
+     * Unlink doses from history records that were archived
+     * The doses keep their status; only the link to the removed rows goes. The time
+     * range lets the (user_id, scheduled_time, status) index find the linked doses.
+     * @param userId User ID
+     * @param fromTime Earliest scheduled time of a linked dose (inclusive)
+     * @param toTime Latest scheduled time of a linked dose (inclusive)
+     * @param historyIds Archived history record IDs
+     * @return Number of rows updated
+     */
+    @Query("UPDATE dose_instance SET history_id = NULL WHERE user_id = :userId " +
+           "AND scheduled_time >= :fromTime AND scheduled_time <= :toTime AND history_id IN (:historyIds)")
+    int clearHistoryLinks(int userId, long fromTime, long toTime, List<Integer> historyIds);
+
+    /**
+     * Get doses for a user within a date range
+     * @param userId User ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return List of dose instances ordered by scheduled time
+     */
+    @Query("SELECT * FROM dose_instance WHERE user_id = :userId AND scheduled_time >= :startTime AND scheduled_time <= :endTime ORDER BY scheduled_time ASC")
+    List<DoseInstance> getInstancesInDateRange(int userId, long startTime, long endTime);
+
+    /**
+     * Get missed doses for a user within a date range
+     * @param userId User ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return List of missed dose instances, most recent first
+     */
+    @Query("SELECT * FROM dose_instance WHERE user_id = :userId AND scheduled_time >= :startTime AND scheduled_time <= :endTime AND status = 'MISSED' ORDER BY scheduled_time DESC")
+    List<DoseInstance> getMissedDoses(int userId, long startTime, long endTime);
+
+    /**
+     * Find overdue pending doses with no history near their scheduled time
+     * Reads the (user_id, scheduled_time, status) ledger index and probes
+     * medication_history for each dose through its (medication_id, taken_at, is_on_time)
+     * or (user_id, taken_at, is_on_time) index, both bounded by the taken_at window.
+     * @param userId User ID
+     * @param since Oldest scheduled time to consider (inclusive)
+     * @param cutoff Doses scheduled before this time are overdue
+     * @param earlyWindow How long before the scheduled time a history record still counts
+     * @param lateWindow How long after the scheduled time a history record still counts
+     * @param limit Maximum number of doses to return
+     * @return Overdue doses, oldest first
+     */
+    @Query("SELECT d.id AS id, d.medication_id AS medication_id, d.scheduled_time AS scheduled_time, " +
+           "m.name AS medication_name FROM dose_instance d " +
+           "INNER JOIN medications m ON m.id = d.medication_id " +
+           "WHERE d.user_id = :userId AND d.scheduled_time >= :since AND d.scheduled_time < :cutoff " +
+           "AND d.status = 'PENDING' " +
+           "AND NOT EXISTS (SELECT 1 FROM medication_history h WHERE h.user_id = d.user_id " +
+           "AND h.medication_id = d.medication_id " +
+           "AND h.taken_at >= d.scheduled_time - :earlyWindow AND h.taken_at <= d.scheduled_time + :lateWindow) " +
+           "ORDER BY d.scheduled_time ASC LIMIT :limit")
+    List<OverdueDose> getOverdueDoses(int userId, long since, long cutoff, long earlyWindow,
+                                      long lateWindow, int limit);
+
+    /**
+     * Mark pending doses as missed
+     * @param ids Dose instance IDs
+     * @param resolvedAt When the doses were marked missed
+     * @return Number of rows updated
+     */
+    @Query("UPDATE dose_instance SET status = 'MISSED', resolved_at = :resolvedAt WHERE id IN (:ids) AND status = 'PENDING'")
+    int markMissed(List<Integer> ids, long resolvedAt);
+
+    /**
+     * Count doses by status for a user within a date range
+     * @param userId User ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return Status counts
+     */
+    @Query("SELECT COUNT(CASE WHEN status = 'TAKEN' THEN 1 END) AS taken, " +
+           "COUNT(CASE WHEN status = 'LATE' THEN 1 END) AS late, " +
+           "COUNT(CASE WHEN status = 'MISSED' THEN 1 END) AS missed, " +
+           "COUNT(CASE WHEN status = 'SKIPPED' THEN 1 END) AS skipped, " +
+           "COUNT(CASE WHEN status = 'PENDING' THEN 1 END) AS pending " +
+           "FROM dose_instance WHERE user_id = :userId AND scheduled_time >= :startTime AND scheduled_time <= :endTime")
+    StatusCounts getStatusCountsForUser(int userId, long startTime, long endTime);
+
+    /**
+     * Count doses by status for a medication within a date range
+     * @param medicationId Medication ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return Status counts
+     */
+    @Query("SELECT COUNT(CASE WHEN status = 'TAKEN' THEN 1 END) AS taken, " +
+           "COUNT(CASE WHEN status = 'LATE' THEN 1 END) AS late, " +
+           "COUNT(CASE WHEN status = 'MISSED' THEN 1 END) AS missed, " +
+           "COUNT(CASE WHEN status = 'SKIPPED' THEN 1 END) AS skipped, " +
+           "COUNT(CASE WHEN status = 'PENDING' THEN 1 END) AS pending " +
+           "FROM dose_instance WHERE medication_id = :medicationId AND scheduled_time >= :startTime AND scheduled_time <= :endTime")
+    StatusCounts getStatusCountsForMedication(int medicationId, long startTime, long endTime);
+
+    /**
+     * Get true adherence for a user: doses taken (on time or late) out of doses due
+     * Pending doses are excluded since they are not due yet.
+     * @param userId User ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return Adherence rate as percentage (0-100)
+     */
+    @Query("SELECT CASE WHEN COUNT(*) = 0 THEN 0 ELSE (COUNT(CASE WHEN status IN ('TAKEN', 'LATE') THEN 1 END) * 100 / COUNT(*)) END " +
+           "FROM dose_instance WHERE user_id = :userId AND scheduled_time >= :startTime AND scheduled_time <= :endTime AND status != 'PENDING'")
+    int getTrueAdherenceRate(int userId, long startTime, long endTime);
+
+    /**
+     * Get true adherence for a medication: doses taken (on time or late) out of doses due
+     * @param medicationId Medication ID
+     * @param startTime Start time (inclusive)
+     * @param endTime End time (inclusive)
+     * @return Adherence rate as percentage (0-100)
+     */
+    @Query("SELECT CASE WHEN COUNT(*) = 0 THEN 0 ELSE (COUNT(CASE WHEN status IN ('TAKEN', 'LATE') THEN 1 END) * 100 / COUNT(*)) END " +
+           "FROM dose_instance WHERE medication_id = :medicationId AND scheduled_time >= :startTime AND scheduled_time <= :endTime AND status != 'PENDING'")
+    int getTrueAdherenceRateForMedication(int medicationId, long startTime, long endTime);
+
+    /**
+     * Overdue dose with the medication name for notifications
+     */
+    class OverdueDose {
+        @ColumnInfo(name = "id")
+        public int id;
+
+        @ColumnInfo(name = "medication_id")
+        public int medicationId;
+
+        @ColumnInfo(name = "scheduled_time")
+        public long scheduledTime;
+
+        @ColumnInfo(name = "medication_name")
+        public String medicationName;
+    }
+
+    /**
+     * Dose counts per status
+     */
+    class StatusCounts {
+        @ColumnInfo(name = "taken")
+        public int taken;
+
+        @ColumnInfo(name = "late")
+        public int late;
+
+        @ColumnInfo(name = "missed")
+        public int missed;
+
+        @ColumnInfo(name = "skipped")
+        public int skipped;
+
+        @ColumnInfo(name = "pending")
+        public int pending;
+
+        /**
+         * Doses that were due (everything except pending)
+         */
+        public int getDueCount() {
+            return taken + late + missed + skipped;
+        }
+    }
+}
@@ -42,6 +42,8 @@ public class Medication {
     @ColumnInfo(name = "times_per_day")
     private int timesPerDay;
     
+    // Deprecated: dose times live in medication_schedule. Kept only as the source
+    // for the version 5 migration; new code must not read or write it.
     @ColumnInfo(name = "specific_times")
     private String specificTimes; // JSON string of time arrays
     
@@ -63,6 +65,21 @@ public class Medication {
     @ColumnInfo(name = "updated_at")
     private long updatedAt;
     
+    // Denormalized from medication_history so list screens need no per-row history queries.
+    // Maintained by MedicationDao.recordDoseTaken/refreshDoseCounters in the same
+    // transaction as each history write; never set from forms.
+    @ColumnInfo(name = "last_taken_at")
+    private Long lastTakenAt; // Nullable timestamp
+    
+    @ColumnInfo(name = "doses_today", defaultValue = "0")
+    private int dosesToday; // Doses taken on the day in doses_today_date
+    
+    @ColumnInfo(name = "doses_today_date", defaultValue = "0")
+    private long dosesTodayDate; // Start of the day dosesToday counts
+    
+    // doses_today_date of a row whose counters are still waiting for DeferredBackfill
+    public static final long DOSE_COUNTERS_PENDING = -1;
+    
     // Constructors
     public Medication() {
         this.createdAt = System.currentTimeMillis();
@@ -147,10 +164,18 @@ public class Medication {
         this.timesPerDay = timesPerDay;
     }
     
+    /**
+     * @deprecated Use MedicationScheduleDao
+     */
+    @Deprecated
     public String getSpecificTimes() {
         return specificTimes;
     }
     
+    /**
+     * @deprecated Use MedicationScheduleDao
+     */
+    @Deprecated
     public void setSpecificTimes(String specificTimes) {
         this.specificTimes = specificTimes;
     }
@@ -203,13 +228,80 @@ public class Medication {
         this.updatedAt = updatedAt;
     }
     
+    public Long getLastTakenAt() {
+        return lastTakenAt;
+    }
+    
+    public void setLastTakenAt(Long lastTakenAt) {
+        this.lastTakenAt = lastTakenAt;
+    }
+    
+    public int getDosesToday() {
+        return dosesToday;
+    }
+    
+    public void setDosesToday(int dosesToday) {
+        this.dosesToday = dosesToday;
+    }
+    
+    public long getDosesTodayDate() {
+        return dosesTodayDate;
+    }
+    
+    public void setDosesTodayDate(long dosesTodayDate) {
+        this.dosesTodayDate = dosesTodayDate;
+    }
+    
+    /**
+     * Get number of doses taken on a day
+     * The counter is stamped with its day, so a stale counter reads as zero.
+     * @param dayStart Start of the day (timestamp)
+     * @return Doses taken that day
+     */
+    public int getDosesTakenOn(long dayStart) {
+        return dosesTodayDate == dayStart ? dosesToday : 0;
+    }
+    
+    /**
+     * Copy the denormalized dose counters from another snapshot of this medication
+     * @param other Medication to copy from
+     */
+    public void copyDoseCountersFrom(Medication other) {
+        this.lastTakenAt = other.lastTakenAt;
+        this.dosesToday = other.dosesToday;
+        this.dosesTodayDate = other.dosesTodayDate;
+    }
+    
     /**
      * Update the updated_at timestamp
      */
     public void touch() {
         this.updatedAt = System.currentTimeMillis();
     }
-    
+
+    /**
+     * Create a field-by-field copy
+     * @return New Medication with the same values
+     */
+    public Medication copy() {
+        Medication copy = new Medication();
+        copy.id = id;
+        copy.userId = userId;
+        copy.name = name;
+        copy.dosage = dosage;
+        copy.frequency = frequency;
+        copy.timesPerDay = timesPerDay;
+        copy.specificTimes = specificTimes;
+        copy.startDate = startDate;
+        copy.endDate = endDate;
+        copy.notes = notes;
+        copy.isActive = isActive;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.copyDoseCountersFrom(this);
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Medication{" +
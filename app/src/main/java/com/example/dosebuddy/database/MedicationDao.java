@@ -4,8 +4,13 @@ import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.ScheduleUtils;
+
+import java.util.Calendar;
 import java.util.List;
 
 /**
@@ -31,6 +36,23 @@ public interface MedicationDao {
     @Update
     int updateMedication(Medication medication);
     
+    /**
+     * Update a medication's editable fields, keeping the stored dose counters
+     * A form may hold a snapshot older than the latest history write, so its
+     * counters are replaced with the current row's before the update.
+     * @param medication Medication to update
+     * @return Number of rows updated
+     */
+    @Transaction
+    default int updateMedicationDetails(Medication medication) {
+        Medication stored = getMedicationById(medication.getId());
+        if (stored == null) {
+            return 0;
+        }
+        medication.copyDoseCountersFrom(stored);
+        return updateMedication(medication);
+    }
+    
     /**
      * Delete a medication from the database
      * @param medication Medication to delete
@@ -85,6 +107,51 @@ public interface MedicationDao {
            "ORDER BY name ASC")
     List<Medication> getMedicationsDueToday(int userId, long todayStart, long todayEnd);
     
+    /**
+     * Get every active medication of a user with today's dose status
+     * One pass over the user's medications joined to their schedule rows; use
+     * getTodayStatus, which fills in the parameters and applies the cadence.
+     * @param userId User ID
+     * @param todayStart Start of today (timestamp)
+     * @param todayEnd End of today (timestamp)
+     * @param fromMinute Current minute of day; earlier slots are not "next"
+     * @param dayBit MedicationSchedule day_mask bit for today
+     * @return Medications with doses taken, doses expected and next slot, ordered by name
+     */
+    @Query("SELECT m.*, " +
+           "CASE WHEN m.doses_today_date = :todayStart THEN m.doses_today ELSE 0 END AS doses_taken_today, " +
+           "CASE WHEN m.start_date <= :todayEnd AND (m.end_date IS NULL OR m.end_date >= :todayStart) " +
+           "THEN COUNT(s.minute_of_day) ELSE 0 END AS doses_expected_today, " +
+           "CASE WHEN m.start_date <= :todayEnd AND (m.end_date IS NULL OR m.end_date >= :todayStart) " +
+           "THEN MIN(CASE WHEN s.minute_of_day >= :fromMinute THEN s.minute_of_day END) END AS next_slot " +
+           "FROM medications m " +
+           "LEFT JOIN medication_schedule s ON s.medication_id = m.id AND (s.day_mask & :dayBit) != 0 " +
+           "WHERE m.user_id = :userId AND m.is_active = 1 " +
+           "GROUP BY m.id " +
+           "ORDER BY m.name ASC")
+    List<TodayMedicationStatus> queryTodayStatus(int userId, long todayStart, long todayEnd,
+                                                 int fromMinute, int dayBit);
+    
+    /**
+     * Get every active medication of a user with today's dose status
+     * @param userId User ID
+     * @param now Current time (timestamp)
+     * @return Medications with doses taken, doses expected and next slot, ordered by name
+     */
+    default List<TodayMedicationStatus> getTodayStatus(int userId, long now) {
+        long todayStart = DateTimeUtils.getStartOfDay(now);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+
+        List<TodayMedicationStatus> statuses = queryTodayStatus(userId, todayStart,
+                DateTimeUtils.getEndOfDay(now), ScheduleUtils.toMinuteOfDay(now),
+                MedicationSchedule.dayBit(calendar.get(Calendar.DAY_OF_WEEK)));
+        for (TodayMedicationStatus status : statuses) {
+            status.applyCadence(todayStart);
+        }
+        return statuses;
+    }
+    
     /**
      * Get medications by frequency for a specific user
      * @param userId User ID
@@ -127,6 +194,55 @@ public interface MedicationDao {
     @Query("UPDATE medications SET is_active = 1, updated_at = :timestamp WHERE id = :medicationId")
     int reactivateMedication(int medicationId, long timestamp);
     
+    /**
+     * Count a newly recorded dose in the denormalized counters
+     * Doses for an older day than the counter's only move last_taken_at forward if later.
+     * Rows still pending the post-upgrade backfill are skipped; the backfill counts the dose.
+     * @param medicationId Medication ID
+     * @param takenAt When the dose was taken
+     * @param takenDay Start of the day the dose was taken
+     * @return Number of rows updated
+     */
+    @Query("UPDATE medications SET " +
+           "last_taken_at = MAX(COALESCE(last_taken_at, 0), :takenAt), " +
+           "doses_today = CASE WHEN doses_today_date = :takenDay THEN doses_today + 1 " +
+           "WHEN doses_today_date < :takenDay THEN 1 ELSE doses_today END, " +
+           "doses_today_date = MAX(doses_today_date, :takenDay) " +
+           "WHERE id = :medicationId AND doses_today_date != " + Medication.DOSE_COUNTERS_PENDING)
+    int recordDoseTaken(int medicationId, long takenAt, long takenDay);
+    
+    /**
+     * Recompute the denormalized counters from history (after deletes)
+     * @param medicationId Medication ID
+     * @param dayStart Start of today
+     * @param dayEnd End of today
+     * @return Number of rows updated
+     */
+    @Query("UPDATE medications SET " +
+           "last_taken_at = COALESCE((SELECT MAX(taken_at) FROM medication_history WHERE medication_id = :medicationId), " +
+           "(SELECT MAX(last_taken_at) FROM medication_history_archive WHERE medication_id = :medicationId)), " +
+           "doses_today = (SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId " +
+           "AND taken_at >= :dayStart AND taken_at <= :dayEnd), " +
+           "doses_today_date = :dayStart " +
+           "WHERE id = :medicationId")
+    int refreshDoseCounters(int medicationId, long dayStart, long dayEnd);
+    
+    /**
+     * Get medications whose counters were left for the post-upgrade backfill
+     * @param limit Maximum number of IDs
+     * @return Medication IDs, lowest first
+     */
+    @Query("SELECT id FROM medications WHERE doses_today_date = " + Medication.DOSE_COUNTERS_PENDING +
+           " ORDER BY id LIMIT :limit")
+    List<Integer> getMedicationIdsWithPendingCounters(int limit);
+    
+    /**
+     * Get active medications for every user (used for bulk reminder rescheduling)
+     * @return List of all active medications
+     */
+    @Query("SELECT * FROM medications WHERE is_active = 1")
+    List<Medication> getAllActiveMedications();
+    
     /**
      * Get all medications (including inactive) for a user
      * @param userId User ID
@@ -142,6 +258,7 @@ public interface MedicationDao {
      * @param timestamp Update timestamp
      * @return Number of rows updated
      */
+    @Deprecated // Dose times live in medication_schedule; see MedicationScheduleDao.replaceSlots
     @Query("UPDATE medications SET specific_times = :specificTimes, updated_at = :timestamp WHERE id = :medicationId")
     int updateMedicationTimes(int medicationId, String specificTimes, long timestamp);
     
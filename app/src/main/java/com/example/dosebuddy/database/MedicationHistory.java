@@ -27,10 +27,10 @@ import androidx.room.PrimaryKey;
             )
         },
         indices = {
-            @Index(value = "user_id"),
-            @Index(value = "medication_id"),
-            @Index(value = {"user_id", "medication_id", "taken_at"}),
-            @Index(value = "taken_at")
+            // Trailing is_on_time lets the adherence counts run from the index alone
+            @Index(value = {"user_id", "taken_at", "is_on_time"}),
+            @Index(value = {"medication_id", "taken_at", "is_on_time"}),
+            @Index(value = {"user_id", "taken_method", "taken_at"})
         })
 public class MedicationHistory {
     
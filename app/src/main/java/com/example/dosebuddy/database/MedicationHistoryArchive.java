@@ -0,0 +1,165 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+/**
+ * MedicationHistoryArchive entity for Room database
+ * Monthly roll-up of history rows older than the retention horizon, one row per
+ * medication and calendar month, so adherence totals survive archival.
+ */
+@Entity(tableName = "medication_history_archive",
+        primaryKeys = {"medication_id", "month_start"},
+        foreignKeys = {
+            @ForeignKey(
+                entity = User.class,
+                parentColumns = "id",
+                childColumns = "user_id",
+                onDelete = ForeignKey.CASCADE
+            ),
+            @ForeignKey(
+                entity = Medication.class,
+                parentColumns = "id",
+                childColumns = "medication_id",
+                onDelete = ForeignKey.CASCADE
+            )
+        },
+        indices = {
+            @Index(value = {"user_id", "month_start"})
+        })
+public class MedicationHistoryArchive {
+
+    @ColumnInfo(name = "medication_id")
+    private int medicationId;
+
+    @ColumnInfo(name = "month_start")
+    private long monthStart; // Local midnight of the month's first day
+
+    @ColumnInfo(name = "user_id")
+    private int userId;
+
+    @ColumnInfo(name = "medication_name")
+    private String medicationName; // Name on the latest archived record
+
+    @ColumnInfo(name = "dose_count")
+    private int doseCount;
+
+    @ColumnInfo(name = "on_time_count")
+    private int onTimeCount;
+
+    @ColumnInfo(name = "first_taken_at")
+    private long firstTakenAt;
+
+    @ColumnInfo(name = "last_taken_at")
+    private long lastTakenAt;
+
+    // Constructors
+    public MedicationHistoryArchive() {
+    }
+
+    @Ignore
+    public MedicationHistoryArchive(int userId, int medicationId, long monthStart) {
+        this.userId = userId;
+        this.medicationId = medicationId;
+        this.monthStart = monthStart;
+        this.firstTakenAt = Long.MAX_VALUE;
+    }
+
+    /**
+     * Add a history record to this month's totals
+     * @param history Record being archived
+     */
+    public void add(MedicationHistory history) {
+        doseCount++;
+        if (history.isOnTime()) {
+            onTimeCount++;
+        }
+        firstTakenAt = Math.min(firstTakenAt, history.getTakenAt());
+        if (history.getTakenAt() >= lastTakenAt) {
+            lastTakenAt = history.getTakenAt();
+            medicationName = history.getMedicationName();
+        }
+    }
+
+    /**
+     * Merge totals already stored for the same month
+     * @param stored Existing archive row
+     */
+    public void merge(MedicationHistoryArchive stored) {
+        doseCount += stored.doseCount;
+        onTimeCount += stored.onTimeCount;
+        firstTakenAt = Math.min(firstTakenAt, stored.firstTakenAt);
+        if (stored.lastTakenAt > lastTakenAt) {
+            lastTakenAt = stored.lastTakenAt;
+            medicationName = stored.medicationName;
+        }
+    }
+
+    // Getters and Setters
+    public int getMedicationId() {
+        return medicationId;
+    }
+
+    public void setMedicationId(int medicationId) {
+        this.medicationId = medicationId;
+    }
+
+    public long getMonthStart() {
+        return monthStart;
+    }
+
+    public void setMonthStart(long monthStart) {
+        this.monthStart = monthStart;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getMedicationName() {
+        return medicationName;
+    }
+
+    public void setMedicationName(String medicationName) {
+        this.medicationName = medicationName;
+    }
+
+    public int getDoseCount() {
+        return doseCount;
+    }
+
+    public void setDoseCount(int doseCount) {
+        this.doseCount = doseCount;
+    }
+
+    public int getOnTimeCount() {
+        return onTimeCount;
+    }
+
+    public void setOnTimeCount(int onTimeCount) {
+        this.onTimeCount = onTimeCount;
+    }
+
+    public long getFirstTakenAt() {
+        return firstTakenAt;
+    }
+
+    public void setFirstTakenAt(long firstTakenAt) {
+        this.firstTakenAt = firstTakenAt;
+    }
+
+    public long getLastTakenAt() {
+        return lastTakenAt;
+    }
+
+    public void setLastTakenAt(long lastTakenAt) {
+        this.lastTakenAt = lastTakenAt;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data Access Object for MedicationHistoryArchive entity
+ * Written only by HistoryRetention; adherence totals read it through MedicationHistoryDao.
+ */
+@Dao
+public interface MedicationHistoryArchiveDao {
+
+    /**
+     * Insert or replace monthly totals
+     * Callers merge with the stored row first; see HistoryRetention.
+     * @param months Monthly totals
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertMonths(List<MedicationHistoryArchive> months);
+
+    /**
+     * Get the stored totals for one medication and month
+     * @param medicationId Medication ID
+     * @param monthStart Start of the month (timestamp)
+     * @return Archive row or null if none
+     */
+    @Query("SELECT * FROM medication_history_archive WHERE medication_id = :medicationId AND month_start = :monthStart LIMIT 1")
+    MedicationHistoryArchive getMonth(int medicationId, long monthStart);
+
+    /**
+     * Get all archived months for a user
+     * @param userId User ID
+     * @return Archive rows, newest month first
+     */
+    @Query("SELECT * FROM medication_history_archive WHERE user_id = :userId ORDER BY month_start DESC")
+    List<MedicationHistoryArchive> getArchiveForUser(int userId);
+
+    /**
+     * Get number of archived doses for a user
+     * @param userId User ID
+     * @return Total doses in archived months
+     */
+    @Query("SELECT COALESCE(SUM(dose_count), 0) FROM medication_history_archive WHERE user_id = :userId")
+    int getArchivedDoseCount(int userId);
+}
@@ -1,5 +1,7 @@
 package com.example.dosebuddy.database;
 
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
@@ -22,7 +24,27 @@ public interface MedicationHistoryDao {
      */
     @Insert
     long insertHistory(MedicationHistory history);
-    
+
+    /**
+     * Insert several history records in a single transaction
+     * @param histories History records to insert
+     * @return The row IDs of the inserted records
+     */
+    @Insert
+    List<Long> insertHistories(List<MedicationHistory> histories);
+
+    /**
+     * Check if an identical history record was already written
+     * Used to make write-behind journal replay idempotent
+     * @param userId User ID
+     * @param medicationId Medication ID
+     * @param takenAt When the dose was taken
+     * @param createdAt When the record was created
+     * @return True if a matching record exists
+     */
+    @Query("SELECT COUNT(*) > 0 FROM medication_history WHERE user_id = :userId AND medication_id = :medicationId AND taken_at = :takenAt AND created_at = :createdAt")
+    boolean historyExists(int userId, int medicationId, long takenAt, long createdAt);
+
     /**
      * Update an existing history record
      * @param history History record to update
@@ -33,6 +55,8 @@ public interface MedicationHistoryDao {
     
     /**
      * Delete a history record
+     * Reopen its ledger dose with DoseInstanceDao.reopenForHistory in the same
+     * transaction, as MedicationHistoryManager.deleteHistory does.
      * @param history History record to delete
      * @return Number of rows deleted
      */
@@ -55,6 +79,23 @@ public interface MedicationHistoryDao {
     @Query("SELECT * FROM medication_history WHERE user_id = :userId ORDER BY taken_at DESC")
     List<MedicationHistory> getHistoryForUser(int userId);
     
+    /**
+     * Get a cursor over all history for a user, oldest first
+     * Used for streaming export; the caller must close the cursor
+     * @param userId User ID
+     * @return Cursor over medication_history rows
+     */
+    @Query("SELECT * FROM medication_history WHERE user_id = :userId ORDER BY taken_at ASC")
+    Cursor getHistoryCursorForUser(int userId);
+
+    /**
+     * Get total number of history records for a user
+     * @param userId User ID
+     * @return Number of history records
+     */
+    @Query("SELECT COUNT(*) FROM medication_history WHERE user_id = :userId")
+    int getHistoryCountForUser(int userId);
+    
     /**
      * Get history for a specific medication
      * @param medicationId Medication ID
@@ -101,41 +142,52 @@ public interface MedicationHistoryDao {
     MedicationHistory getLastTakenForMedication(int medicationId);
     
     /**
-     * Get total doses taken for a medication
+     * Get total doses taken for a medication, including archived months
      * @param medicationId Medication ID
      * @return Total number of doses taken
      */
-    @Query("SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId")
+    @Query("SELECT (SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId) + " +
+           "(SELECT COALESCE(SUM(dose_count), 0) FROM medication_history_archive WHERE medication_id = :medicationId)")
     int getTotalDosesTaken(int medicationId);
     
     /**
      * Get doses taken for a medication within a date range
+     * Archived months count when their first day falls within the range.
      * @param medicationId Medication ID
      * @param startTime Start time (inclusive)
      * @param endTime End time (inclusive)
      * @return Number of doses taken in the date range
      */
-    @Query("SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime")
+    @Query("SELECT (SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime) + " +
+           "(SELECT COALESCE(SUM(dose_count), 0) FROM medication_history_archive WHERE medication_id = :medicationId AND month_start >= :startTime AND month_start <= :endTime)")
     int getDosesTakenInDateRange(int medicationId, long startTime, long endTime);
     
     /**
      * Get on-time doses for a medication within a date range
+     * Archived months count when their first day falls within the range.
      * @param medicationId Medication ID
      * @param startTime Start time (inclusive)
      * @param endTime End time (inclusive)
      * @return Number of on-time doses in the date range
      */
-    @Query("SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime AND is_on_time = 1")
+    @Query("SELECT (SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime AND is_on_time = 1) + " +
+           "(SELECT COALESCE(SUM(on_time_count), 0) FROM medication_history_archive WHERE medication_id = :medicationId AND month_start >= :startTime AND month_start <= :endTime)")
     int getOnTimeDosesInDateRange(int medicationId, long startTime, long endTime);
     
     /**
      * Get adherence rate for a medication (percentage of on-time doses)
+     * Only considers doses that were taken; see DoseInstanceDao for adherence against expected doses.
+     * Archived months count when their first day falls within the range.
      * @param medicationId Medication ID
      * @param startTime Start time (inclusive)
      * @param endTime End time (inclusive)
      * @return Adherence rate as percentage (0-100)
      */
-    @Query("SELECT CASE WHEN COUNT(*) = 0 THEN 0 ELSE (COUNT(CASE WHEN is_on_time = 1 THEN 1 END) * 100 / COUNT(*)) END FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime")
+    @Query("SELECT CASE WHEN total = 0 THEN 0 ELSE on_time * 100 / total END FROM (" +
+           "SELECT (SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime) + " +
+           "(SELECT COALESCE(SUM(dose_count), 0) FROM medication_history_archive WHERE medication_id = :medicationId AND month_start >= :startTime AND month_start <= :endTime) AS total, " +
+           "(SELECT COUNT(*) FROM medication_history WHERE medication_id = :medicationId AND taken_at >= :startTime AND taken_at <= :endTime AND is_on_time = 1) + " +
+           "(SELECT COALESCE(SUM(on_time_count), 0) FROM medication_history_archive WHERE medication_id = :medicationId AND month_start >= :startTime AND month_start <= :endTime) AS on_time)")
     int getAdherenceRate(int medicationId, long startTime, long endTime);
     
     /**
@@ -194,11 +246,35 @@ public interface MedicationHistoryDao {
     
     /**
      * Get overall adherence rate for a user across all medications
+     * Archived months count when their first day falls within the range.
      * @param userId User ID
      * @param startTime Start time (inclusive)
      * @param endTime End time (inclusive)
      * @return Overall adherence rate as percentage (0-100)
      */
-    @Query("SELECT CASE WHEN COUNT(*) = 0 THEN 0 ELSE (COUNT(CASE WHEN is_on_time = 1 THEN 1 END) * 100 / COUNT(*)) END FROM medication_history WHERE user_id = :userId AND taken_at >= :startTime AND taken_at <= :endTime")
+    @Query("SELECT CASE WHEN total = 0 THEN 0 ELSE on_time * 100 / total END FROM (" +
+           "SELECT (SELECT COUNT(*) FROM medication_history WHERE user_id = :userId AND taken_at >= :startTime AND taken_at <= :endTime) + " +
+           "(SELECT COALESCE(SUM(dose_count), 0) FROM medication_history_archive WHERE user_id = :userId AND month_start >= :startTime AND month_start <= :endTime) AS total, " +
+           "(SELECT COUNT(*) FROM medication_history WHERE user_id = :userId AND taken_at >= :startTime AND taken_at <= :endTime AND is_on_time = 1) + " +
+           "(SELECT COALESCE(SUM(on_time_count), 0) FROM medication_history_archive WHERE user_id = :userId AND month_start >= :startTime AND month_start <= :endTime) AS on_time)")
     int getOverallAdherenceRate(int userId, long startTime, long endTime);
+
+    /**
+     * Get a user's oldest history records taken before a cutoff (for archival)
+     * @param userId User ID
+     * @param cutoff Records taken before this time are returned
+     * @param limit Maximum number of records
+     * @return History records, oldest first
+     */
+    @Query("SELECT * FROM medication_history WHERE user_id = :userId AND taken_at < :cutoff ORDER BY taken_at ASC LIMIT :limit")
+    List<MedicationHistory> getHistoryOlderThan(int userId, long cutoff, int limit);
+
+    /**
+     * Delete history records by ID
+     * Clear their ledger links with DoseInstanceDao in the same transaction.
+     * @param ids History record IDs
+     * @return Number of rows deleted
+     */
+    @Query("DELETE FROM medication_history WHERE id IN (:ids)")
+    int deleteHistoryByIds(List<Integer> ids);
 }
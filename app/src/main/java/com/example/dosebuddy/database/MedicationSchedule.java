@@ -0,0 +1,129 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MedicationSchedule entity for Room database
+ * One row per dose time of a medication, replacing the specific_times string.
+ */
+@Entity(tableName = "medication_schedule",
+        primaryKeys = {"medication_id", "minute_of_day", "day_mask"},
+        foreignKeys = @ForeignKey(
+                entity = Medication.class,
+                parentColumns = "id",
+                childColumns = "medication_id",
+                onDelete = ForeignKey.CASCADE
+        ),
+        indices = {
+            @Index(value = "minute_of_day"),
+            @Index(value = {"user_id", "minute_of_day"})
+        })
+public class MedicationSchedule {
+
+    // Days of week as bits: bit 0 = Sunday ... bit 6 = Saturday
+    public static final int ALL_DAYS = 0x7F;
+
+    @ColumnInfo(name = "medication_id")
+    private int medicationId;
+
+    @ColumnInfo(name = "minute_of_day")
+    private int minuteOfDay; // Minutes after local midnight (0-1439)
+
+    @ColumnInfo(name = "day_mask")
+    private int dayMask; // Days of week the slot applies to
+
+    @ColumnInfo(name = "user_id")
+    private int userId; // Denormalized for per-user and cross-user slot queries
+
+    // Constructors
+    public MedicationSchedule() {
+        this.dayMask = ALL_DAYS;
+    }
+
+    @Ignore
+    public MedicationSchedule(int userId, int medicationId, int minuteOfDay) {
+        this();
+        this.userId = userId;
+        this.medicationId = medicationId;
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    /**
+     * Get the day_mask bit for a Calendar.DAY_OF_WEEK value
+     */
+    public static int dayBit(int calendarDayOfWeek) {
+        return 1 << (calendarDayOfWeek - 1);
+    }
+
+    /**
+     * Group slots by medication ID, keeping their order
+     * @param slots Slot rows
+     * @return Minutes of day per medication ID
+     */
+    public static Map<Integer, List<Integer>> groupMinutesByMedication(List<MedicationSchedule> slots) {
+        Map<Integer, List<Integer>> minutesByMedication = new HashMap<>();
+        for (MedicationSchedule slot : slots) {
+            List<Integer> minutes = minutesByMedication.get(slot.getMedicationId());
+            if (minutes == null) {
+                minutes = new ArrayList<>();
+                minutesByMedication.put(slot.getMedicationId(), minutes);
+            }
+            if (!minutes.contains(slot.getMinuteOfDay())) {
+                minutes.add(slot.getMinuteOfDay());
+            }
+        }
+        return minutesByMedication;
+    }
+
+    // Getters and Setters
+    public int getMedicationId() {
+        return medicationId;
+    }
+
+    public void setMedicationId(int medicationId) {
+        this.medicationId = medicationId;
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    public int getDayMask() {
+        return dayMask;
+    }
+
+    public void setDayMask(int dayMask) {
+        this.dayMask = dayMask;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public String toString() {
+        return "MedicationSchedule{" +
+                "medicationId=" + medicationId +
+                ", minuteOfDay=" + minuteOfDay +
+                ", dayMask=" + dayMask +
+                ", userId=" + userId +
+                '}';
+    }
+}
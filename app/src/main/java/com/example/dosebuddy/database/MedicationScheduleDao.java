@@ -0,0 +1,108 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for MedicationSchedule entity
+ * Defines database operations for medication dose times
+ */
+@Dao
+public interface MedicationScheduleDao {
+
+    /**
+     * Insert slots, replacing identical ones
+     * @param slots Slots to insert
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertSlots(List<MedicationSchedule> slots);
+
+    /**
+     * Delete all slots of a medication
+     * @param medicationId Medication ID
+     * @return Number of rows deleted
+     */
+    @Query("DELETE FROM medication_schedule WHERE medication_id = :medicationId")
+    int deleteSlotsForMedication(int medicationId);
+
+    /**
+     * Replace a medication's slots with the given dose times (every day of the week)
+     * @param medicationId Medication ID
+     * @param userId Owner user ID
+     * @param minutes Dose times as minutes of day
+     */
+    @Transaction
+    default void replaceSlots(int medicationId, int userId, List<Integer> minutes) {
+        deleteSlotsForMedication(medicationId);
+        List<MedicationSchedule> slots = new ArrayList<>(minutes.size());
+        for (int minute : minutes) {
+            slots.add(new MedicationSchedule(userId, medicationId, minute));
+        }
+        if (!slots.isEmpty()) {
+            insertSlots(slots);
+        }
+    }
+
+    /**
+     * Get slots of a medication
+     * @param medicationId Medication ID
+     * @return Slots ordered by time of day
+     */
+    @Query("SELECT * FROM medication_schedule WHERE medication_id = :medicationId ORDER BY minute_of_day ASC")
+    List<MedicationSchedule> getSlotsForMedication(int medicationId);
+
+    /**
+     * Get dose times of a medication
+     * @param medicationId Medication ID
+     * @return Distinct minutes of day, ascending
+     */
+    @Query("SELECT DISTINCT minute_of_day FROM medication_schedule WHERE medication_id = :medicationId ORDER BY minute_of_day ASC")
+    List<Integer> getMinutesForMedication(int medicationId);
+
+    /**
+     * Get slots of all medications of a user
+     * @param userId User ID
+     * @return Slots ordered by time of day
+     */
+    @Query("SELECT * FROM medication_schedule WHERE user_id = :userId ORDER BY minute_of_day ASC")
+    List<MedicationSchedule> getSlotsForUser(int userId);
+
+    /**
+     * Get slots of every active medication (used for bulk rescheduling)
+     * @return Slots of active medications
+     */
+    @Query("SELECT s.* FROM medication_schedule s INNER JOIN medications m ON m.id = s.medication_id " +
+           "WHERE m.is_active = 1 ORDER BY s.minute_of_day ASC")
+    List<MedicationSchedule> getSlotsForActiveMedications();
+
+    /**
+     * Get active slots due in a time-of-day range across all users
+     * e.g. everything due between 08:00 and 08:15 on a Monday
+     * @param fromMinute Start minute of day (inclusive)
+     * @param toMinute End minute of day (exclusive)
+     * @param dayBit Day-of-week bit (see MedicationSchedule.dayBit)
+     * @return Slots ordered by time of day
+     */
+    @Query("SELECT s.* FROM medication_schedule s INNER JOIN medications m ON m.id = s.medication_id " +
+           "WHERE s.minute_of_day >= :fromMinute AND s.minute_of_day < :toMinute " +
+           "AND (s.day_mask & :dayBit) != 0 AND m.is_active = 1 ORDER BY s.minute_of_day ASC")
+    List<MedicationSchedule> getDueSlots(int fromMinute, int toMinute, int dayBit);
+
+    /**
+     * Get a user's next active slot at or after a time of day
+     * @param userId User ID
+     * @param fromMinute Minute of day to search from (inclusive)
+     * @param dayBit Day-of-week bit (see MedicationSchedule.dayBit)
+     * @return Next slot today, or null if none is left
+     */
+    @Query("SELECT s.* FROM medication_schedule s INNER JOIN medications m ON m.id = s.medication_id " +
+           "WHERE s.user_id = :userId AND s.minute_of_day >= :fromMinute " +
+           "AND (s.day_mask & :dayBit) != 0 AND m.is_active = 1 ORDER BY s.minute_of_day ASC LIMIT 1")
+    MedicationSchedule getNextSlotForUser(int userId, int fromMinute, int dayBit);
+}
@@ -0,0 +1,202 @@
+package com.example.dosebuddy.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Schema migrations for AppDatabase
+ * Each migration must leave the schema identical to what Room generates for the entities.
+ */
+public class Migrations {
+
+    /**
+     * Version 3 to 4: add the dose_instance ledger
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `dose_instance` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`user_id` INTEGER NOT NULL, " +
+                    "`medication_id` INTEGER NOT NULL, " +
+                    "`scheduled_time` INTEGER NOT NULL, " +
+                    "`status` TEXT NOT NULL, " +
+                    "`history_id` INTEGER, " +
+                    "`resolved_at` INTEGER, " +
+                    "`created_at` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`user_id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`medication_id`) REFERENCES `medications`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_dose_instance_medication_id_scheduled_time` " +
+                    "ON `dose_instance` (`medication_id`, `scheduled_time`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_dose_instance_user_id_scheduled_time_status` " +
+                    "ON `dose_instance` (`user_id`, `scheduled_time`, `status`)");
+        }
+    };
+
+    /**
+     * Version 4 to 5: move dose times from medications.specific_times into medication_schedule
+     * Medications without parseable times get their frequency's default times, so the
+     * table is the single source of dose times afterwards. The old column is left in place.
+     * The conversion is a frozen copy (legacyDoseMinutes) so later schedule changes don't
+     * change what this migration writes.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `medication_schedule` (" +
+                    "`medication_id` INTEGER NOT NULL, " +
+                    "`minute_of_day` INTEGER NOT NULL, " +
+                    "`day_mask` INTEGER NOT NULL, " +
+                    "`user_id` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`medication_id`, `minute_of_day`, `day_mask`), " +
+                    "FOREIGN KEY(`medication_id`) REFERENCES `medications`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_schedule_minute_of_day` " +
+                    "ON `medication_schedule` (`minute_of_day`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_schedule_user_id_minute_of_day` " +
+                    "ON `medication_schedule` (`user_id`, `minute_of_day`)");
+
+            try (Cursor cursor = database.query(
+                    "SELECT id, user_id, specific_times, frequency, times_per_day FROM medications")) {
+                while (cursor.moveToNext()) {
+                    int medicationId = cursor.getInt(0);
+                    int userId = cursor.getInt(1);
+                    String specificTimes = cursor.isNull(2) ? null : cursor.getString(2);
+                    String frequency = cursor.isNull(3) ? null : cursor.getString(3);
+
+                    List<Integer> minutes = legacyDoseMinutes(specificTimes, frequency, cursor.getInt(4));
+                    for (int minute : minutes) {
+                        database.execSQL("INSERT OR IGNORE INTO `medication_schedule` " +
+                                "(`medication_id`, `minute_of_day`, `day_mask`, `user_id`) VALUES (?, ?, ?, ?)",
+                                new Object[]{medicationId, minute, MedicationSchedule.ALL_DAYS, userId});
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Dose minutes for a version 4 medication row, as version 4 scheduled them
+     * specific_times held epoch millis picked on the device, and version 4 read their
+     * time of day in the device's time zone; this does the same, so a medication keeps
+     * the times it was reminded at. Without parseable times, frequencies other than
+     * AS_NEEDED get evenly spaced doses from 8:00.
+     */
+    private static List<Integer> legacyDoseMinutes(String specificTimes, String frequency, int timesPerDay) {
+        List<Integer> minutes = new ArrayList<>();
+        if (frequency != null && "AS_NEEDED".equals(frequency.toUpperCase(Locale.ROOT))) {
+            return minutes;
+        }
+
+        String timesStr = specificTimes == null ? "" : specificTimes.replace("[", "").replace("]", "");
+        if (!timesStr.trim().isEmpty()) {
+            Calendar calendar = Calendar.getInstance(TimeZone.getDefault());
+            try {
+                for (String timeStr : timesStr.split(",")) {
+                    calendar.setTimeInMillis(Long.parseLong(timeStr.trim()));
+                    int minute = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+                    if (!minutes.contains(minute)) {
+                        minutes.add(minute);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                minutes.clear();
+            }
+        }
+
+        if (minutes.isEmpty()) {
+            int actualTimes = Math.max(1, timesPerDay);
+            int intervalMinutes = (24 / actualTimes) * 60;
+            for (int i = 0; i < actualTimes; i++) {
+                minutes.add((8 * 60 + i * intervalMinutes) % (24 * 60));
+            }
+        }
+        Collections.sort(minutes);
+        return minutes;
+    }
+
+    /**
+     * Version 5 to 6: denormalized last-taken and doses-today counters on medications
+     * Computing them scans each medication's history, so the migration only marks
+     * every row pending and DeferredBackfill fills them in after the database opens.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `medications` ADD COLUMN `last_taken_at` INTEGER");
+            database.execSQL("ALTER TABLE `medications` ADD COLUMN `doses_today` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `medications` ADD COLUMN `doses_today_date` INTEGER NOT NULL DEFAULT 0");
+
+            database.execSQL("UPDATE `medications` SET `doses_today_date` = ?",
+                    new Object[]{Medication.DOSE_COUNTERS_PENDING});
+        }
+    };
+
+    /**
+     * Version 6 to 7: add the monthly history archive
+     * auto_vacuum cannot change inside the migration's transaction; the retention
+     * worker switches it to INCREMENTAL on its first run.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `medication_history_archive` (" +
+                    "`medication_id` INTEGER NOT NULL, " +
+                    "`month_start` INTEGER NOT NULL, " +
+                    "`user_id` INTEGER NOT NULL, " +
+                    "`medication_name` TEXT, " +
+                    "`dose_count` INTEGER NOT NULL, " +
+                    "`on_time_count` INTEGER NOT NULL, " +
+                    "`first_taken_at` INTEGER NOT NULL, " +
+                    "`last_taken_at` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`medication_id`, `month_start`), " +
+                    "FOREIGN KEY(`user_id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`medication_id`) REFERENCES `medications`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_archive_user_id_month_start` " +
+                    "ON `medication_history_archive` (`user_id`, `month_start`)");
+        }
+    };
+
+    /**
+     * Version 7 to 8: replace the medication_history indexes with covering composites
+     * (user_id, taken_at, is_on_time) and (medication_id, taken_at, is_on_time) serve the
+     * range, latest-dose and adherence queries and the foreign keys; (user_id, taken_method,
+     * taken_at) serves the by-method filter. The single-column and
+     * (user_id, medication_id, taken_at) indexes were redundant with them.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS `index_medication_history_user_id`");
+            database.execSQL("DROP INDEX IF EXISTS `index_medication_history_medication_id`");
+            database.execSQL("DROP INDEX IF EXISTS `index_medication_history_user_id_medication_id_taken_at`");
+            database.execSQL("DROP INDEX IF EXISTS `index_medication_history_taken_at`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_user_id_taken_at_is_on_time` " +
+                    "ON `medication_history` (`user_id`, `taken_at`, `is_on_time`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_medication_id_taken_at_is_on_time` " +
+                    "ON `medication_history` (`medication_id`, `taken_at`, `is_on_time`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_user_id_taken_method_taken_at` " +
+                    "ON `medication_history` (`user_id`, `taken_method`, `taken_at`)");
+        }
+    };
+
+    /**
+     * All migrations, in version order
+     */
+    public static final Migration[] ALL = {
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8
+    };
+}
@@ -0,0 +1,151 @@
+package com.example.dosebuddy.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Locale;
+
+/**
+ * SQLite storage settings applied when AppDatabase is opened
+ *
+ * The journal mode goes to Room's open helper; the PRAGMAs are run from a
+ * RoomDatabase.Callback on open. synchronous, mmap_size, cache_size and
+ * temp_store are per connection, so they reach the primary (writer)
+ * connection, which is the one every insert and transaction uses.
+ * Changing the profile takes effect the next time the database is opened.
+ * Installs that never chose one keep DEFAULT, so nobody's durability changes
+ * without opting in.
+ */
+public enum StorageProfile {
+
+    // Room's defaults; nothing is tuned
+    DEFAULT(RoomDatabase.JournalMode.AUTOMATIC, null, -1, 0, null, -1),
+
+    // WAL with NORMAL sync: a crash can lose the last commits but never corrupts
+    BALANCED(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, "NORMAL",
+            32L * 1024 * 1024, 4 * 1024, "MEMORY", 1000),
+
+    // Larger map, cache and checkpoint interval for bulk imports and big histories
+    THROUGHPUT(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, "NORMAL",
+            128L * 1024 * 1024, 16 * 1024, "MEMORY", 4000),
+
+    // Rollback journal with FULL sync: every commit is on disk before it returns
+    DURABLE(RoomDatabase.JournalMode.TRUNCATE, "FULL", 0, 2 * 1024, "DEFAULT", -1);
+
+    private static final String TAG = "StorageProfile";
+    public static final String PREF_STORAGE_PROFILE = "storage_profile";
+
+    private final RoomDatabase.JournalMode journalMode;
+    private final String synchronous; // null keeps SQLite's default
+    private final long mmapSizeBytes; // -1 keeps the default, 0 disables memory mapping
+    private final int cacheSizeKib; // 0 keeps the default
+    private final String tempStore; // null keeps the default
+    private final int walAutoCheckpointPages; // -1 keeps the default
+
+    StorageProfile(RoomDatabase.JournalMode journalMode, String synchronous, long mmapSizeBytes,
+                   int cacheSizeKib, String tempStore, int walAutoCheckpointPages) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.cacheSizeKib = cacheSizeKib;
+        this.tempStore = tempStore;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+    }
+
+    public RoomDatabase.JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    /**
+     * Configure a Room builder with this profile's journal mode and open callback
+     * @param builder Room database builder
+     * @return The same builder
+     */
+    public <T extends RoomDatabase> RoomDatabase.Builder<T> applyTo(RoomDatabase.Builder<T> builder) {
+        return builder
+                .setJournalMode(journalMode)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        applyPragmas(db);
+                    }
+                });
+    }
+
+    /**
+     * Run this profile's PRAGMAs on an open connection
+     * @param db Open database
+     */
+    public void applyPragmas(SupportSQLiteDatabase db) {
+        if (synchronous != null) {
+            runPragma(db, "PRAGMA synchronous = " + synchronous);
+        }
+        if (mmapSizeBytes >= 0) {
+            runPragma(db, "PRAGMA mmap_size = " + mmapSizeBytes);
+        }
+        if (cacheSizeKib > 0) {
+            // Negative values are KiB rather than pages
+            runPragma(db, "PRAGMA cache_size = -" + cacheSizeKib);
+        }
+        if (tempStore != null) {
+            runPragma(db, "PRAGMA temp_store = " + tempStore);
+        }
+        if (walAutoCheckpointPages >= 0 && journalMode == RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING) {
+            runPragma(db, "PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages);
+        }
+        Log.d(TAG, "Applied storage profile " + name());
+    }
+
+    /**
+     * Run a PRAGMA through query(), since some PRAGMAs return a row and execSQL rejects those
+     */
+    private static void runPragma(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Get the profile chosen in settings
+     * @param context Context
+     * @return Saved profile, or DEFAULT if none was chosen
+     */
+    public static StorageProfile fromPreferences(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+        return fromString(prefs.getString(PREF_STORAGE_PROFILE, null));
+    }
+
+    /**
+     * Save the profile to use from the next database open
+     * @param context Context
+     * @param profile Profile to use
+     */
+    public static void saveToPreferences(Context context, StorageProfile profile) {
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .edit()
+                .putString(PREF_STORAGE_PROFILE, profile.name())
+                .apply();
+    }
+
+    /**
+     * Parse a profile name
+     * @param name Profile name
+     * @return StorageProfile, DEFAULT if the name is unknown
+     */
+    public static StorageProfile fromString(String name) {
+        if (name == null) {
+            return DEFAULT;
+        }
+        try {
+            return StorageProfile.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return DEFAULT;
+        }
+    }
+}
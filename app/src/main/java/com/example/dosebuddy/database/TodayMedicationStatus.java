@@ -0,0 +1,50 @@
+package com.example.dosebuddy.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+import com.example.dosebuddy.utils.ScheduleUtils;
+
+/**
+ * Projection for the home screen: a medication with today's dose status
+ * Loaded for all of a user's medications by MedicationDao.getTodayStatus in one query.
+ */
+public class TodayMedicationStatus {
+
+    @Embedded
+    public Medication medication;
+
+    @ColumnInfo(name = "doses_taken_today")
+    public int dosesTaken;
+
+    @ColumnInfo(name = "doses_expected_today")
+    public int dosesExpected; // Slots due today; 0 on days the cadence skips
+
+    @ColumnInfo(name = "next_slot")
+    public Integer nextSlot; // Next minute of day still due today, or null
+
+    /**
+     * Apply the every-other-day/weekly cadence, which the query does not evaluate
+     * @param todayStart Start of today (timestamp)
+     */
+    void applyCadence(long todayStart) {
+        if (!ScheduleUtils.isDoseDay(medication.getFrequencyEnum(), medication.getStartDate(), todayStart)) {
+            dosesExpected = 0;
+            nextSlot = null;
+        }
+    }
+
+    /**
+     * Get doses still due today
+     */
+    public int getRemainingDoses() {
+        return Math.max(0, dosesExpected - dosesTaken);
+    }
+
+    /**
+     * Check if every dose due today was taken
+     */
+    public boolean isCompleteToday() {
+        return dosesExpected > 0 && dosesTaken >= dosesExpected;
+    }
+}
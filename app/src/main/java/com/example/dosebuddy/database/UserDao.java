@@ -86,6 +86,13 @@ public interface UserDao {
     @Query("SELECT * FROM users WHERE is_active = 1 ORDER BY created_at DESC")
     List<User> getAllActiveUsers();
     
+    /**
+     * Get IDs of all users, including inactive ones
+     * @return List of user IDs
+     */
+    @Query("SELECT id FROM users")
+    List<Integer> getAllUserIds();
+    
     /**
      * Get total number of users
      * @return Total count of users
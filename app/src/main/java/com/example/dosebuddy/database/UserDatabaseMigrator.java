@@ -0,0 +1,180 @@
+package com.example.dosebuddy.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.dosebuddy.workers.RescheduleAllWorker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves one user's data from the shared database into a file of their own
+ *
+ * The user's file is created through Room so it carries the current schema, then
+ * opened on a plain connection with the shared file ATTACHed. The copy into the
+ * user's file and the delete from the shared file run in one EXCLUSIVE
+ * transaction, which also holds the shared file's write lock, so no write can
+ * land in between; other writers wait on the busy timeout. ATTACH goes on this
+ * separate connection because the framework turns WAL off on a connection
+ * that has attached databases.
+ *
+ * If the process dies after the commit but before the user is recorded as moved,
+ * the next call copies nothing new (rows are copied with INSERT OR REPLACE) and
+ * records the move.
+ */
+public class UserDatabaseMigrator {
+
+    private static final String TAG = "UserDatabaseMigrator";
+
+    // Parents before children so the copied rows satisfy the foreign keys
+    private static final String[] USER_TABLES = {
+            "medications",
+            "medication_schedule",
+            "medication_history",
+            "medication_history_archive",
+            "dose_instance"
+    };
+
+    // Medication IDs key reminder work and notifications across all users, so
+    // each user's file allocates new ones from its own block
+    static final long MEDICATION_ID_BLOCK = 100_000;
+
+    // Highest user ID whose whole block still fits in an int medication ID
+    static final int MAX_USER_ID = (int) ((Integer.MAX_VALUE + 1L) / MEDICATION_ID_BLOCK - 1);
+
+    /**
+     * Move a user into their own database if database-per-user is on
+     * Called at sign-in, off the main thread. A failure is logged and leaves the data
+     * in the shared file, which keeps working.
+     * @param context Application context
+     * @param userId User ID
+     */
+    public static void moveIfEnabled(Context context, int userId) {
+        if (!AppDatabase.isDatabasePerUser(context) || AppDatabase.hasUserDatabase(context, userId)) {
+            return;
+        }
+        try {
+            if (moveToUserDatabase(context, userId) > 1) { // More than the users row
+                // Re-arm so queued reminders carry the user ID of their new database
+                RescheduleAllWorker.enqueue(context, "user_database_moved");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error moving user " + userId + " to their own database", e);
+        }
+    }
+
+    /**
+     * Move a user's data into their own database file
+     * Does nothing if the user already has one. Must be called off the main thread.
+     * @param context Application context
+     * @param userId User ID
+     * @return Number of rows moved
+     * @throws IllegalArgumentException if the user's medication ID block would not fit in an int;
+     *         nothing is moved
+     */
+    public static int moveToUserDatabase(Context context, int userId) {
+        if (AppDatabase.hasUserDatabase(context, userId)) {
+            return 0;
+        }
+        if (userId <= 0 || userId > MAX_USER_ID) {
+            throw new IllegalArgumentException("User " + userId + " is outside the medication ID blocks (1-"
+                    + MAX_USER_ID + "); keeping their data in the shared database");
+        }
+        long startTime = System.nanoTime();
+
+        // Create (or migrate) both files through Room before touching them directly
+        AppDatabase userDatabase = AppDatabase.openUserDatabase(context, userId);
+        userDatabase.getOpenHelper().getWritableDatabase();
+        userDatabase.close();
+        AppDatabase.getInstance(context).getOpenHelper().getWritableDatabase();
+
+        String userPath = context.getDatabasePath(AppDatabase.getUserDatabaseName(userId)).getPath();
+        String sharedPath = context.getDatabasePath(AppDatabase.DATABASE_NAME).getPath();
+
+        int moved = 0;
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(userPath, null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            db.execSQL("ATTACH DATABASE ? AS shared", new Object[]{sharedPath});
+            try {
+                db.beginTransaction();
+                try {
+                    moved += copyRows(db, "users", "id", userId);
+                    for (String table : USER_TABLES) {
+                        moved += copyRows(db, table, "user_id", userId);
+                    }
+                    reserveMedicationIds(db, userId);
+
+                    // Children first; the users row stays, it is the account
+                    for (int i = USER_TABLES.length - 1; i >= 0; i--) {
+                        db.execSQL("DELETE FROM shared.`" + USER_TABLES[i] + "` WHERE user_id = ?",
+                                new Object[]{userId});
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } finally {
+                db.execSQL("DETACH DATABASE shared");
+            }
+        } finally {
+            db.close();
+        }
+
+        AppDatabase.setHasUserDatabase(context, userId, true);
+        Log.i(TAG, "Moved " + moved + " rows for user " + userId + " in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+        return moved;
+    }
+
+    /**
+     * Copy a user's rows of one table from the shared file
+     * Columns are listed by name: ALTER TABLE appends columns, so a migrated shared
+     * file and a freshly created one can order them differently.
+     */
+    private static int copyRows(SQLiteDatabase db, String table, String userColumn, int userId) {
+        String columns = String.join(", ", getColumns(db, table));
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO main.`" + table + "` (" +
+                columns + ") SELECT " + columns + " FROM shared.`" + table + "` WHERE " + userColumn + " = ?");
+        try {
+            statement.bindLong(1, userId);
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static List<String> getColumns(SQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA main.table_info(`" + table + "`)", null)) {
+            int nameColumn = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add("`" + cursor.getString(nameColumn) + "`");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Start the user's medication IDs at their block unless copied rows are already past it
+     */
+    private static void reserveMedicationIds(SQLiteDatabase db, int userId) {
+        long floor = userId * MEDICATION_ID_BLOCK;
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE main.sqlite_sequence SET seq = MAX(seq, ?) WHERE name = 'medications'");
+        try {
+            update.bindLong(1, floor);
+            if (update.executeUpdateDelete() > 0) {
+                return;
+            }
+        } finally {
+            update.close();
+        }
+        db.execSQL("INSERT INTO main.sqlite_sequence (name, seq) VALUES ('medications', ?)",
+                new Object[]{floor});
+    }
+}
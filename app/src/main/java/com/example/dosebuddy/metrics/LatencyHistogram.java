@@ -0,0 +1,160 @@
+package com.example.dosebuddy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of latencies, safe to record into from any thread
+ *
+ * Buckets are given as inclusive upper bounds in whatever unit the caller
+ * records; values above the last bound land in an overflow bucket. Percentiles
+ * are reported as the upper bound of the bucket they fall in, so they are
+ * accurate to the bucket width rather than exact.
+ */
+public class LatencyHistogram {
+
+    // 1-2-5 steps from 50 microseconds to 10 seconds
+    public static final long[] QUERY_BOUNDS_US = {
+            50, 100, 200, 500,
+            1_000, 2_000, 5_000, 10_000, 20_000, 50_000,
+            100_000, 200_000, 500_000, 1_000_000, 2_000_000, 5_000_000, 10_000_000
+    };
+
+    private final long[] bounds;
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param bounds Inclusive bucket upper bounds, ascending
+     */
+    public LatencyHistogram(long[] bounds) {
+        this.bounds = bounds.clone();
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * Record one value
+     * @param value Latency in the unit of the bounds
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry until this value is stored or a larger one is
+        }
+    }
+
+    /**
+     * Add saved bucket counts, e.g. when restoring a persisted histogram
+     * @param savedCounts Counts per bucket, overflow last; must match the bounds
+     * @param savedSum Sum of the saved values
+     * @param savedMax Largest saved value
+     */
+    public void add(long[] savedCounts, long savedSum, long savedMax) {
+        if (savedCounts.length != counts.length()) {
+            throw new IllegalArgumentException("Expected " + counts.length() + " buckets");
+        }
+        for (int i = 0; i < savedCounts.length; i++) {
+            counts.addAndGet(i, savedCounts[i]);
+        }
+        sum.addAndGet(savedSum);
+        long current;
+        while (savedMax > (current = max.get()) && !max.compareAndSet(current, savedMax)) {
+            // Retry until this value is stored or a larger one is
+        }
+    }
+
+    int bucketOf(long value) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value <= bounds[i]) {
+                return i;
+            }
+        }
+        return bounds.length;
+    }
+
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Get a copy of the bucket counts, overflow last
+     */
+    public long[] getCounts() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Get the largest recorded value
+     * @return Maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        long value = max.get();
+        return value == Long.MIN_VALUE ? 0 : value;
+    }
+
+    /**
+     * Get the mean of the recorded values
+     * @return Mean, or 0 if nothing was recorded
+     */
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.get() / count;
+    }
+
+    /**
+     * Estimate a percentile
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding the percentile, the maximum for
+     *         the overflow bucket, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bounds[i], getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clear all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.dosebuddy.metrics;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process registry of DAO call latency and a log of slow queries
+ *
+ * AppDatabase hands out DAOs wrapped by TimedDao, which reports every call here
+ * with its duration, the rows it returned and the calling thread. Room's
+ * QueryCallback feeds the SQL and bind arguments of the statements a call runs;
+ * they are kept only for calls slower than the threshold. Nothing is persisted
+ * except the threshold; the numbers cover the current process and can be
+ * written to a dump file for bug reports.
+ */
+public class QueryMetrics {
+
+    private static final String TAG = "QueryMetrics";
+    public static final String PREF_SLOW_QUERY_THRESHOLD_MS = "slow_query_threshold_ms";
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 50;
+    public static final String DUMP_FILE_NAME = "query_metrics.txt";
+
+    static final int MAX_SLOW_QUERIES = 100;
+    static final int MAX_STATEMENTS_PER_CALL = 10;
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>(); // Guarded by itself, newest first
+    private final ThreadLocal<List<Statement>> captured = new ThreadLocal<>();
+    private volatile long slowQueryThresholdNanos = DEFAULT_SLOW_QUERY_THRESHOLD_MS * 1_000_000L;
+
+    /**
+     * Latency, rows and calling threads of one DAO method
+     */
+    public static class QueryStats {
+        private final String name;
+        private final LatencyHistogram latencyUs = new LatencyHistogram(LatencyHistogram.QUERY_BOUNDS_US);
+        private final AtomicLong rows = new AtomicLong();
+        private final Map<String, AtomicLong> threads = new ConcurrentHashMap<>();
+
+        QueryStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get call latency in microseconds
+         */
+        public LatencyHistogram getLatencyUs() {
+            return latencyUs;
+        }
+
+        /**
+         * Get rows returned over all calls
+         * Counts list and array sizes and single entities; scalar results are not rows.
+         */
+        public long getRows() {
+            return rows.get();
+        }
+
+        /**
+         * Get calls per thread, with digits in thread names replaced by '#'
+         */
+        public Map<String, Long> getThreads() {
+            Map<String, Long> copy = new TreeMap<>();
+            for (Map.Entry<String, AtomicLong> entry : threads.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().get());
+            }
+            return copy;
+        }
+
+        /**
+         * Get calls made on the main thread; each one risks a dropped frame
+         */
+        public long getMainThreadCalls() {
+            AtomicLong calls = threads.get("main");
+            return calls != null ? calls.get() : 0;
+        }
+    }
+
+    /**
+     * A DAO call slower than the threshold, with the statements it ran
+     */
+    public static class SlowQuery {
+        public final long timestamp;
+        public final String name;
+        public final long durationUs;
+        public final int rows; // -1 for scalar results
+        public final String thread;
+        public final List<String> statements;
+
+        SlowQuery(long timestamp, String name, long durationUs, int rows, String thread, List<String> statements) {
+            this.timestamp = timestamp;
+            this.name = name;
+            this.durationUs = durationUs;
+            this.rows = rows;
+            this.thread = thread;
+            this.statements = statements;
+        }
+    }
+
+    // SQL seen by the QueryCallback; formatted only if the call turns out to be slow
+    static class Statement {
+        final String sql;
+        final List<Object> bindArgs;
+
+        Statement(String sql, List<Object> bindArgs) {
+            this.sql = sql;
+            this.bindArgs = bindArgs;
+        }
+
+        // Values can be names, notes or credentials, so only their count and types are kept
+        @Override
+        public String toString() {
+            if (bindArgs.isEmpty()) {
+                return sql;
+            }
+            StringBuilder text = new StringBuilder(sql).append(" [").append(bindArgs.size())
+                    .append(bindArgs.size() == 1 ? " arg: " : " args: ");
+            for (int i = 0; i < bindArgs.size(); i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                text.append(typeOf(bindArgs.get(i)));
+            }
+            return text.append(']').toString();
+        }
+
+        private static String typeOf(Object value) {
+            if (value == null) {
+                return "NULL";
+            } else if (value instanceof Float || value instanceof Double) {
+                return "REAL";
+            } else if (value instanceof Number || value instanceof Boolean) {
+                return "INTEGER";
+            } else if (value instanceof byte[]) {
+                return "BLOB";
+            }
+            return "TEXT";
+        }
+    }
+
+    public static QueryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    QueryMetrics() {
+    }
+
+    /**
+     * Load the saved slow-query threshold
+     * @param context Context
+     */
+    public void loadSettings(Context context) {
+        long thresholdMs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .getLong(PREF_SLOW_QUERY_THRESHOLD_MS, DEFAULT_SLOW_QUERY_THRESHOLD_MS);
+        slowQueryThresholdNanos = thresholdMs * 1_000_000L;
+    }
+
+    /**
+     * Change and save the slow-query threshold
+     * @param context Context
+     * @param thresholdMs Calls slower than this are logged with their SQL
+     */
+    public void setSlowQueryThresholdMs(Context context, long thresholdMs) {
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .edit()
+                .putLong(PREF_SLOW_QUERY_THRESHOLD_MS, thresholdMs)
+                .apply();
+        slowQueryThresholdNanos = thresholdMs * 1_000_000L;
+    }
+
+    public long getSlowQueryThresholdMs() {
+        return slowQueryThresholdNanos / 1_000_000L;
+    }
+
+    /**
+     * Wrap a Room DAO so every call is timed
+     * @param daoType DAO interface
+     * @param dao Room's implementation
+     * @return Proxy implementing the DAO interface
+     */
+    public <T> T wrap(Class<T> daoType, T dao) {
+        return daoType.cast(Proxy.newProxyInstance(daoType.getClassLoader(),
+                new Class<?>[]{daoType}, new TimedDao(this, daoType, dao)));
+    }
+
+    /**
+     * Room QueryCallback; attributes each statement to the DAO call running on this thread
+     * Register with a direct executor so it runs on the querying thread.
+     */
+    public void onQuery(String sql, List<Object> bindArgs) {
+        List<Statement> statements = captured.get();
+        if (statements != null && statements.size() < MAX_STATEMENTS_PER_CALL) {
+            statements.add(new Statement(sql, bindArgs));
+        }
+    }
+
+    /**
+     * Start capturing statements for a DAO call on this thread
+     * @return Capture of an enclosing call, to pass back to endCall
+     */
+    Object beginCall() {
+        List<Statement> enclosing = captured.get();
+        captured.set(new ArrayList<>(2));
+        return enclosing;
+    }
+
+    /**
+     * Record a finished DAO call and restore the enclosing capture
+     * @param name DAO and method, e.g. "MedicationDao.getActiveMedications"
+     * @param durationNanos Call duration
+     * @param rows Rows returned, or -1 for scalar results
+     * @param enclosing Value returned by beginCall
+     */
+    @SuppressWarnings("unchecked")
+    void endCall(String name, long durationNanos, int rows, Object enclosing) {
+        List<Statement> statements = captured.get();
+        if (enclosing != null) {
+            captured.set((List<Statement>) enclosing);
+        } else {
+            captured.remove();
+        }
+        record(name, durationNanos, rows, Thread.currentThread().getName(), statements);
+    }
+
+    void record(String name, long durationNanos, int rows, String thread, List<Statement> statements) {
+        QueryStats queryStats = stats.get(name);
+        if (queryStats == null) {
+            queryStats = stats.computeIfAbsent(name, QueryStats::new);
+        }
+        queryStats.latencyUs.record(durationNanos / 1000);
+        if (rows > 0) {
+            queryStats.rows.addAndGet(rows);
+        }
+        String threadKey = normalizeThreadName(thread);
+        AtomicLong calls = queryStats.threads.get(threadKey);
+        if (calls == null) {
+            calls = queryStats.threads.computeIfAbsent(threadKey, key -> new AtomicLong());
+        }
+        calls.incrementAndGet();
+
+        if (durationNanos >= slowQueryThresholdNanos) {
+            List<String> sql = new ArrayList<>();
+            if (statements != null) {
+                for (Statement statement : statements) {
+                    sql.add(statement.toString());
+                }
+            }
+            SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), name,
+                    durationNanos / 1000, rows, thread, sql);
+            synchronized (slowQueries) {
+                slowQueries.addFirst(slowQuery);
+                if (slowQueries.size() > MAX_SLOW_QUERIES) {
+                    slowQueries.removeLast();
+                }
+            }
+            Log.w(TAG, "Slow query " + name + " took " + durationNanos / 1_000_000 + " ms on " + thread);
+        }
+    }
+
+    /**
+     * Collapse numbered thread names ("pool-3-thread-1") so the per-query map stays small
+     */
+    static String normalizeThreadName(String name) {
+        StringBuilder normalized = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (normalized == null) {
+                    normalized = new StringBuilder(name.substring(0, i));
+                }
+                if (normalized.length() == 0 || normalized.charAt(normalized.length() - 1) != '#') {
+                    normalized.append('#');
+                }
+            } else if (normalized != null) {
+                normalized.append(c);
+            }
+        }
+        return normalized != null ? normalized.toString() : name;
+    }
+
+    /**
+     * Get per-query statistics, most total time first
+     */
+    public List<QueryStats> getQueryStats() {
+        List<QueryStats> list = new ArrayList<>(stats.values());
+        Collections.sort(list, (a, b) -> Long.compare(b.latencyUs.getSum(), a.latencyUs.getSum()));
+        return list;
+    }
+
+    /**
+     * Get the logged slow queries, newest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    /**
+     * Clear all statistics and the slow-query log
+     */
+    public void reset() {
+        stats.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Write a plain-text report of every query and the slow-query log
+     * @param writer Destination; not closed
+     * @throws IOException if writing fails
+     */
+    public void dump(Writer writer) throws IOException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        writer.write("DoseBuddy query metrics, " + timeFormat.format(new Date())
+                + ", slow-query threshold " + getSlowQueryThresholdMs() + " ms\n\n");
+
+        writer.write(String.format(Locale.US, "%-52s %7s %9s %9s %9s %10s %8s %6s%n",
+                "query", "calls", "p50 ms", "p99 ms", "max ms", "total ms", "rows", "main"));
+        for (QueryStats queryStats : getQueryStats()) {
+            LatencyHistogram latency = queryStats.latencyUs;
+            writer.write(String.format(Locale.US, "%-52s %7d %9.2f %9.2f %9.2f %10.1f %8d %6d%n",
+                    queryStats.name, latency.getCount(),
+                    latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0,
+                    latency.getMax() / 1000.0, latency.getSum() / 1000.0,
+                    queryStats.getRows(), queryStats.getMainThreadCalls()));
+            writer.write("    threads: " + queryStats.getThreads() + "\n");
+        }
+
+        List<SlowQuery> slow = getSlowQueries();
+        writer.write("\nSlow queries, newest first (" + slow.size() + ")\n");
+        for (SlowQuery slowQuery : slow) {
+            writer.write(String.format(Locale.US, "%s %s %.1f ms, %d rows, thread %s%n",
+                    timeFormat.format(new Date(slowQuery.timestamp)), slowQuery.name,
+                    slowQuery.durationUs / 1000.0, slowQuery.rows, slowQuery.thread));
+            for (String statement : slowQuery.statements) {
+                writer.write("    " + statement + "\n");
+            }
+        }
+    }
+
+    /**
+     * Write the report to a file for attaching to bug reports
+     * Goes to the app's private files directory; on a debug build, read it with
+     * adb exec-out run-as.
+     * @param context Context
+     * @return The written file
+     * @throws IOException if writing fails
+     */
+    public File writeDumpFile(Context context) throws IOException {
+        File file = new File(context.getFilesDir(), DUMP_FILE_NAME);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            dump(writer);
+        }
+        Log.i(TAG, "Query metrics written to " + file);
+        return file;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.dosebuddy.metrics;
+
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent histograms of how late reminders fire compared with their scheduled time
+ *
+ * Every reminder is recorded once overall and once under each dimension: the
+ * scheduled hour, the device state and app standby bucket when it fired, and the
+ * delivery channel (the path that scheduled it). The dimensions are kept as
+ * separate histograms, not a cross product, so storage stays small. Device state
+ * is sampled when the reminder fires, not while it was held back.
+ *
+ * Histograms live in their own preferences file and survive restarts and updates.
+ */
+public class ReminderLatency {
+
+    private static final String TAG = "ReminderLatency";
+    static final String PREFS_NAME = "DoseBuddyReminderLatency";
+
+    // Lateness in seconds: on time, then up to eight hours; later lands in overflow
+    public static final long[] LATENESS_BOUNDS_S = {
+            0, 10, 30, 60, 2 * 60, 5 * 60, 10 * 60, 15 * 60, 30 * 60,
+            60 * 60, 2 * 60 * 60, 4 * 60 * 60, 8 * 60 * 60
+    };
+
+    public static final String KEY_ALL = "all";
+    private static final String HOUR_PREFIX = "hour:";
+    private static final String STATE_PREFIX = "state:";
+    private static final String STANDBY_PREFIX = "standby:";
+    private static final String CHANNEL_PREFIX = "channel:";
+
+    /**
+     * How the reminder was scheduled; add a value for each new scheduling path
+     */
+    public enum Channel {
+        WORK_SLOT,   // Recurring slot reminder from ReminderScheduler
+        WORK_SNOOZE  // One-off reminder from the notification's snooze action
+    }
+
+    /**
+     * Device state when the reminder fired, most restrictive first
+     */
+    public enum DeviceState {
+        DOZE,
+        POWER_SAVE,
+        SCREEN_OFF_CHARGING,
+        SCREEN_OFF,
+        INTERACTIVE
+    }
+
+    /**
+     * Record one reminder
+     * @param context Context
+     * @param scheduledTime When the reminder was due
+     * @param firedAt When it actually ran
+     * @param channel How it was scheduled
+     */
+    public static void record(Context context, long scheduledTime, long firedAt, Channel channel) {
+        long latenessSeconds = Math.max(0, (firedAt - scheduledTime) / 1000);
+        DeviceState state = getDeviceState(context);
+        String[] keys = {
+                KEY_ALL,
+                HOUR_PREFIX + String.format(Locale.US, "%02d", DateTimeUtils.getHour(scheduledTime)),
+                STATE_PREFIX + state.name().toLowerCase(Locale.US),
+                STANDBY_PREFIX + getStandbyBucket(context),
+                CHANNEL_PREFIX + channel.name().toLowerCase(Locale.US)
+        };
+
+        synchronized (ReminderLatency.class) {
+            SharedPreferences prefs = getPreferences(context);
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String key : keys) {
+                LatencyHistogram histogram = decode(prefs.getString(key, null));
+                histogram.record(latenessSeconds);
+                editor.putString(key, encode(histogram));
+            }
+            editor.apply();
+        }
+
+        if (latenessSeconds >= 5 * 60) {
+            Log.i(TAG, channel + " reminder fired " + latenessSeconds + " s late, device " + state);
+        }
+    }
+
+    /**
+     * Get every recorded histogram, keyed by dimension and value (e.g. "hour:08", "state:doze")
+     * @param context Context
+     * @return Histograms of lateness in seconds, sorted by key with "all" first
+     */
+    public static Map<String, LatencyHistogram> getHistograms(Context context) {
+        Map<String, LatencyHistogram> histograms = new TreeMap<>((a, b) -> {
+            if (a.equals(b)) {
+                return 0;
+            } else if (a.equals(KEY_ALL)) {
+                return -1;
+            } else if (b.equals(KEY_ALL)) {
+                return 1;
+            }
+            return a.compareTo(b);
+        });
+        synchronized (ReminderLatency.class) {
+            for (Map.Entry<String, ?> entry : getPreferences(context).getAll().entrySet()) {
+                if (entry.getValue() instanceof String) {
+                    histograms.put(entry.getKey(), decode((String) entry.getValue()));
+                }
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Get the lateness percentile over all reminders
+     * @param context Context
+     * @param percentile Percentile between 0 and 100
+     * @return Lateness in seconds, accurate to the bucket width; 0 if nothing was recorded
+     */
+    public static long getPercentileSeconds(Context context, double percentile) {
+        synchronized (ReminderLatency.class) {
+            return decode(getPreferences(context).getString(KEY_ALL, null)).getPercentile(percentile);
+        }
+    }
+
+    /**
+     * Clear all recorded reminders
+     */
+    public static void reset(Context context) {
+        synchronized (ReminderLatency.class) {
+            getPreferences(context).edit().clear().apply();
+        }
+    }
+
+    /**
+     * Write a plain-text percentile table of every histogram
+     * @param context Context
+     * @param writer Destination; not closed
+     * @throws IOException if writing fails
+     */
+    public static void dump(Context context, Writer writer) throws IOException {
+        writer.write("Reminder lateness, seconds\n");
+        writer.write(String.format(Locale.US, "%-24s %7s %7s %7s %7s %7s%n",
+                "dimension", "count", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms(context).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            writer.write(String.format(Locale.US, "%-24s %7d %7d %7d %7d %7d%n",
+                    entry.getKey(), histogram.getCount(), histogram.getPercentile(50),
+                    histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMax()));
+        }
+    }
+
+    /**
+     * Encode a histogram for storage as "sum;max;count0,count1,..."
+     */
+    static String encode(LatencyHistogram histogram) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(histogram.getSum()).append(';').append(histogram.getMax()).append(';');
+        long[] counts = histogram.getCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(counts[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Decode a stored histogram
+     * @param value Stored value, may be null
+     * @return The histogram; empty if the value is missing or was written with other bounds
+     */
+    static LatencyHistogram decode(String value) {
+        LatencyHistogram histogram = new LatencyHistogram(LATENESS_BOUNDS_S);
+        if (value == null) {
+            return histogram;
+        }
+        try {
+            String[] parts = value.split(";");
+            String[] countParts = parts[2].split(",");
+            if (countParts.length != LATENESS_BOUNDS_S.length + 1) {
+                return histogram; // Bounds changed; start over
+            }
+            long[] counts = new long[countParts.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Long.parseLong(countParts[i]);
+            }
+            histogram.add(counts, Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable histogram", e);
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the device state, most restrictive first
+     */
+    static DeviceState getDeviceState(Context context) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            if (powerManager.isDeviceIdleMode()) {
+                return DeviceState.DOZE;
+            } else if (powerManager.isPowerSaveMode()) {
+                return DeviceState.POWER_SAVE;
+            } else if (powerManager.isInteractive()) {
+                return DeviceState.INTERACTIVE;
+            }
+        }
+        return isCharging(context) ? DeviceState.SCREEN_OFF_CHARGING : DeviceState.SCREEN_OFF;
+    }
+
+    private static boolean isCharging(Context context) {
+        // Sticky broadcast; no receiver is registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        int status = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1) : -1;
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    /**
+     * Get the app standby bucket name; "unknown" before Android 9
+     */
+    static String getStandbyBucket(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return "unknown";
+        }
+        UsageStatsManager usageStatsManager = context.getSystemService(UsageStatsManager.class);
+        if (usageStatsManager == null) {
+            return "unknown";
+        }
+        int bucket = usageStatsManager.getAppStandbyBucket();
+        if (bucket <= UsageStatsManager.STANDBY_BUCKET_ACTIVE) {
+            return "active";
+        } else if (bucket <= UsageStatsManager.STANDBY_BUCKET_WORKING_SET) {
+            return "working_set";
+        } else if (bucket <= UsageStatsManager.STANDBY_BUCKET_FREQUENT) {
+            return "frequent";
+        } else if (bucket <= UsageStatsManager.STANDBY_BUCKET_RARE) {
+            return "rare";
+        }
+        return "restricted";
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.dosebuddy.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proxy handler that times every call on a Room DAO and reports it to QueryMetrics
+ * Each call is also a trace section named like its metrics entry.
+ *
+ * Default methods (e.g. @Transaction helpers) are timed as one call; the DAO
+ * methods they use internally run on Room's implementation and are not
+ * reported separately. Calls returning a Cursor are timed up to the cursor
+ * being returned, before rows are read.
+ */
+class TimedDao implements InvocationHandler {
+
+    private final QueryMetrics metrics;
+    private final String daoName;
+    private final Object dao;
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    TimedDao(QueryMetrics metrics, Class<?> daoType, Object dao) {
+        this.metrics = metrics;
+        this.daoName = daoType.getSimpleName();
+        this.dao = dao;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeDao(method, args);
+        }
+
+        String name = names.get(method);
+        if (name == null) {
+            name = daoName + "." + method.getName();
+            names.put(method, name);
+        }
+
+        Tracer.begin(name);
+        Object enclosing = metrics.beginCall();
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invokeDao(method, args);
+            return result;
+        } finally {
+            metrics.endCall(name, System.nanoTime() - start, countRows(result), enclosing);
+            Tracer.end();
+        }
+    }
+
+    private Object invokeDao(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(dao, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Count rows in a DAO result
+     * @return List or array size, 1 for an entity, 0 for null, -1 for scalars and cursors
+     */
+    static int countRows(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Object[]) {
+            return ((Object[]) result).length;
+        } else if (result instanceof Number || result instanceof Boolean || result instanceof String
+                || result instanceof android.database.Cursor) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.dosebuddy.metrics;
+
+import androidx.tracing.Trace;
+
+import com.example.dosebuddy.BuildConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Systrace/Perfetto sections for the app's own code paths
+ *
+ * Sections show up in a system trace next to the framework's, so a cold start
+ * or reminder burst shows which DAO call, worker or receiver a thread was in.
+ * Use begin/end in try/finally on one thread, and beginAsync/endAsync for spans
+ * that finish on another thread (a network callback, a background write).
+ *
+ * ENABLED is BuildConfig.TRACING, a compile-time constant: on in debug builds,
+ * and in release builds only with -PenableTracing. When it is off every call
+ * compiles to nothing.
+ */
+public final class Tracer {
+
+    public static final boolean ENABLED = BuildConfig.TRACING;
+
+    // Longer names are rejected by the platform
+    static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    /**
+     * Where sections go; replaced in unit tests
+     */
+    interface Backend {
+        void beginSection(String name);
+
+        void endSection();
+
+        void beginAsyncSection(String name, int cookie);
+
+        void endAsyncSection(String name, int cookie);
+    }
+
+    private static final Backend ANDROIDX_BACKEND = new Backend() {
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    };
+
+    private static volatile Backend backend = ANDROIDX_BACKEND;
+    private static final AtomicInteger nextCookie = new AtomicInteger();
+
+    private Tracer() {
+    }
+
+    /**
+     * Begin a section on the current thread; end it with end() on the same thread
+     * @param name Section name, e.g. "MedicationDao.getMedicationsForUser"
+     */
+    public static void begin(String name) {
+        if (ENABLED) {
+            backend.beginSection(truncate(name));
+        }
+    }
+
+    /**
+     * End the innermost section begun on the current thread
+     */
+    public static void end() {
+        if (ENABLED) {
+            backend.endSection();
+        }
+    }
+
+    /**
+     * Begin a section that may end on another thread
+     * @param name Section name; pass the same name to endAsync
+     * @return Cookie identifying this span, for endAsync
+     */
+    public static int beginAsync(String name) {
+        if (!ENABLED) {
+            return 0;
+        }
+        int cookie = nextCookie.incrementAndGet();
+        backend.beginAsyncSection(truncate(name), cookie);
+        return cookie;
+    }
+
+    /**
+     * End a section begun with beginAsync
+     * @param name Name passed to beginAsync
+     * @param cookie Value returned by beginAsync
+     */
+    public static void endAsync(String name, int cookie) {
+        if (ENABLED) {
+            backend.endAsyncSection(truncate(name), cookie);
+        }
+    }
+
+    /**
+     * Replace the backend; null restores androidx.tracing
+     */
+    static void setBackend(Backend replacement) {
+        backend = replacement != null ? replacement : ANDROIDX_BACKEND;
+    }
+
+    static String truncate(String name) {
+        return name.length() <= MAX_SECTION_NAME_LENGTH ? name : name.substring(0, MAX_SECTION_NAME_LENGTH);
+    }
+}
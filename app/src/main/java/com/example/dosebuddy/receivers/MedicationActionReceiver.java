@@ -4,7 +4,6 @@ import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.widget.Toast;
 
 import androidx.work.Data;
@@ -12,12 +11,13 @@ import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
 
 import com.example.dosebuddy.R;
-import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.Medication;
-import com.example.dosebuddy.database.MedicationDao;
 import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.metrics.Tracer;
+import com.example.dosebuddy.repository.MedicationRepository;
 import com.example.dosebuddy.utils.MedicationHistoryManager;
 import com.example.dosebuddy.utils.ReminderScheduler;
+import com.example.dosebuddy.utils.SessionManager;
 import com.example.dosebuddy.workers.MedicationReminderWorker;
 
 import java.util.concurrent.TimeUnit;
@@ -31,33 +31,46 @@ public class MedicationActionReceiver extends BroadcastReceiver {
     public static final String ACTION_SNOOZE = "com.example.dosebuddy.ACTION_SNOOZE";
     public static final String ACTION_DISMISS = "com.example.dosebuddy.ACTION_DISMISS";
     
+    public static final String EXTRA_USER_ID = "user_id";
     public static final String EXTRA_MEDICATION_ID = "medication_id";
     public static final String EXTRA_MEDICATION_NAME = "medication_name";
     public static final String EXTRA_MEDICATION_DOSAGE = "medication_dosage";
     
     private static final int SNOOZE_MINUTES = 15; // Default snooze time
     private static final int NOTIFICATION_ID_BASE = 1000;
+    private static final String TRACE_RECORD_TAKEN = "MedicationActionReceiver.recordTaken";
     
     @Override
     public void onReceive(Context context, Intent intent) {
+        Tracer.begin("MedicationActionReceiver.onReceive");
+        try {
+            handleAction(context, intent);
+        } finally {
+            Tracer.end();
+        }
+    }
+
+    private void handleAction(Context context, Intent intent) {
         String action = intent.getAction();
         if (action == null) return;
         
+        // Notifications posted by older versions carry no user; fall back to the signed-in one
+        int userId = intent.getIntExtra(EXTRA_USER_ID, SessionManager.getInstance(context).getCurrentUserId());
         int medicationId = intent.getIntExtra(EXTRA_MEDICATION_ID, -1);
         String medicationName = intent.getStringExtra(EXTRA_MEDICATION_NAME);
         String medicationDosage = intent.getStringExtra(EXTRA_MEDICATION_DOSAGE);
         
-        if (medicationId == -1 || medicationName == null) return;
+        if (userId == -1 || medicationId == -1 || medicationName == null) return;
         
         // Dismiss the notification
         dismissNotification(context, medicationId);
         
         switch (action) {
             case ACTION_TAKE_NOW:
-                handleTakeNow(context, medicationId, medicationName);
+                handleTakeNow(context, userId, medicationId, medicationName);
                 break;
             case ACTION_SNOOZE:
-                handleSnooze(context, medicationId, medicationName, medicationDosage);
+                handleSnooze(context, userId, medicationId, medicationName, medicationDosage);
                 break;
             case ACTION_DISMISS:
                 handleDismiss(context, medicationId, medicationName);
@@ -68,9 +81,9 @@ public class MedicationActionReceiver extends BroadcastReceiver {
     /**
      * Handle "Take Now" action
      */
-    private void handleTakeNow(Context context, int medicationId, String medicationName) {
+    private void handleTakeNow(Context context, int userId, int medicationId, String medicationName) {
         // Record medication as taken in history
-        recordMedicationTaken(context, medicationId, MedicationHistory.TakenMethod.NOTIFICATION);
+        recordMedicationTaken(context, userId, medicationId, MedicationHistory.TakenMethod.NOTIFICATION);
 
         String message = context.getString(R.string.medication_taken_notification, medicationName);
         showToast(context, message);
@@ -79,9 +92,10 @@ public class MedicationActionReceiver extends BroadcastReceiver {
     /**
      * Handle "Snooze" action
      */
-    private void handleSnooze(Context context, int medicationId, String medicationName, String medicationDosage) {
+    private void handleSnooze(Context context, int userId, int medicationId, String medicationName,
+                              String medicationDosage) {
         // Schedule a new reminder after snooze period
-        scheduleSnoozeReminder(context, medicationId, medicationName, medicationDosage, SNOOZE_MINUTES);
+        scheduleSnoozeReminder(context, userId, medicationId, medicationName, medicationDosage, SNOOZE_MINUTES);
         
         String message = context.getString(R.string.snoozed_for, SNOOZE_MINUTES + " minutes");
         showToast(context, message);
@@ -110,11 +124,12 @@ public class MedicationActionReceiver extends BroadcastReceiver {
     /**
      * Schedule a snooze reminder
      */
-    private void scheduleSnoozeReminder(Context context, int medicationId, String medicationName, 
+    private void scheduleSnoozeReminder(Context context, int userId, int medicationId, String medicationName,
                                       String medicationDosage, int snoozeMinutes) {
         // Create work data
         Data inputData = new Data.Builder()
                 .putInt(MedicationReminderWorker.MEDICATION_ID_KEY, medicationId)
+                .putInt(MedicationReminderWorker.USER_ID_KEY, userId)
                 .putString(MedicationReminderWorker.MEDICATION_NAME_KEY, medicationName)
                 .putString(MedicationReminderWorker.MEDICATION_DOSAGE_KEY, medicationDosage)
                 .putLong(MedicationReminderWorker.REMINDER_TIME_KEY, System.currentTimeMillis() + (snoozeMinutes * 60 * 1000))
@@ -134,44 +149,26 @@ public class MedicationActionReceiver extends BroadcastReceiver {
     /**
      * Record medication as taken in history
      */
-    private void recordMedicationTaken(Context context, int medicationId,
+    private void recordMedicationTaken(Context context, int userId, int medicationId,
                                      MedicationHistory.TakenMethod takenMethod) {
-        // Get medication details and record in history
+        // Get medication details from the owner's database and record in history
+        int traceCookie = Tracer.beginAsync(TRACE_RECORD_TAKEN);
         new Thread(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
-                MedicationDao medicationDao = database.medicationDao();
-
-                Medication medication = medicationDao.getMedicationById(medicationId);
+                Medication medication = MedicationRepository.getInstance(context, userId)
+                        .getMedicationById(medicationId);
                 if (medication != null) {
-                    // Get user ID from SharedPreferences
-                    int userId = getCurrentUserId(context);
-
-                    if (userId != -1) {
-                        MedicationHistoryManager.recordMedicationTaken(
-                            context, userId, medication, takenMethod);
-                    }
+                    MedicationHistoryManager.recordMedicationTaken(
+                        context, medication.getUserId(), medication, takenMethod);
                 }
             } catch (Exception e) {
                 // Log error but don't crash
+            } finally {
+                Tracer.endAsync(TRACE_RECORD_TAKEN, traceCookie);
             }
         }).start();
     }
 
-    /**
-     * Get current user ID from SharedPreferences
-     */
-    private int getCurrentUserId(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
-        boolean isLoggedIn = prefs.getBoolean("is_logged_in", false);
-
-        if (!isLoggedIn) {
-            return -1; // No user logged in
-        }
-
-        return prefs.getInt("current_user_id", -1);
-    }
-
     /**
      * Show toast message
      */
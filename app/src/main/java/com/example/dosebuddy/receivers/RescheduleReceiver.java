@@ -0,0 +1,33 @@
+package com.example.dosebuddy.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.example.dosebuddy.workers.RescheduleAllWorker;
+
+/**
+ * BroadcastReceiver that re-arms reminders after boot, app updates and clock changes
+ * The work itself runs in RescheduleAllWorker so the receiver returns immediately.
+ */
+public class RescheduleReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "RescheduleReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return;
+
+        switch (action) {
+            case Intent.ACTION_BOOT_COMPLETED:
+            case Intent.ACTION_MY_PACKAGE_REPLACED:
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case Intent.ACTION_TIME_CHANGED:
+                Log.d(TAG, "Rescheduling reminders after " + action);
+                RescheduleAllWorker.enqueue(context, action);
+                break;
+        }
+    }
+}
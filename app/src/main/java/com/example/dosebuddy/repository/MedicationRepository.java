@@ -0,0 +1,338 @@
+package com.example.dosebuddy.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.database.MedicationScheduleDao;
+import com.example.dosebuddy.database.TodayMedicationStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repository for medication reads with an in-memory, id-indexed snapshot
+ * Point lookups and per-user active lists are served from memory; the snapshot
+ * is dropped whenever Room reports a write to the medications table.
+ *
+ * Returned Medication objects are shared snapshots and must be treated as read-only.
+ * Use {@link Medication#copy()} before modifying one.
+ *
+ * There is one repository per database file, so a user with their own database
+ * has their own snapshot.
+ */
+public class MedicationRepository {
+
+    private static final String TAG = "MedicationRepository";
+    private static final String MEDICATIONS_TABLE = "medications";
+
+    // Repository per database; guarded by the class lock
+    private static final Map<AppDatabase, MedicationRepository> INSTANCES = new HashMap<>();
+
+    private final AppDatabase database;
+    private final MedicationDao medicationDao;
+    private final MedicationScheduleDao medicationScheduleDao;
+
+    // Global id index, filled from user snapshots and single-row misses
+    private final Map<Integer, Medication> medicationsById = new ConcurrentHashMap<>();
+
+    // Active medications per user, ordered by name
+    private final Map<Integer, List<Medication>> activeByUser = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so in-flight loads never install stale rows.
+    // Installing a load and invalidating both hold snapshotLock, so a load can't
+    // pass the generation check and then put rows after an invalidation cleared.
+    private final Object snapshotLock = new Object();
+    private long generation;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private MedicationRepository(AppDatabase database) {
+        this.database = database;
+        this.medicationDao = database.medicationDao();
+        this.medicationScheduleDao = database.medicationScheduleDao();
+        database.getInvalidationTracker().addObserver(
+                new InvalidationTracker.Observer(MEDICATIONS_TABLE) {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        invalidate();
+                    }
+                });
+    }
+
+    /**
+     * Get the repository for the signed-in user's database
+     * @param context Application context
+     * @return MedicationRepository instance
+     */
+    public static MedicationRepository getInstance(Context context) {
+        return forDatabase(AppDatabase.getSessionInstance(context));
+    }
+
+    /**
+     * Get the repository for the database holding a user's data
+     * @param context Application context
+     * @param userId User ID
+     * @return MedicationRepository instance
+     */
+    public static MedicationRepository getInstance(Context context, int userId) {
+        return forDatabase(AppDatabase.getInstance(context, userId));
+    }
+
+    private static MedicationRepository forDatabase(AppDatabase database) {
+        synchronized (MedicationRepository.class) {
+            MedicationRepository repository = INSTANCES.get(database);
+            if (repository == null) {
+                repository = new MedicationRepository(database);
+                INSTANCES.put(database, repository);
+            }
+            return repository;
+        }
+    }
+
+    /**
+     * Drop every repository
+     * AppDatabase calls this when it closes its databases; the next getInstance
+     * builds a new repository on the reopened database.
+     */
+    public static void clearInstances() {
+        synchronized (MedicationRepository.class) {
+            INSTANCES.clear();
+        }
+    }
+
+    /**
+     * Drop the repository of one database
+     * AppDatabase calls this when it closes a user's own database.
+     * @param database Database being closed
+     */
+    public static void removeInstance(AppDatabase database) {
+        synchronized (MedicationRepository.class) {
+            INSTANCES.remove(database);
+        }
+    }
+
+    /**
+     * Get a medication by ID, from memory when possible
+     * Must be called off the main thread since a miss queries the database.
+     * @param id Medication ID
+     * @return Medication snapshot or null if not found
+     */
+    public Medication getMedicationById(int id) {
+        Medication cached = medicationsById.get(id);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+
+        missCount.incrementAndGet();
+        long loadGeneration = currentGeneration();
+        Medication medication = medicationDao.getMedicationById(id);
+        if (medication != null) {
+            synchronized (snapshotLock) {
+                if (loadGeneration == generation) {
+                    medicationsById.put(id, medication);
+                }
+            }
+        }
+        return medication;
+    }
+
+    /**
+     * Get active medications for a user ordered by name
+     * Must be called off the main thread since a miss queries the database.
+     * @param userId User ID
+     * @return Unmodifiable list of medication snapshots
+     */
+    public List<Medication> getActiveMedicationsForUser(int userId) {
+        List<Medication> cached = activeByUser.get(userId);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+
+        missCount.incrementAndGet();
+        long loadGeneration = currentGeneration();
+        List<Medication> medications = Collections.unmodifiableList(
+                new ArrayList<>(medicationDao.getActiveMedicationsForUser(userId)));
+
+        synchronized (snapshotLock) {
+            if (loadGeneration == generation) {
+                activeByUser.put(userId, medications);
+                for (Medication medication : medications) {
+                    medicationsById.put(medication.getId(), medication);
+                }
+            }
+        }
+        return medications;
+    }
+
+    /**
+     * Soft delete a medication and drop the snapshot immediately
+     * @param medicationId Medication ID
+     * @param timestamp Update timestamp
+     * @return Number of rows updated
+     */
+    public int softDeleteMedication(int medicationId, long timestamp) {
+        int rowsUpdated = medicationDao.softDeleteMedication(medicationId, timestamp);
+        invalidate();
+        return rowsUpdated;
+    }
+
+    /**
+     * Reactivate a medication and drop the snapshot immediately
+     * @param medicationId Medication ID
+     * @param timestamp Update timestamp
+     * @return Number of rows updated
+     */
+    public int reactivateMedication(int medicationId, long timestamp) {
+        int rowsUpdated = medicationDao.reactivateMedication(medicationId, timestamp);
+        invalidate();
+        return rowsUpdated;
+    }
+
+    /**
+     * Update a medication and drop the snapshot immediately
+     * @param medication Medication to update
+     * @return Number of rows updated
+     */
+    public int updateMedication(Medication medication) {
+        int rowsUpdated = medicationDao.updateMedicationDetails(medication);
+        invalidate();
+        return rowsUpdated;
+    }
+
+    /**
+     * Update a medication and replace its dose times in one transaction
+     * @param medication Medication to update
+     * @param doseMinutes Dose times as minutes of day
+     * @return Number of rows updated
+     */
+    public int updateMedication(Medication medication, List<Integer> doseMinutes) {
+        int rowsUpdated = database.runInTransaction(() -> {
+            int rows = medicationDao.updateMedicationDetails(medication);
+            if (rows > 0) {
+                medicationScheduleDao.replaceSlots(medication.getId(), medication.getUserId(), doseMinutes);
+            }
+            return rows;
+        });
+        invalidate();
+        return rowsUpdated;
+    }
+
+    /**
+     * Get every active medication of a user with today's dose status (not cached)
+     * Dose counts change with every history write, so this always reads the database.
+     * Must be called off the main thread.
+     * @param userId User ID
+     * @return Medications with today's status, ordered by name
+     */
+    public List<TodayMedicationStatus> getTodayStatus(int userId) {
+        return medicationDao.getTodayStatus(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Get a medication's stored dose times (not cached)
+     * @param medicationId Medication ID
+     * @return Minutes of day, ascending
+     */
+    public List<Integer> getDoseMinutes(int medicationId) {
+        return medicationScheduleDao.getMinutesForMedication(medicationId);
+    }
+
+    /**
+     * Drop the in-memory snapshot
+     * Called by the invalidation tracker and after writes made through this repository,
+     * so readers on other threads don't wait for the tracker to refresh.
+     */
+    public void invalidate() {
+        synchronized (snapshotLock) {
+            generation++;
+            medicationsById.clear();
+            activeByUser.clear();
+        }
+        invalidationCount.incrementAndGet();
+    }
+
+    private long currentGeneration() {
+        synchronized (snapshotLock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Get number of lookups served from memory
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get number of lookups that had to query the database
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get current cache statistics
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hitCount.get(), missCount.get(), invalidationCount.get(),
+                medicationsById.size());
+    }
+
+    /**
+     * Log current cache statistics
+     */
+    public void logStats() {
+        Log.d(TAG, getStats().toString());
+    }
+
+    // Data classes
+    public static class CacheStats {
+        public final long hits;
+        public final long misses;
+        public final long invalidations;
+        public final int cachedMedications;
+
+        public CacheStats(long hits, long misses, long invalidations, int cachedMedications) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.cachedMedications = cachedMedications;
+        }
+
+        /**
+         * Get hit rate as percentage (0-100)
+         */
+        public int getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (int) (hits * 100 / total);
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", hitRate=" + getHitRate() + "%" +
+                    ", invalidations=" + invalidations +
+                    ", cachedMedications=" + cachedMedications +
+                    '}';
+        }
+    }
+}
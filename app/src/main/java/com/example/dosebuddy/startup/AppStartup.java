@@ -0,0 +1,234 @@
+package com.example.dosebuddy.startup;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.dosebuddy.metrics.Tracer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs app initializers off the main thread, in dependency order, and times each one
+ *
+ * Initializers only warm things up: the code they warm still sets itself up on first
+ * use, so a slow or failed initializer never breaks the app. A failure is logged and
+ * the rest still run. Timings are logged, recorded as trace sections, and kept for
+ * the debug metrics screen.
+ */
+public class AppStartup {
+
+    private static final String TAG = "AppStartup";
+    private static final int THREADS = 2;
+
+    // Every timing recorded in this process, in completion order
+    private static final List<Timing> timings = new CopyOnWriteArrayList<>();
+
+    /**
+     * Work done by an initializer
+     */
+    public interface Action {
+        void run(Context context) throws Exception;
+    }
+
+    /**
+     * A named piece of startup work and the initializers it must run after
+     */
+    public static final class Initializer {
+        final String name;
+        final List<String> dependencies;
+        final Action action;
+
+        public Initializer(String name, List<String> dependencies, Action action) {
+            this.name = name;
+            this.dependencies = dependencies;
+            this.action = action;
+        }
+    }
+
+    /**
+     * How long one initializer took
+     */
+    public static final class Timing {
+        public final String name;
+        public final String thread;
+        public final long startMs; // Since the process started
+        public final long durationMs;
+        public final boolean failed;
+
+        Timing(String name, String thread, long startMs, long durationMs, boolean failed) {
+            this.name = name;
+            this.thread = thread;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Start initializers on background threads and return at once
+     * Each one starts after all of its dependencies have finished.
+     * @param context Context
+     * @param initializers Initializers in any order
+     * @return Completes with this run's timings once every initializer has finished
+     * @throws IllegalArgumentException if a name is repeated, a dependency is unknown or there is a cycle
+     */
+    public static Future<List<Timing>> start(Context context, List<Initializer> initializers) {
+        List<Initializer> ordered = sort(initializers);
+        Context appContext = context.getApplicationContext();
+        long runStart = SystemClock.elapsedRealtime();
+        List<Timing> runTimings = new CopyOnWriteArrayList<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+                runnable -> new Thread(runnable, "DoseBuddy-startup-" + threadCount.incrementAndGet()));
+
+        // Submitted in dependency order, so by the time a task starts its dependencies
+        // have all started too, and waiting on them cannot starve the pool
+        Map<String, Future<?>> futures = new HashMap<>();
+        for (Initializer initializer : ordered) {
+            List<Future<?>> dependencies = new ArrayList<>();
+            for (String dependency : initializer.dependencies) {
+                dependencies.add(futures.get(dependency));
+            }
+            futures.put(initializer.name, executor.submit(() -> {
+                awaitAll(dependencies);
+                runTimings.add(run(appContext, initializer));
+            }));
+        }
+        List<Future<?>> all = new ArrayList<>(futures.values());
+        Future<List<Timing>> done = executor.submit(() -> {
+            awaitAll(all);
+            Log.i(TAG, ordered.size() + " initializers finished in "
+                    + (SystemClock.elapsedRealtime() - runStart) + " ms");
+            return new ArrayList<>(runTimings);
+        });
+        executor.shutdown();
+        return done;
+    }
+
+    /**
+     * Record work that ran on the calling thread, such as Application.onCreate
+     * @param name Name shown in the report
+     * @param startElapsedRealtime SystemClock.elapsedRealtime() when the work started
+     */
+    public static Timing record(String name, long startElapsedRealtime) {
+        return record(name, startElapsedRealtime, false);
+    }
+
+    /**
+     * Get every timing recorded in this process, in completion order
+     */
+    public static List<Timing> getTimings() {
+        return Collections.unmodifiableList(new ArrayList<>(timings));
+    }
+
+    /**
+     * Write a plain-text table of the recorded timings
+     * @param writer Destination; not closed
+     * @throws IOException if writing fails
+     */
+    public static void dump(Writer writer) throws IOException {
+        writer.write("App startup, ms since process start\n");
+        writer.write(String.format(Locale.US, "%-24s %-22s %7s %7s%n", "initializer", "thread", "start", "took"));
+        for (Timing timing : getTimings()) {
+            writer.write(String.format(Locale.US, "%-24s %-22s %7d %7d%s%n", timing.name, timing.thread,
+                    timing.startMs, timing.durationMs, timing.failed ? " FAILED" : ""));
+        }
+    }
+
+    /**
+     * Order initializers so each comes after its dependencies, otherwise keeping the given order
+     */
+    static List<Initializer> sort(List<Initializer> initializers) {
+        Set<String> names = new HashSet<>();
+        for (Initializer initializer : initializers) {
+            if (!names.add(initializer.name)) {
+                throw new IllegalArgumentException("Duplicate initializer " + initializer.name);
+            }
+        }
+        for (Initializer initializer : initializers) {
+            for (String dependency : initializer.dependencies) {
+                if (!names.contains(dependency)) {
+                    throw new IllegalArgumentException(initializer.name + " depends on unknown " + dependency);
+                }
+            }
+        }
+
+        List<Initializer> remaining = new ArrayList<>(initializers);
+        List<Initializer> ordered = new ArrayList<>();
+        Set<String> placed = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            Initializer next = null;
+            for (Initializer initializer : remaining) {
+                if (placed.containsAll(initializer.dependencies)) {
+                    next = initializer;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new IllegalArgumentException("Initializer dependency cycle among " + remaining.size()
+                        + " initializers, starting at " + remaining.get(0).name);
+            }
+            remaining.remove(next);
+            ordered.add(next);
+            placed.add(next.name);
+        }
+        return ordered;
+    }
+
+    private static Timing run(Context context, Initializer initializer) {
+        long start = SystemClock.elapsedRealtime();
+        boolean failed = false;
+        Tracer.begin("AppStartup." + initializer.name);
+        try {
+            initializer.action.run(context);
+        } catch (Exception e) {
+            failed = true;
+            Log.w(TAG, "Initializer " + initializer.name + " failed", e);
+        } finally {
+            Tracer.end();
+        }
+        return record(initializer.name, start, failed);
+    }
+
+    private static Timing record(String name, long startElapsedRealtime, boolean failed) {
+        long durationMs = SystemClock.elapsedRealtime() - startElapsedRealtime;
+        Timing timing = new Timing(name, Thread.currentThread().getName(),
+                startElapsedRealtime - Process.getStartElapsedRealtime(), durationMs, failed);
+        timings.add(timing);
+        Log.i(TAG, name + " took " + durationMs + " ms on " + timing.thread
+                + ", started " + timing.startMs + " ms after process start");
+        return timing;
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // run() catches what initializers throw; anything else is logged and ignored here
+                Log.w(TAG, "Startup task failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
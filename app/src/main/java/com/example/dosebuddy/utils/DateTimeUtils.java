@@ -82,6 +82,18 @@ public class DateTimeUtils {
         return calendar.getTimeInMillis();
     }
     
+    /**
+     * Get start of month timestamp
+     * @param timestamp Any timestamp within the month
+     * @return Timestamp for the first day of the month at 00:00:00
+     */
+    public static long getStartOfMonth(long timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(getStartOfDay(timestamp));
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+    
     /**
      * Get end of day timestamp
      * @param timestamp Any timestamp within the day
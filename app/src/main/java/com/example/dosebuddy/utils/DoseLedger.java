@@ -0,0 +1,228 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DoseInstance;
+import com.example.dosebuddy.database.DoseInstanceDao;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationSchedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the expected-dose ledger (dose_instance table)
+ *
+ * Expected doses are generated a rolling window ahead from each medication's
+ * schedule and resolved as history is recorded, so adherence and missed-dose
+ * queries are plain indexed counts instead of on-the-fly schedule expansion.
+ * All methods hit the database and must be called off the main thread.
+ */
+public class DoseLedger {
+
+    private static final String TAG = "DoseLedger";
+
+    public static final int WINDOW_DAYS = 7;
+    // Extend the window once less than this much of it is left
+    static final long REFILL_THRESHOLD_MS = (WINDOW_DAYS / 2) * 24 * 60 * 60 * 1000L;
+    // A taken dose is matched to the closest unresolved dose within this distance
+    static final long MATCH_WINDOW_MS = 12 * 60 * 60 * 1000L;
+    // Matches MedicationHistory's on-time window
+    static final long ON_TIME_WINDOW_MS = 30 * 60 * 1000L;
+    // A pending dose becomes missed this long after its scheduled time
+    public static final long MISSED_GRACE_MS = 60 * 60 * 1000L;
+    // Pending doses older than this are left alone (e.g. after weeks powered off)
+    static final int MISSED_LOOKBACK_DAYS = 30;
+    // Bounds the work done per user in one detector run
+    static final int MAX_MISSED_PER_RUN = 500;
+
+    /**
+     * Make sure a user's ledger covers the next WINDOW_DAYS
+     * Cheap when the window is already filled: a single MAX() lookup.
+     */
+    public static void ensureWindow(Context context, int userId) {
+        AppDatabase database = AppDatabase.getInstance(context, userId);
+        long now = System.currentTimeMillis();
+
+        Long latest = database.doseInstanceDao().getLatestScheduledTime(userId);
+        if (latest != null && latest - now > REFILL_THRESHOLD_MS) {
+            return;
+        }
+
+        List<Medication> medications = database.medicationDao().getActiveMedicationsForUser(userId);
+        Map<Integer, List<Integer>> minutesByMedication = MedicationSchedule.groupMinutesByMedication(
+                database.medicationScheduleDao().getSlotsForUser(userId));
+        long windowEnd = DateTimeUtils.addDays(now, WINDOW_DAYS);
+        List<DoseInstance> instances = new ArrayList<>();
+        for (Medication medication : medications) {
+            instances.addAll(buildInstances(medication, minutesByMedication.get(medication.getId()),
+                    now, windowEnd));
+        }
+
+        if (!instances.isEmpty()) {
+            database.doseInstanceDao().insertInstances(instances);
+        }
+        Log.d(TAG, "Extended ledger for user " + userId + " with up to " + instances.size() + " doses");
+    }
+
+    /**
+     * Rebuild future unresolved doses after a medication's schedule changed
+     * Past doses and doses already resolved are kept.
+     * @param context Context
+     * @param medication Medication after the change
+     * @param slots Dose times (minutes of day) from medication_schedule
+     */
+    public static void regenerate(Context context, Medication medication, List<Integer> slots) {
+        AppDatabase database = AppDatabase.getInstance(context, medication.getUserId());
+        DoseInstanceDao doseInstanceDao = database.doseInstanceDao();
+        long now = System.currentTimeMillis();
+
+        database.runInTransaction(() -> {
+            doseInstanceDao.deletePendingFrom(medication.getId(), now);
+            if (medication.isActive()) {
+                List<DoseInstance> instances = buildInstances(medication, slots, now,
+                        DateTimeUtils.addDays(now, WINDOW_DAYS));
+                if (!instances.isEmpty()) {
+                    doseInstanceDao.insertInstances(instances);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuild future unresolved doses for many medications in one transaction
+     * Used after clock or time-zone changes, which move every local dose time.
+     * @param database Database holding the medications
+     */
+    public static void regenerateAll(AppDatabase database, List<Medication> medications,
+                                     Map<Integer, List<Integer>> slotsByMedication) {
+        DoseInstanceDao doseInstanceDao = database.doseInstanceDao();
+        long now = System.currentTimeMillis();
+        long windowEnd = DateTimeUtils.addDays(now, WINDOW_DAYS);
+
+        database.runInTransaction(() -> {
+            List<DoseInstance> instances = new ArrayList<>();
+            for (Medication medication : medications) {
+                doseInstanceDao.deletePendingFrom(medication.getId(), now);
+                instances.addAll(buildInstances(medication, slotsByMedication.get(medication.getId()),
+                        now, windowEnd));
+            }
+            if (!instances.isEmpty()) {
+                doseInstanceDao.insertInstances(instances);
+            }
+        });
+    }
+
+    /**
+     * Drop future unresolved doses for one of the signed-in user's medications
+     * (e.g. when it is deactivated)
+     */
+    public static void clearPending(Context context, int medicationId) {
+        AppDatabase.getSessionInstance(context).doseInstanceDao()
+                .deletePendingFrom(medicationId, System.currentTimeMillis());
+    }
+
+    /**
+     * Mark doses that passed their grace window without a matching history record as missed
+     * One SELECT and one UPDATE per call, both driven by indexes.
+     * @return Doses that were newly marked missed, oldest first
+     */
+    public static List<DoseInstanceDao.OverdueDose> markMissedDoses(Context context, int userId, long now) {
+        AppDatabase database = AppDatabase.getInstance(context, userId);
+        DoseInstanceDao doseInstanceDao = database.doseInstanceDao();
+        long since = DateTimeUtils.addDays(now, -MISSED_LOOKBACK_DAYS);
+
+        return database.runInTransaction(() -> {
+            List<DoseInstanceDao.OverdueDose> overdue = doseInstanceDao.getOverdueDoses(userId, since,
+                    now - MISSED_GRACE_MS, ON_TIME_WINDOW_MS, MISSED_GRACE_MS, MAX_MISSED_PER_RUN);
+            if (!overdue.isEmpty()) {
+                List<Integer> ids = new ArrayList<>(overdue.size());
+                for (DoseInstanceDao.OverdueDose dose : overdue) {
+                    ids.add(dose.id);
+                }
+                doseInstanceDao.markMissed(ids, now);
+            }
+            return overdue;
+        });
+    }
+
+    /**
+     * Mark one of the signed-in user's doses as deliberately skipped
+     */
+    public static void markSkipped(Context context, int doseInstanceId) {
+        AppDatabase.getSessionInstance(context).doseInstanceDao().resolveInstance(doseInstanceId,
+                DoseInstance.Status.SKIPPED.name(), null, System.currentTimeMillis());
+    }
+
+    /**
+     * Resolve the expected dose satisfied by a newly written history record
+     * Call inside the transaction that inserted the record, after its ID is set.
+     * @return True if a matching dose was found
+     */
+    public static boolean reconcile(AppDatabase database, MedicationHistory history) {
+        long takenAt = history.getTakenAt();
+        DoseInstance instance = database.doseInstanceDao().findClosestUnresolved(
+                history.getMedicationId(), takenAt, takenAt - MATCH_WINDOW_MS, takenAt + MATCH_WINDOW_MS);
+        if (instance == null) {
+            return false; // As-needed or unscheduled dose
+        }
+
+        DoseInstance.Status status = classify(instance.getScheduledTime(), takenAt);
+        database.doseInstanceDao().resolveInstance(instance.getId(), status.name(),
+                history.getId(), System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Classify a taken dose against its scheduled time
+     * Early doses and doses within the on-time window count as taken; anything later is late.
+     */
+    static DoseInstance.Status classify(long scheduledTime, long takenAt) {
+        return takenAt - scheduledTime <= ON_TIME_WINDOW_MS
+                ? DoseInstance.Status.TAKEN
+                : DoseInstance.Status.LATE;
+    }
+
+    /**
+     * Expand a medication's schedule into expected doses between two times
+     * Respects the start date, end date and every-other-day/weekly cadence.
+     * @param medication Medication to expand
+     * @param slots Dose times (minutes of day); frequency defaults are used if empty
+     * @param fromTime Start time (inclusive)
+     * @param toTime End time (inclusive)
+     * @return Expected doses ordered by time
+     */
+    static List<DoseInstance> buildInstances(Medication medication, List<Integer> slots,
+                                             long fromTime, long toTime) {
+        List<DoseInstance> instances = new ArrayList<>();
+        MedicationFrequency frequency = medication.getFrequencyEnum();
+        List<Integer> minutes = ScheduleUtils.resolveDoseMinutes(slots, frequency, medication.getTimesPerDay());
+        if (minutes.isEmpty()) {
+            return instances;
+        }
+
+        long firstDay = Math.max(DateTimeUtils.getStartOfDay(fromTime),
+                DateTimeUtils.getStartOfDay(medication.getStartDate()));
+        long lastTime = medication.getEndDate() != null
+                ? Math.min(toTime, DateTimeUtils.getEndOfDay(medication.getEndDate()))
+                : toTime;
+
+        for (long day = firstDay; day <= lastTime; day = DateTimeUtils.addDays(day, 1)) {
+            if (!ScheduleUtils.isDoseDay(frequency, medication.getStartDate(), day)) {
+                continue;
+            }
+            for (int minute : minutes) {
+                long scheduledTime = ScheduleUtils.atMinuteOfDay(day, minute);
+                if (scheduledTime >= fromTime && scheduledTime <= lastTime) {
+                    instances.add(new DoseInstance(medication.getUserId(), medication.getId(), scheduledTime));
+                }
+            }
+        }
+        return instances;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming export of medication history to CSV or JSON
+ * Rows are read from a Room cursor and written straight to the output stream,
+ * so memory use stays constant regardless of how much history a user has.
+ */
+public class HistoryExporter {
+
+    public static final int FORMAT_VERSION = 1;
+    public static final String[] COLUMNS = {
+            "medication_id", "medication_name", "medication_dosage", "scheduled_time",
+            "taken_at", "taken_method", "is_on_time", "notes", "created_at"
+    };
+
+    static final int PROGRESS_INTERVAL = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Supported transfer formats
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSON("application/json", "json");
+
+        private final String mimeType;
+        private final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Progress callback, called every PROGRESS_INTERVAL rows and once at the end
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsProcessed, long totalRows);
+    }
+
+    /**
+     * Export a user's history to a SAF document
+     * Must be called off the main thread.
+     * @return Number of rows written
+     */
+    public static long exportHistory(Context context, int userId, Uri uri, Format format,
+                                     ProgressListener listener) throws IOException {
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri, "wt")) {
+            if (outputStream == null) {
+                throw new IOException("Unable to open " + uri);
+            }
+            return exportHistory(context, userId, outputStream, format, listener);
+        }
+    }
+
+    /**
+     * Export a user's history to an output stream
+     * The stream is flushed but not closed. Must be called off the main thread.
+     * @return Number of rows written
+     */
+    public static long exportHistory(Context context, int userId, OutputStream outputStream,
+                                     Format format, ProgressListener listener) throws IOException {
+        MedicationHistoryDao historyDao = AppDatabase.getInstance(context, userId).medicationHistoryDao();
+        long totalRows = historyDao.getHistoryCountForUser(userId);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new BufferedOutputStream(outputStream, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        try (Cursor cursor = historyDao.getHistoryCursorForUser(userId)) {
+            long rows = format == Format.CSV
+                    ? writeCsv(cursor, writer, totalRows, listener)
+                    : writeJson(cursor, writer, totalRows, listener);
+            writer.flush();
+            if (listener != null) {
+                listener.onProgress(rows, totalRows);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Write cursor rows as CSV with a header line
+     */
+    static long writeCsv(Cursor cursor, Writer writer, long totalRows,
+                         ProgressListener listener) throws IOException {
+        int[] indexes = getColumnIndexes(cursor);
+
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(COLUMNS[i]);
+        }
+        writer.write('\n');
+
+        long rows = 0;
+        while (cursor.moveToNext()) {
+            for (int i = 0; i < indexes.length; i++) {
+                if (i > 0) writer.write(',');
+                if (!cursor.isNull(indexes[i])) {
+                    writeCsvField(writer, cursor.getString(indexes[i]));
+                }
+            }
+            writer.write('\n');
+
+            rows++;
+            if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(rows, totalRows);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Write cursor rows as a JSON document: {"version":1,"history":[{...}]}
+     */
+    static long writeJson(Cursor cursor, Writer writer, long totalRows,
+                          ProgressListener listener) throws IOException {
+        int[] indexes = getColumnIndexes(cursor);
+
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginObject();
+        jsonWriter.name("version").value(FORMAT_VERSION);
+        jsonWriter.name("history").beginArray();
+
+        long rows = 0;
+        while (cursor.moveToNext()) {
+            jsonWriter.beginObject();
+            for (int i = 0; i < indexes.length; i++) {
+                int index = indexes[i];
+                if (cursor.isNull(index)) {
+                    continue;
+                }
+                jsonWriter.name(COLUMNS[i]);
+                if (cursor.getType(index) == Cursor.FIELD_TYPE_INTEGER) {
+                    jsonWriter.value(cursor.getLong(index));
+                } else {
+                    jsonWriter.value(cursor.getString(index));
+                }
+            }
+            jsonWriter.endObject();
+
+            rows++;
+            if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(rows, totalRows);
+            }
+        }
+
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+        jsonWriter.flush();
+        return rows;
+    }
+
+    /**
+     * Quote a CSV field only when it contains a separator, quote or line break
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static int[] getColumnIndexes(Cursor cursor) {
+        int[] indexes = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            indexes[i] = cursor.getColumnIndexOrThrow(COLUMNS[i]);
+        }
+        return indexes;
+    }
+}
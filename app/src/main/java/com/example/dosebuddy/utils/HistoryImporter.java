@@ -0,0 +1,374 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming import of medication history from files written by HistoryExporter
+ * Rows are parsed one at a time and inserted in chunked transactions, so memory
+ * use stays constant regardless of file size. Rows are matched to the importing
+ * user's medications by ID and name, falling back to name only so history can
+ * move between devices; rows with no matching medication are skipped.
+ *
+ * Rows already in the database (same medication, taken and created times) are
+ * skipped too, so importing a file twice adds nothing the second time. Each new
+ * row updates the expected-dose ledger and the medication's dose counters the
+ * same way a dose recorded in the app does.
+ */
+public class HistoryImporter {
+
+    private static final String TAG = "HistoryImporter";
+    static final int CHUNK_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Import summary
+     */
+    public static class ImportResult {
+        public final long imported;
+        public final long skipped;
+
+        public ImportResult(long imported, long skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Import history from a SAF document
+     * Must be called off the main thread.
+     */
+    public static ImportResult importHistory(Context context, int userId, Uri uri,
+                                             HistoryExporter.Format format,
+                                             HistoryExporter.ProgressListener listener) throws IOException {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                throw new IOException("Unable to open " + uri);
+            }
+            return importHistory(context, userId, inputStream, format, listener);
+        }
+    }
+
+    /**
+     * Import history from an input stream
+     * The stream is not closed. Progress reports use -1 as the total since the
+     * row count is unknown until the end. Must be called off the main thread.
+     */
+    public static ImportResult importHistory(Context context, int userId, InputStream inputStream,
+                                             HistoryExporter.Format format,
+                                             HistoryExporter.ProgressListener listener) throws IOException {
+        AppDatabase database = AppDatabase.getInstance(context, userId);
+        RowSink sink = new RowSink(database, userId,
+                database.medicationDao().getAllMedicationsForUser(userId), listener);
+
+        Reader reader = new BufferedReader(new InputStreamReader(
+                new BufferedInputStream(inputStream, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        if (format == HistoryExporter.Format.CSV) {
+            readCsv(reader, sink);
+        } else {
+            readJson(reader, sink);
+        }
+        sink.finish();
+
+        Log.d(TAG, "Imported " + sink.imported + " history records, skipped " + sink.skipped);
+        return new ImportResult(sink.imported, sink.skipped);
+    }
+
+    /**
+     * Parse CSV rows using the header line to locate columns
+     */
+    static void readCsv(Reader reader, RowSink sink) throws IOException {
+        CsvParser parser = new CsvParser(reader);
+        List<String> fields = new ArrayList<>();
+
+        if (!parser.readRow(fields)) {
+            return; // Empty file
+        }
+        int[] columnForField = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            columnForField[i] = columnIndex(fields.get(i).trim());
+        }
+
+        String[] values = new String[HistoryExporter.COLUMNS.length];
+        while (parser.readRow(fields)) {
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue; // Blank line
+            }
+            Arrays.fill(values, null);
+            for (int i = 0; i < fields.size() && i < columnForField.length; i++) {
+                if (columnForField[i] >= 0 && !fields.get(i).isEmpty()) {
+                    values[columnForField[i]] = fields.get(i);
+                }
+            }
+            sink.accept(values);
+        }
+    }
+
+    /**
+     * Parse the JSON document one history object at a time
+     */
+    static void readJson(Reader reader, RowSink sink) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        String[] values = new String[HistoryExporter.COLUMNS.length];
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (!"history".equals(name)) {
+                jsonReader.skipValue();
+                continue;
+            }
+
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                Arrays.fill(values, null);
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    int column = columnIndex(jsonReader.nextName());
+                    JsonToken token = jsonReader.peek();
+                    if (column < 0 || token == JsonToken.NULL) {
+                        jsonReader.skipValue();
+                    } else if (token == JsonToken.BOOLEAN) {
+                        values[column] = jsonReader.nextBoolean() ? "1" : "0";
+                    } else {
+                        values[column] = jsonReader.nextString();
+                    }
+                }
+                jsonReader.endObject();
+                sink.accept(values);
+            }
+            jsonReader.endArray();
+        }
+        jsonReader.endObject();
+    }
+
+    private static int columnIndex(String name) {
+        String[] columns = HistoryExporter.COLUMNS;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts parsed rows to history records and inserts them in chunks
+     */
+    static class RowSink {
+        private final AppDatabase database;
+        private final MedicationHistoryDao historyDao;
+        private final MedicationDao medicationDao;
+        private final int userId;
+        private final Map<Integer, Medication> medicationsById = new HashMap<>();
+        private final Map<String, Medication> medicationsByName = new HashMap<>();
+        private final HistoryExporter.ProgressListener listener;
+        private final List<MedicationHistory> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        long imported;
+        long skipped;
+
+        RowSink(AppDatabase database, int userId, List<Medication> medications,
+                HistoryExporter.ProgressListener listener) {
+            this.database = database;
+            this.historyDao = database.medicationHistoryDao();
+            this.medicationDao = database.medicationDao();
+            this.userId = userId;
+            this.listener = listener;
+            for (Medication medication : medications) {
+                medicationsById.put(medication.getId(), medication);
+                medicationsByName.put(medication.getName().toLowerCase(Locale.ROOT), medication);
+            }
+        }
+
+        void accept(String[] values) {
+            MedicationHistory history = toHistory(values);
+            if (history == null) {
+                skipped++;
+                return;
+            }
+
+            chunk.add(history);
+            if (chunk.size() >= CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        void finish() {
+            flushChunk();
+            if (listener != null) {
+                listener.onProgress(imported + skipped, imported + skipped);
+            }
+        }
+
+        private void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            // Ledger and counters are updated in the chunk's transaction
+            int inserted = database.runInTransaction(() -> {
+                List<MedicationHistory> toInsert = new ArrayList<>(chunk.size());
+                for (MedicationHistory history : chunk) {
+                    if (!historyDao.historyExists(history.getUserId(), history.getMedicationId(),
+                            history.getTakenAt(), history.getCreatedAt())) {
+                        toInsert.add(history);
+                    }
+                }
+                List<Long> ids = historyDao.insertHistories(toInsert);
+                for (int i = 0; i < toInsert.size(); i++) {
+                    MedicationHistory history = toInsert.get(i);
+                    history.setId(ids.get(i).intValue());
+                    DoseLedger.reconcile(database, history);
+                    medicationDao.recordDoseTaken(history.getMedicationId(), history.getTakenAt(),
+                            DateTimeUtils.getStartOfDay(history.getTakenAt()));
+                }
+                return toInsert.size();
+            });
+            imported += inserted;
+            skipped += chunk.size() - inserted; // Already imported
+            chunk.clear();
+            if (listener != null) {
+                listener.onProgress(imported + skipped, -1);
+            }
+        }
+
+        private MedicationHistory toHistory(String[] values) {
+            try {
+                Medication medication = resolveMedication(values[0], values[1]);
+                String takenAt = values[4];
+                if (medication == null || takenAt == null) {
+                    return null;
+                }
+
+                MedicationHistory history = new MedicationHistory();
+                history.setUserId(userId);
+                history.setMedicationId(medication.getId());
+                history.setMedicationName(values[1] != null ? values[1] : medication.getName());
+                history.setMedicationDosage(values[2] != null ? values[2] : medication.getDosage());
+                history.setTakenAt(Long.parseLong(takenAt));
+                if (values[3] != null) {
+                    history.setScheduledTime(Long.parseLong(values[3]));
+                }
+                history.setTakenMethodEnum(MedicationHistory.TakenMethod.fromString(values[5]));
+                if (values[6] != null) {
+                    history.setOnTime("1".equals(values[6]) || "true".equalsIgnoreCase(values[6]));
+                }
+                history.setNotes(values[7]);
+                // Part of the duplicate check, so it must not default to now
+                history.setCreatedAt(values[8] != null ? Long.parseLong(values[8]) : history.getTakenAt());
+                return history;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private Medication resolveMedication(String idValue, String name) {
+            if (idValue != null) {
+                Medication byId = medicationsById.get(Integer.parseInt(idValue));
+                if (byId != null && (name == null || byId.getName().equalsIgnoreCase(name))) {
+                    return byId;
+                }
+            }
+            return name != null ? medicationsByName.get(name.toLowerCase(Locale.ROOT)) : null;
+        }
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields, doubled quotes, embedded line breaks
+     */
+    static class CsvParser {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        private int peeked = -2;
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Read the next row into fields
+         * @return False at end of input
+         */
+        boolean readRow(List<String> fields) throws IOException {
+            fields.clear();
+            field.setLength(0);
+
+            int c = read();
+            if (c == -1) {
+                return false;
+            }
+
+            boolean inQuotes = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c == -1) {
+                        break; // Unterminated quote; keep what we have
+                    } else if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        peeked = next;
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+
+            fields.add(field.toString());
+            return true;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryArchive;
+import com.example.dosebuddy.database.MedicationHistoryArchiveDao;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps medication_history bounded
+ *
+ * Records older than the retention horizon are rolled up into monthly totals in
+ * medication_history_archive and deleted from the hot table, one chunk per
+ * transaction. The freed pages are returned to the file system with
+ * incremental vacuum. All methods hit the database and must be called off the
+ * main thread.
+ */
+public class HistoryRetention {
+
+    private static final String TAG = "HistoryRetention";
+
+    public static final String PREF_RETENTION_DAYS = "history_retention_days";
+    public static final int DEFAULT_RETENTION_DAYS = 365;
+    // Never archive the window the ledger, missed-dose detector and counters work in
+    public static final int MIN_RETENTION_DAYS = 90;
+
+    static final int CHUNK_SIZE = 500;
+    public static final int MAX_VACUUM_PAGES = 2000;
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * Get the retention horizon in days, or 0 if archival is off
+     */
+    public static int getRetentionDays(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+        int days = prefs.getInt(PREF_RETENTION_DAYS, DEFAULT_RETENTION_DAYS);
+        return days <= 0 ? 0 : Math.max(days, MIN_RETENTION_DAYS);
+    }
+
+    /**
+     * Set the retention horizon in days; 0 turns archival off
+     * Values below MIN_RETENTION_DAYS are raised to it when read.
+     */
+    public static void setRetentionDays(Context context, int days) {
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE)
+                .edit()
+                .putInt(PREF_RETENTION_DAYS, days)
+                .apply();
+    }
+
+    /**
+     * Archive every history record taken before a cutoff
+     * @param context Context
+     * @param cutoff Records taken before this time are archived
+     * @return Number of records archived
+     */
+    public static int archiveOlderThan(Context context, long cutoff) {
+        int archived = 0;
+        for (int userId : AppDatabase.getInstance(context).userDao().getAllUserIds()) {
+            archived += archiveUserOlderThan(AppDatabase.getInstance(context, userId), userId, cutoff);
+        }
+
+        Log.d(TAG, "Archived " + archived + " history records older than " +
+                DateTimeUtils.formatDate(cutoff));
+        return archived;
+    }
+
+    private static int archiveUserOlderThan(AppDatabase database, int userId, long cutoff) {
+        MedicationHistoryDao historyDao = database.medicationHistoryDao();
+        MedicationHistoryArchiveDao archiveDao = database.medicationHistoryArchiveDao();
+
+        int archived = 0;
+        while (true) {
+            // Read and delete in one transaction, so a write in between can't skew the totals
+            int count = database.runInTransaction(() -> {
+                List<MedicationHistory> chunk = historyDao.getHistoryOlderThan(userId, cutoff, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    return 0;
+                }
+
+                List<MedicationHistoryArchive> months = rollUp(chunk);
+                for (MedicationHistoryArchive month : months) {
+                    MedicationHistoryArchive stored = archiveDao.getMonth(month.getMedicationId(),
+                            month.getMonthStart());
+                    if (stored != null) {
+                        month.merge(stored);
+                    }
+                }
+                archiveDao.upsertMonths(months);
+
+                List<Integer> ids = new ArrayList<>(chunk.size());
+                for (MedicationHistory history : chunk) {
+                    ids.add(history.getId());
+                }
+                // Archived doses still count as taken; only their history link goes. A linked
+                // dose is scheduled within the match window of its record, and the chunk is oldest first
+                database.doseInstanceDao().clearHistoryLinks(userId,
+                        chunk.get(0).getTakenAt() - DoseLedger.MATCH_WINDOW_MS,
+                        chunk.get(chunk.size() - 1).getTakenAt() + DoseLedger.MATCH_WINDOW_MS, ids);
+                historyDao.deleteHistoryByIds(ids);
+                return chunk.size();
+            });
+            archived += count;
+
+            if (count < CHUNK_SIZE) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Roll history records up into monthly totals per medication
+     * @param records History records
+     * @return One archive row per medication and month, in first-seen order
+     */
+    static List<MedicationHistoryArchive> rollUp(List<MedicationHistory> records) {
+        Map<String, MedicationHistoryArchive> months = new LinkedHashMap<>();
+        for (MedicationHistory history : records) {
+            long monthStart = DateTimeUtils.getStartOfMonth(history.getTakenAt());
+            String key = history.getMedicationId() + ":" + monthStart;
+            MedicationHistoryArchive month = months.get(key);
+            if (month == null) {
+                month = new MedicationHistoryArchive(history.getUserId(), history.getMedicationId(), monthStart);
+                months.put(key, month);
+            }
+            month.add(history);
+        }
+        return new ArrayList<>(months.values());
+    }
+
+    /**
+     * Switch the database to incremental auto-vacuum if it isn't already
+     * Takes a full VACUUM once, which rewrites the file; later calls are a single PRAGMA read.
+     * Must not run inside a transaction.
+     * @return True if the database was converted
+     */
+    public static boolean ensureIncrementalAutoVacuum(SupportSQLiteDatabase db) {
+        if (queryLong(db, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+            return false;
+        }
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+        Log.i(TAG, "Switched database to incremental auto-vacuum");
+        return true;
+    }
+
+    /**
+     * Return up to maxPages free pages to the file system
+     * @return Number of free pages before the vacuum
+     */
+    public static long incrementalVacuum(SupportSQLiteDatabase db, int maxPages) {
+        long freePages = queryLong(db, "PRAGMA freelist_count");
+        if (freePages > 0) {
+            // Each step of the statement frees one page, so drain the cursor
+            try (Cursor cursor = db.query("PRAGMA incremental_vacuum(" + maxPages + ")")) {
+                while (cursor.moveToNext()) {
+                    // Nothing to read
+                }
+            }
+        }
+        return freePages;
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteConstraintException;
+import android.util.Log;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for medication history inserts
+ *
+ * Pending records are grouped and written in one transaction per flush window
+ * instead of one autocommit insert each. Every record is appended to a journal
+ * file before enqueue returns, so a process death before the flush loses nothing:
+ * the journal is replayed (idempotently) the next time the queue is created.
+ * Written records stay in the journal until the queue drains, when it is
+ * truncated, or until it passes MAX_JOURNAL_ENTRIES, when it is compacted to the
+ * records still pending.
+ *
+ * If a batch fails, its records are retried one at a time. A record the database
+ * rejects outright (a constraint violation, e.g. its medication was deleted) is
+ * dropped so it can't block the records behind it; any other failure leaves the
+ * record pending for the next window.
+ */
+public class HistoryWriteQueue {
+
+    private static final String TAG = "HistoryWriteQueue";
+    private static final String JOURNAL_FILE = "history_write_queue.journal";
+
+    public static final long FLUSH_WINDOW_MS = 250;
+    public static final int MAX_BATCH_SIZE = 100;
+    public static final int MAX_PENDING = 1000;
+    static final int MAX_JOURNAL_ENTRIES = 2 * MAX_PENDING;
+
+    private static volatile HistoryWriteQueue INSTANCE;
+
+    private final Context context;
+    private final File journalFile;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private final Object lock = new Object();
+    private List<MedicationHistory> pending = new ArrayList<>();
+    // Records replayed from the journal that may already have been committed
+    private final Set<MedicationHistory> recovered =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+    private Writer journalWriter;
+    private int journalEntries;
+    private boolean flushScheduled;
+
+    HistoryWriteQueue(Context context) {
+        this.context = context;
+        this.journalFile = new File(context.getFilesDir(), JOURNAL_FILE);
+
+        synchronized (lock) {
+            recoverJournal();
+            if (!pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+        }
+    }
+
+    /**
+     * Get queue instance (Singleton pattern)
+     * @param context Application context
+     * @return HistoryWriteQueue instance
+     */
+    public static HistoryWriteQueue getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (HistoryWriteQueue.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new HistoryWriteQueue(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a history record for the next batched write
+     * Blocks while the queue is full until flushes have made room.
+     * @param history History record to write
+     * @throws IOException if the record could not be journaled; it is not queued
+     */
+    public void enqueue(MedicationHistory history) throws IOException {
+        synchronized (lock) {
+            appendToJournal(history);
+            pending.add(history);
+
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                scheduleFlush(0);
+            } else {
+                scheduleFlush(FLUSH_WINDOW_MS);
+            }
+        }
+
+        // Back-pressure: let the writer drain before accepting more
+        while (getPendingCount() >= MAX_PENDING) {
+            int before = getPendingCount();
+            flushNow();
+            if (getPendingCount() >= before) {
+                // No progress, so the database is failing; wait a window before retrying
+                try {
+                    Thread.sleep(FLUSH_WINDOW_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush pending records and wait for the write to finish
+     * Must not be called from the main thread.
+     */
+    public void flushNow() {
+        Future<?> future = executor.submit(this::flush);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error flushing history queue", e);
+        }
+    }
+
+    /**
+     * Flush pending records, then run an action on the queue's thread and wait for it
+     * No flush runs while the action does, so it may close the databases; flushes
+     * scheduled meanwhile run afterwards and open them again.
+     * Must not be called from the main thread.
+     * @param action Action to run once the flush has finished
+     */
+    public void flushThen(Runnable action) {
+        Future<?> future = executor.submit(() -> {
+            flush();
+            action.run();
+        });
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error flushing history queue", e);
+        }
+    }
+
+    /**
+     * Get number of records waiting to be written
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Schedule a flush unless one is already queued
+     * Caller must hold the lock.
+     */
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled && delayMs > 0) {
+            return;
+        }
+        flushScheduled = true;
+        executor.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write up to MAX_BATCH_SIZE pending records in one transaction
+     * A transaction covers one database file, so a batch is the leading run of
+     * records whose users share a database. Runs on the queue executor only.
+     */
+    private void flush() {
+        List<MedicationHistory> batch;
+        AppDatabase database;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            database = AppDatabase.getInstance(context, pending.get(0).getUserId());
+            int limit = Math.min(pending.size(), MAX_BATCH_SIZE);
+            int batchSize = 1;
+            while (batchSize < limit &&
+                    AppDatabase.getInstance(context, pending.get(batchSize).getUserId()) == database) {
+                batchSize++;
+            }
+            batch = new ArrayList<>(pending.subList(0, batchSize));
+        }
+
+        long startTime = System.nanoTime();
+        int done;
+        try {
+            write(database, batch);
+            done = batch.size();
+        } catch (Exception e) {
+            Log.w(TAG, "Error writing history batch of " + batch.size() + ", retrying one at a time", e);
+            done = writeEach(database, batch);
+        }
+
+        synchronized (lock) {
+            List<MedicationHistory> written = pending.subList(0, done);
+            recovered.removeAll(written);
+            written.clear();
+            trimJournal();
+            if (done < batch.size()) {
+                // The rest stay pending and journaled; retry on the next window
+                scheduleFlush(FLUSH_WINDOW_MS);
+            } else if (!pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+        }
+
+        Log.d(TAG, "Flushed " + done + " of " + batch.size() + " history records in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+    }
+
+    /**
+     * Write records one transaction each, in order, until one fails for a reason
+     * other than a constraint violation
+     * @return Number of leading records written or dropped
+     */
+    private int writeEach(AppDatabase database, List<MedicationHistory> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            MedicationHistory history = batch.get(i);
+            try {
+                write(database, Collections.singletonList(history));
+            } catch (SQLiteConstraintException e) {
+                history.setId(0);
+                Log.e(TAG, "Dropping history record the database rejects: medication "
+                        + history.getMedicationId() + " at " + history.getTakenAt(), e);
+            } catch (Exception e) {
+                history.setId(0);
+                Log.e(TAG, "Error writing history record, " + (batch.size() - i) + " left pending", e);
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Insert records and update the ledger and dose counters in one transaction
+     * Recovered records already in the database are skipped.
+     */
+    private void write(AppDatabase database, List<MedicationHistory> records) {
+        MedicationHistoryDao historyDao = database.medicationHistoryDao();
+        MedicationDao medicationDao = database.medicationDao();
+        try {
+            database.runInTransaction(() -> {
+                List<MedicationHistory> toInsert = new ArrayList<>(records.size());
+                for (MedicationHistory history : records) {
+                    if (isRecovered(history) && historyDao.historyExists(history.getUserId(),
+                            history.getMedicationId(), history.getTakenAt(), history.getCreatedAt())) {
+                        continue; // Committed before the process died
+                    }
+                    toInsert.add(history);
+                }
+                List<Long> ids = historyDao.insertHistories(toInsert);
+                for (int i = 0; i < toInsert.size(); i++) {
+                    MedicationHistory history = toInsert.get(i);
+                    history.setId(ids.get(i).intValue());
+                    DoseLedger.reconcile(database, history);
+                    medicationDao.recordDoseTaken(history.getMedicationId(), history.getTakenAt(),
+                            DateTimeUtils.getStartOfDay(history.getTakenAt()));
+                }
+            });
+        } catch (RuntimeException e) {
+            for (MedicationHistory history : records) {
+                history.setId(0); // IDs assigned inside the rolled-back transaction
+            }
+            throw e;
+        }
+    }
+
+    private boolean isRecovered(MedicationHistory history) {
+        synchronized (lock) {
+            return recovered.contains(history);
+        }
+    }
+
+    /**
+     * Append a record to the journal
+     * The write reaches the OS page cache before enqueue returns, which survives
+     * process death. Caller must hold the lock.
+     * @throws IOException if the write fails; the writer is reopened on the next append
+     */
+    private void appendToJournal(MedicationHistory history) throws IOException {
+        try {
+            if (journalWriter == null) {
+                journalWriter = openJournalWriter(true);
+            }
+            journalWriter.write(gson.toJson(history));
+            journalWriter.write('\n');
+            journalWriter.flush();
+            journalEntries++;
+        } catch (IOException e) {
+            closeJournalWriter();
+            throw e;
+        }
+    }
+
+    /**
+     * Drop written records from the journal
+     * Truncating an empty queue's journal is cheap, so that happens on every flush
+     * that drains it. Otherwise the journal is only rewritten once it passes
+     * MAX_JOURNAL_ENTRIES, so enqueue doesn't wait on a rewrite after every flush;
+     * written records left in it are skipped on replay. Caller must hold the lock.
+     */
+    private void trimJournal() {
+        if (pending.isEmpty()) {
+            truncateJournal();
+        } else if (journalEntries > MAX_JOURNAL_ENTRIES) {
+            rewriteJournal();
+        }
+    }
+
+    /**
+     * Empty the journal
+     * Caller must hold the lock.
+     */
+    private void truncateJournal() {
+        closeJournalWriter();
+        try {
+            journalWriter = openJournalWriter(false);
+            journalEntries = 0;
+        } catch (IOException e) {
+            Log.e(TAG, "Error truncating history journal", e); // Replay is idempotent
+        }
+    }
+
+    /**
+     * Replace the journal with the records still pending
+     * Caller must hold the lock.
+     */
+    private void rewriteJournal() {
+        closeJournalWriter();
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tempFile, false), StandardCharsets.UTF_8))) {
+            for (MedicationHistory history : pending) {
+                writer.write(gson.toJson(history));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error rewriting history journal", e);
+            return; // Keep the old journal; replay is idempotent
+        }
+        if (!tempFile.renameTo(journalFile)) {
+            Log.e(TAG, "Error replacing history journal");
+            return;
+        }
+        journalEntries = pending.size();
+    }
+
+    /**
+     * Load records left in the journal by a previous process
+     * Caller must hold the lock.
+     */
+    private void recoverJournal() {
+        if (!journalFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                journalEntries++;
+                try {
+                    MedicationHistory history = gson.fromJson(line, MedicationHistory.class);
+                    history.setId(0);
+                    pending.add(history);
+                    recovered.add(history);
+                } catch (Exception e) {
+                    // Torn final line from a crash mid-append
+                    Log.w(TAG, "Skipping unreadable journal entry");
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading history journal", e);
+        }
+
+        if (!pending.isEmpty()) {
+            Log.i(TAG, "Recovered " + pending.size() + " unwritten history records");
+        }
+    }
+
+    private Writer openJournalWriter(boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(journalFile, append), StandardCharsets.UTF_8));
+    }
+
+    private void closeJournalWriter() {
+        if (journalWriter != null) {
+            try {
+                journalWriter.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+            journalWriter = null;
+        }
+    }
+}
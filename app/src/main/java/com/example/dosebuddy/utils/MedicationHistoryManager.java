@@ -4,16 +4,19 @@ import android.content.Context;
 import android.util.Log;
 
 import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DoseInstanceDao;
 import com.example.dosebuddy.database.Medication;
 import com.example.dosebuddy.database.MedicationHistory;
 import com.example.dosebuddy.database.MedicationHistoryDao;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Utility class for managing medication history and adherence tracking
+ * Lookups by medication ID read the signed-in user's database.
  */
 public class MedicationHistoryManager {
     
@@ -45,9 +48,6 @@ public class MedicationHistoryManager {
                                            Long scheduledTime, String notes) {
         executorService.execute(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
-                MedicationHistoryDao historyDao = database.medicationHistoryDao();
-                
                 MedicationHistory history = new MedicationHistory(
                     userId,
                     medication.getId(),
@@ -62,21 +62,48 @@ public class MedicationHistoryManager {
                     history.setNotes(notes.trim());
                 }
                 
-                long historyId = historyDao.insertHistory(history);
-                
-                if (historyId > 0) {
-                    Log.d(TAG, "Recorded medication taken: " + medication.getName() + 
-                          " at " + DateTimeUtils.formatDateTime(takenAt));
-                } else {
-                    Log.e(TAG, "Failed to record medication taken: " + medication.getName());
-                }
+                // Batched with other pending writes; journaled before this returns
+                HistoryWriteQueue.getInstance(context).enqueue(history);
+
+                Log.d(TAG, "Recorded medication taken: " + medication.getName() +
+                      " at " + DateTimeUtils.formatDateTime(takenAt));
                 
+            } catch (IOException e) {
+                // Not journaled, so not queued either
+                Log.e(TAG, "Dose not recorded, history journal unavailable", e);
             } catch (Exception e) {
                 Log.e(TAG, "Error recording medication taken", e);
             }
         });
     }
     
+    /**
+     * Delete a history record, reopen the ledger dose it satisfied and recompute
+     * the medication's dose counters in the same transaction
+     */
+    public static void deleteHistory(Context context, MedicationHistory history) {
+        executorService.execute(() -> {
+            try {
+                AppDatabase database = AppDatabase.getInstance(context, history.getUserId());
+                long now = System.currentTimeMillis();
+                
+                database.runInTransaction(() -> {
+                    // The linked dose is scheduled within the match window of the record
+                    long takenAt = history.getTakenAt();
+                    database.doseInstanceDao().reopenForHistory(history.getMedicationId(),
+                            takenAt - DoseLedger.MATCH_WINDOW_MS, takenAt + DoseLedger.MATCH_WINDOW_MS,
+                            history.getId());
+                    database.medicationHistoryDao().deleteHistory(history);
+                    database.medicationDao().refreshDoseCounters(history.getMedicationId(),
+                            DateTimeUtils.getStartOfDay(now), DateTimeUtils.getEndOfDay(now));
+                });
+                
+            } catch (Exception e) {
+                Log.e(TAG, "Error deleting history", e);
+            }
+        });
+    }
+    
     /**
      * Get adherence statistics for a medication
      */
@@ -84,14 +111,23 @@ public class MedicationHistoryManager {
                                        long endTime, AdherenceCallback callback) {
         executorService.execute(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
+                AppDatabase database = AppDatabase.getSessionInstance(context);
                 MedicationHistoryDao historyDao = database.medicationHistoryDao();
                 
                 int totalDoses = historyDao.getDosesTakenInDateRange(medicationId, startTime, endTime);
                 int onTimeDoses = historyDao.getOnTimeDosesInDateRange(medicationId, startTime, endTime);
                 int adherenceRate = historyDao.getAdherenceRate(medicationId, startTime, endTime);
+
+                // Expected doses from the ledger, so missed doses are counted too
+                DoseInstanceDao.StatusCounts doseCounts = database.doseInstanceDao()
+                        .getStatusCountsForMedication(medicationId, startTime, endTime);
+                int expectedDoses = doseCounts.getDueCount();
+                int trueAdherenceRate = expectedDoses > 0
+                        ? (doseCounts.taken + doseCounts.late) * 100 / expectedDoses
+                        : adherenceRate;
                 
-                AdherenceStats stats = new AdherenceStats(totalDoses, onTimeDoses, adherenceRate);
+                AdherenceStats stats = new AdherenceStats(totalDoses, onTimeDoses, adherenceRate,
+                        expectedDoses, doseCounts.missed, trueAdherenceRate);
                 
                 if (callback != null) {
                     callback.onAdherenceStatsReady(stats);
@@ -113,7 +149,7 @@ public class MedicationHistoryManager {
                                       HistoryCallback callback) {
         executorService.execute(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
+                AppDatabase database = AppDatabase.getSessionInstance(context);
                 MedicationHistoryDao historyDao = database.medicationHistoryDao();
                 
                 long endTime = System.currentTimeMillis();
@@ -137,17 +173,16 @@ public class MedicationHistoryManager {
     
     /**
      * Check if medication was taken today
+     * Reads the counter on the medication row instead of querying history.
      */
     public static void wasTakenToday(Context context, int medicationId, TakenTodayCallback callback) {
         executorService.execute(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
-                MedicationHistoryDao historyDao = database.medicationHistoryDao();
+                Medication medication = AppDatabase.getSessionInstance(context).medicationDao()
+                        .getMedicationById(medicationId);
                 
                 long todayStart = DateTimeUtils.getStartOfDay(System.currentTimeMillis());
-                long todayEnd = DateTimeUtils.getEndOfDay(System.currentTimeMillis());
-                
-                boolean wasTaken = historyDao.wasTakenToday(medicationId, todayStart, todayEnd);
+                boolean wasTaken = medication != null && medication.getDosesTakenOn(todayStart) > 0;
                 
                 if (callback != null) {
                     callback.onResult(wasTaken);
@@ -168,7 +203,7 @@ public class MedicationHistoryManager {
     public static void getLastTaken(Context context, int medicationId, LastTakenCallback callback) {
         executorService.execute(() -> {
             try {
-                AppDatabase database = AppDatabase.getInstance(context);
+                AppDatabase database = AppDatabase.getSessionInstance(context);
                 MedicationHistoryDao historyDao = database.medicationHistoryDao();
                 
                 MedicationHistory lastTaken = historyDao.getLastTakenForMedication(medicationId);
@@ -205,12 +240,23 @@ public class MedicationHistoryManager {
     public static class AdherenceStats {
         public final int totalDoses;
         public final int onTimeDoses;
-        public final int adherencePercentage;
+        public final int adherencePercentage; // On-time doses out of doses taken
+        public final int expectedDoses; // Doses due according to the schedule
+        public final int missedDoses;
+        public final int trueAdherencePercentage; // Doses taken out of doses due
         
         public AdherenceStats(int totalDoses, int onTimeDoses, int adherencePercentage) {
+            this(totalDoses, onTimeDoses, adherencePercentage, 0, 0, adherencePercentage);
+        }
+
+        public AdherenceStats(int totalDoses, int onTimeDoses, int adherencePercentage,
+                              int expectedDoses, int missedDoses, int trueAdherencePercentage) {
             this.totalDoses = totalDoses;
             this.onTimeDoses = onTimeDoses;
             this.adherencePercentage = adherencePercentage;
+            this.expectedDoses = expectedDoses;
+            this.missedDoses = missedDoses;
+            this.trueAdherencePercentage = trueAdherencePercentage;
         }
     }
     
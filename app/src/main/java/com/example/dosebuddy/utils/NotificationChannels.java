@@ -0,0 +1,87 @@
+package com.example.dosebuddy.utils;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Build;
+
+import com.example.dosebuddy.R;
+
+import java.util.Arrays;
+
+/**
+ * The app's notification channels, registered once per process
+ * App startup registers them in the background; workers call ensureCreated before
+ * posting too, in case they run before startup has got that far.
+ */
+public class NotificationChannels {
+
+    public static final String MEDICATION_REMINDERS = "medication_reminders";
+    public static final String MISSED_DOSES = "missed_doses";
+
+    private static volatile boolean created;
+
+    /**
+     * Register every channel for Android 8.0+, unless this process already has
+     * @param context Context
+     */
+    public static void ensureCreated(Context context) {
+        if (created || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        synchronized (NotificationChannels.class) {
+            if (created) {
+                return;
+            }
+            Context appContext = context.getApplicationContext();
+            NotificationManager notificationManager = appContext.getSystemService(NotificationManager.class);
+            if (notificationManager != null) {
+                notificationManager.createNotificationChannels(Arrays.asList(
+                        createReminderChannel(appContext), createMissedDoseChannel(appContext)));
+                created = true;
+            }
+        }
+    }
+
+    private static NotificationChannel createReminderChannel(Context context) {
+        NotificationChannel channel = new NotificationChannel(
+                MEDICATION_REMINDERS,
+                context.getString(R.string.medication_reminder_channel),
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        channel.setDescription(context.getString(R.string.medication_reminder_channel_description));
+
+        // Enhanced vibration pattern
+        channel.enableVibration(true);
+        channel.setVibrationPattern(new long[]{0, 500, 200, 500, 200, 500}); // Custom vibration pattern
+
+        // Set notification sound
+        Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .setUsage(AudioAttributes.USAGE_NOTIFICATION_RINGTONE)
+                .build();
+        channel.setSound(soundUri, audioAttributes);
+
+        // Additional settings
+        channel.setShowBadge(true);
+        channel.enableLights(true);
+        channel.setLightColor(context.getColor(R.color.primary));
+        channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+        return channel;
+    }
+
+    private static NotificationChannel createMissedDoseChannel(Context context) {
+        NotificationChannel channel = new NotificationChannel(
+                MISSED_DOSES,
+                context.getString(R.string.missed_dose_channel),
+                NotificationManager.IMPORTANCE_DEFAULT
+        );
+        channel.setDescription(context.getString(R.string.missed_dose_channel_description));
+        return channel;
+    }
+}
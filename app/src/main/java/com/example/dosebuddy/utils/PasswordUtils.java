@@ -1,18 +1,42 @@
 package com.example.dosebuddy.utils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 /**
  * Utility class for password hashing and verification
- * Uses SHA-256 with salt for secure password storage
+ *
+ * New hashes use PBKDF2-HMAC-SHA256 and are stored as
+ * "v2$iterations$salt$hash" (hex), so the work factor travels with the hash.
+ * Version 1 hashes, a single salted SHA-256 pass stored as 96 hex characters,
+ * still verify; needsRehash reports them so they can be replaced at sign-in.
+ *
+ * PBKDF2 is computed on HmacSHA256 directly because the
+ * PBKDF2WithHmacSHA256 SecretKeyFactory needs API 26.
  */
 public class PasswordUtils {
-    
+
     private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
     private static final int SALT_LENGTH = 16;
-    
+    private static final int HASH_LENGTH = 32; // One HMAC-SHA256 block
+
+    private static final String V2_PREFIX = "v2$";
+    private static final int V1_LENGTH = (SALT_LENGTH + HASH_LENGTH) * 2;
+
+    // Used when no calibrated work factor is available
+    public static final int DEFAULT_ITERATIONS = 120_000;
+    public static final int MIN_ITERATIONS = 20_000;
+    public static final int MAX_ITERATIONS = 2_000_000;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     /**
      * Generate a random salt
      * @return Random salt as byte array
@@ -23,84 +47,203 @@ public class PasswordUtils {
         random.nextBytes(salt);
         return salt;
     }
-    
+
     /**
      * Convert byte array to hexadecimal string
      * @param bytes Byte array to convert
      * @return Hexadecimal string representation
      */
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    static String bytesToHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
         }
-        return result.toString();
+        return new String(hex);
     }
-    
+
     /**
      * Convert hexadecimal string to byte array
      * @param hex Hexadecimal string
      * @return Byte array
+     * @throws IllegalArgumentException if the string is not valid hex
      */
-    private static byte[] hexToBytes(String hex) {
+    static byte[] hexToBytes(String hex) {
         int len = hex.length();
+        if (len % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
         byte[] data = new byte[len / 2];
         for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
-                    + Character.digit(hex.charAt(i + 1), 16));
+            int high = Character.digit(hex.charAt(i), 16);
+            int low = Character.digit(hex.charAt(i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex character");
+            }
+            data[i / 2] = (byte) ((high << 4) + low);
         }
         return data;
     }
-    
+
     /**
-     * Hash password with salt
+     * Compare two byte arrays in time that depends only on their lengths
+     */
+    static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) {
+            diff |= a[i] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Hash password with salt (version 1 format)
      * @param password Plain text password
      * @param salt Salt bytes
-     * @return Hashed password as hexadecimal string
+     * @return Hash bytes
      */
-    private static String hashPassword(String password, byte[] salt) {
+    private static byte[] hashPasswordV1(String password, byte[] salt) {
         try {
             MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
             md.update(salt);
-            byte[] hashedPassword = md.digest(password.getBytes());
-            return bytesToHex(hashedPassword);
+            return md.digest(password.getBytes());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Error hashing password", e);
         }
     }
-    
+
     /**
-     * Create password hash with salt for storage
+     * Derive a key with PBKDF2-HMAC-SHA256, first block only
+     * The two MAC buffers are reused across iterations.
      * @param password Plain text password
-     * @return Salt + hash combined as hexadecimal string
+     * @param salt Salt bytes
+     * @param iterations Work factor
+     * @return 32-byte derived key
+     */
+    static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(password.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+
+            byte[] block = new byte[HASH_LENGTH];
+            byte[] result = new byte[HASH_LENGTH];
+            mac.update(salt);
+            mac.update(new byte[]{0, 0, 0, 1}); // Block index, big endian
+            mac.doFinal(block, 0);
+            System.arraycopy(block, 0, result, 0, HASH_LENGTH);
+
+            for (int i = 1; i < iterations; i++) {
+                mac.update(block);
+                mac.doFinal(block, 0);
+                for (int j = 0; j < HASH_LENGTH; j++) {
+                    result[j] ^= block[j];
+                }
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
+
+    /**
+     * Create password hash with the default work factor
+     * @param password Plain text password
+     * @return Version 2 hash string
      */
     public static String createPasswordHash(String password) {
+        return createPasswordHash(password, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Create password hash for storage
+     * @param password Plain text password
+     * @param iterations PBKDF2 work factor, usually PasswordWorkFactor.getIterations
+     * @return Version 2 hash string
+     */
+    public static String createPasswordHash(String password, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
         byte[] salt = generateSalt();
-        String hashedPassword = hashPassword(password, salt);
-        return bytesToHex(salt) + hashedPassword;
+        byte[] hash = pbkdf2(password, salt, iterations);
+        return V2_PREFIX + iterations + "$" + bytesToHex(salt) + "$" + bytesToHex(hash);
     }
-    
+
     /**
      * Verify password against stored hash
      * @param password Plain text password to verify
-     * @param storedHash Stored hash (salt + hash)
+     * @param storedHash Stored hash in either format
      * @return True if password matches, false otherwise
      */
     public static boolean verifyPassword(String password, String storedHash) {
         try {
-            // Extract salt from stored hash (first 32 characters = 16 bytes in hex)
-            String saltHex = storedHash.substring(0, SALT_LENGTH * 2);
-            String hashHex = storedHash.substring(SALT_LENGTH * 2);
-            
-            byte[] salt = hexToBytes(saltHex);
-            String hashedPassword = hashPassword(password, salt);
-            
-            return hashedPassword.equals(hashHex);
+            if (storedHash.startsWith(V2_PREFIX)) {
+                String[] parts = storedHash.split("\\$");
+                if (parts.length != 4) {
+                    return false;
+                }
+                int iterations = Integer.parseInt(parts[1]);
+                byte[] salt = hexToBytes(parts[2]);
+                byte[] expected = hexToBytes(parts[3]);
+                return iterations > 0 && constantTimeEquals(pbkdf2(password, salt, iterations), expected);
+            }
+
+            // Version 1: first 32 characters are the salt (16 bytes in hex), the rest the hash
+            if (storedHash.length() != V1_LENGTH) {
+                return false;
+            }
+            byte[] salt = hexToBytes(storedHash.substring(0, SALT_LENGTH * 2));
+            byte[] expected = hexToBytes(storedHash.substring(SALT_LENGTH * 2));
+            return constantTimeEquals(hashPasswordV1(password, salt), expected);
         } catch (Exception e) {
             return false;
         }
     }
-    
+
+    /**
+     * Check whether a stored hash should be replaced after a successful sign-in
+     * @param storedHash Stored hash in either format
+     * @param iterations Current work factor
+     * @return True for version 1 hashes and version 2 hashes with a lower work factor
+     */
+    public static boolean needsRehash(String storedHash, int iterations) {
+        if (storedHash == null || !storedHash.startsWith(V2_PREFIX)) {
+            return true;
+        }
+        int end = storedHash.indexOf('$', V2_PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(storedHash.substring(V2_PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Measure this device and pick the work factor that takes about targetMs per hash
+     * Takes a few hundred milliseconds; must be called off the main thread.
+     * @param targetMs Latency budget for one hash
+     * @return Iterations, rounded to a thousand and clamped to [MIN_ITERATIONS, MAX_ITERATIONS]
+     */
+    public static int calibrateIterations(long targetMs) {
+        final int probeIterations = 10_000;
+        byte[] salt = generateSalt();
+
+        // Best of a few runs, so JIT warm-up and a busy core don't lower the result
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration", salt, probeIterations);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        long iterations = probeIterations * targetMs * 1_000_000L / Math.max(bestNanos, 1);
+        iterations = Math.round(iterations / 1000.0) * 1000;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
     /**
      * Check if password meets minimum requirements
      * @param password Password to check
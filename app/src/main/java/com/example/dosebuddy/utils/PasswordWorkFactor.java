@@ -0,0 +1,52 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Device-calibrated PBKDF2 work factor for new password hashes
+ *
+ * The first call measures the device with PasswordUtils.calibrateIterations
+ * and saves the result, so every later hash on this device takes about
+ * TARGET_HASH_MS. Calibration runs once per install; if the preference is
+ * cleared, the next process to hash a password measures again.
+ */
+public class PasswordWorkFactor {
+
+    private static final String TAG = "PasswordWorkFactor";
+    public static final String PREF_PASSWORD_HASH_ITERATIONS = "password_hash_iterations";
+
+    // Time for one hash at sign-in and registration; tuned with PasswordHashBenchmark
+    public static final long TARGET_HASH_MS = 250;
+
+    private static volatile int iterations;
+
+    /**
+     * Get the work factor for new hashes, calibrating on first use
+     * The first call may take a few hundred milliseconds; call it off the main thread.
+     * @param context Context
+     * @return PBKDF2 iterations
+     */
+    public static int getIterations(Context context) {
+        int cached = iterations;
+        if (cached > 0) {
+            return cached;
+        }
+
+        synchronized (PasswordWorkFactor.class) {
+            if (iterations > 0) {
+                return iterations;
+            }
+            SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+            int stored = prefs.getInt(PREF_PASSWORD_HASH_ITERATIONS, 0);
+            if (stored <= 0) {
+                stored = PasswordUtils.calibrateIterations(TARGET_HASH_MS);
+                prefs.edit().putInt(PREF_PASSWORD_HASH_ITERATIONS, stored).apply();
+                Log.i(TAG, "Calibrated password hashing to " + stored + " iterations");
+            }
+            iterations = stored;
+            return stored;
+        }
+    }
+}
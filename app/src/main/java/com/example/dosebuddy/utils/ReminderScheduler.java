@@ -4,204 +4,292 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.Operation;
 import androidx.work.WorkManager;
 
 import com.example.dosebuddy.database.Medication;
-import com.example.dosebuddy.database.MedicationFrequency;
 import com.example.dosebuddy.workers.MedicationReminderWorker;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for scheduling and managing medication reminders
+ *
+ * Each reminder slot (a dose time, as minutes of day) has one pending work item
+ * for its next occurrence, tagged per medication and per slot. The worker
+ * schedules the following occurrence after it fires, and edits cancel or
+ * enqueue only the slots whose time changed. Slot work is unique work named by
+ * the slot tag, so a rerun worker or a bulk re-arm replaces the slot's pending
+ * item instead of starting a second chain.
  */
 public class ReminderScheduler {
-    
+
     private static final String TAG = "ReminderScheduler";
     private static final String WORK_TAG_PREFIX = "medication_reminder_";
+    private static final String SLOT_TAG_INFIX = "_slot_";
     private static final String SNOOZE_TAG_PREFIX = "medication_snooze_";
-    
+
+    // Carried by every scheduled reminder so all of them can be cancelled at once
+    public static final String ALL_REMINDERS_TAG = "medication_reminder";
+
     /**
      * Schedule reminders for a medication
+     * @param storedSlots Dose times from medication_schedule
      */
-    public static void scheduleMedicationReminders(Context context, Medication medication) {
+    public static void scheduleMedicationReminders(Context context, Medication medication,
+                                                   List<Integer> storedSlots) {
         // Cancel existing reminders first
         cancelMedicationReminders(context, medication.getId());
-        
-        // Get reminder times for the medication
-        List<Long> reminderTimes = getReminderTimes(medication);
-        
-        if (reminderTimes.isEmpty()) {
+
+        // Get reminder slots for the medication
+        List<Integer> slots = getReminderSlots(medication, storedSlots);
+
+        if (slots.isEmpty()) {
             Log.w(TAG, "No reminder times found for medication: " + medication.getName());
             return;
         }
-        
-        // Schedule reminders for each time
-        for (Long reminderTime : reminderTimes) {
-            scheduleReminderAtTime(context, medication, reminderTime);
+
+        // Schedule the next occurrence of each slot
+        for (int slot : slots) {
+            scheduleSlot(context, medication, slot);
         }
-        
-        Log.d(TAG, "Scheduled " + reminderTimes.size() + " reminders for: " + medication.getName());
+
+        Log.d(TAG, "Scheduled " + slots.size() + " reminders for: " + medication.getName());
     }
-    
+
+    /**
+     * Update reminders after a medication was edited
+     * Only slots whose time changed are cancelled or enqueued. Changes that don't
+     * affect timing (name, dosage, notes) need no work: the reminder worker reads
+     * them from MedicationRepository when it fires.
+     * @param context Context
+     * @param previous Medication before the edit, or null if unknown
+     * @param previousStoredSlots Dose times stored before the edit
+     * @param updated Medication after the edit
+     * @param updatedStoredSlots Dose times stored after the edit
+     * @return Number of slots cancelled or enqueued
+     */
+    public static int updateMedicationReminders(Context context, Medication previous,
+                                                List<Integer> previousStoredSlots, Medication updated,
+                                                List<Integer> updatedStoredSlots) {
+        List<Integer> updatedSlots = getReminderSlots(updated, updatedStoredSlots);
+        if (previous == null || previous.getId() != updated.getId()) {
+            rescheduleMedicationReminders(context, updated, updatedStoredSlots);
+            return updatedSlots.size();
+        }
+
+        if (!updated.isActive()) {
+            cancelMedicationReminders(context, updated.getId());
+            return getReminderSlots(previous, previousStoredSlots).size();
+        }
+
+        List<Integer> previousSlots = previous.isActive()
+                ? getReminderSlots(previous, previousStoredSlots) : null;
+        if (previousSlots == null || cadenceChanged(previous, updated)) {
+            // Every slot's next occurrence may have moved
+            rescheduleMedicationReminders(context, updated, updatedStoredSlots);
+            return (previousSlots != null ? previousSlots.size() : 0) + updatedSlots.size();
+        }
+
+        ReminderSlotDiff diff = ReminderSlotDiff.compute(previousSlots, updatedSlots);
+        for (int slot : diff.removed) {
+            cancelSlot(context, updated.getId(), slot);
+        }
+        for (int slot : diff.added) {
+            scheduleSlot(context, updated, slot);
+        }
+
+        Log.d(TAG, "Updated reminders for " + updated.getName() + ": " + diff.added.size() +
+              " added, " + diff.removed.size() + " removed, " + diff.unchanged.size() + " unchanged");
+        return diff.getChangedCount();
+    }
+
     /**
      * Cancel all reminders for a medication
      */
     public static void cancelMedicationReminders(Context context, int medicationId) {
         String workTag = getWorkTag(medicationId);
         WorkManager.getInstance(context).cancelAllWorkByTag(workTag);
-        
+
         // Also cancel any snooze reminders
         String snoozeTag = getSnoozeWorkTag(medicationId);
         WorkManager.getInstance(context).cancelAllWorkByTag(snoozeTag);
-        
+
         Log.d(TAG, "Cancelled reminders for medication ID: " + medicationId);
     }
-    
+
     /**
-     * Get reminder times for a medication based on frequency and specific times
+     * Cancel the reminder for a single slot of a medication
      */
-    private static List<Long> getReminderTimes(Medication medication) {
-        List<Long> reminderTimes = new ArrayList<>();
-        
-        // Parse specific times from JSON if available
-        String specificTimesJson = medication.getSpecificTimes();
-        if (specificTimesJson != null && !specificTimesJson.isEmpty()) {
-            try {
-                String timesStr = specificTimesJson.replace("[", "").replace("]", "");
-                if (!timesStr.trim().isEmpty()) {
-                    String[] timeStrings = timesStr.split(",");
-                    for (String timeStr : timeStrings) {
-                        long timestamp = Long.parseLong(timeStr.trim());
-                        reminderTimes.add(timestamp);
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing specific times: " + e.getMessage());
-            }
-        }
-        
-        // If no specific times, generate default times based on frequency
-        if (reminderTimes.isEmpty()) {
-            reminderTimes = generateDefaultReminderTimes(medication.getFrequencyEnum(), medication.getTimesPerDay());
-        }
-        
-        return reminderTimes;
+    public static void cancelSlot(Context context, int medicationId, int slot) {
+        WorkManager.getInstance(context).cancelAllWorkByTag(getSlotWorkTag(medicationId, slot));
+    }
+
+    /**
+     * Get reminder slots (minutes of day) for a medication from its stored schedule rows
+     * Falls back to frequency defaults when no rows are stored.
+     */
+    public static List<Integer> getReminderSlots(Medication medication, List<Integer> storedSlots) {
+        return ScheduleUtils.resolveDoseMinutes(storedSlots,
+                medication.getFrequencyEnum(), medication.getTimesPerDay());
     }
-    
+
     /**
-     * Generate default reminder times based on frequency
+     * Get the next time a slot should fire, honoring start date, end date and cadence
+     * @return Next reminder time, or -1 if the slot will not fire again
      */
-    private static List<Long> generateDefaultReminderTimes(MedicationFrequency frequency, int timesPerDay) {
-        List<Long> times = new ArrayList<>();
-        
-        if (frequency == MedicationFrequency.AS_NEEDED) {
-            return times; // No scheduled reminders for as-needed medications
+    public static long getNextReminderTime(Medication medication, int slot, long afterTime) {
+        long nextTime = ScheduleUtils.getNextOccurrence(medication.getFrequencyEnum(),
+                medication.getStartDate(), slot, afterTime);
+        if (nextTime < 0) {
+            return -1;
         }
-        
-        // Generate evenly spaced times throughout the day
-        int actualTimes = Math.max(1, timesPerDay);
-        int intervalHours = 24 / actualTimes;
-        
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 8); // Start at 8 AM
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        
-        for (int i = 0; i < actualTimes; i++) {
-            times.add(calendar.getTimeInMillis());
-            calendar.add(Calendar.HOUR_OF_DAY, intervalHours);
+        Long endDate = medication.getEndDate();
+        if (endDate != null && nextTime > DateTimeUtils.getEndOfDay(endDate)) {
+            return -1;
         }
-        
-        return times;
+        return nextTime;
     }
-    
+
     /**
-     * Schedule a reminder at a specific time
+     * Schedule the next occurrence of a reminder slot, replacing any pending one
+     * Also called by the reminder worker after it fires to keep the slot recurring;
+     * that replaces the running worker itself, so the worker calls this last.
      */
-    private static void scheduleReminderAtTime(Context context, Medication medication, long reminderTime) {
-        // Calculate delay until the reminder time
+    public static void scheduleSlot(Context context, Medication medication, int slot) {
         long currentTime = System.currentTimeMillis();
-        long delay = calculateNextReminderDelay(reminderTime, currentTime);
-        
-        if (delay <= 0) {
-            Log.w(TAG, "Reminder time is in the past, skipping: " + DateTimeUtils.formatDateTime(reminderTime));
+        OneTimeWorkRequest reminderWorkRequest = buildSlotRequest(medication, slot, currentTime);
+
+        if (reminderWorkRequest == null) {
+            Log.d(TAG, "No further reminders for " + medication.getName() + " at slot " + slot);
             return;
         }
-        
-        // Create work data
+
+        // Schedule the work
+        WorkManager.getInstance(context).enqueueUniqueWork(getSlotWorkTag(medication.getId(), slot),
+                ExistingWorkPolicy.REPLACE, reminderWorkRequest);
+
+        Log.d(TAG, "Scheduled reminder for " + medication.getName() + " at slot " + slot);
+    }
+
+    /**
+     * Cancel every scheduled reminder, and any older work of the given medications,
+     * then re-arm all their slots
+     * Next fire times are recomputed from the current clock and time zone. Each slot
+     * replaces its unique work, and all requests are enqueued before waiting for any.
+     * Must be called off the main thread.
+     * @param context Context
+     * @param medications Active medications
+     * @param slotsByMedication Stored dose times keyed by medication ID
+     * @return Number of reminders enqueued
+     */
+    public static int rescheduleAllReminders(Context context, List<Medication> medications,
+                                             Map<Integer, List<Integer>> slotsByMedication)
+            throws ExecutionException, InterruptedException {
+        WorkManager workManager = WorkManager.getInstance(context);
+
+        // Work queued before ALL_REMINDERS_TAG existed carries only the medication tag.
+        // Wait for the cancels so they cannot race with the new requests
+        List<Operation> cancels = new ArrayList<>();
+        cancels.add(workManager.cancelAllWorkByTag(ALL_REMINDERS_TAG));
+        for (Medication medication : medications) {
+            cancels.add(workManager.cancelAllWorkByTag(getWorkTag(medication.getId())));
+        }
+        for (Operation cancel : cancels) {
+            cancel.getResult().get();
+        }
+
+        long currentTime = System.currentTimeMillis();
+        List<Operation> operations = new ArrayList<>();
+        for (Medication medication : medications) {
+            for (int slot : getReminderSlots(medication, slotsByMedication.get(medication.getId()))) {
+                OneTimeWorkRequest request = buildSlotRequest(medication, slot, currentTime);
+                if (request != null) {
+                    operations.add(workManager.enqueueUniqueWork(getSlotWorkTag(medication.getId(), slot),
+                            ExistingWorkPolicy.REPLACE, request));
+                }
+            }
+        }
+
+        for (Operation operation : operations) {
+            operation.getResult().get();
+        }
+        return operations.size();
+    }
+
+    /**
+     * Build the work request for a slot's next occurrence
+     * @return Work request, or null if the slot will not fire again
+     */
+    private static OneTimeWorkRequest buildSlotRequest(Medication medication, int slot, long currentTime) {
+        long reminderTime = getNextReminderTime(medication, slot, currentTime);
+        if (reminderTime < 0) {
+            return null;
+        }
+
+        // Create work data; name and dosage are fallbacks, the worker reads live values
         Data inputData = new Data.Builder()
                 .putInt(MedicationReminderWorker.MEDICATION_ID_KEY, medication.getId())
+                .putInt(MedicationReminderWorker.USER_ID_KEY, medication.getUserId())
                 .putString(MedicationReminderWorker.MEDICATION_NAME_KEY, medication.getName())
                 .putString(MedicationReminderWorker.MEDICATION_DOSAGE_KEY, medication.getDosage())
                 .putLong(MedicationReminderWorker.REMINDER_TIME_KEY, reminderTime)
+                .putInt(MedicationReminderWorker.SLOT_KEY, slot)
                 .build();
-        
-        // Create work request
-        OneTimeWorkRequest reminderWorkRequest = new OneTimeWorkRequest.Builder(MedicationReminderWorker.class)
+
+        return new OneTimeWorkRequest.Builder(MedicationReminderWorker.class)
                 .setInputData(inputData)
-                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .setInitialDelay(reminderTime - currentTime, TimeUnit.MILLISECONDS)
                 .addTag(getWorkTag(medication.getId()))
+                .addTag(getSlotWorkTag(medication.getId(), slot))
+                .addTag(ALL_REMINDERS_TAG)
                 .build();
-        
-        // Schedule the work
-        WorkManager.getInstance(context).enqueue(reminderWorkRequest);
-        
-        Log.d(TAG, "Scheduled reminder for " + medication.getName() + " at " + 
-              DateTimeUtils.formatDateTime(currentTime + delay));
     }
-    
+
     /**
-     * Calculate delay until next reminder time
-     * Handles daily recurring reminders
+     * Check if fields that decide which days a slot fires on changed
      */
-    private static long calculateNextReminderDelay(long reminderTime, long currentTime) {
-        Calendar reminderCal = Calendar.getInstance();
-        reminderCal.setTimeInMillis(reminderTime);
-        
-        Calendar currentCal = Calendar.getInstance();
-        currentCal.setTimeInMillis(currentTime);
-        
-        // Set reminder to today
-        reminderCal.set(Calendar.YEAR, currentCal.get(Calendar.YEAR));
-        reminderCal.set(Calendar.MONTH, currentCal.get(Calendar.MONTH));
-        reminderCal.set(Calendar.DAY_OF_MONTH, currentCal.get(Calendar.DAY_OF_MONTH));
-        
-        long todayReminderTime = reminderCal.getTimeInMillis();
-        
-        // If reminder time for today has passed, schedule for tomorrow
-        if (todayReminderTime <= currentTime) {
-            reminderCal.add(Calendar.DAY_OF_MONTH, 1);
-            todayReminderTime = reminderCal.getTimeInMillis();
-        }
-        
-        return todayReminderTime - currentTime;
+    private static boolean cadenceChanged(Medication previous, Medication updated) {
+        return !Objects.equals(previous.getFrequency(), updated.getFrequency())
+                || previous.getStartDate() != updated.getStartDate()
+                || !Objects.equals(previous.getEndDate(), updated.getEndDate());
     }
-    
+
     /**
      * Get work tag for a medication
      */
     public static String getWorkTag(int medicationId) {
         return WORK_TAG_PREFIX + medicationId;
     }
-    
+
+    /**
+     * Get work tag for a single reminder slot of a medication
+     */
+    public static String getSlotWorkTag(int medicationId, int slot) {
+        return WORK_TAG_PREFIX + medicationId + SLOT_TAG_INFIX + slot;
+    }
+
     /**
      * Get snooze work tag for a medication
      */
     public static String getSnoozeWorkTag(int medicationId) {
         return SNOOZE_TAG_PREFIX + medicationId;
     }
-    
+
     /**
-     * Reschedule all reminders for a medication (useful after editing)
+     * Reschedule all reminders for a medication
+     * Prefer updateMedicationReminders after an edit when the previous state is known.
      */
-    public static void rescheduleMedicationReminders(Context context, Medication medication) {
+    public static void rescheduleMedicationReminders(Context context, Medication medication,
+                                                     List<Integer> storedSlots) {
         Log.d(TAG, "Rescheduling reminders for: " + medication.getName());
-        scheduleMedicationReminders(context, medication);
+        scheduleMedicationReminders(context, medication, storedSlots);
     }
 }
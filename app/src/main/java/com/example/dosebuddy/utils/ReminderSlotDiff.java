@@ -0,0 +1,60 @@
+package com.example.dosebuddy.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Difference between two sets of reminder slots (minutes of day)
+ * Used to reschedule only the reminders whose time actually changed.
+ */
+public class ReminderSlotDiff {
+
+    public final List<Integer> added;
+    public final List<Integer> removed;
+    public final List<Integer> unchanged;
+
+    private ReminderSlotDiff(List<Integer> added, List<Integer> removed, List<Integer> unchanged) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.unchanged = Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * Compare old and new slots
+     * @param oldSlots Previously scheduled minutes of day
+     * @param newSlots Minutes of day that should be scheduled
+     * @return Sorted added, removed and unchanged slots
+     */
+    public static ReminderSlotDiff compute(Collection<Integer> oldSlots, Collection<Integer> newSlots) {
+        TreeSet<Integer> oldSet = new TreeSet<>(oldSlots);
+        TreeSet<Integer> newSet = new TreeSet<>(newSlots);
+
+        List<Integer> added = new ArrayList<>();
+        List<Integer> unchanged = new ArrayList<>();
+        for (Integer slot : newSet) {
+            if (oldSet.remove(slot)) {
+                unchanged.add(slot);
+            } else {
+                added.add(slot);
+            }
+        }
+        return new ReminderSlotDiff(added, new ArrayList<>(oldSet), unchanged);
+    }
+
+    /**
+     * Check if no slot needs to be cancelled or scheduled
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Get number of slots that need work
+     */
+    public int getChangedCount() {
+        return added.size() + removed.size();
+    }
+}
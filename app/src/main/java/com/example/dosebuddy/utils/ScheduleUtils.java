@@ -0,0 +1,159 @@
+package com.example.dosebuddy.utils;
+
+import com.example.dosebuddy.database.MedicationFrequency;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Utility class for expanding medication schedules into dose times
+ * Dose times are handled as minutes after local midnight (0-1439)
+ */
+public class ScheduleUtils {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int DEFAULT_FIRST_DOSE_MINUTE = 8 * 60; // 8:00 AM
+
+    /**
+     * Convert a timestamp to minutes after local midnight
+     * @param timestamp Timestamp in milliseconds
+     * @return Minute of day (0-1439)
+     */
+    public static int toMinuteOfDay(long timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+
+    /**
+     * Get the timestamp for a minute of day on a given day
+     * Uses Calendar fields so the result stays correct across DST changes.
+     * @param dayTimestamp Any timestamp within the day
+     * @param minuteOfDay Minute of day (0-1439)
+     * @return Timestamp in milliseconds
+     */
+    public static long atMinuteOfDay(long dayTimestamp, int minuteOfDay) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayTimestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Generate evenly spaced default dose minutes starting at 8:00 AM
+     * @param frequency Medication frequency
+     * @param timesPerDay Number of doses per day
+     * @return Sorted minutes of day; empty for as-needed medications
+     */
+    public static List<Integer> getDefaultDoseMinutes(MedicationFrequency frequency, int timesPerDay) {
+        List<Integer> minutes = new ArrayList<>();
+        if (frequency == MedicationFrequency.AS_NEEDED) {
+            return minutes; // No scheduled doses for as-needed medications
+        }
+
+        int actualTimes = Math.max(1, timesPerDay);
+        int intervalMinutes = (24 / actualTimes) * 60;
+        for (int i = 0; i < actualTimes; i++) {
+            minutes.add((DEFAULT_FIRST_DOSE_MINUTE + i * intervalMinutes) % MINUTES_PER_DAY);
+        }
+
+        Collections.sort(minutes);
+        return minutes;
+    }
+
+    /**
+     * Get dose minutes from stored schedule slots, falling back to frequency defaults
+     * @param storedMinutes Minutes of day from medication_schedule, may be null
+     * @param frequency Medication frequency
+     * @param timesPerDay Number of doses per day
+     * @return Sorted, de-duplicated minutes of day; empty for as-needed medications
+     */
+    public static List<Integer> resolveDoseMinutes(List<Integer> storedMinutes, MedicationFrequency frequency,
+                                                   int timesPerDay) {
+        if (frequency == MedicationFrequency.AS_NEEDED) {
+            return new ArrayList<>();
+        }
+        if (storedMinutes == null || storedMinutes.isEmpty()) {
+            return getDefaultDoseMinutes(frequency, timesPerDay);
+        }
+        return new ArrayList<>(new TreeSet<>(storedMinutes));
+    }
+
+    /**
+     * Convert picked times (timestamps) to sorted, de-duplicated minutes of day
+     * @param timestamps Timestamps whose time of day is used
+     * @return Minutes of day
+     */
+    public static List<Integer> toMinutesOfDay(List<Long> timestamps) {
+        List<Integer> minutes = new ArrayList<>();
+        for (long timestamp : timestamps) {
+            int minute = toMinuteOfDay(timestamp);
+            if (!minutes.contains(minute)) {
+                minutes.add(minute);
+            }
+        }
+        Collections.sort(minutes);
+        return minutes;
+    }
+
+    /**
+     * Check whether doses are due on a day for a frequency
+     * Every-other-day counts from the start date; weekly repeats on the start date's weekday.
+     * @param frequency Medication frequency
+     * @param startDate Medication start date (timestamp)
+     * @param dayTimestamp Any timestamp within the day to check
+     * @return True if doses are scheduled on that day
+     */
+    public static boolean isDoseDay(MedicationFrequency frequency, long startDate, long dayTimestamp) {
+        switch (frequency) {
+            case AS_NEEDED:
+                return false;
+            case EVERY_OTHER_DAY:
+                return daysBetween(startDate, dayTimestamp) % 2 == 0;
+            case WEEKLY:
+                return daysBetween(startDate, dayTimestamp) % 7 == 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Get the next time a dose slot is due after a given time
+     * @param frequency Medication frequency
+     * @param startDate Medication start date (timestamp)
+     * @param minuteOfDay Slot minute of day (0-1439)
+     * @param afterTime Only times strictly after this are returned
+     * @return Next due time, or -1 if the frequency has no scheduled doses
+     */
+    public static long getNextOccurrence(MedicationFrequency frequency, long startDate,
+                                         int minuteOfDay, long afterTime) {
+        long firstDay = DateTimeUtils.getStartOfDay(Math.max(afterTime, startDate));
+        // Weekly is the longest cycle, so one week ahead always finds the next dose day
+        for (int i = 0; i <= 7; i++) {
+            long day = DateTimeUtils.addDays(firstDay, i);
+            if (!isDoseDay(frequency, startDate, day)) {
+                continue;
+            }
+            long time = atMinuteOfDay(day, minuteOfDay);
+            if (time > afterTime) {
+                return time;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Count calendar days between two timestamps, ignoring DST hour shifts
+     */
+    static long daysBetween(long fromTimestamp, long toTimestamp) {
+        long from = DateTimeUtils.getStartOfDay(fromTimestamp);
+        long to = DateTimeUtils.getStartOfDay(toTimestamp);
+        return Math.abs(Math.round((to - from) / (double) (24 * 60 * 60 * 1000L)));
+    }
+}
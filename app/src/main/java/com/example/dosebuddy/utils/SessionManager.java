@@ -0,0 +1,162 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.dosebuddy.database.User;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide holder of the signed-in user
+ *
+ * The session is read from the "DoseBuddy" preferences once, when the manager is
+ * created, and kept in memory after that, so getting the current user never touches
+ * disk. Login and logout update memory first and persist with apply(), so a reader
+ * on any thread sees the change immediately.
+ */
+public class SessionManager {
+
+    private static final String PREFS_NAME = "DoseBuddy";
+    static final String KEY_IS_LOGGED_IN = "is_logged_in";
+    static final String KEY_CURRENT_USER_ID = "current_user_id";
+    static final String KEY_CURRENT_USERNAME = "current_username";
+    static final String KEY_CURRENT_FULL_NAME = "current_full_name";
+
+    public static final int NO_USER = -1;
+
+    private static volatile SessionManager INSTANCE;
+
+    private final SharedPreferences prefs;
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Replaced as a whole so readers never see the ID of one user with the name of another
+    private volatile Session session;
+
+    /**
+     * Listener for sign-in and sign-out
+     * Called on the thread that changed the session.
+     */
+    public interface SessionListener {
+        void onLogin(int userId);
+        void onLogout(int userId);
+    }
+
+    SessionManager(SharedPreferences prefs) {
+        this.prefs = prefs;
+        this.session = prefs.getBoolean(KEY_IS_LOGGED_IN, false)
+                ? new Session(prefs.getInt(KEY_CURRENT_USER_ID, NO_USER),
+                        prefs.getString(KEY_CURRENT_USERNAME, null),
+                        prefs.getString(KEY_CURRENT_FULL_NAME, null))
+                : Session.NONE;
+    }
+
+    /**
+     * Get session manager instance (Singleton pattern)
+     * @param context Application context
+     * @return SessionManager instance
+     */
+    public static SessionManager getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SessionManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SessionManager(context.getApplicationContext()
+                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Check if a user is signed in
+     */
+    public boolean isLoggedIn() {
+        return session.userId != NO_USER;
+    }
+
+    /**
+     * Get the signed-in user's ID
+     * @return User ID, or NO_USER if nobody is signed in
+     */
+    public int getCurrentUserId() {
+        return session.userId;
+    }
+
+    /**
+     * Get the signed-in user's username, or null if nobody is signed in
+     */
+    public String getUsername() {
+        return session.username;
+    }
+
+    /**
+     * Get the signed-in user's full name, or null if nobody is signed in
+     */
+    public String getFullName() {
+        return session.fullName;
+    }
+
+    /**
+     * Start a session for a user
+     * @param user Signed-in user; its ID must be set
+     */
+    public void login(User user) {
+        Session loggedIn = new Session(user.getId(), user.getUsername(), user.getFullName());
+        session = loggedIn;
+        prefs.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, true)
+                .putInt(KEY_CURRENT_USER_ID, loggedIn.userId)
+                .putString(KEY_CURRENT_USERNAME, loggedIn.username)
+                .putString(KEY_CURRENT_FULL_NAME, loggedIn.fullName)
+                .apply();
+
+        for (SessionListener listener : listeners) {
+            listener.onLogin(loggedIn.userId);
+        }
+    }
+
+    /**
+     * End the current session
+     * Only the session keys are removed; app settings in the same preferences stay.
+     */
+    public void logout() {
+        int userId = session.userId;
+        session = Session.NONE;
+        prefs.edit()
+                .remove(KEY_IS_LOGGED_IN)
+                .remove(KEY_CURRENT_USER_ID)
+                .remove(KEY_CURRENT_USERNAME)
+                .remove(KEY_CURRENT_FULL_NAME)
+                .apply();
+
+        if (userId != NO_USER) {
+            for (SessionListener listener : listeners) {
+                listener.onLogout(userId);
+            }
+        }
+    }
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static class Session {
+        static final Session NONE = new Session(NO_USER, null, null);
+
+        final int userId;
+        final String username;
+        final String fullName;
+
+        Session(int userId, String username, String fullName) {
+            this.userId = userId;
+            this.username = username;
+            this.fullName = fullName;
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package com.example.dosebuddy.utils;
 
-import android.util.Patterns;
+import java.util.regex.Pattern;
 
 /**
  * Utility class for input validation
  * Contains methods to validate user input fields
  */
 public class ValidationUtils {
+
+    // Compiled once; String.matches compiles its pattern on every call.
+    // Same expression as android.util.Patterns.EMAIL_ADDRESS, kept here so this class has no Android dependency
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "[a-zA-Z0-9\\+\\.\\_\\%\\-\\+]{1,256}" +
+            "\\@" +
+            "[a-zA-Z0-9][a-zA-Z0-9\\-]{0,64}" +
+            "(" +
+            "\\." +
+            "[a-zA-Z0-9][a-zA-Z0-9\\-]{0,25}" +
+            ")+");
+    private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_]+$");
+    private static final Pattern FULL_NAME_PATTERN = Pattern.compile("^[a-zA-Z\\s'.-]+$");
+    private static final Pattern MEDICATION_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9\\s\\-.,()]+$");
+    private static final Pattern DOSAGE_PATTERN = Pattern.compile("^[a-zA-Z0-9\\s\\-.,/()%]+$");
     
     /**
      * Check if a string is null or empty
@@ -23,7 +38,7 @@ public class ValidationUtils {
      * @return True if email is valid, false otherwise
      */
     public static boolean isValidEmail(String email) {
-        return !isEmpty(email) && Patterns.EMAIL_ADDRESS.matcher(email).matches();
+        return !isEmpty(email) && EMAIL_PATTERN.matcher(email).matches();
     }
     
     /**
@@ -43,7 +58,7 @@ public class ValidationUtils {
         }
         
         // Check format (alphanumeric and underscore only)
-        return username.matches("^[a-zA-Z0-9_]+$");
+        return USERNAME_PATTERN.matcher(username).matches();
     }
     
     /**
@@ -63,7 +78,7 @@ public class ValidationUtils {
         }
         
         // Check format (letters, spaces, apostrophes, hyphens, and dots)
-        return fullName.matches("^[a-zA-Z\\s'.-]+$");
+        return FULL_NAME_PATTERN.matcher(fullName).matches();
     }
     
     /**
@@ -100,7 +115,7 @@ public class ValidationUtils {
         if (username.length() > 20) {
             return "Username must be less than 20 characters";
         }
-        if (!username.matches("^[a-zA-Z0-9_]+$")) {
+        if (!USERNAME_PATTERN.matcher(username).matches()) {
             return "Username can only contain letters, numbers, and underscores";
         }
         return null;
@@ -136,7 +151,7 @@ public class ValidationUtils {
         if (fullName.length() > 50) {
             return "Full name must be less than 50 characters";
         }
-        if (!fullName.matches("^[a-zA-Z\\s'.-]+$")) {
+        if (!FULL_NAME_PATTERN.matcher(fullName).matches()) {
             return "Full name can only contain letters, spaces, and common punctuation";
         }
         return null;
@@ -175,7 +190,7 @@ public class ValidationUtils {
         }
 
         // Allow letters, numbers, spaces, hyphens, and common punctuation
-        return medicationName.matches("^[a-zA-Z0-9\\s\\-.,()]+$");
+        return MEDICATION_NAME_PATTERN.matcher(medicationName).matches();
     }
 
     /**
@@ -194,7 +209,7 @@ public class ValidationUtils {
         }
 
         // Allow letters, numbers, spaces, and common dosage symbols
-        return dosage.matches("^[a-zA-Z0-9\\s\\-.,/()%]+$");
+        return DOSAGE_PATTERN.matcher(dosage).matches();
     }
 
     /**
@@ -234,7 +249,7 @@ public class ValidationUtils {
         if (medicationName.length() > 100) {
             return "Medication name must be less than 100 characters";
         }
-        if (!medicationName.matches("^[a-zA-Z0-9\\s\\-.,()]+$")) {
+        if (!MEDICATION_NAME_PATTERN.matcher(medicationName).matches()) {
             return "Medication name contains invalid characters";
         }
         return null;
@@ -255,7 +270,7 @@ public class ValidationUtils {
         if (dosage.length() > 50) {
             return "Dosage must be less than 50 characters";
         }
-        if (!dosage.matches("^[a-zA-Z0-9\\s\\-.,/()%]+$")) {
+        if (!DOSAGE_PATTERN.matcher(dosage).matches()) {
             return "Dosage contains invalid characters";
         }
         return null;
@@ -0,0 +1,85 @@
+package com.example.dosebuddy.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.HistoryRetention;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily WorkManager worker that archives old history and vacuums the database
+ * Runs while the device is idle so the one-time VACUUM and archive chunks
+ * don't compete with the UI.
+ */
+public class HistoryRetentionWorker extends Worker {
+
+    private static final String TAG = "HistoryRetentionWorker";
+    public static final String WORK_NAME = "history_retention";
+
+    private static final long REPEAT_INTERVAL_HOURS = 24;
+
+    public HistoryRetentionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedule the daily run, keeping an existing schedule if present
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
+                HistoryRetentionWorker.class, REPEAT_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        long startTime = System.nanoTime();
+
+        try {
+            int archived = 0;
+            int retentionDays = HistoryRetention.getRetentionDays(context);
+            if (retentionDays > 0) {
+                long cutoff = DateTimeUtils.addDays(DateTimeUtils.getCurrentDateTimestamp(), -retentionDays);
+                archived = HistoryRetention.archiveOlderThan(context, cutoff);
+            }
+
+            long freePages = 0;
+            for (AppDatabase database : AppDatabase.getDataInstances(context)) {
+                SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+                HistoryRetention.ensureIncrementalAutoVacuum(db);
+                freePages += HistoryRetention.incrementalVacuum(db, HistoryRetention.MAX_VACUUM_PAGES);
+            }
+
+            Log.d(TAG, "Archived " + archived + " records, " + freePages + " free pages before vacuum, in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying history retention", e);
+            return Result.retry();
+        }
+    }
+}
@@ -1,17 +1,14 @@
 package com.example.dosebuddy.workers;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
 import android.media.RingtoneManager;
-import android.net.Uri;
 import android.os.Build;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
@@ -20,10 +17,13 @@ import androidx.work.WorkerParameters;
 
 import com.example.dosebuddy.MainActivity;
 import com.example.dosebuddy.R;
-import com.example.dosebuddy.database.AppDatabase;
 import com.example.dosebuddy.database.Medication;
-import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.metrics.ReminderLatency;
+import com.example.dosebuddy.metrics.Tracer;
 import com.example.dosebuddy.receivers.MedicationActionReceiver;
+import com.example.dosebuddy.repository.MedicationRepository;
+import com.example.dosebuddy.utils.NotificationChannels;
+import com.example.dosebuddy.utils.ReminderScheduler;
 
 /**
  * WorkManager worker for sending medication reminder notifications
@@ -31,11 +31,13 @@ import com.example.dosebuddy.receivers.MedicationActionReceiver;
 public class MedicationReminderWorker extends Worker {
     
     public static final String MEDICATION_ID_KEY = "medication_id";
+    public static final String USER_ID_KEY = "user_id"; // Absent on work queued by older versions
     public static final String MEDICATION_NAME_KEY = "medication_name";
     public static final String MEDICATION_DOSAGE_KEY = "medication_dosage";
     public static final String REMINDER_TIME_KEY = "reminder_time";
+    public static final String SLOT_KEY = "reminder_slot"; // Minute of day; absent for snoozes
     
-    private static final String CHANNEL_ID = "medication_reminders";
+    private static final String TAG = "MedicationReminderWorker";
     private static final int NOTIFICATION_ID_BASE = 1000;
     
     public MedicationReminderWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
@@ -45,83 +47,82 @@ public class MedicationReminderWorker extends Worker {
     @NonNull
     @Override
     public Result doWork() {
+        Tracer.begin("MedicationReminderWorker.doWork");
+        try {
+            return remind();
+        } finally {
+            Tracer.end();
+        }
+    }
+
+    /**
+     * Show the reminder and queue the slot's next occurrence
+     */
+    private Result remind() {
         // Get medication details from input data
         int medicationId = getInputData().getInt(MEDICATION_ID_KEY, -1);
+        int userId = getInputData().getInt(USER_ID_KEY, -1);
         String medicationName = getInputData().getString(MEDICATION_NAME_KEY);
         String medicationDosage = getInputData().getString(MEDICATION_DOSAGE_KEY);
         long reminderTime = getInputData().getLong(REMINDER_TIME_KEY, 0);
+        int slot = getInputData().getInt(SLOT_KEY, -1);
         
         if (medicationId == -1 || medicationName == null || medicationDosage == null) {
             return Result.failure();
         }
         
         // Verify medication still exists and is active
-        if (!isMedicationActive(medicationId)) {
+        Medication medication;
+        try {
+            medication = getActiveMedication(userId, medicationId);
+        } catch (Exception e) {
+            // Not a deletion; ending here would end the slot's chain
+            Log.e(TAG, "Error loading medication " + medicationId, e);
+            return Result.retry();
+        }
+        if (medication == null) {
             return Result.success(); // Medication was deleted or deactivated
         }
         
-        // Create and show notification
-        createNotificationChannel();
-        showMedicationNotification(medicationId, medicationName, medicationDosage, reminderTime);
+        // Create and show notification with the current name and dosage,
+        // so text-only edits never need the work item to be replaced
+        NotificationChannels.ensureCreated(getApplicationContext());
+
+        // How far Doze, standby and WorkManager deferral pushed this reminder back;
+        // only reminders that are actually shown count
+        if (reminderTime > 0) {
+            ReminderLatency.record(getApplicationContext(), reminderTime, System.currentTimeMillis(),
+                    slot >= 0 ? ReminderLatency.Channel.WORK_SLOT : ReminderLatency.Channel.WORK_SNOOZE);
+        }
+        showMedicationNotification(medication.getUserId(), medicationId, medication.getName(),
+                medication.getDosage(), reminderTime);
+
+        // Queue this slot's next occurrence
+        if (slot >= 0) {
+            ReminderScheduler.scheduleSlot(getApplicationContext(), medication, slot);
+        }
         
         return Result.success();
     }
     
     /**
-     * Check if medication is still active
+     * Get the medication if it still exists and is active
+     * Work without a user ID looks in the signed-in user's database.
+     * @return The medication, or null if it was deleted or deactivated
      */
-    private boolean isMedicationActive(int medicationId) {
-        try {
-            AppDatabase database = AppDatabase.getInstance(getApplicationContext());
-            MedicationDao medicationDao = database.medicationDao();
-            Medication medication = medicationDao.getMedicationById(medicationId);
-            return medication != null && medication.isActive();
-        } catch (Exception e) {
-            return false;
-        }
-    }
-    
-    /**
-     * Create notification channel for Android 8.0+
-     */
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    CHANNEL_ID,
-                    getApplicationContext().getString(R.string.medication_reminder_channel),
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            channel.setDescription(getApplicationContext().getString(R.string.medication_reminder_channel_description));
-
-            // Enhanced vibration pattern
-            channel.enableVibration(true);
-            channel.setVibrationPattern(new long[]{0, 500, 200, 500, 200, 500}); // Custom vibration pattern
-
-            // Set notification sound
-            Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                    .setUsage(AudioAttributes.USAGE_NOTIFICATION_RINGTONE)
-                    .build();
-            channel.setSound(soundUri, audioAttributes);
-
-            // Additional settings
-            channel.setShowBadge(true);
-            channel.enableLights(true);
-            channel.setLightColor(getApplicationContext().getColor(R.color.primary));
-            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
-
-            NotificationManager notificationManager = getApplicationContext().getSystemService(NotificationManager.class);
-            if (notificationManager != null) {
-                notificationManager.createNotificationChannel(channel);
-            }
-        }
+    private Medication getActiveMedication(int userId, int medicationId) {
+        Context context = getApplicationContext();
+        MedicationRepository repository = userId != -1
+                ? MedicationRepository.getInstance(context, userId)
+                : MedicationRepository.getInstance(context);
+        Medication medication = repository.getMedicationById(medicationId);
+        return medication != null && medication.isActive() ? medication : null;
     }
     
     /**
      * Show medication reminder notification
      */
-    private void showMedicationNotification(int medicationId, String medicationName, 
+    private void showMedicationNotification(int userId, int medicationId, String medicationName,
                                           String medicationDosage, long reminderTime) {
         Context context = getApplicationContext();
         
@@ -135,6 +136,7 @@ public class MedicationReminderWorker extends Worker {
         // Create "Take Now" action intent
         Intent takeNowIntent = new Intent(context, MedicationActionReceiver.class);
         takeNowIntent.setAction(MedicationActionReceiver.ACTION_TAKE_NOW);
+        takeNowIntent.putExtra(MedicationActionReceiver.EXTRA_USER_ID, userId);
         takeNowIntent.putExtra(MedicationActionReceiver.EXTRA_MEDICATION_ID, medicationId);
         takeNowIntent.putExtra(MedicationActionReceiver.EXTRA_MEDICATION_NAME, medicationName);
         PendingIntent takeNowPendingIntent = PendingIntent.getBroadcast(
@@ -144,6 +146,7 @@ public class MedicationReminderWorker extends Worker {
         // Create "Snooze" action intent
         Intent snoozeIntent = new Intent(context, MedicationActionReceiver.class);
         snoozeIntent.setAction(MedicationActionReceiver.ACTION_SNOOZE);
+        snoozeIntent.putExtra(MedicationActionReceiver.EXTRA_USER_ID, userId);
         snoozeIntent.putExtra(MedicationActionReceiver.EXTRA_MEDICATION_ID, medicationId);
         snoozeIntent.putExtra(MedicationActionReceiver.EXTRA_MEDICATION_NAME, medicationName);
         snoozeIntent.putExtra(MedicationActionReceiver.EXTRA_MEDICATION_DOSAGE, medicationDosage);
@@ -156,7 +159,7 @@ public class MedicationReminderWorker extends Worker {
         String content = context.getString(R.string.take_medication_now, medicationName);
         String bigText = context.getString(R.string.dosage_reminder, medicationName, medicationDosage);
         
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NotificationChannels.MEDICATION_REMINDERS)
                 .setSmallIcon(R.drawable.ic_medication_notification)
                 .setContentTitle(title)
                 .setContentText(content)
@@ -0,0 +1,155 @@
+package com.example.dosebuddy.workers;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dosebuddy.MainActivity;
+import com.example.dosebuddy.R;
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DoseInstanceDao;
+import com.example.dosebuddy.database.User;
+import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.DoseLedger;
+import com.example.dosebuddy.utils.NotificationChannels;
+import com.example.dosebuddy.utils.SessionManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic WorkManager worker that marks overdue doses as missed
+ * Keeps each user's expected-dose ledger filled, marks doses past their grace
+ * window with no matching history, and posts one consolidated notification.
+ */
+public class MissedDoseWorker extends Worker {
+
+    private static final String TAG = "MissedDoseWorker";
+    public static final String WORK_NAME = "missed_dose_detector";
+    public static final String PREF_NOTIFY_MISSED_DOSES = "notify_missed_doses";
+
+    private static final long REPEAT_INTERVAL_MINUTES = 15;
+    private static final int NOTIFICATION_ID = 2000;
+    private static final int MAX_NOTIFICATION_LINES = 5;
+
+    public MissedDoseWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedule the periodic detector, keeping an existing schedule if present
+     */
+    public static void schedule(Context context) {
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
+                MissedDoseWorker.class, REPEAT_INTERVAL_MINUTES, TimeUnit.MINUTES)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        long now = System.currentTimeMillis();
+        long startTime = System.nanoTime();
+
+        try {
+            int notifyUserId = getNotifyUserId(context);
+            List<User> users = AppDatabase.getInstance(context).userDao().getAllActiveUsers();
+            int totalMissed = 0;
+
+            for (User user : users) {
+                DoseLedger.ensureWindow(context, user.getId());
+                List<DoseInstanceDao.OverdueDose> missed = DoseLedger.markMissedDoses(context, user.getId(), now);
+                totalMissed += missed.size();
+
+                if (!missed.isEmpty() && user.getId() == notifyUserId) {
+                    showMissedDoseNotification(context, missed);
+                }
+            }
+
+            Log.d(TAG, "Marked " + totalMissed + " missed doses for " + users.size() + " users in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error detecting missed doses", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Get the signed-in user to notify, or -1 if notifications are off or nobody is signed in
+     */
+    private int getNotifyUserId(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+        if (!prefs.getBoolean(PREF_NOTIFY_MISSED_DOSES, true)) {
+            return -1;
+        }
+        return SessionManager.getInstance(context).getCurrentUserId();
+    }
+
+    /**
+     * Show a single notification summarizing all newly missed doses
+     */
+    private void showMissedDoseNotification(Context context, List<DoseInstanceDao.OverdueDose> missed) {
+        NotificationChannels.ensureCreated(context);
+
+        Intent openAppIntent = new Intent(context, MainActivity.class);
+        openAppIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        PendingIntent openAppPendingIntent = PendingIntent.getActivity(
+                context, NOTIFICATION_ID, openAppIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        String title = context.getString(R.string.missed_doses_title);
+        String content;
+        NotificationCompat.Style style;
+
+        if (missed.size() == 1) {
+            DoseInstanceDao.OverdueDose dose = missed.get(0);
+            content = context.getString(R.string.missed_dose_single, dose.medicationName,
+                    DateTimeUtils.formatTime(dose.scheduledTime));
+            style = new NotificationCompat.BigTextStyle().bigText(content);
+        } else {
+            content = context.getString(R.string.missed_doses_content, missed.size());
+            NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle()
+                    .setSummaryText(content);
+            // Most recent first
+            for (int i = missed.size() - 1; i >= 0 && i >= missed.size() - MAX_NOTIFICATION_LINES; i--) {
+                DoseInstanceDao.OverdueDose dose = missed.get(i);
+                inboxStyle.addLine(context.getString(R.string.missed_dose_line, dose.medicationName,
+                        DateTimeUtils.formatTime(dose.scheduledTime)));
+            }
+            style = inboxStyle;
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NotificationChannels.MISSED_DOSES)
+                .setSmallIcon(R.drawable.ic_medication_notification)
+                .setContentTitle(title)
+                .setContentText(content)
+                .setStyle(style)
+                .setNumber(missed.size())
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setAutoCancel(true)
+                .setContentIntent(openAppPendingIntent);
+
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager != null) {
+            notificationManager.notify(NOTIFICATION_ID, builder.build());
+        }
+    }
+}
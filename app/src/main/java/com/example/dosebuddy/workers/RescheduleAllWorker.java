@@ -0,0 +1,116 @@
+package com.example.dosebuddy.workers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationSchedule;
+import com.example.dosebuddy.utils.DoseLedger;
+import com.example.dosebuddy.utils.ReminderScheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkManager worker that re-arms every medication reminder in one pass
+ * Runs after boot, app updates and clock or time-zone changes, when the
+ * absolute fire times held by WorkManager no longer match local dose times.
+ */
+public class RescheduleAllWorker extends Worker {
+
+    private static final String TAG = "RescheduleAllWorker";
+    public static final String WORK_NAME = "reschedule_all_reminders";
+    public static final String REASON_KEY = "reason";
+
+    // Last resync stats, stored in the app preferences
+    public static final String PREF_LAST_RESYNC_AT = "last_resync_at";
+    public static final String PREF_LAST_RESYNC_DURATION_MS = "last_resync_duration_ms";
+    public static final String PREF_LAST_RESYNC_COUNT = "last_resync_count";
+    public static final String PREF_LAST_RESYNC_REASON = "last_resync_reason";
+
+    public RescheduleAllWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Enqueue a full resync, replacing one that has not started yet
+     * Several broadcasts often arrive together (e.g. TIME_SET and TIMEZONE_CHANGED).
+     */
+    public static void enqueue(Context context, String reason) {
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(RescheduleAllWorker.class)
+                .setInputData(new Data.Builder().putString(REASON_KEY, reason).build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME, ExistingWorkPolicy.REPLACE, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        String reason = getInputData().getString(REASON_KEY);
+        long startTime = System.nanoTime();
+
+        try {
+            // One query each per database for active medications and their dose times;
+            // medication IDs are unique across databases, so the results can be merged
+            List<AppDatabase> databases = AppDatabase.getDataInstances(context);
+            List<Medication> medications = new ArrayList<>();
+            Map<Integer, List<Integer>> slotsByMedication = new HashMap<>();
+            List<List<Medication>> medicationsByDatabase = new ArrayList<>();
+            for (AppDatabase database : databases) {
+                List<Medication> databaseMedications = database.medicationDao().getAllActiveMedications();
+                medicationsByDatabase.add(databaseMedications);
+                medications.addAll(databaseMedications);
+                slotsByMedication.putAll(MedicationSchedule.groupMinutesByMedication(
+                        database.medicationScheduleDao().getSlotsForActiveMedications()));
+            }
+
+            int reminderCount = ReminderScheduler.rescheduleAllReminders(context, medications, slotsByMedication);
+            for (int i = 0; i < databases.size(); i++) {
+                DoseLedger.regenerateAll(databases.get(i), medicationsByDatabase.get(i), slotsByMedication);
+            }
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            recordResync(context, reason, reminderCount, durationMs);
+
+            Log.i(TAG, "Resynced " + reminderCount + " reminders for " + medications.size() +
+                    " medications in " + durationMs + "ms (" + reason + ")");
+            return Result.success();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Error rescheduling reminders", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Save how long the last full resync took
+     */
+    private void recordResync(Context context, String reason, int reminderCount, long durationMs) {
+        SharedPreferences prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong(PREF_LAST_RESYNC_AT, System.currentTimeMillis())
+                .putLong(PREF_LAST_RESYNC_DURATION_MS, durationMs)
+                .putInt(PREF_LAST_RESYNC_COUNT, reminderCount)
+                .putString(PREF_LAST_RESYNC_REASON, reason)
+                .apply();
+    }
+}
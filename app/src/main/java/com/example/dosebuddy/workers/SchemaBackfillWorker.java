@@ -0,0 +1,71 @@
+package com.example.dosebuddy.workers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.DeferredBackfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-time WorkManager worker that runs DeferredBackfill after a schema upgrade
+ * Enqueued by AppDatabase when it opens with backfills outstanding. Stops
+ * between chunks when WorkManager asks it to; the next run picks up the rest.
+ */
+public class SchemaBackfillWorker extends Worker {
+
+    private static final String TAG = "SchemaBackfillWorker";
+    public static final String WORK_NAME = "schema_backfill";
+
+    public SchemaBackfillWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Enqueue the backfill, keeping a run that is already queued
+     */
+    public static void enqueue(Context context) {
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(SchemaBackfillWorker.class)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME, ExistingWorkPolicy.KEEP, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long startTime = System.nanoTime();
+
+        try {
+            int filled = 0;
+            for (AppDatabase database : AppDatabase.getDataInstances(getApplicationContext())) {
+                int chunk;
+                do {
+                    if (isStopped()) {
+                        Log.d(TAG, "Stopped after " + filled + " rows; will resume");
+                        return Result.retry();
+                    }
+                    chunk = DeferredBackfill.runChunk(database, System.currentTimeMillis());
+                    filled += chunk;
+                } while (chunk > 0);
+            }
+
+            Log.d(TAG, "Backfilled " + filled + " rows in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error running schema backfill", e);
+            return Result.retry();
+        }
+    }
+}
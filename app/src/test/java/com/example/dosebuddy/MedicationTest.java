@@ -133,6 +133,21 @@ public class MedicationTest {
         assertTrue(medication.getUpdatedAt() > originalTime);
     }
 
+    @Test
+    public void testDosesTakenOnIgnoresStaleCounter() {
+        long today = DateTimeUtils.getCurrentDateTimestamp();
+        Medication medication = new Medication();
+        medication.setDosesToday(2);
+        medication.setDosesTodayDate(today);
+
+        assertEquals(2, medication.getDosesTakenOn(today));
+        assertEquals(0, medication.getDosesTakenOn(DateTimeUtils.addDays(today, 1)));
+
+        Medication copy = medication.copy();
+        assertEquals(2, copy.getDosesTakenOn(today));
+        assertNull(copy.getLastTakenAt());
+    }
+
     @Test
     public void testMedicationFrequencyFromString() {
         assertEquals(MedicationFrequency.ONCE_DAILY, 
@@ -5,6 +5,12 @@ import com.example.dosebuddy.utils.ValidationUtils;
 
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
 import static org.junit.Assert.*;
 
 /**
@@ -24,8 +30,74 @@ public class PasswordUtilsTest {
         // Hash should be different from original password
         assertNotEquals(password, hash);
         
-        // Hash should be consistent length (32 chars salt + 64 chars hash = 96 chars)
-        assertEquals(96, hash.length());
+        // Versioned format: "v2$iterations$salt$hash" with a 16-byte salt and 32-byte hash in hex
+        String[] parts = hash.split("\\$");
+        assertEquals(4, parts.length);
+        assertEquals("v2", parts[0]);
+        assertEquals(PasswordUtils.DEFAULT_ITERATIONS, Integer.parseInt(parts[1]));
+        assertEquals(32, parts[2].length());
+        assertEquals(64, parts[3].length());
+    }
+
+    @Test
+    public void testPbkdf2MatchesReferenceVector() {
+        // PBKDF2-HMAC-SHA256, P = "passwd", S = "salt", c = 1 (RFC 7914 section 11), first 32 bytes
+        String hash = "v2$1$73616c74$55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc";
+        assertTrue(PasswordUtils.verifyPassword("passwd", hash));
+        assertFalse(PasswordUtils.verifyPassword("passwe", hash));
+    }
+
+    @Test
+    public void testPbkdf2MatchesJce() throws Exception {
+        byte[] salt = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        byte[] expected = factory.generateSecret(
+                new PBEKeySpec("mySecurePassword".toCharArray(), salt, 5000, 256)).getEncoded();
+
+        String hash = "v2$5000$" + toHex(salt) + "$" + toHex(expected);
+        assertTrue(PasswordUtils.verifyPassword("mySecurePassword", hash));
+    }
+
+    @Test
+    public void testVersion1HashStillVerifies() throws Exception {
+        byte[] salt = new byte[16];
+        for (int i = 0; i < salt.length; i++) {
+            salt[i] = (byte) (i * 17);
+        }
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(salt);
+        String legacyHash = toHex(salt) + toHex(md.digest("oldPassword".getBytes()));
+        assertEquals(96, legacyHash.length());
+
+        assertTrue(PasswordUtils.verifyPassword("oldPassword", legacyHash));
+        assertFalse(PasswordUtils.verifyPassword("newPassword", legacyHash));
+        assertTrue(PasswordUtils.needsRehash(legacyHash, PasswordUtils.MIN_ITERATIONS));
+    }
+
+    @Test
+    public void testNeedsRehash() {
+        String hash = PasswordUtils.createPasswordHash("password123", 30_000);
+        assertFalse(PasswordUtils.needsRehash(hash, 30_000));
+        assertFalse(PasswordUtils.needsRehash(hash, 20_000));
+        assertTrue(PasswordUtils.needsRehash(hash, 40_000));
+        assertTrue(PasswordUtils.needsRehash(null, 30_000));
+    }
+
+    @Test
+    public void testMalformedHashesDoNotVerify() {
+        assertFalse(PasswordUtils.verifyPassword("password", ""));
+        assertFalse(PasswordUtils.verifyPassword("password", "v2$abc$00$00"));
+        assertFalse(PasswordUtils.verifyPassword("password", "v2$0$00$00"));
+        assertFalse(PasswordUtils.verifyPassword("password", "v2$1000$zz$00"));
+        assertFalse(PasswordUtils.verifyPassword("password", "not-a-hash"));
+    }
+
+    @Test
+    public void testCalibrationIsClamped() {
+        int iterations = PasswordUtils.calibrateIterations(1);
+        assertTrue(iterations >= PasswordUtils.MIN_ITERATIONS);
+        assertTrue(iterations <= PasswordUtils.MAX_ITERATIONS);
+        assertEquals(0, iterations % 1000);
     }
 
     @Test
@@ -59,8 +131,19 @@ public class PasswordUtilsTest {
         assertFalse(PasswordUtils.isValidPassword(null)); // Null
     }
 
-    // Note: Email validation test skipped because Android Patterns class is not available in unit tests
-    // Email validation will be tested in instrumented tests
+    @Test
+    public void testEmailValidation() {
+        // Valid emails
+        assertTrue(ValidationUtils.isValidEmail("user@example.com"));
+        assertTrue(ValidationUtils.isValidEmail("first.last+meds@mail.example.org"));
+
+        // Invalid emails
+        assertFalse(ValidationUtils.isValidEmail("user@")); // No domain
+        assertFalse(ValidationUtils.isValidEmail("user.example.com")); // No @
+        assertFalse(ValidationUtils.isValidEmail("user@example")); // No top-level domain
+        assertFalse(ValidationUtils.isValidEmail("")); // Empty
+        assertFalse(ValidationUtils.isValidEmail(null)); // Null
+    }
 
     @Test
     public void testUsernameValidation() {
@@ -109,4 +192,12 @@ public class PasswordUtilsTest {
         assertFalse(ValidationUtils.doPasswordsMatch(password1, null));
         assertFalse(ValidationUtils.doPasswordsMatch(null, null));
     }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
 }
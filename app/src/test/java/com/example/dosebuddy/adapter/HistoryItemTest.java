@@ -0,0 +1,58 @@
+package com.example.dosebuddy.adapter;
+
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for history row display values
+ */
+public class HistoryItemTest {
+
+    private static final long SCHEDULED = DateTimeUtils.createDateTimestamp(2024, 0, 1) + 8 * 60 * 60 * 1000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void testTiming() {
+        assertEquals(HistoryItem.Timing.ON_TIME, item(SCHEDULED, SCHEDULED + 20 * MINUTE).timing);
+
+        HistoryItem late = item(SCHEDULED, SCHEDULED + 45 * MINUTE);
+        assertEquals(HistoryItem.Timing.LATE, late.timing);
+        assertEquals(45, late.minutesOff);
+
+        HistoryItem early = item(SCHEDULED, SCHEDULED - 90 * MINUTE);
+        assertEquals(HistoryItem.Timing.EARLY, early.timing);
+        assertEquals(90, early.minutesOff);
+    }
+
+    @Test
+    public void testUnscheduledDose() {
+        HistoryItem item = item(null, SCHEDULED);
+        assertEquals(HistoryItem.Timing.NONE, item.timing);
+        assertNull(item.scheduledFor);
+        assertEquals(DateTimeUtils.formatDateTime(SCHEDULED), item.takenAt);
+        assertEquals(MedicationHistory.TakenMethod.MANUAL.getDisplayName(), item.takenMethod);
+    }
+
+    @Test
+    public void testBlankNotesAreDropped() {
+        MedicationHistory history = history(SCHEDULED, SCHEDULED);
+        history.setNotes("  ");
+        assertNull(HistoryItem.from(history).notes);
+
+        history.setNotes("With food");
+        assertEquals("With food", HistoryItem.from(history).notes);
+    }
+
+    private static HistoryItem item(Long scheduledTime, long takenAt) {
+        return HistoryItem.from(history(scheduledTime, takenAt));
+    }
+
+    private static MedicationHistory history(Long scheduledTime, long takenAt) {
+        return new MedicationHistory(1, 1, "Aspirin", "100 mg", scheduledTime, takenAt,
+                MedicationHistory.TakenMethod.MANUAL);
+    }
+}
@@ -0,0 +1,445 @@
+package com.example.dosebuddy.benchmark;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationDao;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.example.dosebuddy.database.User;
+import com.example.dosebuddy.utils.DateTimeUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times every non-deprecated MedicationDao and MedicationHistoryDao method over a seeded
+ * users x medications x years-of-history dataset and reports p50/p99 latency
+ *
+ * Volumes and thresholds come from system properties, which app/build.gradle
+ * forwards from -Pbenchmark.* project properties:
+ *   benchmark.users, benchmark.medications (per user), benchmark.years,
+ *   benchmark.samples, benchmark.tolerance, benchmark.updateBaseline
+ *
+ * Results are compared with src/test/resources/benchmark/dao_baseline.json, and
+ * the test fails if an operation got slower than the tolerance allows. Timings
+ * depend on the host, so no baseline is committed: without one the test fails,
+ * and at other volumes than the baseline's it is skipped. Record or refresh the
+ * baseline on the machine that runs the comparison:
+ *   ./gradlew testDebugUnitTest -PrunBenchmarks --tests '*DaoBenchmark' -Pbenchmark.updateBaseline
+ * Excluded from normal runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DaoBenchmark {
+
+    private static final String DATABASE_NAME = "dao_benchmark.db";
+    private static final File BASELINE_FILE = new File("src/test/resources/benchmark/dao_baseline.json");
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 3);
+    private static final int MEDICATIONS_PER_USER = Integer.getInteger("benchmark.medications", 10);
+    private static final int HISTORY_YEARS = Integer.getInteger("benchmark.years", 2);
+    private static final int SAMPLES = Integer.getInteger("benchmark.samples", 200);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("benchmark.tolerance", "1.5"));
+    private static final boolean UPDATE_BASELINE = System.getProperty("benchmark.updateBaseline") != null;
+
+    // p99 on a shared host is noisier than p50, so it gets twice the headroom
+    private static final double P99_TOLERANCE_FACTOR = 2.0;
+    // Differences smaller than this are host noise, whatever the ratio
+    private static final long MIN_REGRESSION_US = 200;
+
+    private static final int WARMUP = 20;
+    private static final int DOSES_PER_DAY = 2;
+    private static final int BATCH_SIZE = 100; // Matches HistoryWriteQueue.MAX_BATCH_SIZE
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private Context context;
+    private AppDatabase database;
+    private MedicationDao medicationDao;
+    private MedicationHistoryDao historyDao;
+
+    private final Random random = new Random(42);
+    private final Map<String, Stats> results = new LinkedHashMap<>();
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> medicationIds = new ArrayList<>();
+    private final Map<Integer, Integer> medicationOwners = new LinkedHashMap<>();
+    private long now;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
+                .allowMainThreadQueries()
+                .build();
+        medicationDao = database.medicationDao();
+        historyDao = database.medicationHistoryDao();
+        now = System.currentTimeMillis();
+        seed();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void benchmarkDaos() throws IOException {
+        benchmarkMedicationDao();
+        benchmarkMedicationHistoryDao();
+
+        printReport();
+        Baseline current = new Baseline(USERS, MEDICATIONS_PER_USER, HISTORY_YEARS, results);
+        if (UPDATE_BASELINE) {
+            writeBaseline(current);
+            System.out.println("Baseline written to " + BASELINE_FILE.getAbsolutePath());
+            return;
+        }
+
+        Baseline baseline = readBaseline();
+        assertNotNull("No baseline at " + BASELINE_FILE.getPath() + "; nothing was compared. Record one on this "
+                + "machine with -Pbenchmark.updateBaseline", baseline);
+        assumeTrue("Baseline was recorded at " + baseline.users + " users x " + baseline.medicationsPerUser
+                + " medications x " + baseline.historyYears + " years; not compared", baseline.hasSameVolume(current));
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Stats> entry : results.entrySet()) {
+            Stats base = baseline.operations.get(entry.getKey());
+            if (base == null) {
+                continue;
+            }
+            Stats stats = entry.getValue();
+            if (isRegression(stats.p50Us, base.p50Us, TOLERANCE)) {
+                regressions.add(entry.getKey() + " p50 " + base.p50Us + "us -> " + stats.p50Us + "us");
+            }
+            if (isRegression(stats.p99Us, base.p99Us, TOLERANCE * P99_TOLERANCE_FACTOR)) {
+                regressions.add(entry.getKey() + " p99 " + base.p99Us + "us -> " + stats.p99Us + "us");
+            }
+        }
+        assertTrue("Regressions beyond " + TOLERANCE + "x baseline:\n" + String.join("\n", regressions),
+                regressions.isEmpty());
+    }
+
+    private void benchmarkMedicationDao() {
+        List<Integer> created = new ArrayList<>();
+        long todayStart = DateTimeUtils.getStartOfDay(now);
+        long todayEnd = DateTimeUtils.getEndOfDay(now);
+
+        measure("insertMedication", SAMPLES, null, i -> created.add((int) medicationDao.insertMedication(
+                new Medication(user(i), "Bench " + i, "5mg", MedicationFrequency.ONCE_DAILY, 1, now))));
+        Medication[] updated = new Medication[1];
+        measure("updateMedication", SAMPLES,
+                i -> updated[0] = medicationDao.getMedicationById(medication(i)),
+                i -> medicationDao.updateMedication(updated[0]));
+        measure("updateMedicationDetails", SAMPLES,
+                i -> updated[0] = medicationDao.getMedicationById(medication(i)),
+                i -> medicationDao.updateMedicationDetails(updated[0]));
+        measure("getMedicationById", SAMPLES, null, i -> medicationDao.getMedicationById(medication(i)));
+        measure("getMedicationsForUser", SAMPLES, null, i -> medicationDao.getMedicationsForUser(user(i)));
+        measure("getActiveMedicationsForUser", SAMPLES, null,
+                i -> medicationDao.getActiveMedicationsForUser(user(i)));
+        measure("getMedicationsByName", SAMPLES, null,
+                i -> medicationDao.getMedicationsByName(user(i), "Medication " + (i % MEDICATIONS_PER_USER)));
+        measure("getMedicationsDueToday", SAMPLES, null,
+                i -> medicationDao.getMedicationsDueToday(user(i), todayStart, todayEnd));
+        measure("getTodayStatus", SAMPLES, null, i -> medicationDao.getTodayStatus(user(i), now));
+        measure("getMedicationsByFrequency", SAMPLES, null,
+                i -> medicationDao.getMedicationsByFrequency(user(i), MedicationFrequency.TWICE_DAILY.name()));
+        measure("isMedicationNameExists", SAMPLES, null,
+                i -> medicationDao.isMedicationNameExists(user(i), "Medication " + (i % MEDICATIONS_PER_USER)));
+        measure("getMedicationCount", SAMPLES, null, i -> medicationDao.getMedicationCount(user(i)));
+        measure("softDeleteMedication", SAMPLES, null,
+                i -> medicationDao.softDeleteMedication(created.get(i % created.size()), now));
+        measure("reactivateMedication", SAMPLES, null,
+                i -> medicationDao.reactivateMedication(created.get(i % created.size()), now));
+        measure("recordDoseTaken", SAMPLES, null,
+                i -> medicationDao.recordDoseTaken(medication(i), now, todayStart));
+        measure("refreshDoseCounters", SAMPLES, null,
+                i -> medicationDao.refreshDoseCounters(medication(i), todayStart, todayEnd));
+        measure("getMedicationIdsWithPendingCounters", SAMPLES, null,
+                i -> medicationDao.getMedicationIdsWithPendingCounters(50));
+        measure("getAllActiveMedications", SAMPLES, null, i -> medicationDao.getAllActiveMedications());
+        measure("getAllMedicationsForUser", SAMPLES, null, i -> medicationDao.getAllMedicationsForUser(user(i)));
+        measure("searchMedications", SAMPLES, null, i -> medicationDao.searchMedications(user(i), "%cation 1%"));
+        measure("deleteMedication", Math.min(SAMPLES, created.size() - WARMUP),
+                i -> updated[0] = medicationDao.getMedicationById(created.get(i)),
+                i -> medicationDao.deleteMedication(updated[0]));
+    }
+
+    private void benchmarkMedicationHistoryDao() {
+        int heavySamples = Math.max(10, SAMPLES / 10); // Calls that return a user's whole history
+        long todayStart = DateTimeUtils.getStartOfDay(now);
+        long todayEnd = DateTimeUtils.getEndOfDay(now);
+        long weekAgo = now - 7 * DAY_MS;
+        long monthAgo = now - 30 * DAY_MS;
+
+        List<Integer> inserted = new ArrayList<>();
+        measure("insertHistory", SAMPLES, null, i -> inserted.add((int) historyDao.insertHistory(history(i, now))));
+        List<List<Integer>> batches = new ArrayList<>();
+        measure("insertHistories", SAMPLES, null, i -> {
+            List<MedicationHistory> batch = new ArrayList<>(BATCH_SIZE);
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                batch.add(history(i, now - j * 1000L));
+            }
+            List<Integer> ids = new ArrayList<>(BATCH_SIZE);
+            for (long id : database.runInTransaction(() -> historyDao.insertHistories(batch))) {
+                ids.add((int) id);
+            }
+            batches.add(ids);
+        });
+
+        MedicationHistory[] row = new MedicationHistory[1];
+        measure("historyExists", SAMPLES, i -> row[0] = historyDao.getHistoryById(inserted.get(i % inserted.size())),
+                i -> historyDao.historyExists(row[0].getUserId(), row[0].getMedicationId(),
+                        row[0].getTakenAt(), row[0].getCreatedAt()));
+        measure("updateHistory", SAMPLES, i -> {
+            row[0] = historyDao.getHistoryById(inserted.get(i % inserted.size()));
+            row[0].setNotes("Sample " + i);
+        }, i -> historyDao.updateHistory(row[0]));
+        measure("getHistoryById", SAMPLES, null, i -> historyDao.getHistoryById(inserted.get(i % inserted.size())));
+        measure("getHistoryForUser", heavySamples, null, i -> historyDao.getHistoryForUser(user(i)));
+        measure("getHistoryCursorForUser", SAMPLES, null, i -> {
+            try (Cursor cursor = historyDao.getHistoryCursorForUser(user(i))) {
+                cursor.moveToFirst();
+            }
+        });
+        measure("getHistoryCountForUser", SAMPLES, null, i -> historyDao.getHistoryCountForUser(user(i)));
+        measure("getHistoryForMedication", heavySamples, null, i -> historyDao.getHistoryForMedication(medication(i)));
+        measure("getHistoryForUserAndMedication", heavySamples, null,
+                i -> historyDao.getHistoryForUserAndMedication(owner(i), medication(i)));
+        measure("getHistoryInDateRange", SAMPLES, null, i -> historyDao.getHistoryInDateRange(user(i), weekAgo, now));
+        measure("getMedicationHistoryInDateRange", SAMPLES, null,
+                i -> historyDao.getMedicationHistoryInDateRange(medication(i), monthAgo, now));
+        measure("getLastTakenForMedication", SAMPLES, null,
+                i -> historyDao.getLastTakenForMedication(medication(i)));
+        measure("getTotalDosesTaken", SAMPLES, null, i -> historyDao.getTotalDosesTaken(medication(i)));
+        measure("getDosesTakenInDateRange", SAMPLES, null,
+                i -> historyDao.getDosesTakenInDateRange(medication(i), monthAgo, now));
+        measure("getOnTimeDosesInDateRange", SAMPLES, null,
+                i -> historyDao.getOnTimeDosesInDateRange(medication(i), monthAgo, now));
+        measure("getAdherenceRate", SAMPLES, null, i -> historyDao.getAdherenceRate(medication(i), monthAgo, now));
+        measure("getTodayHistory", SAMPLES, null, i -> historyDao.getTodayHistory(user(i), todayStart, todayEnd));
+        measure("getRecentHistory", SAMPLES, null, i -> historyDao.getRecentHistory(user(i), weekAgo));
+        measure("wasTakenToday", SAMPLES, null, i -> historyDao.wasTakenToday(medication(i), todayStart, todayEnd));
+        measure("getHistoryByMethod", heavySamples, null,
+                i -> historyDao.getHistoryByMethod(user(i), MedicationHistory.TakenMethod.REMINDER.name()));
+        measure("getMedicationNamesWithHistory", SAMPLES, null,
+                i -> historyDao.getMedicationNamesWithHistory(user(i)));
+        measure("getOverallAdherenceRate", SAMPLES, null,
+                i -> historyDao.getOverallAdherenceRate(user(i), monthAgo, now));
+        measure("getHistoryOlderThan", SAMPLES, null,
+                i -> historyDao.getHistoryOlderThan(user(i), now - 365 * DAY_MS, 500));
+
+        measure("deleteHistory", Math.min(SAMPLES, inserted.size() - WARMUP),
+                i -> row[0] = historyDao.getHistoryById(inserted.get(i)),
+                i -> historyDao.deleteHistory(row[0]));
+        measure("deleteHistoryByIds", Math.min(SAMPLES, batches.size() - WARMUP), null,
+                i -> historyDao.deleteHistoryByIds(batches.get(i)));
+
+        // One medication's full history per sample, on throwaway medications
+        List<Integer> doomed = new ArrayList<>();
+        database.runInTransaction(() -> {
+            for (int i = 0; i < heavySamples + WARMUP; i++) {
+                int userId = user(i);
+                int medicationId = (int) medicationDao.insertMedication(new Medication(userId, "Doomed " + i,
+                        "1mg", MedicationFrequency.TWICE_DAILY, 2, now));
+                List<MedicationHistory> histories = new ArrayList<>();
+                for (int day = 0; day < 365; day++) {
+                    histories.add(new MedicationHistory(userId, medicationId, "Doomed " + i, "1mg",
+                            now - day * DAY_MS, MedicationHistory.TakenMethod.MANUAL));
+                }
+                historyDao.insertHistories(histories);
+                doomed.add(medicationId);
+            }
+        });
+        measure("deleteHistoryForMedication", heavySamples, null,
+                i -> historyDao.deleteHistoryForMedication(doomed.get(i)));
+    }
+
+    /**
+     * Run WARMUP untimed samples, then time the given number of samples
+     * The setup step runs before each sample and is not timed.
+     */
+    private void measure(String name, int samples, Step setup, Step timed) {
+        long[] micros = new long[samples];
+        for (int i = 0; i < WARMUP + samples; i++) {
+            if (setup != null) {
+                setup.run(i);
+            }
+            long start = System.nanoTime();
+            timed.run(i);
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP) {
+                micros[i - WARMUP] = TimeUnit.NANOSECONDS.toMicros(elapsed);
+            }
+        }
+        Arrays.sort(micros);
+        results.put(name, new Stats(percentile(micros, 50), percentile(micros, 99), samples));
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static boolean isRegression(long currentUs, long baselineUs, double tolerance) {
+        return currentUs > baselineUs * tolerance && currentUs - baselineUs > MIN_REGRESSION_US;
+    }
+
+    /**
+     * Seed users, medications and HISTORY_YEARS of twice-daily history
+     */
+    private void seed() {
+        long startTime = System.nanoTime();
+        long firstDay = DateTimeUtils.getStartOfDay(now) - HISTORY_YEARS * 365L * DAY_MS;
+        int rows = 0;
+
+        for (int u = 0; u < USERS; u++) {
+            int userId = (int) database.userDao().insertUser(
+                    new User("bench" + u, "bench" + u + "@example.com", "Bench User", "hash"));
+            userIds.add(userId);
+
+            for (int m = 0; m < MEDICATIONS_PER_USER; m++) {
+                String name = "Medication " + m;
+                int medicationId = (int) medicationDao.insertMedication(new Medication(userId, name, "10mg",
+                        MedicationFrequency.TWICE_DAILY, DOSES_PER_DAY, firstDay));
+                medicationIds.add(medicationId);
+                medicationOwners.put(medicationId, userId);
+
+                List<MedicationHistory> batch = new ArrayList<>();
+                for (long day = firstDay; day < now; day += DAY_MS) {
+                    for (int dose = 0; dose < DOSES_PER_DAY; dose++) {
+                        long scheduled = day + (8 + dose * 12) * 60 * 60 * 1000L;
+                        long takenAt = scheduled + (random.nextInt(120) - 30) * 60 * 1000L;
+                        if (takenAt > now) {
+                            continue;
+                        }
+                        batch.add(new MedicationHistory(userId, medicationId, name, "10mg", scheduled, takenAt,
+                                random.nextBoolean() ? MedicationHistory.TakenMethod.REMINDER
+                                        : MedicationHistory.TakenMethod.MANUAL));
+                    }
+                }
+                database.runInTransaction(() -> historyDao.insertHistories(batch));
+                rows += batch.size();
+            }
+        }
+
+        System.out.println("Seeded " + USERS + " users x " + MEDICATIONS_PER_USER + " medications x " +
+                HISTORY_YEARS + " years = " + rows + " history rows in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+    }
+
+    private int user(int i) {
+        return userIds.get(i % userIds.size());
+    }
+
+    private int medication(int i) {
+        return medicationIds.get(i % medicationIds.size());
+    }
+
+    private int owner(int i) {
+        return medicationOwners.get(medication(i));
+    }
+
+    private MedicationHistory history(int i, long takenAt) {
+        int medicationId = medication(i);
+        return new MedicationHistory(medicationOwners.get(medicationId), medicationId, "Sample", "10mg",
+                takenAt, MedicationHistory.TakenMethod.MANUAL);
+    }
+
+    private void printReport() {
+        StringBuilder report = new StringBuilder(String.format("%-36s %8s %10s %10s%n",
+                "operation", "samples", "p50 us", "p99 us"));
+        for (Map.Entry<String, Stats> entry : results.entrySet()) {
+            Stats stats = entry.getValue();
+            report.append(String.format("%-36s %8d %10d %10d%n", entry.getKey(), stats.samples,
+                    stats.p50Us, stats.p99Us));
+        }
+        System.out.println("DAO benchmark (" + USERS + " users x " + MEDICATIONS_PER_USER +
+                " medications x " + HISTORY_YEARS + " years)");
+        System.out.print(report);
+    }
+
+    private static Baseline readBaseline() throws IOException {
+        if (!BASELINE_FILE.exists()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(BASELINE_FILE)) {
+            return new Gson().fromJson(reader, Baseline.class);
+        }
+    }
+
+    private static void writeBaseline(Baseline baseline) throws IOException {
+        BASELINE_FILE.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(BASELINE_FILE)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(baseline, writer);
+        }
+    }
+
+    private interface Step {
+        void run(int i);
+    }
+
+    private static class Stats {
+        final long p50Us;
+        final long p99Us;
+        final int samples;
+
+        Stats(long p50Us, long p99Us, int samples) {
+            this.p50Us = p50Us;
+            this.p99Us = p99Us;
+            this.samples = samples;
+        }
+    }
+
+    // Serialized with Gson as the baseline file
+    private static class Baseline {
+        final int users;
+        final int medicationsPerUser;
+        final int historyYears;
+        final Map<String, Stats> operations;
+
+        Baseline(int users, int medicationsPerUser, int historyYears, Map<String, Stats> operations) {
+            this.users = users;
+            this.medicationsPerUser = medicationsPerUser;
+            this.historyYears = historyYears;
+            this.operations = operations;
+        }
+
+        boolean hasSameVolume(Baseline other) {
+            return users == other.users && medicationsPerUser == other.medicationsPerUser &&
+                    historyYears == other.historyYears;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.dosebuddy.benchmark;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryDao;
+import com.example.dosebuddy.database.StorageProfile;
+import com.example.dosebuddy.database.User;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the history write and range-query workload under every storage profile
+ * Results are printed, not asserted; host SQLite timings are only comparable
+ * with each other, not with a device. Excluded from normal runs; use
+ * ./gradlew testDebugUnitTest -PrunBenchmarks
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StorageProfileBenchmark {
+
+    private static final int SINGLE_INSERTS = 500;
+    private static final int BATCHED_INSERTS = 20000;
+    private static final int BATCH_SIZE = 100; // Matches HistoryWriteQueue.MAX_BATCH_SIZE
+    private static final int RANGE_QUERIES = 200;
+    private static final long DOSE_INTERVAL_MS = 6 * 60 * 60 * 1000L;
+    private static final long RANGE_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void benchmarkStorageProfiles() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        // Warm up class loading and the SQLite library
+        runWorkload(context, StorageProfile.DEFAULT, 50, 500, 20);
+
+        StringBuilder report = new StringBuilder(String.format(
+                "%-10s %-9s %14s %14s %14s%n", "profile", "journal",
+                "single ms", "batched ms", "range ms"));
+        for (StorageProfile profile : StorageProfile.values()) {
+            Result result = runWorkload(context, profile, SINGLE_INSERTS, BATCHED_INSERTS, RANGE_QUERIES);
+            report.append(String.format("%-10s %-9s %14d %14d %14d%n", profile.name(),
+                    result.journalMode, result.singleInsertMs, result.batchedInsertMs, result.rangeQueryMs));
+        }
+        System.out.println("Storage profile benchmark (" + SINGLE_INSERTS + " single inserts, " +
+                BATCHED_INSERTS + " batched inserts, " + RANGE_QUERIES + " 7-day range queries)");
+        System.out.print(report);
+    }
+
+    private Result runWorkload(Context context, StorageProfile profile, int singleInserts,
+                               int batchedInserts, int rangeQueries) {
+        String name = "benchmark_" + profile.name().toLowerCase() + ".db";
+        context.deleteDatabase(name);
+        AppDatabase database = profile.applyTo(Room.databaseBuilder(context, AppDatabase.class, name))
+                .allowMainThreadQueries()
+                .build();
+
+        try {
+            int userId = (int) database.userDao().insertUser(
+                    new User("bench", "bench@example.com", "Bench User", "hash"));
+            Medication medication = new Medication(userId, "Aspirin", "100mg",
+                    MedicationFrequency.FOUR_TIMES_DAILY, 4, 0);
+            int medicationId = (int) database.medicationDao().insertMedication(medication);
+            MedicationHistoryDao historyDao = database.medicationHistoryDao();
+
+            String journalMode;
+            try (Cursor cursor = database.getOpenHelper().getWritableDatabase().query("PRAGMA journal_mode")) {
+                cursor.moveToFirst();
+                journalMode = cursor.getString(0);
+            }
+
+            // Autocommit inserts, one per dose taken outside the write queue
+            long startTime = System.nanoTime();
+            for (int i = 0; i < singleInserts; i++) {
+                historyDao.insertHistory(newHistory(userId, medicationId, i));
+            }
+            long singleInsertMs = elapsedMs(startTime);
+
+            // Batched inserts, as written by HistoryWriteQueue and the importer
+            startTime = System.nanoTime();
+            for (int offset = 0; offset < batchedInserts; offset += BATCH_SIZE) {
+                List<MedicationHistory> batch = new ArrayList<>(BATCH_SIZE);
+                for (int i = offset; i < Math.min(offset + BATCH_SIZE, batchedInserts); i++) {
+                    batch.add(newHistory(userId, medicationId, singleInserts + i));
+                }
+                database.runInTransaction(() -> {
+                    historyDao.insertHistories(batch);
+                });
+            }
+            long batchedInsertMs = elapsedMs(startTime);
+
+            int totalRows = singleInserts + batchedInserts;
+            assertEquals(totalRows, historyDao.getHistoryCountForUser(userId));
+
+            // Week-long range queries at random points in the history
+            Random random = new Random(42);
+            long historySpan = totalRows * DOSE_INTERVAL_MS;
+            startTime = System.nanoTime();
+            int rowsRead = 0;
+            for (int i = 0; i < rangeQueries; i++) {
+                long from = (long) (random.nextDouble() * Math.max(1, historySpan - RANGE_MS));
+                rowsRead += historyDao.getHistoryInDateRange(userId, from, from + RANGE_MS).size();
+            }
+            long rangeQueryMs = elapsedMs(startTime);
+            assertTrue(rowsRead > 0);
+
+            return new Result(journalMode, singleInsertMs, batchedInsertMs, rangeQueryMs);
+        } finally {
+            database.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    private static MedicationHistory newHistory(int userId, int medicationId, int index) {
+        return new MedicationHistory(userId, medicationId, "Aspirin", "100mg",
+                index * DOSE_INTERVAL_MS, MedicationHistory.TakenMethod.MANUAL);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static class Result {
+        final String journalMode;
+        final long singleInsertMs;
+        final long batchedInsertMs;
+        final long rangeQueryMs;
+
+        Result(String journalMode, long singleInsertMs, long batchedInsertMs, long rangeQueryMs) {
+            this.journalMode = journalMode;
+            this.singleInsertMs = singleInsertMs;
+            this.batchedInsertMs = batchedInsertMs;
+            this.rangeQueryMs = rangeQueryMs;
+        }
+    }
+}
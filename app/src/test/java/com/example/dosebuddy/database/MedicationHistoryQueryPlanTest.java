@@ -0,0 +1,339 @@
+package com.example.dosebuddy.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for every statement the history, ledger, schedule and
+ * archive DAO queries issue, plus the medication queries that read those tables
+ * Statements are captured from Room's query callback, so the SQL checked is the
+ * generated SQL with its real bind arguments. Each DAO call must reach these tables
+ * through the indexes it was written for; a full scan of one fails the test unless
+ * the call reads every row on purpose. Inserts have no plan to check.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MedicationHistoryQueryPlanTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private static final List<String> CHECKED_TABLES = Arrays.asList(
+            "medication_history", "medication_history_archive", "dose_instance", "medication_schedule");
+
+    private static final String BY_USER = "index_medication_history_user_id_taken_at_is_on_time";
+    private static final String BY_MEDICATION = "index_medication_history_medication_id_taken_at_is_on_time";
+    private static final String BY_METHOD = "index_medication_history_user_id_taken_method_taken_at";
+    private static final String BY_ID = "INTEGER PRIMARY KEY";
+    private static final String LEDGER_BY_USER = "index_dose_instance_user_id_scheduled_time_status";
+    private static final String LEDGER_BY_MEDICATION = "index_dose_instance_medication_id_scheduled_time";
+    private static final String SCHEDULE_BY_MEDICATION = "sqlite_autoindex_medication_schedule_1"; // Primary key
+    private static final String SCHEDULE_BY_USER = "index_medication_schedule_user_id_minute_of_day";
+    private static final String SCHEDULE_BY_MINUTE = "index_medication_schedule_minute_of_day";
+    private static final String ARCHIVE_BY_MEDICATION = "sqlite_autoindex_medication_history_archive_1"; // Primary key
+    private static final String ARCHIVE_BY_USER = "index_medication_history_archive_user_id_month_start";
+
+    // One table access in a plan, e.g. "SEARCH medication_history USING COVERING INDEX x (user_id=?)"
+    // or "SCAN medication_history"; older SQLite builds write "SCAN TABLE medication_history".
+    // Newer builds name an aliased table by its alias only, e.g. "SEARCH h USING INDEX x"
+    private static final Pattern ACCESS = Pattern.compile(
+            "^(SCAN|SEARCH) (?:TABLE )?(\\w+)(?: AS \\w+)?(?: USING (?:COVERING )?(?:INDEX (\\w+)|(INTEGER PRIMARY KEY)))?.*$");
+    // A table alias in a statement, e.g. "FROM medication_history h" or "JOIN medications AS m"
+    private static final Pattern ALIAS = Pattern.compile(
+            "\\b(?:FROM|JOIN) (\\w+) (?:AS )?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private AppDatabase database;
+    private final List<CapturedQuery> captured = new ArrayList<>();
+    private boolean capturing;
+    private final List<String> failures = new ArrayList<>();
+
+    private int userId;
+    private int medicationId;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryCallback((sql, bindArgs) -> {
+                    if (capturing) {
+                        captured.add(new CapturedQuery(sql, bindArgs.toArray()));
+                    }
+                }, Runnable::run)
+                .build();
+
+        userId = (int) database.userDao().insertUser(
+                new User("plan", "plan@example.com", "Plan User", "hash"));
+        medicationId = (int) database.medicationDao().insertMedication(
+                new Medication(userId, "Aspirin", "100mg", MedicationFrequency.TWICE_DAILY, 2, 0));
+
+        List<MedicationHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            histories.add(new MedicationHistory(userId, medicationId, "Aspirin", "100mg",
+                    i * DAY_MS / 2, MedicationHistory.TakenMethod.MANUAL));
+        }
+        database.medicationHistoryDao().insertHistories(histories);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testHistoryQueriesUseIndexes() {
+        MedicationHistoryDao dao = database.medicationHistoryDao();
+        long from = 5 * DAY_MS;
+        long to = 12 * DAY_MS;
+        MedicationHistory history = dao.getHistoryById(1);
+
+        // The user and medication indexes serve equality on both columns equally well
+        check("historyExists", () -> dao.historyExists(userId, medicationId, history.getTakenAt(),
+                history.getCreatedAt()), BY_USER, BY_MEDICATION);
+        check("getHistoryById", () -> dao.getHistoryById(1), BY_ID);
+        check("updateHistory", () -> dao.updateHistory(history), BY_ID);
+        check("getHistoryForUser", () -> dao.getHistoryForUser(userId), BY_USER);
+        check("getHistoryCursorForUser", () -> {
+            try (Cursor cursor = dao.getHistoryCursorForUser(userId)) {
+                cursor.moveToFirst();
+            }
+        }, BY_USER);
+        // Both user_id-leading indexes cover a count or a name list
+        check("getHistoryCountForUser", () -> dao.getHistoryCountForUser(userId), BY_USER, BY_METHOD);
+        check("getHistoryForMedication", () -> dao.getHistoryForMedication(medicationId), BY_MEDICATION);
+        check("getHistoryForUserAndMedication", () -> dao.getHistoryForUserAndMedication(userId, medicationId),
+                BY_USER, BY_MEDICATION);
+        check("getHistoryInDateRange", () -> dao.getHistoryInDateRange(userId, from, to), BY_USER);
+        check("getMedicationHistoryInDateRange", () -> dao.getMedicationHistoryInDateRange(medicationId, from, to),
+                BY_MEDICATION);
+        check("getLastTakenForMedication", () -> dao.getLastTakenForMedication(medicationId), BY_MEDICATION);
+        check("getTotalDosesTaken", () -> dao.getTotalDosesTaken(medicationId), BY_MEDICATION);
+        check("getDosesTakenInDateRange", () -> dao.getDosesTakenInDateRange(medicationId, from, to),
+                BY_MEDICATION);
+        check("getOnTimeDosesInDateRange", () -> dao.getOnTimeDosesInDateRange(medicationId, from, to),
+                BY_MEDICATION);
+        check("getAdherenceRate", () -> dao.getAdherenceRate(medicationId, from, to), BY_MEDICATION);
+        check("getTodayHistory", () -> dao.getTodayHistory(userId, from, from + DAY_MS - 1), BY_USER);
+        check("getRecentHistory", () -> dao.getRecentHistory(userId, from), BY_USER);
+        check("wasTakenToday", () -> dao.wasTakenToday(medicationId, from, from + DAY_MS - 1), BY_MEDICATION);
+        check("getHistoryByMethod", () -> dao.getHistoryByMethod(userId,
+                MedicationHistory.TakenMethod.MANUAL.name()), BY_METHOD);
+        check("getMedicationNamesWithHistory", () -> dao.getMedicationNamesWithHistory(userId),
+                BY_USER, BY_METHOD);
+        check("getOverallAdherenceRate", () -> dao.getOverallAdherenceRate(userId, from, to), BY_USER);
+        check("getHistoryOlderThan", () -> dao.getHistoryOlderThan(userId, from, 10), BY_USER);
+        check("deleteHistoryByIds", () -> dao.deleteHistoryByIds(Arrays.asList(2, 3)), BY_ID);
+        check("deleteHistory", () -> dao.deleteHistory(history), BY_ID);
+        check("refreshDoseCounters", () -> database.medicationDao().refreshDoseCounters(medicationId,
+                from, from + DAY_MS - 1), BY_MEDICATION, ARCHIVE_BY_MEDICATION);
+        // Reads the denormalized counters, not history; joins each medication's slots
+        check("getTodayStatus", () -> database.medicationDao().getTodayStatus(userId, from),
+                SCHEDULE_BY_MEDICATION);
+        check("deleteHistoryForMedication", () -> dao.deleteHistoryForMedication(medicationId), BY_MEDICATION);
+
+        assertTrue("Unexpected query plans:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void testLedgerQueriesUseIndexes() {
+        DoseInstanceDao dao = database.doseInstanceDao();
+        long from = 5 * DAY_MS;
+        long to = 12 * DAY_MS;
+        dao.insertInstances(Arrays.asList(new DoseInstance(userId, medicationId, from),
+                new DoseInstance(userId, medicationId, to)));
+
+        check("deletePendingFrom", () -> dao.deletePendingFrom(medicationId, to), LEDGER_BY_MEDICATION);
+        check("getLatestScheduledTime", () -> dao.getLatestScheduledTime(userId), LEDGER_BY_USER);
+        check("findClosestUnresolved", () -> dao.findClosestUnresolved(medicationId, from,
+                from - DAY_MS / 2, from + DAY_MS / 2), LEDGER_BY_MEDICATION);
+        check("resolveInstance", () -> dao.resolveInstance(1, DoseInstance.Status.TAKEN.name(), 1, to), BY_ID);
+        check("reopenForHistory", () -> dao.reopenForHistory(medicationId, from - DAY_MS / 2,
+                from + DAY_MS / 2, 1), LEDGER_BY_MEDICATION);
+        check("clearHistoryLinks", () -> dao.clearHistoryLinks(userId, from - DAY_MS / 2, to + DAY_MS / 2,
+                Arrays.asList(1, 2)), LEDGER_BY_USER);
+        check("getInstancesInDateRange", () -> dao.getInstancesInDateRange(userId, from, to), LEDGER_BY_USER);
+        check("getMissedDoses", () -> dao.getMissedDoses(userId, from, to), LEDGER_BY_USER);
+        // Probes history for every overdue ledger row; either side may drive the join
+        check("getOverdueDoses", () -> dao.getOverdueDoses(userId, 0, to, DAY_MS / 4, DAY_MS / 4, 50),
+                LEDGER_BY_USER, LEDGER_BY_MEDICATION, BY_USER, BY_MEDICATION);
+        check("markMissed", () -> dao.markMissed(Arrays.asList(1, 2), to), BY_ID);
+        check("getStatusCountsForUser", () -> dao.getStatusCountsForUser(userId, from, to), LEDGER_BY_USER);
+        check("getStatusCountsForMedication", () -> dao.getStatusCountsForMedication(medicationId, from, to),
+                LEDGER_BY_MEDICATION);
+        check("getTrueAdherenceRate", () -> dao.getTrueAdherenceRate(userId, from, to), LEDGER_BY_USER);
+        check("getTrueAdherenceRateForMedication", () -> dao.getTrueAdherenceRateForMedication(medicationId,
+                from, to), LEDGER_BY_MEDICATION);
+
+        assertTrue("Unexpected query plans:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void testScheduleQueriesUseIndexes() {
+        MedicationScheduleDao dao = database.medicationScheduleDao();
+        dao.replaceSlots(medicationId, userId, Arrays.asList(8 * 60, 20 * 60));
+
+        check("getSlotsForMedication", () -> dao.getSlotsForMedication(medicationId), SCHEDULE_BY_MEDICATION);
+        check("getMinutesForMedication", () -> dao.getMinutesForMedication(medicationId), SCHEDULE_BY_MEDICATION);
+        check("getSlotsForUser", () -> dao.getSlotsForUser(userId), SCHEDULE_BY_USER);
+        // Either the slot's time or its medication may drive the join with medications
+        check("getDueSlots", () -> dao.getDueSlots(8 * 60, 8 * 60 + 15, 1),
+                SCHEDULE_BY_MINUTE, SCHEDULE_BY_MEDICATION);
+        check("getNextSlotForUser", () -> dao.getNextSlotForUser(userId, 12 * 60, 1),
+                SCHEDULE_BY_USER, SCHEDULE_BY_MEDICATION);
+        checkBulk("getSlotsForActiveMedications", dao::getSlotsForActiveMedications);
+        check("deleteSlotsForMedication", () -> dao.deleteSlotsForMedication(medicationId),
+                SCHEDULE_BY_MEDICATION);
+
+        assertTrue("Unexpected query plans:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void testArchiveQueriesUseIndexes() {
+        MedicationHistoryArchiveDao dao = database.medicationHistoryArchiveDao();
+
+        check("getMonth", () -> dao.getMonth(medicationId, 0), ARCHIVE_BY_MEDICATION);
+        check("getArchiveForUser", () -> dao.getArchiveForUser(userId), ARCHIVE_BY_USER);
+        check("getArchivedDoseCount", () -> dao.getArchivedDoseCount(userId), ARCHIVE_BY_USER);
+
+        assertTrue("Unexpected query plans:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * Run one DAO call and check the plan of every statement it issued
+     * Every access to a checked table must be a SEARCH. With expected indexes given,
+     * each such access must use one of them, and there must be at least one.
+     */
+    private void check(String name, Runnable call, String... expectedIndexes) {
+        List<String> expected = Arrays.asList(expectedIndexes);
+        boolean usedExpected = false;
+        for (Access access : explainCall(name, call)) {
+            if (access.scan) {
+                failures.add(name + ": " + access);
+            } else if (expected.isEmpty() || expected.contains(access.index)) {
+                usedExpected = true;
+            } else {
+                failures.add(name + ": expected " + expected + ", got " + access);
+            }
+        }
+        if (!expected.isEmpty() && !usedExpected) {
+            failures.add(name + ": did not use any of " + expected);
+        }
+    }
+
+    /**
+     * Run a DAO call that reads every row on purpose, so scans are allowed
+     */
+    private void checkBulk(String name, Runnable call) {
+        explainCall(name, call);
+    }
+
+    /**
+     * Run one DAO call and explain every statement it issued
+     * @return Accesses to checked tables
+     */
+    private List<Access> explainCall(String name, Runnable call) {
+        captured.clear();
+        capturing = true;
+        call.run();
+        capturing = false;
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        List<Access> accesses = new ArrayList<>();
+        boolean explained = false;
+        for (CapturedQuery query : captured) {
+            if (!query.isExplainable()) {
+                continue;
+            }
+            explained = true;
+            Map<String, String> aliases = aliases(query.sql);
+            for (String detail : explain(db, query)) {
+                Matcher matcher = ACCESS.matcher(detail);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String table = aliases.getOrDefault(matcher.group(2), matcher.group(2));
+                if (CHECKED_TABLES.contains(table)) {
+                    String index = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+                    accesses.add(new Access(matcher.group(1).equals("SCAN"), index, detail, query.sql));
+                }
+            }
+        }
+        if (!explained) {
+            failures.add(name + ": no statements captured");
+        }
+        return accesses;
+    }
+
+    private static Map<String, String> aliases(String sql) {
+        Map<String, String> aliases = new HashMap<>();
+        Matcher matcher = ALIAS.matcher(sql);
+        while (matcher.find()) {
+            aliases.put(matcher.group(2), matcher.group(1));
+        }
+        return aliases;
+    }
+
+    private static List<String> explain(SupportSQLiteDatabase db, CapturedQuery query) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query(new SimpleSQLiteQuery("EXPLAIN QUERY PLAN " + query.sql, query.bindArgs))) {
+            int detailColumn = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailColumn));
+            }
+        }
+        return details;
+    }
+
+    private static class Access {
+        final boolean scan;
+        final String index; // null for a scan without one
+        final String detail;
+        final String sql;
+
+        Access(boolean scan, String index, String detail, String sql) {
+            this.scan = scan;
+            this.index = index;
+            this.detail = detail;
+            this.sql = sql;
+        }
+
+        @Override
+        public String toString() {
+            return detail + " <- " + sql;
+        }
+    }
+
+    private static class CapturedQuery {
+        final String sql;
+        final Object[] bindArgs;
+
+        CapturedQuery(String sql, Object[] bindArgs) {
+            this.sql = sql;
+            this.bindArgs = bindArgs;
+        }
+
+        boolean isExplainable() {
+            String verb = sql.trim().split("\\s+", 2)[0].toUpperCase();
+            return verb.equals("SELECT") || verb.equals("UPDATE") || verb.equals("DELETE");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.dosebuddy.database;
+
+import android.database.Cursor;
+
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs each step in Migrations against the schemas exported to app/schemas
+ * MigrationTestHelper creates the older version from its JSON file and, after the
+ * step, checks every table, index and foreign key against the newer one, so a
+ * step and the schema it claims to produce can't drift apart.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MigrationStepTest {
+
+    private static final String DATABASE_NAME = "migration_step_test.db";
+    private static final int FIRST_VERSION = 3;
+    private static final int LATEST_VERSION = 8;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    @Test
+    public void testEachStepMatchesTheExportedSchema() throws Exception {
+        assertEquals(LATEST_VERSION - FIRST_VERSION, Migrations.ALL.length);
+        for (Migration migration : Migrations.ALL) {
+            String name = migration.startVersion + "_" + DATABASE_NAME;
+            helper.createDatabase(name, migration.startVersion).close();
+            helper.runMigrationsAndValidate(name, migration.endVersion, true, migration).close();
+        }
+    }
+
+    @Test
+    public void testFullUpgradeMatchesTheExportedSchema() throws Exception {
+        helper.createDatabase(DATABASE_NAME, FIRST_VERSION).close();
+        helper.runMigrationsAndValidate(DATABASE_NAME, LATEST_VERSION, true, Migrations.ALL).close();
+    }
+
+    @Test
+    public void testScheduleMigrationKeepsPickedTimes() throws Exception {
+        int morning = 7 * 60 + 30;
+        int evening = 21 * 60 + 15;
+
+        SupportSQLiteDatabase db = helper.createDatabase(DATABASE_NAME, 4);
+        db.execSQL("INSERT INTO `users` VALUES (1, 'seed', 'seed@example.com', 'Seed User', 'hash', 0, 1)");
+        insertMedication(db, 1, "TWICE_DAILY", 2, "[" + epochMillisAt(evening) + "," + epochMillisAt(morning) + "]");
+        insertMedication(db, 2, "TWICE_DAILY", 2, null);
+        insertMedication(db, 3, "TWICE_DAILY", 2, "[\"08:00\",\"20:00\"]");
+        insertMedication(db, 4, "AS_NEEDED", 1, "[" + epochMillisAt(morning) + "]");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(DATABASE_NAME, 5, true, Migrations.MIGRATION_4_5);
+
+        // Epoch millis keep their time of day in the device's zone, sorted
+        assertEquals(Arrays.asList(morning, evening), minutesFor(db, 1));
+        // Missing or unparseable times get the frequency's defaults
+        assertEquals(Arrays.asList(8 * 60, 20 * 60), minutesFor(db, 2));
+        assertEquals(Arrays.asList(8 * 60, 20 * 60), minutesFor(db, 3));
+        // As-needed medications have no slots
+        assertEquals(Collections.emptyList(), minutesFor(db, 4));
+        db.close();
+    }
+
+    private static void insertMedication(SupportSQLiteDatabase db, int id, String frequency, int timesPerDay,
+                                         String specificTimes) {
+        db.execSQL("INSERT INTO `medications` VALUES (?, 1, ?, '10mg', ?, ?, ?, 0, NULL, NULL, 1, 0, 0)",
+                new Object[]{id, "Medication " + id, frequency, timesPerDay, specificTimes});
+    }
+
+    private static List<Integer> minutesFor(SupportSQLiteDatabase db, int medicationId) {
+        List<Integer> minutes = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT minute_of_day FROM medication_schedule " +
+                "WHERE medication_id = ? ORDER BY minute_of_day", new Object[]{medicationId})) {
+            while (cursor.moveToNext()) {
+                minutes.add(cursor.getInt(0));
+            }
+        }
+        return minutes;
+    }
+
+    /**
+     * A time picked on an earlier day, in the device's time zone
+     */
+    private static long epochMillisAt(int minuteOfDay) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -30);
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.dosebuddy.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a seeded version 3 database (the last release before explicit
+ * migrations) to the current version through Migrations.ALL
+ * Room validates the migrated schema against the entities when it opens, so a
+ * migration that leaves a column, index or foreign key different fails here.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MigrationTest {
+
+    private static final String DATABASE_NAME = "migration_test.db";
+    private static final int HISTORY_ROWS = 100_000;
+    private static final int MEDICATIONS = 120;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    // Seeded dose times; not the TWICE_DAILY defaults, so the fallback can't pass for them
+    private static final int MORNING_MINUTE = 7 * 60 + 30;
+    private static final int EVENING_MINUTE = 21 * 60 + 15;
+
+    // Host SQLite is several times faster than a phone; this keeps the first
+    // open after an update well under a second on device
+    private static final long UPGRADE_BUDGET_MS = 3000;
+
+    private Context context;
+    private AppDatabase database;
+    private long now;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        now = System.currentTimeMillis();
+        seedVersion3Database();
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void testUpgradeFromVersion3WithinBudget() {
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
+                .addMigrations(Migrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+
+        long startTime = System.nanoTime();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        long upgradeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertTrue("Upgrade 3 -> " + db.getVersion() + " with " + HISTORY_ROWS + " history rows took "
+                + upgradeMs + "ms", upgradeMs < UPGRADE_BUDGET_MS);
+        assertEquals(HISTORY_ROWS, database.medicationHistoryDao().getHistoryCountForUser(1));
+        assertEquals(MEDICATIONS, database.medicationDao().getAllActiveMedications().size());
+        for (int medicationId : new int[]{1, MEDICATIONS}) {
+            assertEquals(Arrays.asList(MORNING_MINUTE, EVENING_MINUTE),
+                    database.medicationScheduleDao().getMinutesForMedication(medicationId));
+        }
+
+        // Counters are left to the deferred backfill rather than computed in the migration
+        assertTrue(DeferredBackfill.hasPendingWork(db));
+    }
+
+    @Test
+    public void testDeferredBackfillResumesInChunks() {
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
+                .addMigrations(Migrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        // A stopped run leaves the rest pending for the next one
+        assertEquals(DeferredBackfill.CHUNK_SIZE, DeferredBackfill.runChunk(database, now));
+        assertTrue(DeferredBackfill.hasPendingWork(db));
+
+        int filled = DeferredBackfill.CHUNK_SIZE;
+        int chunk;
+        while ((chunk = DeferredBackfill.runChunk(database, now)) > 0) {
+            filled += chunk;
+        }
+        assertEquals(MEDICATIONS, filled);
+        assertFalse(DeferredBackfill.hasPendingWork(db));
+
+        long todayStart = DateTimeUtils.getStartOfDay(now);
+        long todayEnd = DateTimeUtils.getEndOfDay(now);
+        MedicationHistoryDao historyDao = database.medicationHistoryDao();
+        for (int medicationId : new int[]{1, MEDICATIONS / 2, MEDICATIONS}) {
+            Medication medication = database.medicationDao().getMedicationById(medicationId);
+            MedicationHistory last = historyDao.getLastTakenForMedication(medicationId);
+            assertEquals(Long.valueOf(last.getTakenAt()), medication.getLastTakenAt());
+            assertEquals(historyDao.getMedicationHistoryInDateRange(medicationId, todayStart, todayEnd).size(),
+                    medication.getDosesTakenOn(todayStart));
+        }
+    }
+
+    @Test
+    public void testPendingCountersIgnoreNewDosesUntilBackfilled() {
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
+                .addMigrations(Migrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+
+        long todayStart = DateTimeUtils.getStartOfDay(now);
+        MedicationHistory history = new MedicationHistory(1, 1, "Medication 1", "10mg",
+                now, MedicationHistory.TakenMethod.MANUAL);
+        database.runInTransaction(() -> {
+            database.medicationHistoryDao().insertHistory(history);
+            assertEquals(0, database.medicationDao().recordDoseTaken(1, now, todayStart));
+        });
+
+        while (DeferredBackfill.runChunk(database, now) > 0) {
+            // Drain
+        }
+        Medication medication = database.medicationDao().getMedicationById(1);
+        assertEquals(Long.valueOf(now), medication.getLastTakenAt());
+        assertEquals(database.medicationHistoryDao().getMedicationHistoryInDateRange(1, todayStart,
+                DateTimeUtils.getEndOfDay(now)).size(), medication.getDosesTakenOn(todayStart));
+    }
+
+    /**
+     * Create the version 3 schema as Room generated it and fill it with history
+     */
+    private void seedVersion3Database() {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        file.getParentFile().mkdirs();
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `users` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`username` TEXT, `email` TEXT, `full_name` TEXT, `password_hash` TEXT, " +
+                    "`created_at` INTEGER NOT NULL, `is_active` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_users_username` ON `users` (`username`)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_users_email` ON `users` (`email`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `medications` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`user_id` INTEGER NOT NULL, `name` TEXT, `dosage` TEXT, `frequency` TEXT, " +
+                    "`times_per_day` INTEGER NOT NULL, `specific_times` TEXT, `start_date` INTEGER NOT NULL, " +
+                    "`end_date` INTEGER, `notes` TEXT, `is_active` INTEGER NOT NULL, `created_at` INTEGER NOT NULL, " +
+                    "`updated_at` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`user_id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medications_user_id` ON `medications` (`user_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medications_user_id_name` ON `medications` (`user_id`, `name`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `medication_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`user_id` INTEGER NOT NULL, `medication_id` INTEGER NOT NULL, `medication_name` TEXT, " +
+                    "`medication_dosage` TEXT, `scheduled_time` INTEGER, `taken_at` INTEGER NOT NULL, " +
+                    "`taken_method` TEXT, `is_on_time` INTEGER NOT NULL, `notes` TEXT, `created_at` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`user_id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`medication_id`) REFERENCES `medications`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_user_id` ON `medication_history` (`user_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_medication_id` ON `medication_history` (`medication_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_user_id_medication_id_taken_at` " +
+                    "ON `medication_history` (`user_id`, `medication_id`, `taken_at`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_medication_history_taken_at` ON `medication_history` (`taken_at`)");
+
+            // Version 4 stored the picked times as epoch millis
+            String specificTimes = "[" + epochMillisAt(MORNING_MINUTE) + "," + epochMillisAt(EVENING_MINUTE) + "]";
+
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO `users` VALUES (1, 'seed', 'seed@example.com', 'Seed User', 'hash', ?, 1)",
+                        new Object[]{now});
+                for (int i = 1; i <= MEDICATIONS; i++) {
+                    db.execSQL("INSERT INTO `medications` VALUES (?, 1, ?, '10mg', 'TWICE_DAILY', 2, " +
+                            "?, 0, NULL, NULL, 1, ?, ?)",
+                            new Object[]{i, "Medication " + i, specificTimes, now, now});
+                }
+
+                SQLiteStatement insert = db.compileStatement("INSERT INTO `medication_history` " +
+                        "(`user_id`, `medication_id`, `medication_name`, `medication_dosage`, `scheduled_time`, " +
+                        "`taken_at`, `taken_method`, `is_on_time`, `notes`, `created_at`) " +
+                        "VALUES (1, ?, ?, '10mg', ?, ?, 'REMINDER', ?, NULL, ?)");
+                for (int i = 0; i < HISTORY_ROWS; i++) {
+                    int medicationId = i % MEDICATIONS + 1;
+                    long takenAt = now - (long) (i / MEDICATIONS) * HOUR_MS;
+                    insert.bindLong(1, medicationId);
+                    insert.bindString(2, "Medication " + medicationId);
+                    insert.bindLong(3, takenAt);
+                    insert.bindLong(4, takenAt);
+                    insert.bindLong(5, i % 7 == 0 ? 0 : 1);
+                    insert.bindLong(6, takenAt);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.setVersion(3);
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * A time picked on an earlier day, in the device's time zone
+     */
+    private long epochMillisAt(int minuteOfDay) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.add(Calendar.DAY_OF_MONTH, -30);
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.dosebuddy.database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Moves one of two users out of the shared database and checks where each row ends up
+ * The app databases refuse main-thread queries, so the work runs on a background thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class UserDatabaseMigratorTest {
+
+    private Context context;
+    private ExecutorService executor;
+
+    private int movedUserId;
+    private int stayingUserId;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        executor = Executors.newSingleThreadExecutor();
+        AppDatabase.setDatabasePerUser(context, true);
+
+        onBackground(() -> {
+            AppDatabase shared = AppDatabase.getInstance(context);
+            movedUserId = seedUser(shared, "moved");
+            stayingUserId = seedUser(shared, "staying");
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        AppDatabase.deleteUserDatabase(context, movedUserId);
+        AppDatabase.destroyInstance();
+        context.deleteDatabase(AppDatabase.DATABASE_NAME);
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE).edit().clear().commit();
+    }
+
+    @Test
+    public void testMoveSplitsUserDataOutOfSharedDatabase() throws Exception {
+        int moved = onBackground(() -> UserDatabaseMigrator.moveToUserDatabase(context, movedUserId));
+
+        // users row, one medication, three history records
+        assertEquals(5, moved);
+        assertTrue(AppDatabase.hasUserDatabase(context, movedUserId));
+        assertFalse(AppDatabase.hasUserDatabase(context, stayingUserId));
+
+        onBackground(() -> {
+            AppDatabase shared = AppDatabase.getInstance(context);
+            AppDatabase own = AppDatabase.getInstance(context, movedUserId);
+            assertNotSame(shared, own);
+            assertSame(shared, AppDatabase.getInstance(context, stayingUserId));
+
+            // The account stays in the shared file for sign-in
+            assertNotNull(shared.userDao().getUserById(movedUserId));
+            assertTrue(shared.medicationDao().getActiveMedicationsForUser(movedUserId).isEmpty());
+            assertEquals(0, shared.medicationHistoryDao().getHistoryCountForUser(movedUserId));
+            assertEquals(1, shared.medicationDao().getActiveMedicationsForUser(stayingUserId).size());
+            assertEquals(3, shared.medicationHistoryDao().getHistoryCountForUser(stayingUserId));
+
+            assertEquals(1, own.medicationDao().getActiveMedicationsForUser(movedUserId).size());
+            assertEquals(3, own.medicationHistoryDao().getHistoryCountForUser(movedUserId));
+            assertTrue(own.medicationDao().getActiveMedicationsForUser(stayingUserId).isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void testNewMedicationIdsComeFromTheUsersBlock() throws Exception {
+        onBackground(() -> UserDatabaseMigrator.moveToUserDatabase(context, movedUserId));
+
+        long id = onBackground(() -> AppDatabase.getInstance(context, movedUserId).medicationDao()
+                .insertMedication(new Medication(movedUserId, "Ibuprofen", "200mg",
+                        MedicationFrequency.ONCE_DAILY, 1, 0)));
+        assertEquals(movedUserId * UserDatabaseMigrator.MEDICATION_ID_BLOCK + 1, id);
+    }
+
+    @Test
+    public void testUserPastTheLastIdBlockIsNotMoved() throws Exception {
+        int userId = UserDatabaseMigrator.MAX_USER_ID + 1;
+        onBackground(() -> {
+            User user = new User("late", "late@example.com", "late", "hash");
+            user.setId(userId);
+            return AppDatabase.getInstance(context).userDao().insertUser(user);
+        });
+
+        try {
+            onBackground(() -> UserDatabaseMigrator.moveToUserDatabase(context, userId));
+            fail("Expected the move to be refused");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertFalse(AppDatabase.hasUserDatabase(context, userId));
+        assertFalse(context.getDatabasePath(AppDatabase.getUserDatabaseName(userId)).exists());
+    }
+
+    @Test
+    public void testMoveIsSkippedWhenDisabled() throws Exception {
+        AppDatabase.setDatabasePerUser(context, false);
+        onBackground(() -> {
+            UserDatabaseMigrator.moveIfEnabled(context, movedUserId);
+            return null;
+        });
+
+        assertFalse(AppDatabase.hasUserDatabase(context, movedUserId));
+        assertFalse(context.getDatabasePath(AppDatabase.getUserDatabaseName(movedUserId)).exists());
+    }
+
+    @Test
+    public void testDeleteUserDatabaseRemovesFile() throws Exception {
+        onBackground(() -> UserDatabaseMigrator.moveToUserDatabase(context, movedUserId));
+        assertTrue(context.getDatabasePath(AppDatabase.getUserDatabaseName(movedUserId)).exists());
+
+        assertTrue(AppDatabase.deleteUserDatabase(context, movedUserId));
+        assertFalse(AppDatabase.hasUserDatabase(context, movedUserId));
+        assertFalse(context.getDatabasePath(AppDatabase.getUserDatabaseName(movedUserId)).exists());
+    }
+
+    private static int seedUser(AppDatabase database, String name) {
+        int userId = (int) database.userDao().insertUser(
+                new User(name, name + "@example.com", name, "hash"));
+        int medicationId = (int) database.medicationDao().insertMedication(
+                new Medication(userId, "Aspirin", "100mg", MedicationFrequency.TWICE_DAILY, 2, 0));
+        for (int i = 1; i <= 3; i++) {
+            database.medicationHistoryDao().insertHistory(new MedicationHistory(userId, medicationId,
+                    "Aspirin", "100mg", i * 1000L, MedicationHistory.TakenMethod.MANUAL));
+        }
+        return userId;
+    }
+
+    private <T> T onBackground(Callable<T> task) throws Exception {
+        return executor.submit(task).get();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dosebuddy.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the fixed-bucket latency histogram
+ */
+public class LatencyHistogramTest {
+
+    private static final long[] BOUNDS = {10, 20, 50, 100};
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram(BOUNDS);
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testValuesLandInInclusiveBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram(BOUNDS);
+        histogram.record(10);
+        histogram.record(11);
+        histogram.record(100);
+        histogram.record(101);
+
+        assertArrayEquals(new long[]{1, 1, 0, 1, 1}, histogram.getCounts());
+        assertEquals(4, histogram.getCount());
+        assertEquals(222, histogram.getSum());
+        assertEquals(101, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentilesReportBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram(BOUNDS);
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(40);
+        }
+        histogram.record(500);
+
+        assertEquals(10, histogram.getPercentile(50));
+        assertEquals(50, histogram.getPercentile(95));
+        assertEquals(50, histogram.getPercentile(99));
+        assertEquals(500, histogram.getPercentile(100)); // Overflow reports the maximum
+    }
+
+    @Test
+    public void testPercentileNeverExceedsMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram(BOUNDS);
+        histogram.record(60);
+        assertEquals(60, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram(BOUNDS);
+        histogram.record(30);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getMax());
+    }
+}
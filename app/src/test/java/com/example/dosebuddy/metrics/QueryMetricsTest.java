@@ -0,0 +1,154 @@
+package com.example.dosebuddy.metrics;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DAO timing and the slow-query log
+ * Uses the process-wide registry, which AppDatabase's DAO getters report to.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryMetricsTest {
+
+    private Context context;
+    private AppDatabase database;
+    private QueryMetrics metrics;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        metrics = QueryMetrics.getInstance();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryCallback(metrics::onQuery, Runnable::run)
+                .build();
+
+        userId = (int) database.userDao().insertUser(new User("metrics", "metrics@example.com", "Metrics User", "hash"));
+        database.medicationDao().insertMedication(
+                new Medication(userId, "Aspirin", "100mg", MedicationFrequency.ONCE_DAILY, 1, 0));
+        database.medicationDao().insertMedication(
+                new Medication(userId, "Ibuprofen", "200mg", MedicationFrequency.TWICE_DAILY, 2, 0));
+        metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        metrics.reset();
+        context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE).edit().clear().commit();
+        metrics.loadSettings(context);
+    }
+
+    @Test
+    public void testDaoCallsAreTimedWithRowsAndThread() {
+        database.medicationDao().getMedicationsForUser(userId);
+        database.medicationDao().getMedicationsForUser(userId);
+
+        QueryMetrics.QueryStats stats = find("MedicationDao.getMedicationsForUser");
+        assertEquals(2, stats.getLatencyUs().getCount());
+        assertEquals(4, stats.getRows());
+        long calls = 0;
+        for (long threadCalls : stats.getThreads().values()) {
+            calls += threadCalls;
+        }
+        assertEquals(2, calls);
+    }
+
+    @Test
+    public void testOnlySlowCallsAreLoggedWithTheirSql() {
+        metrics.setSlowQueryThresholdMs(context, 60_000);
+        database.medicationDao().getMedicationsByName(userId, "Aspirin");
+        assertTrue(metrics.getSlowQueries().isEmpty());
+
+        metrics.setSlowQueryThresholdMs(context, 0);
+        database.medicationDao().getMedicationsByName(userId, "Aspirin");
+
+        List<QueryMetrics.SlowQuery> slow = metrics.getSlowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("MedicationDao.getMedicationsByName", slow.get(0).name);
+        assertEquals(1, slow.get(0).rows);
+        assertFalse(slow.get(0).statements.isEmpty());
+        assertTrue(slow.get(0).statements.get(0).contains("FROM medications"));
+    }
+
+    @Test
+    public void testBindArgumentsAreRedacted() {
+        metrics.setSlowQueryThresholdMs(context, 0);
+        database.medicationDao().getMedicationsByName(userId, "Aspirin");
+        database.userDao().getUserByUsername("metrics");
+
+        List<QueryMetrics.SlowQuery> slow = metrics.getSlowQueries(); // Newest first
+        String medications = slow.get(1).statements.get(0);
+        assertTrue(medications.endsWith("[2 args: INTEGER, TEXT]"));
+        assertFalse(medications.contains("Aspirin"));
+        String users = slow.get(0).statements.get(0);
+        assertTrue(users.endsWith("[1 arg: TEXT]"));
+        assertFalse(users.contains("metrics"));
+    }
+
+    @Test
+    public void testSlowQueryLogIsBounded() {
+        metrics.setSlowQueryThresholdMs(context, 0);
+        for (int i = 0; i < QueryMetrics.MAX_SLOW_QUERIES + 5; i++) {
+            database.userDao().getUserCount();
+        }
+        assertEquals(QueryMetrics.MAX_SLOW_QUERIES, metrics.getSlowQueries().size());
+    }
+
+    @Test
+    public void testDumpListsQueries() throws IOException {
+        database.medicationDao().getMedicationsForUser(userId);
+
+        StringWriter report = new StringWriter();
+        metrics.dump(report);
+        assertTrue(report.toString().contains("MedicationDao.getMedicationsForUser"));
+    }
+
+    @Test
+    public void testRowCounting() {
+        assertEquals(0, TimedDao.countRows(null));
+        assertEquals(3, TimedDao.countRows(Arrays.asList(1, 2, 3)));
+        assertEquals(0, TimedDao.countRows(Collections.emptyList()));
+        assertEquals(2, TimedDao.countRows(new String[]{"a", "b"}));
+        assertEquals(1, TimedDao.countRows(new User()));
+        assertEquals(-1, TimedDao.countRows(5));
+    }
+
+    @Test
+    public void testThreadNamesAreNormalized() {
+        assertEquals("pool-#-thread-#", QueryMetrics.normalizeThreadName("pool-12-thread-3"));
+        assertEquals("main", QueryMetrics.normalizeThreadName("main"));
+    }
+
+    private QueryMetrics.QueryStats find(String name) {
+        for (QueryMetrics.QueryStats stats : metrics.getQueryStats()) {
+            if (stats.getName().equals(name)) {
+                return stats;
+            }
+        }
+        fail("No stats for " + name);
+        return null;
+    }
+}
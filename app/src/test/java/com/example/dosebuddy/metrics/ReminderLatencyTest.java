@@ -0,0 +1,119 @@
+package com.example.dosebuddy.metrics;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Calendar;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the persistent reminder lateness histograms
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReminderLatencyTest {
+
+    private static final long SECOND = 1000L;
+
+    private Context context;
+    private long eightAm;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        ReminderLatency.reset(context);
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MARCH, 4, 8, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        eightAm = calendar.getTimeInMillis();
+    }
+
+    @After
+    public void tearDown() {
+        ReminderLatency.reset(context);
+    }
+
+    @Test
+    public void testEachReminderIsRecordedUnderEveryDimension() {
+        ReminderLatency.record(context, eightAm, eightAm + 45 * SECOND, ReminderLatency.Channel.WORK_SLOT);
+        ReminderLatency.record(context, eightAm, eightAm + 20 * 60 * SECOND, ReminderLatency.Channel.WORK_SNOOZE);
+
+        Map<String, LatencyHistogram> histograms = ReminderLatency.getHistograms(context);
+        assertEquals(ReminderLatency.KEY_ALL, histograms.keySet().iterator().next());
+        assertEquals(2, histograms.get(ReminderLatency.KEY_ALL).getCount());
+        assertEquals(2, histograms.get("hour:08").getCount());
+        assertEquals(1, histograms.get("channel:work_slot").getCount());
+        assertEquals(1, histograms.get("channel:work_snooze").getCount());
+
+        long stateCount = 0;
+        long standbyCount = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            if (entry.getKey().startsWith("state:")) {
+                stateCount += entry.getValue().getCount();
+            } else if (entry.getKey().startsWith("standby:")) {
+                standbyCount += entry.getValue().getCount();
+            }
+        }
+        assertEquals(2, stateCount);
+        assertEquals(2, standbyCount);
+    }
+
+    @Test
+    public void testPercentilesSurviveReload() {
+        for (int i = 0; i < 98; i++) {
+            ReminderLatency.record(context, eightAm, eightAm + 5 * SECOND, ReminderLatency.Channel.WORK_SLOT);
+        }
+        ReminderLatency.record(context, eightAm, eightAm + 40 * 60 * SECOND, ReminderLatency.Channel.WORK_SLOT);
+        ReminderLatency.record(context, eightAm, eightAm + 10 * 60 * 60 * SECOND, ReminderLatency.Channel.WORK_SLOT);
+
+        assertEquals(10, ReminderLatency.getPercentileSeconds(context, 50));
+        assertEquals(60 * 60, ReminderLatency.getPercentileSeconds(context, 99));
+        assertEquals(10 * 60 * 60, ReminderLatency.getPercentileSeconds(context, 100));
+    }
+
+    @Test
+    public void testEarlyRunsCountAsOnTime() {
+        ReminderLatency.record(context, eightAm, eightAm - 30 * SECOND, ReminderLatency.Channel.WORK_SNOOZE);
+        assertEquals(0, ReminderLatency.getHistograms(context).get(ReminderLatency.KEY_ALL).getMax());
+    }
+
+    @Test
+    public void testEncodingRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram(ReminderLatency.LATENESS_BOUNDS_S);
+        histogram.record(0);
+        histogram.record(700);
+        histogram.record(100_000);
+
+        LatencyHistogram decoded = ReminderLatency.decode(ReminderLatency.encode(histogram));
+        assertArrayEquals(histogram.getCounts(), decoded.getCounts());
+        assertEquals(histogram.getSum(), decoded.getSum());
+        assertEquals(histogram.getMax(), decoded.getMax());
+    }
+
+    @Test
+    public void testUnreadableOrResizedValuesStartEmpty() {
+        assertEquals(0, ReminderLatency.decode("garbage").getCount());
+        assertEquals(0, ReminderLatency.decode("10;5;1,2,3").getCount());
+        assertEquals(0, ReminderLatency.decode(null).getCount());
+    }
+
+    @Test
+    public void testDumpListsDimensions() throws IOException {
+        ReminderLatency.record(context, eightAm, eightAm + 45 * SECOND, ReminderLatency.Channel.WORK_SLOT);
+
+        StringWriter report = new StringWriter();
+        ReminderLatency.dump(context, report);
+        assertTrue(report.toString().contains("channel:work_slot"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dosebuddy.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for trace sections, recorded through a test backend
+ * Skipped in variants built with tracing off, where every call is compiled out.
+ */
+public class TracerTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        assumeTrue(Tracer.ENABLED);
+        Tracer.setBackend(new Tracer.Backend() {
+            @Override
+            public void beginSection(String name) {
+                events.add("begin " + name);
+            }
+
+            @Override
+            public void endSection() {
+                events.add("end");
+            }
+
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                events.add("beginAsync " + name + " " + cookie);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                events.add("endAsync " + name + " " + cookie);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Tracer.setBackend(null);
+    }
+
+    @Test
+    public void testSectionsNest() {
+        Tracer.begin("outer");
+        Tracer.begin("inner");
+        Tracer.end();
+        Tracer.end();
+
+        assertEquals(Arrays.asList("begin outer", "begin inner", "end", "end"), events);
+    }
+
+    @Test
+    public void testAsyncSectionsGetDistinctCookies() throws InterruptedException {
+        int first = Tracer.beginAsync("request");
+        int second = Tracer.beginAsync("request");
+        assertNotEquals(first, second);
+
+        Thread callback = new Thread(() -> Tracer.endAsync("request", first));
+        callback.start();
+        callback.join();
+
+        assertEquals(Arrays.asList("beginAsync request " + first, "beginAsync request " + second,
+                "endAsync request " + first), events);
+    }
+
+    @Test
+    public void testLongNamesAreTruncated() {
+        String name = String.join("", Collections.nCopies(200, "x"));
+        Tracer.begin(name);
+
+        assertEquals(Tracer.MAX_SECTION_NAME_LENGTH, events.get(0).length() - "begin ".length());
+    }
+
+    @Test
+    public void testDaoCallsAreSections() {
+        Runnable dao = new QueryMetrics().wrap(Runnable.class, () -> events.add("query"));
+        dao.run();
+
+        assertEquals(Arrays.asList("begin Runnable.run", "query", "end"), events);
+    }
+}
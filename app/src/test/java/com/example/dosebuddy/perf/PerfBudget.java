@@ -0,0 +1,216 @@
+package com.example.dosebuddy.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Measures an operation in a plain JVM test and fails when it goes over budget
+ *
+ * Time is compared in reference units: the operation's thread CPU time divided by
+ * that of a fixed reference workload sampled alternately with it, so a budget holds
+ * on a fast laptop and a slow CI runner alike and drifts in clock speed cancel out.
+ * Both are warmed up first so the JIT has compiled them, then sampled in pairs; the
+ * result is the median ratio. Between runs on one machine the median moves by up to
+ * about 20%, and it shifts somewhat between CPU models, so the time budget allows
+ * 1.6 times the baseline: a doubling fails. A time over budget is measured once
+ * more before failing, to ride out a busy machine.
+ *
+ * Allocation is bytes per run from the thread's allocation counter. It does not
+ * depend on machine speed but does change between JDK releases, so it is checked
+ * only on the JDK the baselines were measured with (BASELINE_JDK).
+ */
+final class PerfBudget {
+
+    static final long WARMUP_NANOS = 500_000_000L; // Long enough for the JIT's optimizing tier
+    static final int SAMPLES = 31;
+    static final long MIN_SAMPLE_NANOS = 20_000_000L; // Short operations run several times per sample
+
+    // Allowed growth over the baseline
+    static final double TIME_TOLERANCE = 1.6;
+    static final double ALLOCATION_TOLERANCE = 1.3;
+
+    // java.specification.version the allocation baselines were measured on
+    static final String BASELINE_JDK = "17";
+
+    private static final int REFERENCE_SIZE = 20_000;
+
+    private static volatile int sink; // Keeps results alive so the JIT cannot drop the work
+
+    private PerfBudget() {
+    }
+
+    /**
+     * One measurement of an operation
+     */
+    static final class Result {
+        final String name;
+        final int runsPerSample;
+        final long nanos; // Median per run
+        final double referenceUnits;
+        final long bytesPerRun; // -1 if the JVM cannot count allocations
+
+        Result(String name, int runsPerSample, long nanos, double referenceUnits, long bytesPerRun) {
+            this.name = name;
+            this.runsPerSample = runsPerSample;
+            this.nanos = nanos;
+            this.referenceUnits = referenceUnits;
+            this.bytesPerRun = bytesPerRun;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %.3f reference units (%.3f ms), %d bytes/run",
+                    name, referenceUnits, nanos / 1e6, bytesPerRun);
+        }
+    }
+
+    /**
+     * Measure an operation and fail if it exceeds its budget
+     * @param name Name used in the report and failure message
+     * @param baselineUnits Measured cost in reference units when the budget was set
+     * @param baselineBytes Measured bytes allocated per run when the budget was set, only
+     *                      checked on BASELINE_JDK
+     * @param operation Work to measure; its result is consumed so it cannot be optimized away
+     * @return The passing measurement
+     */
+    static Result assertWithinBudget(String name, double baselineUnits, long baselineBytes,
+                                     Supplier<?> operation) {
+        double maxUnits = baselineUnits * TIME_TOLERANCE;
+        long maxBytes = (long) (baselineBytes * ALLOCATION_TOLERANCE);
+
+        Result result = measure(name, operation);
+        if (result.referenceUnits > maxUnits) {
+            result = measure(name, operation);
+        }
+
+        if (result.referenceUnits > maxUnits) {
+            fail(String.format(Locale.US, "%s took %.3f reference units, budget %.3f (baseline %.3f x %.1f); %s",
+                    name, result.referenceUnits, maxUnits, baselineUnits, TIME_TOLERANCE, result));
+        }
+        if (checksAllocation() && result.bytesPerRun > maxBytes) {
+            fail(String.format(Locale.US, "%s allocated %d bytes per run, budget %d (baseline %d x %.1f); %s",
+                    name, result.bytesPerRun, maxBytes, baselineBytes, ALLOCATION_TOLERANCE, result));
+        }
+        return result;
+    }
+
+    /**
+     * Whether this JVM is the release the allocation baselines were measured on
+     */
+    static boolean checksAllocation() {
+        return BASELINE_JDK.equals(System.getProperty("java.specification.version"));
+    }
+
+    /**
+     * Measure an operation without checking a budget
+     */
+    static Result measure(String name, Supplier<?> operation) {
+        Supplier<?> reference = PerfBudget::referenceWorkload;
+        int referenceRuns = warmUp(reference);
+        int operationRuns = warmUp(operation);
+
+        // Alternate the two so each pair sees the same machine state
+        double[] ratios = new double[SAMPLES];
+        long[] nanos = new long[SAMPLES];
+        long[] bytes = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long referenceNanos = sample(reference, referenceRuns)[0];
+            long[] operationSample = sample(operation, operationRuns);
+            nanos[i] = operationSample[0];
+            bytes[i] = operationSample[1];
+            ratios[i] = nanos[i] / (double) referenceNanos;
+        }
+        Arrays.sort(ratios);
+        return new Result(name, operationRuns, median(nanos), ratios[SAMPLES / 2], median(bytes));
+    }
+
+    /**
+     * Run an operation until the JIT has settled
+     * @return Runs per sample, so a sample is long enough for the timer
+     */
+    private static int warmUp(Supplier<?> operation) {
+        int runsPerSample = 1;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            long start = System.nanoTime();
+            for (int run = 0; run < runsPerSample; run++) {
+                consume(operation.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < MIN_SAMPLE_NANOS) {
+                runsPerSample = (int) Math.min(10_000, runsPerSample * MIN_SAMPLE_NANOS / Math.max(1, elapsed) + 1);
+            }
+        }
+        return runsPerSample;
+    }
+
+    /**
+     * Time one sample
+     * @return Nanoseconds per run and bytes per run
+     */
+    private static long[] sample(Supplier<?> operation, int runs) {
+        long allocatedBefore = allocatedBytes();
+        long start = cpuTimeNanos();
+        for (int run = 0; run < runs; run++) {
+            consume(operation.get());
+        }
+        long nanos = Math.max(1, (cpuTimeNanos() - start) / runs);
+        long allocatedAfter = allocatedBytes();
+        return new long[] {nanos, allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / runs};
+    }
+
+    /**
+     * Fixed mix of the work the app does most: boxing, string building, comparing and sorting
+     */
+    static Object referenceWorkload() {
+        List<String> values = new ArrayList<>(REFERENCE_SIZE);
+        long seed = 42;
+        for (int i = 0; i < REFERENCE_SIZE; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L; // Same sequence on every run
+            values.add(Long.toString(seed >>> 20, 36));
+        }
+        Collections.sort(values);
+        return values;
+    }
+
+    /**
+     * CPU time of this thread, which leaves out GC threads and time spent descheduled
+     * Falls back to wall time if the JVM cannot measure it.
+     */
+    private static long cpuTimeNanos() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean.isCurrentThreadCpuTimeSupported()) {
+            return bean.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void consume(Object result) {
+        sink ^= System.identityHashCode(result);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.dosebuddy.perf;
+
+import com.example.dosebuddy.adapter.HistoryItem;
+import com.example.dosebuddy.api.DrugInfo;
+import com.example.dosebuddy.api.DrugSearchResponse;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.utils.DateTimeUtils;
+import com.example.dosebuddy.utils.PasswordUtils;
+import com.example.dosebuddy.utils.ReminderScheduler;
+import com.google.gson.Gson;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time and allocation budgets for hot paths, run with the regular unit tests
+ * Baselines were measured with PerfBudget on JDK 17; a failure reports the new
+ * measurement. Allocation budgets are only checked when the tests run on JDK 17.
+ * When a change makes one of these legitimately more expensive, update its
+ * baseline in the same commit and say why.
+ */
+public class PerfBudgetTest {
+
+    private static final long NOW = DateTimeUtils.createDateTimestamp(2024, 5, 15) + 13 * 60 * 60 * 1000L;
+    private static final int MEDICATIONS = 1_000;
+    private static final int HISTORY_ROWS = 10_000;
+
+    private static final List<Medication> medications = new ArrayList<>();
+    private static final Map<Integer, List<Integer>> slotsByMedication = new HashMap<>();
+    private static final List<MedicationHistory> history = new ArrayList<>();
+    private static String drugResponse;
+    private static String passwordHash;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Random random = new Random(49);
+        MedicationFrequency[] frequencies = MedicationFrequency.values();
+        for (int i = 0; i < MEDICATIONS; i++) {
+            MedicationFrequency frequency = frequencies[i % frequencies.length];
+            Medication medication = new Medication(1, "Medication " + i, "10 mg", frequency,
+                    1 + i % 4, DateTimeUtils.addDays(NOW, -random.nextInt(365)));
+            medication.setId(i + 1);
+            if (i % 10 == 0) {
+                medication.setEndDate(DateTimeUtils.addDays(NOW, random.nextInt(60) - 30));
+            }
+            medications.add(medication);
+            if (i % 3 == 0) {
+                // Some have stored dose times, the rest fall back to frequency defaults
+                slotsByMedication.put(medication.getId(), Arrays.asList(7 * 60 + 15, 12 * 60, 21 * 60 + 45));
+            }
+        }
+
+        MedicationHistory.TakenMethod[] methods = MedicationHistory.TakenMethod.values();
+        for (int i = 0; i < HISTORY_ROWS; i++) {
+            long scheduled = NOW - i * 6 * 60 * 60 * 1000L;
+            long takenAt = scheduled + (random.nextInt(180) - 60) * 60 * 1000L;
+            MedicationHistory row = new MedicationHistory(1, 1 + i % MEDICATIONS, "Medication " + i % MEDICATIONS,
+                    "10 mg", i % 5 == 0 ? null : scheduled, takenAt, methods[i % methods.length]);
+            if (i % 20 == 0) {
+                row.setNotes("Taken with food");
+            }
+            history.add(row);
+        }
+
+        try (InputStream in = PerfBudgetTest.class.getResourceAsStream("/openfda/label_search_limit10.json")) {
+            assertNotNull("Missing OpenFDA payload", in);
+            drugResponse = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        passwordHash = PasswordUtils.createPasswordHash("correct horse battery", PasswordUtils.MIN_ITERATIONS);
+    }
+
+    @Test
+    public void testNextReminderFor1000Medications() {
+        PerfBudget.assertWithinBudget("next reminder x" + MEDICATIONS, 0.78, 8_150_000, () -> {
+            long next = Long.MAX_VALUE;
+            for (Medication medication : medications) {
+                for (int slot : ReminderScheduler.getReminderSlots(medication,
+                        slotsByMedication.get(medication.getId()))) {
+                    long time = ReminderScheduler.getNextReminderTime(medication, slot, NOW);
+                    if (time > 0 && time < next) {
+                        next = time;
+                    }
+                }
+            }
+            return next;
+        });
+    }
+
+    @Test
+    public void testHistoryMappingFor10000Rows() {
+        PerfBudget.assertWithinBudget("history items x" + HISTORY_ROWS, 5.2, 47_610_000,
+                () -> HistoryItem.fromAll(history));
+    }
+
+    @Test
+    public void testDrugResponseParsing() {
+        Gson gson = new Gson();
+        PerfBudget.assertWithinBudget("drug response parse", 0.020, 75_500, () -> {
+            DrugSearchResponse response = gson.fromJson(drugResponse, DrugSearchResponse.class);
+            List<DrugInfo> drugInfoList = new ArrayList<>();
+            for (DrugSearchResponse.DrugResult result : response.getResults()) {
+                DrugInfo drugInfo = result.toDrugInfo();
+                if (drugInfo.hasEssentialInfo()) {
+                    drugInfoList.add(drugInfo);
+                }
+            }
+            return drugInfoList;
+        });
+    }
+
+    @Test
+    public void testPasswordVerification() {
+        PerfBudget.assertWithinBudget("password verify", 0.80, 965_000, () -> {
+            boolean verified = PasswordUtils.verifyPassword("correct horse battery", passwordHash);
+            assertTrue(verified);
+            return verified;
+        });
+    }
+}
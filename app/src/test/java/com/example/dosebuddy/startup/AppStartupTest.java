@@ -0,0 +1,119 @@
+package com.example.dosebuddy.startup;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the startup initializer runner
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppStartupTest {
+
+    private static final List<String> NONE = Collections.emptyList();
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testDependenciesFinishFirst() throws Exception {
+        List<AppStartup.Initializer> initializers = Arrays.asList(
+                initializer("database", Arrays.asList("session", "work_manager"), 0),
+                initializer("session", NONE, 50),
+                initializer("work_manager", NONE, 20),
+                initializer("http", NONE, 0));
+
+        List<AppStartup.Timing> timings = AppStartup.start(context, initializers).get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, timings.size());
+        assertTrue(events.indexOf("end session") < events.indexOf("start database"));
+        assertTrue(events.indexOf("end work_manager") < events.indexOf("start database"));
+        for (AppStartup.Timing timing : timings) {
+            assertFalse(timing.failed);
+            assertTrue(timing.thread.startsWith("DoseBuddy-startup-"));
+        }
+    }
+
+    @Test
+    public void testFailureDoesNotStopOthers() throws Exception {
+        List<AppStartup.Initializer> initializers = Arrays.asList(
+                new AppStartup.Initializer("broken", NONE, c -> {
+                    throw new IllegalStateException("boom");
+                }),
+                initializer("dependent", Collections.singletonList("broken"), 0));
+
+        List<AppStartup.Timing> timings = AppStartup.start(context, initializers).get(5, TimeUnit.SECONDS);
+
+        assertTrue(events.contains("end dependent"));
+        assertTrue(find(timings, "broken").failed);
+        assertFalse(find(timings, "dependent").failed);
+    }
+
+    @Test
+    public void testSortKeepsOrderWhereAllowed() {
+        List<AppStartup.Initializer> sorted = AppStartup.sort(Arrays.asList(
+                initializer("c", Collections.singletonList("b"), 0),
+                initializer("a", NONE, 0),
+                initializer("b", NONE, 0)));
+
+        List<String> names = new ArrayList<>();
+        for (AppStartup.Initializer initializer : sorted) {
+            names.add(initializer.name);
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), names);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycleIsRejected() {
+        AppStartup.sort(Arrays.asList(
+                initializer("a", Collections.singletonList("b"), 0),
+                initializer("b", Collections.singletonList("a"), 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependencyIsRejected() {
+        AppStartup.sort(Collections.singletonList(initializer("a", Collections.singletonList("missing"), 0)));
+    }
+
+    @Test
+    public void testDumpListsRecordedTimings() throws IOException {
+        AppStartup.record("Application.onCreate", SystemClock.elapsedRealtime());
+
+        StringWriter report = new StringWriter();
+        AppStartup.dump(report);
+        assertTrue(report.toString().contains("Application.onCreate"));
+    }
+
+    private AppStartup.Initializer initializer(String name, List<String> dependencies, long sleepMs) {
+        return new AppStartup.Initializer(name, dependencies, c -> {
+            events.add("start " + name);
+            Thread.sleep(sleepMs);
+            events.add("end " + name);
+        });
+    }
+
+    private static AppStartup.Timing find(List<AppStartup.Timing> timings, String name) {
+        for (AppStartup.Timing timing : timings) {
+            if (timing.name.equals(name)) {
+                return timing;
+            }
+        }
+        throw new AssertionError("No timing for " + name);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.dosebuddy.utils;
+
+import com.example.dosebuddy.database.DoseInstance;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for expected-dose generation and classification
+ */
+public class DoseLedgerTest {
+
+    private static final long START = DateTimeUtils.createDateTimestamp(2024, 0, 1);
+
+    @Test
+    public void testDailyScheduleExpandsEveryDay() {
+        Medication medication = new Medication(1, "Aspirin", "100mg",
+                MedicationFrequency.TWICE_DAILY, 2, START);
+
+        List<DoseInstance> instances = DoseLedger.buildInstances(medication, null, START,
+                DateTimeUtils.getEndOfDay(DateTimeUtils.addDays(START, 2)));
+
+        assertEquals(6, instances.size());
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 8 * 60), instances.get(0).getScheduledTime());
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 20 * 60), instances.get(1).getScheduledTime());
+        for (DoseInstance instance : instances) {
+            assertEquals(DoseInstance.Status.PENDING, instance.getStatusEnum());
+        }
+    }
+
+    @Test
+    public void testEveryOtherDayAndEndDate() {
+        Medication medication = new Medication(1, "Vitamin D", "1000 IU",
+                MedicationFrequency.EVERY_OTHER_DAY, 1, START);
+        medication.setEndDate(DateTimeUtils.addDays(START, 4));
+
+        List<DoseInstance> instances = DoseLedger.buildInstances(medication, null, START,
+                DateTimeUtils.addDays(START, 10));
+
+        // Days 0, 2 and 4; nothing after the end date
+        assertEquals(3, instances.size());
+        assertEquals(ScheduleUtils.atMinuteOfDay(DateTimeUtils.addDays(START, 4), 8 * 60),
+                instances.get(2).getScheduledTime());
+    }
+
+    @Test
+    public void testAsNeededHasNoExpectedDoses() {
+        Medication medication = new Medication(1, "Ibuprofen", "200mg",
+                MedicationFrequency.AS_NEEDED, 1, START);
+
+        assertTrue(DoseLedger.buildInstances(medication, null, START,
+                DateTimeUtils.addDays(START, 7)).isEmpty());
+    }
+
+    @Test
+    public void testWindowStartSkipsEarlierDosesOfTheDay() {
+        Medication medication = new Medication(1, "Aspirin", "100mg",
+                MedicationFrequency.TWICE_DAILY, 2, START);
+        long noon = ScheduleUtils.atMinuteOfDay(START, 12 * 60);
+
+        List<DoseInstance> instances = DoseLedger.buildInstances(medication, null, noon,
+                DateTimeUtils.getEndOfDay(START));
+
+        assertEquals(1, instances.size());
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 20 * 60), instances.get(0).getScheduledTime());
+    }
+
+    @Test
+    public void testStoredSlotsOverrideDefaults() {
+        Medication medication = new Medication(1, "Aspirin", "100mg",
+                MedicationFrequency.TWICE_DAILY, 2, START);
+
+        List<DoseInstance> instances = DoseLedger.buildInstances(medication, Arrays.asList(21 * 60, 7 * 60),
+                START, DateTimeUtils.getEndOfDay(START));
+
+        assertEquals(2, instances.size());
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 7 * 60), instances.get(0).getScheduledTime());
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 21 * 60), instances.get(1).getScheduledTime());
+    }
+
+    @Test
+    public void testClassify() {
+        long scheduled = ScheduleUtils.atMinuteOfDay(START, 8 * 60);
+        long minute = 60 * 1000L;
+
+        assertEquals(DoseInstance.Status.TAKEN, DoseLedger.classify(scheduled, scheduled - 90 * minute));
+        assertEquals(DoseInstance.Status.TAKEN, DoseLedger.classify(scheduled, scheduled + 30 * minute));
+        assertEquals(DoseInstance.Status.LATE, DoseLedger.classify(scheduled, scheduled + 31 * minute));
+    }
+}
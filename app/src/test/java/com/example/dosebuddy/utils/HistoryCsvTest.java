@@ -0,0 +1,62 @@
+package com.example.dosebuddy.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CSV field writer and parser used by history import/export
+ */
+public class HistoryCsvTest {
+
+    @Test
+    public void testPlainFieldIsNotQuoted() throws IOException {
+        StringWriter writer = new StringWriter();
+        HistoryExporter.writeCsvField(writer, "Aspirin");
+        assertEquals("Aspirin", writer.toString());
+    }
+
+    @Test
+    public void testSpecialCharactersRoundTrip() throws IOException {
+        String[] values = {"Vitamin D, 1000 IU", "Take with \"food\"", "line one\nline two", ""};
+
+        StringWriter writer = new StringWriter();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            HistoryExporter.writeCsvField(writer, values[i]);
+        }
+        writer.write('\n');
+
+        HistoryImporter.CsvParser parser = new HistoryImporter.CsvParser(new StringReader(writer.toString()));
+        List<String> fields = new ArrayList<>();
+
+        assertTrue(parser.readRow(fields));
+        assertEquals(values.length, fields.size());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], fields.get(i));
+        }
+        assertFalse(parser.readRow(fields));
+    }
+
+    @Test
+    public void testCrlfAndMissingTrailingNewline() throws IOException {
+        HistoryImporter.CsvParser parser = new HistoryImporter.CsvParser(
+                new StringReader("a,b\r\n1,2\r\n3,4"));
+        List<String> fields = new ArrayList<>();
+
+        assertTrue(parser.readRow(fields));
+        assertEquals("b", fields.get(1));
+        assertTrue(parser.readRow(fields));
+        assertEquals("2", fields.get(1));
+        assertTrue(parser.readRow(fields));
+        assertEquals("3", fields.get(0));
+        assertEquals("4", fields.get(1));
+        assertFalse(parser.readRow(fields));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Imports a CSV export into a fresh database, twice
+ * The app databases refuse main-thread queries, so the work runs on a background thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HistoryImporterTest {
+
+    private static final long FIRST_TAKEN = 1_700_000_000_000L;
+    private static final long LAST_TAKEN = FIRST_TAKEN + 86_400_000L;
+
+    private Context context;
+    private ExecutorService executor;
+
+    private int userId;
+    private int medicationId;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        executor = Executors.newSingleThreadExecutor();
+
+        onBackground(() -> {
+            AppDatabase database = AppDatabase.getInstance(context);
+            userId = (int) database.userDao().insertUser(
+                    new User("import", "import@example.com", "import", "hash"));
+            medicationId = (int) database.medicationDao().insertMedication(
+                    new Medication(userId, "Aspirin", "100mg", MedicationFrequency.ONCE_DAILY, 1, 0));
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        AppDatabase.destroyInstance();
+        context.deleteDatabase("dosebuddy_database");
+    }
+
+    @Test
+    public void testImportingTheSameFileTwiceAddsNothing() throws Exception {
+        String csv = String.join(",", HistoryExporter.COLUMNS) + "\n"
+                + medicationId + ",Aspirin,100mg,," + FIRST_TAKEN + ",MANUAL,1,," + FIRST_TAKEN + "\n"
+                + medicationId + ",Aspirin,100mg,," + LAST_TAKEN + ",MANUAL,1,," + LAST_TAKEN + "\n";
+
+        HistoryImporter.ImportResult first = importCsv(csv);
+        assertEquals(2, first.imported);
+        assertEquals(0, first.skipped);
+
+        HistoryImporter.ImportResult second = importCsv(csv);
+        assertEquals(0, second.imported);
+        assertEquals(2, second.skipped);
+
+        onBackground(() -> {
+            AppDatabase database = AppDatabase.getInstance(context);
+            assertEquals(2, database.medicationHistoryDao().getHistoryCountForUser(userId));
+            assertEquals(Long.valueOf(LAST_TAKEN),
+                    database.medicationDao().getMedicationById(medicationId).getLastTakenAt());
+            return null;
+        });
+    }
+
+    private HistoryImporter.ImportResult importCsv(String csv) throws Exception {
+        return onBackground(() -> HistoryImporter.importHistory(context, userId,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                HistoryExporter.Format.CSV, null));
+    }
+
+    private <T> T onBackground(Callable<T> task) throws Exception {
+        return executor.submit(task).get();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.dosebuddy.utils;
+
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.MedicationHistoryArchive;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for rolling history up into monthly archive rows
+ */
+public class HistoryRetentionTest {
+
+    private static final long JAN_10 = DateTimeUtils.createDateTimestamp(2023, 0, 10);
+    private static final long JAN_20 = DateTimeUtils.createDateTimestamp(2023, 0, 20);
+    private static final long FEB_05 = DateTimeUtils.createDateTimestamp(2023, 1, 5);
+
+    @Test
+    public void testRollUpGroupsByMedicationAndMonth() {
+        List<MedicationHistoryArchive> months = HistoryRetention.rollUp(Arrays.asList(
+                history(1, JAN_10, true, "Aspirin"),
+                history(1, JAN_20, false, "Aspirin 100"),
+                history(2, JAN_20, true, "Vitamin D"),
+                history(1, FEB_05, true, "Aspirin 100")));
+
+        assertEquals(3, months.size());
+        MedicationHistoryArchive january = months.get(0);
+        assertEquals(1, january.getMedicationId());
+        assertEquals(DateTimeUtils.createDateTimestamp(2023, 0, 1), january.getMonthStart());
+        assertEquals(2, january.getDoseCount());
+        assertEquals(1, january.getOnTimeCount());
+        assertEquals(JAN_10, january.getFirstTakenAt());
+        assertEquals(JAN_20, january.getLastTakenAt());
+        assertEquals("Aspirin 100", january.getMedicationName());
+        assertEquals(DateTimeUtils.createDateTimestamp(2023, 1, 1), months.get(2).getMonthStart());
+    }
+
+    @Test
+    public void testMergeAddsStoredTotals() {
+        MedicationHistoryArchive stored = HistoryRetention.rollUp(Arrays.asList(
+                history(1, JAN_20, true, "Aspirin"))).get(0);
+        MedicationHistoryArchive month = HistoryRetention.rollUp(Arrays.asList(
+                history(1, JAN_10, false, "Aspirin"))).get(0);
+
+        month.merge(stored);
+
+        assertEquals(2, month.getDoseCount());
+        assertEquals(1, month.getOnTimeCount());
+        assertEquals(JAN_10, month.getFirstTakenAt());
+        assertEquals(JAN_20, month.getLastTakenAt());
+    }
+
+    private static MedicationHistory history(int medicationId, long takenAt, boolean onTime, String name) {
+        MedicationHistory history = new MedicationHistory(1, medicationId, name, "100mg",
+                takenAt, MedicationHistory.TakenMethod.MANUAL);
+        history.setOnTime(onTime);
+        return history;
+    }
+}
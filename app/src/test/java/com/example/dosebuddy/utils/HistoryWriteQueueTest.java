@@ -0,0 +1,168 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+import com.example.dosebuddy.database.Medication;
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.database.MedicationHistory;
+import com.example.dosebuddy.database.User;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for journal replay, batching, back-pressure and rejected records
+ * Each test builds its own queue so it reads the journal its setup wrote. The app
+ * databases refuse main-thread queries, so setup and checks run on a background thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HistoryWriteQueueTest {
+
+    private static final int MISSING_MEDICATION_ID = 9999;
+    private static final String JOURNAL_FILE = "history_write_queue.journal";
+
+    private Context context;
+    private ExecutorService executor;
+
+    private int userId;
+    private int medicationId;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        executor = Executors.newSingleThreadExecutor();
+
+        onBackground(() -> {
+            AppDatabase database = AppDatabase.getInstance(context);
+            userId = (int) database.userDao().insertUser(
+                    new User("queue", "queue@example.com", "queue", "hash"));
+            medicationId = (int) database.medicationDao().insertMedication(
+                    new Medication(userId, "Aspirin", "100mg", MedicationFrequency.ONCE_DAILY, 1, 0));
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        AppDatabase.destroyInstance();
+        context.deleteDatabase("dosebuddy_database");
+        journal().delete();
+    }
+
+    @Test
+    public void testJournalReplayDoesNotInsertCommittedRecordsAgain() throws Exception {
+        // The previous process committed the first record but died before trimming the journal
+        MedicationHistory committed = history(medicationId, 1000L);
+        onBackground(() -> AppDatabase.getInstance(context).medicationHistoryDao().insertHistory(committed));
+        MedicationHistory uncommitted = history(medicationId, 2000L);
+        writeJournal(committed, uncommitted);
+
+        HistoryWriteQueue queue = new HistoryWriteQueue(context);
+        queue.flushNow();
+
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(2, historyCount());
+        assertEquals(0, journal().length());
+
+        // Replaying again, as after a second crash, adds nothing
+        writeJournal(committed, uncommitted);
+        new HistoryWriteQueue(context).flushNow();
+        assertEquals(2, historyCount());
+    }
+
+    @Test
+    public void testRecordsSpanningSeveralBatchesAreWrittenInOrder() throws Exception {
+        HistoryWriteQueue queue = new HistoryWriteQueue(context);
+        int count = 2 * HistoryWriteQueue.MAX_BATCH_SIZE + 1;
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(history(medicationId, 1000L + i));
+        }
+        while (queue.getPendingCount() > 0) {
+            queue.flushNow();
+        }
+
+        List<MedicationHistory> written = onBackground(() -> AppDatabase.getInstance(context)
+                .medicationHistoryDao().getHistoryForUser(userId));
+        assertEquals(count, written.size());
+        // Newest first; IDs follow enqueue order
+        for (int i = 1; i < written.size(); i++) {
+            assertTrue(written.get(i - 1).getId() > written.get(i).getId());
+        }
+        assertEquals(0, journal().length());
+    }
+
+    @Test
+    public void testEnqueueWaitsWhileTheQueueIsFull() throws Exception {
+        HistoryWriteQueue queue = new HistoryWriteQueue(context);
+        int count = HistoryWriteQueue.MAX_PENDING + HistoryWriteQueue.MAX_BATCH_SIZE;
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(history(medicationId, 1000L + i));
+            assertTrue(queue.getPendingCount() < HistoryWriteQueue.MAX_PENDING);
+        }
+        while (queue.getPendingCount() > 0) {
+            queue.flushNow();
+        }
+        assertEquals(count, historyCount());
+    }
+
+    @Test
+    public void testRejectedRecordIsDroppedAndTheRestAreWritten() throws Exception {
+        HistoryWriteQueue queue = new HistoryWriteQueue(context);
+
+        queue.enqueue(history(medicationId, 1000L));
+        queue.enqueue(history(MISSING_MEDICATION_ID, 2000L)); // Foreign key violation
+        queue.enqueue(history(medicationId, 3000L));
+        queue.flushNow();
+
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(2, historyCount());
+    }
+
+    private int historyCount() throws Exception {
+        return onBackground(() -> AppDatabase.getInstance(context).medicationHistoryDao()
+                .getHistoryCountForUser(userId));
+    }
+
+    private File journal() {
+        return new File(context.getFilesDir(), JOURNAL_FILE);
+    }
+
+    private void writeJournal(MedicationHistory... records) throws Exception {
+        Gson gson = new Gson();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(journal()), StandardCharsets.UTF_8)) {
+            for (MedicationHistory history : records) {
+                writer.write(gson.toJson(history));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private MedicationHistory history(int medicationId, long takenAt) {
+        return new MedicationHistory(userId, medicationId, "Aspirin", "100mg",
+                takenAt, MedicationHistory.TakenMethod.MANUAL);
+    }
+
+    private <T> T onBackground(Callable<T> task) throws Exception {
+        return executor.submit(task).get();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.dosebuddy.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for reminder slot diffing
+ */
+public class ReminderSlotDiffTest {
+
+    @Test
+    public void testIdenticalSlotsNeedNoWork() {
+        ReminderSlotDiff diff = ReminderSlotDiff.compute(
+                Arrays.asList(480, 1200), Arrays.asList(1200, 480));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getChangedCount());
+        assertEquals(Arrays.asList(480, 1200), diff.unchanged);
+    }
+
+    @Test
+    public void testMovedSlotIsRemovedAndAdded() {
+        // 8:00 and 20:00 -> 8:00 and 21:30
+        ReminderSlotDiff diff = ReminderSlotDiff.compute(
+                Arrays.asList(480, 1200), Arrays.asList(480, 1290));
+
+        assertEquals(Collections.singletonList(1290), diff.added);
+        assertEquals(Collections.singletonList(1200), diff.removed);
+        assertEquals(Collections.singletonList(480), diff.unchanged);
+        assertEquals(2, diff.getChangedCount());
+    }
+
+    @Test
+    public void testDuplicatesAndEmptySets() {
+        ReminderSlotDiff added = ReminderSlotDiff.compute(
+                Collections.<Integer>emptyList(), Arrays.asList(600, 600, 300));
+        assertEquals(Arrays.asList(300, 600), added.added);
+        assertTrue(added.removed.isEmpty());
+
+        ReminderSlotDiff removed = ReminderSlotDiff.compute(
+                Arrays.asList(600, 300), Collections.<Integer>emptyList());
+        assertEquals(Arrays.asList(300, 600), removed.removed);
+        assertTrue(removed.added.isEmpty());
+    }
+}
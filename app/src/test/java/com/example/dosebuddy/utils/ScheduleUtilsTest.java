@@ -0,0 +1,63 @@
+package com.example.dosebuddy.utils;
+
+import com.example.dosebuddy.database.MedicationFrequency;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for schedule expansion helpers
+ */
+public class ScheduleUtilsTest {
+
+    private static final long START = DateTimeUtils.createDateTimestamp(2024, 0, 1);
+
+    @Test
+    public void testDefaultDoseMinutes() {
+        assertEquals(Arrays.asList(480, 1200),
+                ScheduleUtils.getDefaultDoseMinutes(MedicationFrequency.TWICE_DAILY, 2));
+        assertTrue(ScheduleUtils.getDefaultDoseMinutes(MedicationFrequency.AS_NEEDED, 1).isEmpty());
+    }
+
+    @Test
+    public void testResolveDoseMinutes() {
+        assertEquals(Arrays.asList(480, 1200),
+                ScheduleUtils.resolveDoseMinutes(null, MedicationFrequency.TWICE_DAILY, 2));
+        assertEquals(Arrays.asList(510, 1200),
+                ScheduleUtils.resolveDoseMinutes(Arrays.asList(1200, 510, 1200), MedicationFrequency.TWICE_DAILY, 2));
+        assertTrue(ScheduleUtils.resolveDoseMinutes(Arrays.asList(510),
+                MedicationFrequency.AS_NEEDED, 1).isEmpty());
+        assertEquals(Arrays.asList(510, 1200), ScheduleUtils.toMinutesOfDay(Arrays.asList(
+                ScheduleUtils.atMinuteOfDay(START, 20 * 60), ScheduleUtils.atMinuteOfDay(START, 8 * 60 + 30))));
+    }
+
+    @Test
+    public void testNextOccurrenceDaily() {
+        long beforeSlot = ScheduleUtils.atMinuteOfDay(START, 7 * 60);
+        long afterSlot = ScheduleUtils.atMinuteOfDay(START, 9 * 60);
+
+        assertEquals(ScheduleUtils.atMinuteOfDay(START, 8 * 60),
+                ScheduleUtils.getNextOccurrence(MedicationFrequency.ONCE_DAILY, START, 8 * 60, beforeSlot));
+        assertEquals(ScheduleUtils.atMinuteOfDay(DateTimeUtils.addDays(START, 1), 8 * 60),
+                ScheduleUtils.getNextOccurrence(MedicationFrequency.ONCE_DAILY, START, 8 * 60, afterSlot));
+    }
+
+    @Test
+    public void testNextOccurrenceHonorsCadenceAndStartDate() {
+        long afterSlot = ScheduleUtils.atMinuteOfDay(START, 9 * 60);
+
+        assertEquals(ScheduleUtils.atMinuteOfDay(DateTimeUtils.addDays(START, 2), 8 * 60),
+                ScheduleUtils.getNextOccurrence(MedicationFrequency.EVERY_OTHER_DAY, START, 8 * 60, afterSlot));
+        assertEquals(ScheduleUtils.atMinuteOfDay(DateTimeUtils.addDays(START, 7), 8 * 60),
+                ScheduleUtils.getNextOccurrence(MedicationFrequency.WEEKLY, START, 8 * 60, afterSlot));
+
+        long futureStart = DateTimeUtils.addDays(START, 3);
+        assertEquals(ScheduleUtils.atMinuteOfDay(futureStart, 8 * 60),
+                ScheduleUtils.getNextOccurrence(MedicationFrequency.ONCE_DAILY, futureStart, 8 * 60, afterSlot));
+
+        assertEquals(-1, ScheduleUtils.getNextOccurrence(MedicationFrequency.AS_NEEDED, START, 8 * 60, afterSlot));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.User;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the in-memory session
+ * Each test builds its own SessionManager over the real preferences file,
+ * so a new instance stands in for a new process.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SessionManagerTest {
+
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        prefs = context.getSharedPreferences("DoseBuddy", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void testNoSessionByDefault() {
+        SessionManager session = new SessionManager(prefs);
+        assertFalse(session.isLoggedIn());
+        assertEquals(SessionManager.NO_USER, session.getCurrentUserId());
+        assertNull(session.getFullName());
+    }
+
+    @Test
+    public void testLoginIsVisibleImmediatelyAndPersisted() {
+        SessionManager session = new SessionManager(prefs);
+        session.login(createUser(7));
+
+        assertTrue(session.isLoggedIn());
+        assertEquals(7, session.getCurrentUserId());
+        assertEquals("alice", session.getUsername());
+        assertEquals("Alice Smith", session.getFullName());
+
+        SessionManager restarted = new SessionManager(prefs);
+        assertEquals(7, restarted.getCurrentUserId());
+        assertEquals("Alice Smith", restarted.getFullName());
+    }
+
+    @Test
+    public void testLogoutKeepsAppSettings() {
+        prefs.edit().putInt(HistoryRetention.PREF_RETENTION_DAYS, 180).commit();
+        SessionManager session = new SessionManager(prefs);
+        session.login(createUser(7));
+        session.logout();
+
+        assertFalse(session.isLoggedIn());
+        assertFalse(new SessionManager(prefs).isLoggedIn());
+        assertEquals(180, prefs.getInt(HistoryRetention.PREF_RETENTION_DAYS, 0));
+    }
+
+    @Test
+    public void testListenersSeeLoginAndLogout() {
+        SessionManager session = new SessionManager(prefs);
+        List<String> events = new ArrayList<>();
+        SessionManager.SessionListener listener = new SessionManager.SessionListener() {
+            @Override
+            public void onLogin(int userId) {
+                events.add("login " + userId);
+            }
+
+            @Override
+            public void onLogout(int userId) {
+                events.add("logout " + userId);
+            }
+        };
+        session.addListener(listener);
+
+        session.login(createUser(3));
+        session.logout();
+        session.logout(); // Nobody signed in; not reported
+        session.removeListener(listener);
+        session.login(createUser(4));
+
+        assertEquals(Arrays.asList("login 3", "logout 3"), events);
+    }
+
+    private static User createUser(int id) {
+        User user = new User("alice", "alice@example.com", "Alice Smith", "hash");
+        user.setId(id);
+        return user;
+    }
+}
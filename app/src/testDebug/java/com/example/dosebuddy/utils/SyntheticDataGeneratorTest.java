@@ -0,0 +1,134 @@
+package com.example.dosebuddy.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.dosebuddy.database.AppDatabase;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the seeded synthetic data generator
+ * Each test writes into fresh in-memory databases with a fixed "now".
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SyntheticDataGeneratorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final List<AppDatabase> databases = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (AppDatabase database : databases) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void testSameSeedProducesSameRows() {
+        AppDatabase first = createDatabase();
+        AppDatabase second = createDatabase();
+        AppDatabase other = createDatabase();
+        new SyntheticDataGenerator(first, 7).generate(3, 4, 60, NOW);
+        new SyntheticDataGenerator(second, 7).generate(3, 4, 60, NOW);
+        new SyntheticDataGenerator(other, 8).generate(3, 4, 60, NOW);
+
+        String medications = "SELECT name, dosage, frequency, start_date, end_date, notes FROM medications ORDER BY id";
+        String history = "SELECT medication_id, scheduled_time, taken_at, taken_method, is_on_time, notes "
+                + "FROM medication_history ORDER BY id";
+        String ledger = "SELECT medication_id, scheduled_time, status, history_id FROM dose_instance ORDER BY id";
+
+        assertEquals(dump(first, medications), dump(second, medications));
+        assertEquals(dump(first, history), dump(second, history));
+        assertEquals(dump(first, ledger), dump(second, ledger));
+        assertNotEquals(dump(first, history), dump(other, history));
+    }
+
+    @Test
+    public void testResultMatchesWrittenRows() {
+        AppDatabase database = createDatabase();
+        SyntheticDataGenerator.Result result = new SyntheticDataGenerator(database, 1).generate(2, 5, 90, NOW);
+
+        assertEquals(2, result.users);
+        assertEquals(10, result.medications);
+        assertTrue(result.historyRecords > 0);
+        assertEquals(result.users, count(database, "SELECT COUNT(*) FROM users"));
+        assertEquals(result.medications, count(database, "SELECT COUNT(*) FROM medications"));
+        assertEquals(result.historyRecords, count(database, "SELECT COUNT(*) FROM medication_history"));
+        assertEquals(result.missedDoses, count(database, "SELECT COUNT(*) FROM dose_instance WHERE status = 'MISSED'"));
+
+        // Every taken dose in the ledger points at its history row, and nothing else is left over
+        assertEquals(0, count(database, "SELECT COUNT(*) FROM dose_instance WHERE status IN ('TAKEN', 'LATE') "
+                + "AND history_id NOT IN (SELECT id FROM medication_history WHERE scheduled_time IS NOT NULL)"));
+        assertEquals(0, count(database, "SELECT COUNT(*) FROM dose_instance WHERE status = 'PENDING'"));
+        assertEquals(0, count(database, "SELECT COUNT(*) FROM medication_history WHERE taken_at > " + NOW));
+    }
+
+    @Test
+    public void testOutcomeDistribution() {
+        AppDatabase database = createDatabase();
+        new SyntheticDataGenerator(database, 3).generate(4, 6, 365, NOW);
+
+        double scheduled = count(database, "SELECT COUNT(*) FROM dose_instance");
+        double missed = count(database, "SELECT COUNT(*) FROM dose_instance WHERE status = 'MISSED'");
+        double late = count(database, "SELECT COUNT(*) FROM dose_instance WHERE status = 'LATE'");
+        assertTrue(scheduled > 5000);
+        assertEquals(SyntheticDataGenerator.MISSED_RATE, missed / scheduled, 0.02);
+        assertEquals(SyntheticDataGenerator.LATE_RATE, late / scheduled, 0.02);
+
+        // Late doses are stored as not on time; everything taken within the window is on time
+        assertEquals(0, count(database, "SELECT COUNT(*) FROM medication_history h JOIN dose_instance d "
+                + "ON d.history_id = h.id WHERE (d.status = 'LATE') = h.is_on_time"));
+        assertTrue(count(database, "SELECT COUNT(*) FROM medication_history WHERE notes IS NOT NULL") > 0);
+        assertTrue(count(database, "SELECT COUNT(DISTINCT frequency) FROM medications") >= 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSeedCannotBeGeneratedTwice() {
+        AppDatabase database = createDatabase();
+        new SyntheticDataGenerator(database, 5).generate(1, 1, 7, NOW);
+        new SyntheticDataGenerator(database, 5).generate(1, 1, 7, NOW);
+    }
+
+    private AppDatabase createDatabase() {
+        Context context = ApplicationProvider.getApplicationContext();
+        AppDatabase database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        databases.add(database);
+        return database;
+    }
+
+    private static List<String> dump(AppDatabase database, String sql) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor cursor = database.query(sql, null)) {
+            while (cursor.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    row.append(cursor.getString(i)).append('|');
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    private static long count(AppDatabase database, String sql) {
+        try (Cursor cursor = database.query(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.utils.DateTimeUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting and day-boundary math in DateTimeUtils
+ * These run per row when the history and home screens bind, and per slot when
+ * reminders are scheduled. Timestamps cycle through a fixed set spread over two
+ * years so every call does real calendar work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateTimeUtilsBenchmark {
+
+    private static final int TIMESTAMPS = 1024; // Power of two for the index mask
+    private static final long TWO_YEARS_MS = 2L * 365 * 24 * 60 * 60 * 1000;
+
+    private final long[] timestamps = new long[TIMESTAMPS];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long base = 1_700_000_000_000L;
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            timestamps[i] = base + (long) (random.nextDouble() * TWO_YEARS_MS);
+        }
+    }
+
+    private long next() {
+        index = (index + 1) & (TIMESTAMPS - 1);
+        return timestamps[index];
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return DateTimeUtils.formatDate(next());
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return DateTimeUtils.formatTime(next());
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        return DateTimeUtils.formatDateTime(next());
+    }
+
+    @Benchmark
+    public long getStartOfDay() {
+        return DateTimeUtils.getStartOfDay(next());
+    }
+
+    @Benchmark
+    public long getEndOfDay() {
+        return DateTimeUtils.getEndOfDay(next());
+    }
+
+    @Benchmark
+    public long getStartOfMonth() {
+        return DateTimeUtils.getStartOfMonth(next());
+    }
+
+    @Benchmark
+    public int getDaysBetween() {
+        return DateTimeUtils.getDaysBetween(next(), next());
+    }
+
+    @Benchmark
+    public long addDays() {
+        return DateTimeUtils.addDays(next(), 7);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.api.DrugInfo;
+import com.example.dosebuddy.api.DrugSearchResponse;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an OpenFDA drug label search response the way DrugInfoService does:
+ * Gson into DrugSearchResponse, then toDrugInfo for each result
+ * The payloads in resources/openfda have the shape and field sizes of
+ * /drug/label.json responses at the limits DrugInfoService requests (5 and 10).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrugSearchResponseBenchmark {
+
+    @Param({"label_search_limit5.json", "label_search_limit10.json"})
+    public String payload;
+
+    private final Gson gson = new Gson();
+    private String responseBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = DrugSearchResponseBenchmark.class.getResourceAsStream("/openfda/" + payload)) {
+            if (in == null) {
+                throw new IOException("Missing payload " + payload);
+            }
+            responseBody = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public DrugSearchResponse parse() {
+        return gson.fromJson(responseBody, DrugSearchResponse.class);
+    }
+
+    @Benchmark
+    public List<DrugInfo> parseAndConvert() {
+        DrugSearchResponse response = gson.fromJson(responseBody, DrugSearchResponse.class);
+        List<DrugInfo> drugInfoList = new ArrayList<>();
+        for (DrugSearchResponse.DrugResult result : response.getResults()) {
+            DrugInfo drugInfo = result.toDrugInfo();
+            if (drugInfo.hasEssentialInfo()) {
+                drugInfoList.add(drugInfo);
+            }
+        }
+        return drugInfoList;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.database.MedicationFrequency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MedicationFrequency.fromString, called for every medication row read
+ * Covers a stored enum name, a lower-case value and an unknown value, which
+ * falls back to ONCE_DAILY.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MedicationFrequencyBenchmark {
+
+    @Param({"TWICE_DAILY", "every_other_day", "Twice a day"})
+    public String value;
+
+    @Benchmark
+    public MedicationFrequency fromString() {
+        return MedicationFrequency.fromString(value);
+    }
+}
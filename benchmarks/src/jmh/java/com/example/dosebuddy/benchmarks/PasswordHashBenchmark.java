@@ -0,0 +1,48 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.utils.PasswordUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating and verifying password hashes per work factor
+ * Host JVM timings are several times faster than a phone; use the ratio between
+ * rows, not the absolute numbers, when choosing PasswordWorkFactor.TARGET_HASH_MS
+ * and the iteration bounds in PasswordUtils.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse battery";
+
+    @Param({"20000", "60000", "120000", "250000"})
+    public int iterations;
+
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        storedHash = PasswordUtils.createPasswordHash(PASSWORD, iterations);
+    }
+
+    @Benchmark
+    public String createHash() {
+        return PasswordUtils.createPasswordHash(PASSWORD, iterations);
+    }
+
+    @Benchmark
+    public boolean verifyHash() {
+        return PasswordUtils.verifyPassword(PASSWORD, storedHash);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.database.MedicationFrequency;
+import com.example.dosebuddy.utils.ScheduleUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reminder time computation
+ * ReminderScheduler.getReminderSlots and getNextReminderTime are thin wrappers
+ * over these ScheduleUtils calls; ReminderScheduler itself needs WorkManager, so
+ * the benchmark drives the calls it delegates to. A full resync runs
+ * scheduleSlots once per active medication.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScheduleUtilsBenchmark {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @Param({"TWICE_DAILY", "EVERY_OTHER_DAY", "WEEKLY"})
+    public MedicationFrequency frequency;
+
+    private long startDate;
+    private long afterTime;
+    private List<Integer> storedMinutes;
+
+    @Setup
+    public void setUp() {
+        startDate = 1_700_000_000_000L;
+        // Late in the day, so daily slots roll to tomorrow and sparse cadences search ahead
+        afterTime = startDate + 100 * DAY_MS + 23 * 60 * 60 * 1000L;
+        storedMinutes = Arrays.asList(20 * 60, 8 * 60, 14 * 60, 8 * 60);
+    }
+
+    @Benchmark
+    public long getNextOccurrence() {
+        return ScheduleUtils.getNextOccurrence(frequency, startDate, 8 * 60, afterTime);
+    }
+
+    @Benchmark
+    public List<Integer> resolveDoseMinutes() {
+        return ScheduleUtils.resolveDoseMinutes(storedMinutes, frequency, 2);
+    }
+
+    @Benchmark
+    public List<Integer> defaultDoseMinutes() {
+        return ScheduleUtils.resolveDoseMinutes(null, frequency, 2);
+    }
+
+    // Arming one medication: resolve its stored slots, then each slot's next fire time
+    @Benchmark
+    public long scheduleSlots() {
+        long latest = -1;
+        for (int slot : ScheduleUtils.resolveDoseMinutes(storedMinutes, frequency, 2)) {
+            latest = Math.max(latest, ScheduleUtils.getNextOccurrence(frequency, startDate, slot, afterTime));
+        }
+        return latest;
+    }
+}
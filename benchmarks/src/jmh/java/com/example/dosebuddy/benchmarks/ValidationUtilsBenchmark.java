@@ -0,0 +1,62 @@
+package com.example.dosebuddy.benchmarks;
+
+import com.example.dosebuddy.utils.ValidationUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regular-expression checks run on every keystroke of the registration and
+ * medication forms
+ * Each benchmark checks one valid and one invalid input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationUtilsBenchmark {
+
+    public String validEmail = "first.last+meds@mail.example.org";
+    public String invalidEmail = "first.last+meds@mail";
+    public String validUsername = "dose_buddy_user42";
+    public String invalidUsername = "dose buddy!";
+    public String validFullName = "Jean-Pierre O'Connor";
+    public String validMedicationName = "Vitamin D3 (Cholecalciferol)";
+    public String validDosage = "2.5 mg/kg";
+    public String invalidDosage = "2.5 mg; twice";
+
+    @Benchmark
+    public boolean email() {
+        return ValidationUtils.isValidEmail(validEmail) & ValidationUtils.isValidEmail(invalidEmail);
+    }
+
+    @Benchmark
+    public boolean username() {
+        return ValidationUtils.isValidUsername(validUsername) & ValidationUtils.isValidUsername(invalidUsername);
+    }
+
+    @Benchmark
+    public boolean fullName() {
+        return ValidationUtils.isValidFullName(validFullName);
+    }
+
+    @Benchmark
+    public boolean medicationName() {
+        return ValidationUtils.isValidMedicationName(validMedicationName);
+    }
+
+    @Benchmark
+    public boolean dosage() {
+        return ValidationUtils.isValidDosage(validDosage) & ValidationUtils.isValidDosage(invalidDosage);
+    }
+
+    @Benchmark
+    public String usernameError() {
+        return ValidationUtils.getUsernameError(invalidUsername);
+    }
+}